@@ -22,6 +22,51 @@ public interface InventoryConstants {
      * 分布式锁前缀
      */
     String LOCK_KEY_PREFIX = CACHE_PREFIX + "lock:";
+
+    /**
+     * 可用库存Hash前缀（field为仓库ID，value为可用库存）
+     */
+    String STOCK_AVAILABLE_PREFIX = STOCK_CACHE_PREFIX + "available:";
+
+    /**
+     * 库存预占回写队列
+     */
+    String STOCK_RESERVE_QUEUE = CACHE_PREFIX + "reserve:queue";
+
+    /**
+     * 库存预占回写处理中队列
+     */
+    String STOCK_RESERVE_PROCESSING = CACHE_PREFIX + "reserve:processing";
+
+    /**
+     * 尚未回写的库存预占（Hash，field为工作单ID，value为预占记录）
+     */
+    String STOCK_RESERVE_PENDING = CACHE_PREFIX + "reserve:pending";
+
+    /**
+     * 库存预占回写锁
+     */
+    String STOCK_RECONCILE_LOCK = LOCK_KEY_PREFIX + "reconcile";
+
+    /**
+     * 库存分桶再平衡锁
+     */
+    String STOCK_REBALANCE_LOCK = LOCK_KEY_PREFIX + "rebalance";
+
+    /**
+     * 超时解锁扫描分区租约前缀
+     */
+    String STOCK_UNLOCK_SWEEP_LEASE = LOCK_KEY_PREFIX + "unlock-sweep:";
+
+    /**
+     * 超时解锁延迟任务主题（任务内容为工作单ID）
+     */
+    String STOCK_UNLOCK_DELAY_TOPIC = CACHE_PREFIX + "unlock";
+
+    /**
+     * 库存工作单事件主题
+     */
+    String STOCK_EVENT_TOPIC = "inventory.stock";
     
     /**
      * 库存锁定超时时间（分钟）
@@ -58,6 +103,18 @@ public interface InventoryConstants {
         int DEDUCTED = 3;
     }
     
+    /**
+     * 库存工作单事件类型
+     */
+    interface EventType {
+        /** 已锁定 */
+        String LOCKED = "stock.locked";
+        /** 已解锁 */
+        String UNLOCKED = "stock.unlocked";
+        /** 已扣减 */
+        String DEDUCTED = "stock.deducted";
+    }
+
     /**
      * 锁定状态
      */
@@ -17,6 +17,43 @@ public interface OrderConstants {
      * 订单创建锁前缀
      */
     String CREATE_LOCK_PREFIX = CACHE_PREFIX + "create:lock:";
+
+    /**
+     * 超时取消延迟任务主题（任务内容为订单ID）
+     */
+    String CANCEL_DELAY_TOPIC = CACHE_PREFIX + "cancel";
+
+    /**
+     * 订单事件主题（RabbitMQ交换机）
+     */
+    String EVENT_TOPIC = "order.event";
+
+    /**
+     * 订单服务自身的订单事件队列
+     */
+    String EVENT_QUEUE = "order.event.order-service";
+
+    /**
+     * 幂等键请求头，订单引起的跨服务写操作携带 订单号:操作，供下游去重
+     */
+    String IDEMPOTENCY_KEY_HEADER = "X-Idempotency-Key";
+
+    /**
+     * 订单事件已完成步骤标记前缀，后接幂等键，消息重新处理时跳过已完成的步骤
+     */
+    String EVENT_STEP_DONE_PREFIX = CACHE_PREFIX + "event:done:";
+
+    /**
+     * 订单事件类型（RabbitMQ路由键）
+     */
+    interface EventType {
+        /** 已创建 */
+        String CREATED = "order.created";
+        /** 已取消 */
+        String CANCELLED = "order.cancelled";
+        /** 已支付 */
+        String PAID = "order.paid";
+    }
     
     /**
      * 订单号前缀
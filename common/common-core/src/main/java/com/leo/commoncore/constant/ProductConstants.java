@@ -11,8 +11,48 @@ public interface ProductConstants {
     /**
      * 分类相关常量
      */
-    String CATEGORY_TREE_CACHE_KEY = "product:category:tree";
-    String CATEGORY_PATH_CACHE_KEY = "product:category:path:";
+    String CATEGORY_TREE_CACHE_KEY = "product:category:tree:";
+    String CATEGORY_VERSION_KEY = "product:category:version";
+    String CATEGORY_CHANGED_CHANNEL = "product:category:changed";
+    String CATEGORY_PATH_SEPARATOR = "/";
+
+    /**
+     * 搜索结果共享缓存，键中带代次号，索引变化时递增代次
+     */
+    String SEARCH_CACHE_KEY = "product:search:";
+    String SEARCH_CACHE_GENERATION_KEY = "product:search:generation";
+
+    /**
+     * 商品索引别名，全量重建写入带版本号的新索引后切换别名
+     */
+    String PRODUCT_INDEX = "product";
+
+    /**
+     * 热门搜索，ZSET中member为规范化后的关键字，分钟桶与小时桶后缀为桶序号，排行为合并后的结果
+     */
+    String HOT_KEYWORD_MINUTE_KEY = "product:hot-keyword:m:";
+    String HOT_KEYWORD_HOUR_KEY = "product:hot-keyword:h:";
+    String HOT_KEYWORD_TOP_KEY = "product:hot-keyword:top:";
+
+    /**
+     * 商品热度，HASH中field为skuId，值为对数前向衰减热度
+     */
+    String HOT_SCORE_KEY = "product:hot:score";
+
+    /**
+     * 热度事件去重键前缀，后接调用方的幂等键
+     */
+    String HOT_EVENT_DEDUP_KEY = "product:hot:dedup:";
+
+    /**
+     * SKU快照变更通知频道，消息格式为skuId:version，多个以逗号分隔
+     */
+    String SKU_CHANGED_CHANNEL = "product:sku:changed";
+
+    /**
+     * 搜索建议变更通知频道，消息为上下架SKU的建议词来源JSON
+     */
+    String SUGGEST_CHANGED_CHANNEL = "product:suggest:changed";
     
     /**
      * 商品发布状态
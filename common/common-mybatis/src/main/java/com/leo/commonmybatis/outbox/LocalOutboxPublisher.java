@@ -0,0 +1,56 @@
+package com.leo.commonmybatis.outbox;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 进程内发布器
+ * 未接入消息中间件时的替代实现，按主题直接回调本服务的{@link OutboxEventHandler}
+ * 逐条处理、逐条确认，某条失败后同一业务键的后续消息本批不再处理，保持同一业务键的事件顺序
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Slf4j
+public class LocalOutboxPublisher implements OutboxPublisher {
+
+    private final Map<String, OutboxEventHandler> handlers;
+
+    public LocalOutboxPublisher(List<OutboxEventHandler> handlers) {
+        this.handlers = handlers.stream()
+                .collect(Collectors.toMap(OutboxEventHandler::topic, Function.identity()));
+    }
+
+    @Override
+    public Set<Long> publish(List<OutboxMessage> messages) {
+        Set<Long> confirmed = new HashSet<>(messages.size() * 2);
+        Set<String> failedKeys = new HashSet<>();
+        for (OutboxMessage message : messages) {
+            if (failedKeys.contains(message.getBizKey())) {
+                continue;
+            }
+            OutboxEventHandler handler = handlers.get(message.getTopic());
+            if (handler == null) {
+                log.debug("发件箱消息无订阅者，主题：{}，事件：{}，业务键：{}",
+                        message.getTopic(), message.getEventType(), message.getBizKey());
+                confirmed.add(message.getId());
+                continue;
+            }
+            try {
+                handler.handle(message);
+                confirmed.add(message.getId());
+            } catch (Exception e) {
+                failedKeys.add(message.getBizKey());
+                log.warn("发件箱消息处理失败，主题：{}，事件：{}，业务键：{}",
+                        message.getTopic(), message.getEventType(), message.getBizKey(), e);
+            }
+        }
+        return confirmed;
+    }
+}
@@ -0,0 +1,21 @@
+package com.leo.commonmybatis.outbox;
+
+/**
+ * 发件箱事件处理器
+ * 由{@link LocalOutboxPublisher}在进程内按主题回调，处理需幂等
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+public interface OutboxEventHandler {
+
+    /**
+     * 处理的主题
+     */
+    String topic();
+
+    /**
+     * 处理一条消息，抛出异常时该消息稍后重试
+     */
+    void handle(OutboxMessage message) throws Exception;
+}
@@ -0,0 +1,86 @@
+package com.leo.commonmybatis.outbox;
+
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 发件箱Mapper
+ * 各服务在自己的mapper包中声明子接口并加@Mapper，表结构见各服务SQL脚本中的outbox_message
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+public interface OutboxMapper {
+
+    /**
+     * 批量写入消息
+     */
+    @Insert("<script>" +
+            "INSERT INTO outbox_message (id, topic, event_type, biz_key, payload, status, attempts, next_retry_time, create_time) VALUES " +
+            "<foreach collection='list' item='item' separator=','>" +
+            "(#{item.id}, #{item.topic}, #{item.eventType}, #{item.bizKey}, #{item.payload}, " +
+            "#{item.status}, #{item.attempts}, #{item.nextRetryTime}, #{item.createTime})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("list") List<OutboxMessage> list);
+
+    /**
+     * 锁定一批到期的待投递消息，跳过其他节点正在认领的行
+     */
+    @Select("SELECT id, topic, event_type, biz_key, payload, status, attempts, next_retry_time, create_time " +
+            "FROM outbox_message WHERE status = 0 AND next_retry_time <= #{now} " +
+            "ORDER BY id LIMIT #{limit} FOR UPDATE SKIP LOCKED")
+    List<OutboxMessage> selectDueForUpdate(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /**
+     * 认领消息：把下次投递时间推迟到租约到期时间
+     * 认领事务提交后在事务外投递，节点在租约内宕机时消息到期后由其他节点重新认领
+     */
+    @Update("<script>" +
+            "UPDATE outbox_message SET next_retry_time = #{leaseUntil} WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int lease(@Param("ids") List<Long> ids, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * 删除已投递的消息
+     */
+    @Delete("<script>" +
+            "DELETE FROM outbox_message WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int deleteByIds(@Param("ids") List<Long> ids);
+
+    /**
+     * 投递失败，按每条消息自身的失败次数指数退避；失败次数达到上限的消息转为死信，不再投递
+     * MySQL按从左到右的顺序赋值，attempts放在最后，前面的表达式使用的是本次失败前的次数
+     *
+     * @param ids              消息ID
+     * @param now              当前时间
+     * @param retryInterval    首次重试间隔（毫秒）
+     * @param maxRetryInterval 最大重试间隔（毫秒）
+     * @param maxAttempts      最大失败次数
+     * @return 更新行数
+     */
+    @Update("<script>" +
+            "UPDATE outbox_message SET " +
+            "next_retry_time = TIMESTAMPADD(MICROSECOND, " +
+            "CAST(1000 * LEAST(#{maxRetryInterval}, #{retryInterval} * POWER(2, LEAST(attempts, 20))) AS SIGNED), " +
+            "CAST(#{now} AS DATETIME)), " +
+            "status = CASE WHEN attempts + 1 >= #{maxAttempts} THEN 1 ELSE 0 END, " +
+            "attempts = attempts + 1 " +
+            "WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int markRetry(@Param("ids") List<Long> ids,
+                  @Param("now") LocalDateTime now,
+                  @Param("retryInterval") long retryInterval,
+                  @Param("maxRetryInterval") long maxRetryInterval,
+                  @Param("maxAttempts") int maxAttempts);
+}
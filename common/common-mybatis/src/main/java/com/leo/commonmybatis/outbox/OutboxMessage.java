@@ -0,0 +1,70 @@
+package com.leo.commonmybatis.outbox;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 发件箱消息
+ * 与业务数据在同一事务内写入，提交后由{@link OutboxRelay}异步投递
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Data
+@TableName("outbox_message")
+public class OutboxMessage {
+
+    /**
+     * 状态：待投递
+     */
+    public static final int STATUS_PENDING = 0;
+
+    /**
+     * 状态：死信，失败次数达到上限后不再投递，需人工处理
+     */
+    public static final int STATUS_DEAD = 1;
+
+    @TableId(type = IdType.INPUT)
+    private Long id;
+
+    /**
+     * 主题（对应交换机）
+     */
+    private String topic;
+
+    /**
+     * 事件类型（对应路由键）
+     */
+    private String eventType;
+
+    /**
+     * 业务键（订单号、工作单ID等）
+     */
+    private String bizKey;
+
+    /**
+     * 消息内容（JSON）
+     */
+    private String payload;
+
+    /**
+     * 状态（0-待投递 1-死信）
+     */
+    private Integer status;
+
+    /**
+     * 已投递失败次数
+     */
+    private Integer attempts;
+
+    /**
+     * 下次投递时间
+     */
+    private LocalDateTime nextRetryTime;
+
+    private LocalDateTime createTime;
+}
@@ -0,0 +1,48 @@
+package com.leo.commonmybatis.outbox;
+
+import lombok.Data;
+
+/**
+ * 发件箱配置属性
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Data
+public class OutboxProperties {
+
+    /**
+     * 兜底轮询间隔（毫秒），事务提交后会立即触发一次投递
+     */
+    private long pollInterval = 500;
+
+    /**
+     * 单批投递的消息数
+     */
+    private int batchSize = 200;
+
+    /**
+     * 单次投递最多处理的批次数
+     */
+    private int maxBatchesPerRun = 20;
+
+    /**
+     * 首次重试间隔（毫秒），之后按次数翻倍
+     */
+    private long retryInterval = 1000;
+
+    /**
+     * 最大重试间隔（毫秒）
+     */
+    private long maxRetryInterval = 300000;
+
+    /**
+     * 最大失败次数，达到后消息转为死信
+     */
+    private int maxAttempts = 16;
+
+    /**
+     * 认领租约（毫秒），投递超过租约仍未确认的消息会被重新认领
+     */
+    private long leaseTimeout = 60000;
+}
@@ -0,0 +1,22 @@
+package com.leo.commonmybatis.outbox;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 发件箱消息发布器
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+public interface OutboxPublisher {
+
+    /**
+     * 发布一批消息
+     * 逐条确认，已确认的消息立即删除，其余稍后重试；抛出异常时整批稍后重试，消息可能重复投递
+     *
+     * @param messages 按写入顺序排列的消息
+     * @return 已被下游确认的消息ID
+     */
+    Set<Long> publish(List<OutboxMessage> messages) throws Exception;
+}
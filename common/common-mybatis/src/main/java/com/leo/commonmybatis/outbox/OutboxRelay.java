@@ -0,0 +1,181 @@
+package com.leo.commonmybatis.outbox;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * 发件箱投递器
+ *
+ * 1. 每批在一个短事务内SELECT ... FOR UPDATE SKIP LOCKED锁定到期消息，并把下次投递时间推迟到租约到期时间后提交，
+ *    多节点并发投递互不重叠；投递在事务外进行，不在发布期间持有行锁和数据库连接
+ * 2. 整批交给{@link OutboxPublisher}，逐条确认：已确认的一条DELETE删除，未确认的按各自的失败次数指数退避，
+ *    已成功的消息不随失败的消息重复投递；失败次数达到上限的消息转为死信
+ * 3. 节点在租约内宕机时，已认领的消息在租约到期后由其他节点重新认领
+ * 4. 业务事务提交后立即唤醒，轮询只作为兜底，投递延迟不超过轮询间隔
+ *
+ * 投递语义为至少一次，下游需按业务键幂等。
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Slf4j
+public class OutboxRelay implements SmartLifecycle {
+
+    private final OutboxMapper outboxMapper;
+    private final OutboxPublisher outboxPublisher;
+    private final OutboxProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean();
+
+    private volatile ScheduledExecutorService executor;
+
+    public OutboxRelay(OutboxMapper outboxMapper,
+                       OutboxPublisher outboxPublisher,
+                       OutboxProperties properties,
+                       PlatformTransactionManager transactionManager) {
+        this.outboxMapper = outboxMapper;
+        this.outboxPublisher = outboxPublisher;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "outbox-relay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::relayQuietly,
+                properties.getPollInterval(), properties.getPollInterval(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        ScheduledExecutorService current = executor;
+        executor = null;
+        if (current != null) {
+            current.shutdown();
+            try {
+                current.awaitTermination(properties.getPollInterval() * 2, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return executor != null;
+    }
+
+    /**
+     * 唤醒投递
+     * 并发的多次唤醒合并为一次
+     */
+    public void wakeUp() {
+        ScheduledExecutorService current = executor;
+        if (current != null && wakeUpPending.compareAndSet(false, true)) {
+            current.execute(this::relayQuietly);
+        }
+    }
+
+    /**
+     * 投递到期消息
+     *
+     * @return 投递成功的消息数
+     */
+    public int relay() {
+        int total = 0;
+        for (int batch = 0; batch < properties.getMaxBatchesPerRun(); batch++) {
+            List<OutboxMessage> claimed = transactionTemplate.execute(status -> claim());
+            if (claimed == null || claimed.isEmpty()) {
+                break;
+            }
+            total += publish(claimed);
+            if (claimed.size() < properties.getBatchSize()) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    private void relayQuietly() {
+        wakeUpPending.set(false);
+        try {
+            relay();
+        } catch (Exception e) {
+            log.error("发件箱投递失败", e);
+        }
+    }
+
+    /**
+     * 认领一批到期消息
+     */
+    private List<OutboxMessage> claim() {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxMessage> batch = outboxMapper.selectDueForUpdate(now, properties.getBatchSize());
+        if (!batch.isEmpty()) {
+            outboxMapper.lease(batch.stream().map(OutboxMessage::getId).collect(Collectors.toList()),
+                    now.plusNanos(TimeUnit.MILLISECONDS.toNanos(properties.getLeaseTimeout())));
+        }
+        return batch;
+    }
+
+    /**
+     * 投递已认领的消息并逐条确认
+     *
+     * @return 投递成功的消息数
+     */
+    private int publish(List<OutboxMessage> batch) {
+        Set<Long> confirmed;
+        try {
+            confirmed = outboxPublisher.publish(batch);
+        } catch (Exception e) {
+            log.warn("发件箱批次投递失败，消息数：{}", batch.size(), e);
+            confirmed = Collections.emptySet();
+        }
+
+        List<Long> succeeded = new ArrayList<>(confirmed.size());
+        List<OutboxMessage> failed = new ArrayList<>();
+        for (OutboxMessage message : batch) {
+            if (confirmed.contains(message.getId())) {
+                succeeded.add(message.getId());
+            } else {
+                failed.add(message);
+            }
+        }
+        if (!succeeded.isEmpty()) {
+            outboxMapper.deleteByIds(succeeded);
+        }
+        if (!failed.isEmpty()) {
+            List<Long> ids = failed.stream().map(OutboxMessage::getId).collect(Collectors.toList());
+            outboxMapper.markRetry(ids, LocalDateTime.now(), properties.getRetryInterval(),
+                    properties.getMaxRetryInterval(), properties.getMaxAttempts());
+            List<Long> dead = failed.stream()
+                    .filter(message -> message.getAttempts() + 1 >= properties.getMaxAttempts())
+                    .map(OutboxMessage::getId)
+                    .collect(Collectors.toList());
+            log.warn("发件箱消息投递失败，稍后重试，失败数：{}", failed.size());
+            if (!dead.isEmpty()) {
+                log.error("发件箱消息失败次数达到上限，已转为死信：{}", dead);
+            }
+        }
+        return succeeded.size();
+    }
+}
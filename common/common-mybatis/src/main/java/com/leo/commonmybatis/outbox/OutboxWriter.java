@@ -0,0 +1,91 @@
+package com.leo.commonmybatis.outbox;
+
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 发件箱写入器
+ * 只能在业务事务内调用，消息与业务数据一起提交或回滚，提交后立即唤醒投递
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+public class OutboxWriter {
+
+    private final OutboxMapper outboxMapper;
+    private final OutboxRelay outboxRelay;
+    private final ObjectMapper objectMapper;
+
+    public OutboxWriter(OutboxMapper outboxMapper, OutboxRelay outboxRelay, ObjectMapper objectMapper) {
+        this.outboxMapper = outboxMapper;
+        this.outboxRelay = outboxRelay;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 写入一条消息
+     *
+     * @param topic     主题
+     * @param eventType 事件类型
+     * @param bizKey    业务键
+     * @param payload   消息内容，序列化为JSON
+     */
+    public void append(String topic, String eventType, String bizKey, Object payload) {
+        appendAll(List.of(build(topic, eventType, bizKey, payload)));
+    }
+
+    /**
+     * 一条语句写入多条消息
+     */
+    public void appendAll(List<OutboxMessage> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("发件箱消息必须在业务事务内写入");
+        }
+        outboxMapper.insertBatch(messages);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                outboxRelay.wakeUp();
+            }
+        });
+    }
+
+    /**
+     * 构建消息
+     */
+    public OutboxMessage build(String topic, String eventType, String bizKey, Object payload) {
+        LocalDateTime now = LocalDateTime.now();
+        OutboxMessage message = new OutboxMessage();
+        // 雪花ID随时间递增，投递按ID顺序进行
+        message.setId(IdWorker.getId());
+        message.setTopic(topic);
+        message.setEventType(eventType);
+        message.setBizKey(bizKey);
+        message.setPayload(toJson(payload));
+        message.setStatus(OutboxMessage.STATUS_PENDING);
+        message.setAttempts(0);
+        message.setNextRetryTime(now);
+        message.setCreateTime(now);
+        return message;
+    }
+
+    private String toJson(Object payload) {
+        if (payload instanceof String json) {
+            return json;
+        }
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("发件箱消息序列化失败", e);
+        }
+    }
+}
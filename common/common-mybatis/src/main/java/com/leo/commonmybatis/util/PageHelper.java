@@ -42,6 +42,14 @@ public class PageHelper {
                 (int) page.getCurrent(), (int) page.getSize());
     }
 
+    /**
+     * 构建分页结果（整页批量转换，转换器一次拿到本页全部记录，可批量查询关联数据）
+     */
+    public static <T, R> PageResult<R> buildBatchPageResult(IPage<T> page, Function<List<T>, List<R>> converter) {
+        return new PageResult<>(converter.apply(page.getRecords()), page.getTotal(),
+                (int) page.getCurrent(), (int) page.getSize());
+    }
+
     /**
      * 手动分页
      */
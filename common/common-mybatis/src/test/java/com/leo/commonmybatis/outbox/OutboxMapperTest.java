@@ -0,0 +1,118 @@
+package com.leo.commonmybatis.outbox;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.MybatisSqlSessionFactoryBuilder;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 单元测试：OutboxMapper（H2 MySQL兼容模式）
+ * 只认领到期的待投递消息，失败消息按各自的失败次数退避，达到上限后转为死信
+ */
+public class OutboxMapperTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 2, 3, 10, 0);
+
+    private SqlSession session;
+    private OutboxMapper outboxMapper;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        UnpooledDataSource dataSource = new UnpooledDataSource("org.h2.Driver",
+                "jdbc:h2:mem:outbox;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        MybatisConfiguration configuration = new MybatisConfiguration(
+                new Environment("test", new JdbcTransactionFactory(), dataSource));
+        configuration.setMapUnderscoreToCamelCase(true);
+        configuration.addMapper(OutboxMapper.class);
+        SqlSessionFactory factory = new MybatisSqlSessionFactoryBuilder().build(configuration);
+        session = factory.openSession(true);
+        outboxMapper = session.getMapper(OutboxMapper.class);
+
+        try (Statement statement = session.getConnection().createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS outbox_message");
+            statement.execute("CREATE TABLE outbox_message (id BIGINT PRIMARY KEY, topic VARCHAR(100), " +
+                    "event_type VARCHAR(100), biz_key VARCHAR(64), payload TEXT, status TINYINT NOT NULL DEFAULT 0, " +
+                    "attempts INT NOT NULL DEFAULT 0, next_retry_time DATETIME NOT NULL, create_time DATETIME)");
+            // 1、2已到期，3未到期，4为死信
+            statement.execute("INSERT INTO outbox_message (id, topic, event_type, status, attempts, next_retry_time) VALUES " +
+                    "(1, 't', 'e', 0, 0, '2025-02-03 09:59:00'), (2, 't', 'e', 0, 3, '2025-02-03 10:00:00'), " +
+                    "(3, 't', 'e', 0, 0, '2025-02-03 10:00:01'), (4, 't', 'e', 1, 16, '2025-02-03 09:00:00')");
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        session.close();
+    }
+
+    @Test
+    void selectDueForUpdate_onlyDuePendingMessages() {
+        List<Long> ids = outboxMapper.selectDueForUpdate(NOW, 10).stream()
+                .map(OutboxMessage::getId).collect(Collectors.toList());
+
+        assertEquals(List.of(1L, 2L), ids);
+        assertEquals(List.of(1L), outboxMapper.selectDueForUpdate(NOW, 1).stream()
+                .map(OutboxMessage::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void lease_hidesClaimedMessagesUntilLeaseExpires() {
+        outboxMapper.lease(List.of(1L, 2L), NOW.plusMinutes(1));
+
+        assertTrue(outboxMapper.selectDueForUpdate(NOW, 10).isEmpty());
+        assertEquals(List.of(1L, 2L, 3L), outboxMapper.selectDueForUpdate(NOW.plusMinutes(1), 10).stream()
+                .map(OutboxMessage::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void markRetry_backsOffByEachRowsAttempts() throws SQLException {
+        int updated = outboxMapper.markRetry(List.of(1L, 2L), NOW, 1000, 300000, 16);
+
+        assertEquals(2, updated);
+        Map<Long, String> rows = rows();
+        // 首次失败1秒后重试，第4次失败8秒后重试
+        assertEquals("0|1|2025-02-03T10:00:01", rows.get(1L));
+        assertEquals("0|4|2025-02-03T10:00:08", rows.get(2L));
+    }
+
+    @Test
+    void markRetry_capsIntervalAndDeadLettersAtMaxAttempts() throws SQLException {
+        outboxMapper.markRetry(List.of(2L), NOW, 1000, 5000, 4);
+
+        assertEquals("1|4|2025-02-03T10:00:05", rows().get(2L));
+        assertTrue(outboxMapper.selectDueForUpdate(NOW.plusDays(1), 10).stream()
+                .noneMatch(message -> message.getId() == 2L));
+    }
+
+    /**
+     * 消息ID -> 状态|失败次数|下次投递时间
+     */
+    private Map<Long, String> rows() throws SQLException {
+        Map<Long, String> rows = new HashMap<>();
+        try (Statement statement = session.getConnection().createStatement();
+             ResultSet rs = statement.executeQuery("SELECT id, status, attempts, next_retry_time FROM outbox_message")) {
+            while (rs.next()) {
+                rows.put(rs.getLong("id"), rs.getInt("status") + "|" + rs.getInt("attempts") + "|"
+                        + rs.getTimestamp("next_retry_time").toLocalDateTime());
+            }
+        }
+        return rows;
+    }
+}
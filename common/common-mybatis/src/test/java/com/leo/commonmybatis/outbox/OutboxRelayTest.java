@@ -0,0 +1,111 @@
+package com.leo.commonmybatis.outbox;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 单元测试：OutboxRelay（mock Mapper与发布器）
+ * 认领事务提交后再投递，已确认的消息删除，其余按各自的失败次数退避
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class OutboxRelayTest {
+
+    @Mock
+    private OutboxMapper outboxMapper;
+
+    @Mock
+    private OutboxPublisher outboxPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private OutboxProperties properties;
+
+    private OutboxRelay relay;
+
+    @BeforeEach
+    public void setUp() {
+        properties = new OutboxProperties();
+        properties.setBatchSize(2);
+        relay = new OutboxRelay(outboxMapper, outboxPublisher, properties, transactionManager);
+    }
+
+    @Test
+    void relay_claimsAndCommitsBeforePublishing() throws Exception {
+        when(outboxMapper.selectDueForUpdate(any(), eq(2))).thenReturn(List.of(message(1L, 0)));
+        when(outboxPublisher.publish(anyList())).thenReturn(Set.of(1L));
+
+        assertEquals(1, relay.relay());
+
+        // 投递时认领事务已提交，不持有行锁
+        InOrder inOrder = inOrder(outboxMapper, transactionManager, outboxPublisher);
+        inOrder.verify(outboxMapper).selectDueForUpdate(any(), eq(2));
+        inOrder.verify(outboxMapper).lease(eq(List.of(1L)), any());
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(outboxPublisher).publish(anyList());
+        inOrder.verify(outboxMapper).deleteByIds(List.of(1L));
+    }
+
+    @Test
+    void relay_acksConfirmedAndRetriesTheRest() throws Exception {
+        // 整批满额时继续认领下一批
+        when(outboxMapper.selectDueForUpdate(any(), eq(2)))
+                .thenReturn(List.of(message(1L, 0), message(2L, 3)))
+                .thenReturn(List.of());
+        when(outboxPublisher.publish(anyList())).thenReturn(Set.of(1L));
+
+        assertEquals(1, relay.relay());
+
+        verify(outboxMapper).deleteByIds(List.of(1L));
+        verify(outboxMapper).markRetry(eq(List.of(2L)), any(), eq(properties.getRetryInterval()),
+                eq(properties.getMaxRetryInterval()), eq(properties.getMaxAttempts()));
+        verify(outboxMapper, times(2)).selectDueForUpdate(any(), eq(2));
+    }
+
+    @Test
+    void relay_publisherFailureRetriesWholeBatch() throws Exception {
+        when(outboxMapper.selectDueForUpdate(any(), eq(2))).thenReturn(List.of(message(1L, 0)));
+        when(outboxPublisher.publish(anyList())).thenThrow(new IllegalStateException("broker down"));
+
+        assertEquals(0, relay.relay());
+
+        verify(outboxMapper, never()).deleteByIds(anyList());
+        verify(outboxMapper).markRetry(eq(List.of(1L)), any(), anyLong(), anyLong(), anyInt());
+    }
+
+    @Test
+    void relay_nothingDueDoesNotPublish() throws Exception {
+        when(outboxMapper.selectDueForUpdate(any(), eq(2))).thenReturn(List.of());
+
+        assertEquals(0, relay.relay());
+
+        verify(outboxMapper, never()).lease(anyList(), any());
+        verify(outboxPublisher, never()).publish(anyList());
+    }
+
+    private static OutboxMessage message(Long id, int attempts) {
+        OutboxMessage message = new OutboxMessage();
+        message.setId(id);
+        message.setTopic("t");
+        message.setEventType("e");
+        message.setBizKey("k" + id);
+        message.setStatus(OutboxMessage.STATUS_PENDING);
+        message.setAttempts(attempts);
+        return message;
+    }
+}
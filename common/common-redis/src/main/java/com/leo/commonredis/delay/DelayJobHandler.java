@@ -0,0 +1,30 @@
+package com.leo.commonredis.delay;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 延迟任务处理器
+ *
+ * 注册为Bean后由{@link DelayQueuePoller}按主题轮询并回调。
+ * 投递语义为至少一次：未确认的任务在可见性超时后会再次投递，处理必须幂等。
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+public interface DelayJobHandler {
+
+    /**
+     * 任务主题
+     */
+    String topic();
+
+    /**
+     * 处理一批到期任务
+     * 抛出异常时整批不确认
+     *
+     * @param payloads 任务内容
+     * @return 处理完成、可以确认的任务
+     */
+    Collection<String> handle(List<String> payloads);
+}
@@ -0,0 +1,112 @@
+package com.leo.commonredis.delay;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 延迟队列轮询器
+ *
+ * 使用独立的单线程调度器轮询全部已注册主题，不与业务定时任务共用调度线程，
+ * 长耗时的定时任务不会推迟延迟任务的触发。没有注册处理器时不启动。
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Slf4j
+@Component
+public class DelayQueuePoller implements SmartLifecycle {
+
+    private final RedisDelayQueue delayQueue;
+    private final DelayQueueProperties properties;
+    private final ObjectProvider<DelayJobHandler> handlerProvider;
+
+    private volatile ScheduledExecutorService executor;
+
+    public DelayQueuePoller(RedisDelayQueue delayQueue,
+                            DelayQueueProperties properties,
+                            ObjectProvider<DelayJobHandler> handlerProvider) {
+        this.delayQueue = delayQueue;
+        this.properties = properties;
+        this.handlerProvider = handlerProvider;
+    }
+
+    @Override
+    public void start() {
+        // 同一主题只允许一个处理器
+        Map<String, DelayJobHandler> handlers = handlerProvider.orderedStream()
+                .collect(Collectors.toMap(DelayJobHandler::topic, Function.identity(), (a, b) -> {
+                    throw new IllegalStateException("延迟任务主题重复注册：" + a.topic());
+                }, LinkedHashMap::new));
+        if (!properties.isEnabled() || handlers.isEmpty()) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "delay-queue-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> handlers.values().forEach(this::poll),
+                properties.getPollInterval(), properties.getPollInterval(), TimeUnit.MILLISECONDS);
+        log.info("延迟队列轮询启动，主题：{}", handlers.keySet());
+    }
+
+    @Override
+    public void stop() {
+        ScheduledExecutorService current = executor;
+        executor = null;
+        if (current != null) {
+            current.shutdown();
+            try {
+                current.awaitTermination(properties.getPollInterval() * 2, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return executor != null;
+    }
+
+    /**
+     * 领取并处理一个主题的到期任务
+     * 处理失败的任务不确认，可见性超时后重新投递
+     *
+     * @param handler 处理器
+     * @return 确认的任务数
+     */
+    public int poll(DelayJobHandler handler) {
+        String topic = handler.topic();
+        int acked = 0;
+        try {
+            for (int batch = 0; batch < properties.getMaxBatchesPerPoll(); batch++) {
+                List<String> jobs = delayQueue.claim(topic, properties.getBatchSize(), properties.getVisibilityTimeout());
+                if (jobs.isEmpty()) {
+                    break;
+                }
+                Collection<String> done = handler.handle(jobs);
+                delayQueue.ack(topic, done);
+                acked += done.size();
+                if (done.size() < jobs.size()) {
+                    log.warn("延迟任务部分处理失败，主题：{}，领取：{}，确认：{}", topic, jobs.size(), done.size());
+                }
+                if (jobs.size() < properties.getBatchSize()) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("延迟任务处理失败，将在可见性超时后重新投递，主题：{}", topic, e);
+        }
+        return acked;
+    }
+}
@@ -0,0 +1,42 @@
+package com.leo.commonredis.delay;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 延迟队列配置属性
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "delay-queue")
+public class DelayQueueProperties {
+
+    /**
+     * 是否启用轮询
+     */
+    private boolean enabled = true;
+
+    /**
+     * 轮询间隔（毫秒）
+     */
+    private long pollInterval = 1000;
+
+    /**
+     * 单次领取的任务数
+     */
+    private int batchSize = 100;
+
+    /**
+     * 单次轮询每个主题最多领取的批次数
+     */
+    private int maxBatchesPerPoll = 10;
+
+    /**
+     * 可见性超时（毫秒），领取后超过该时间未确认的任务重新投递
+     */
+    private long visibilityTimeout = 60000;
+}
@@ -0,0 +1,112 @@
+package com.leo.commonredis.delay;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Redis延迟队列
+ *
+ * 每个主题两个ZSET：待执行队列以到期时间为score，处理中队列以可见性超时时间为score。
+ * 1. 投递：ZADD到待执行队列，同一任务重复投递只更新到期时间
+ * 2. 领取：Lua脚本原子地把到期任务移入处理中队列，并把超过可见性超时仍未确认的任务重新投递
+ * 3. 确认：处理完成后从处理中队列移除
+ *
+ * 到期判断使用各节点的本地时钟，节点间时钟偏差即为触发误差。
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Slf4j
+@Component
+public class RedisDelayQueue {
+
+    /**
+     * 键前缀，主题用哈希标签包裹，保证同一主题的两个队列在集群中落在同一槽位
+     */
+    private static final String KEY_PREFIX = "delay:";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final DefaultRedisScript<List> claimScript;
+
+    public RedisDelayQueue(StringRedisTemplate stringRedisTemplate) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.claimScript = new DefaultRedisScript<>();
+        this.claimScript.setLocation(new ClassPathResource("lua/delay_claim.lua"));
+        this.claimScript.setResultType(List.class);
+    }
+
+    /**
+     * 投递延迟任务
+     *
+     * @param topic   主题
+     * @param payload 任务内容
+     * @param dueAt   到期时间（毫秒时间戳）
+     */
+    public void offer(String topic, String payload, long dueAt) {
+        stringRedisTemplate.opsForZSet().add(readyKey(topic), payload, dueAt);
+    }
+
+    /**
+     * 领取一批到期任务
+     *
+     * @param topic             主题
+     * @param limit             最多领取数量
+     * @param visibilityTimeout 可见性超时（毫秒）
+     * @return 到期任务，没有时返回空列表
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> claim(String topic, int limit, long visibilityTimeout) {
+        List<String> jobs = stringRedisTemplate.execute(claimScript,
+                Arrays.asList(readyKey(topic), processingKey(topic)),
+                String.valueOf(System.currentTimeMillis()), String.valueOf(limit), String.valueOf(visibilityTimeout));
+        return jobs == null ? Collections.emptyList() : jobs;
+    }
+
+    /**
+     * 确认任务处理完成
+     *
+     * @param topic    主题
+     * @param payloads 任务内容
+     */
+    public void ack(String topic, Collection<String> payloads) {
+        if (payloads.isEmpty()) {
+            return;
+        }
+        stringRedisTemplate.opsForZSet().remove(processingKey(topic), payloads.toArray());
+    }
+
+    /**
+     * 撤销任务（业务已提前完成时调用）
+     *
+     * @param topic   主题
+     * @param payload 任务内容
+     */
+    public void remove(String topic, String payload) {
+        stringRedisTemplate.opsForZSet().remove(readyKey(topic), payload);
+        stringRedisTemplate.opsForZSet().remove(processingKey(topic), payload);
+    }
+
+    /**
+     * 待执行任务数
+     */
+    public long size(String topic) {
+        Long size = stringRedisTemplate.opsForZSet().zCard(readyKey(topic));
+        return size == null ? 0 : size;
+    }
+
+    private String readyKey(String topic) {
+        return KEY_PREFIX + "{" + topic + "}:ready";
+    }
+
+    private String processingKey(String topic) {
+        return KEY_PREFIX + "{" + topic + "}:processing";
+    }
+}
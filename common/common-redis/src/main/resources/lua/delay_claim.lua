@@ -0,0 +1,23 @@
+-- 领取一批到期的延迟任务
+-- KEYS[1] : 待执行ZSET（score为到期时间）
+-- KEYS[2] : 处理中ZSET（score为可见性超时时间）
+-- ARGV[1] : 当前时间（毫秒）
+-- ARGV[2] : 批次大小
+-- ARGV[3] : 可见性超时（毫秒）
+local now = tonumber(ARGV[1])
+local limit = tonumber(ARGV[2])
+
+-- 超过可见性超时仍未确认的任务重新投递
+local expired = redis.call('ZRANGEBYSCORE', KEYS[2], '-inf', now, 'LIMIT', 0, limit)
+for i = 1, #expired do
+    redis.call('ZREM', KEYS[2], expired[i])
+    redis.call('ZADD', KEYS[1], now, expired[i])
+end
+
+local jobs = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', now, 'LIMIT', 0, limit)
+local invisibleUntil = now + tonumber(ARGV[3])
+for i = 1, #jobs do
+    redis.call('ZREM', KEYS[1], jobs[i])
+    redis.call('ZADD', KEYS[2], invisibleUntil, jobs[i])
+end
+return jobs
@@ -0,0 +1,151 @@
+package com.leo.commonredis.delay;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.VarArgFunction;
+import org.luaj.vm2.lib.jse.JsePlatform;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 单元测试：延迟队列领取脚本delay_claim.lua（luaj执行，内存ZSET）
+ * 只领取到期任务，领取的任务在可见性超时前不可见，超时未确认的任务重新投递，确认后不再投递
+ */
+public class DelayClaimScriptTest {
+
+    private static final String READY = "delay:{test}:ready";
+    private static final String PROCESSING = "delay:{test}:processing";
+
+    /**
+     * 键 -> 成员 -> score
+     */
+    private final Map<String, Map<String, Double>> zsets = new HashMap<>();
+
+    @BeforeEach
+    public void setUp() {
+        zsets.clear();
+        zadd(READY, "a", 100);
+        zadd(READY, "b", 200);
+        zadd(READY, "c", 300);
+    }
+
+    @Test
+    void claim_onlyDueJobsInScoreOrder() {
+        assertEquals(List.of("a", "b"), claim(250, 10, 1000));
+
+        assertEquals(Set.of("c"), zsets.get(READY).keySet());
+        // 处理中队列的score为可见性超时时间
+        assertEquals(Map.of("a", 1250.0, "b", 1250.0), zsets.get(PROCESSING));
+    }
+
+    @Test
+    void claim_respectsLimit() {
+        assertEquals(List.of("a"), claim(1000, 1, 1000));
+        assertEquals(List.of("b"), claim(1000, 1, 1000));
+    }
+
+    @Test
+    void claim_claimedJobInvisibleUntilTimeout() {
+        claim(100, 10, 1000);
+
+        assertEquals(List.of("b"), claim(200, 10, 1000));
+        assertFalse(claim(1099, 10, 1000).contains("a"));
+    }
+
+    @Test
+    void claim_redeliversUnackedJobAfterVisibilityTimeout() {
+        claim(100, 10, 1000);
+
+        // 可见性超时到期后重新投递并再次领取，可见性超时顺延
+        assertTrue(claim(1100, 10, 1000).contains("a"));
+        assertEquals(2100.0, zsets.get(PROCESSING).get("a"));
+    }
+
+    @Test
+    void claim_ackedJobNotRedelivered() {
+        claim(100, 10, 1000);
+        // 确认即从处理中队列移除
+        zsets.get(PROCESSING).remove("a");
+
+        assertFalse(claim(5000, 10, 1000).contains("a"));
+        assertFalse(zsets.get(PROCESSING).containsKey("a"));
+    }
+
+    private List<String> claim(long now, int limit, long visibilityTimeout) {
+        Globals globals = JsePlatform.standardGlobals();
+        LuaTable redis = new LuaTable();
+        redis.set("call", new VarArgFunction() {
+            @Override
+            public Varargs invoke(Varargs varargs) {
+                String[] command = new String[varargs.narg()];
+                for (int i = 0; i < command.length; i++) {
+                    command[i] = varargs.arg(i + 1).tojstring();
+                }
+                return execute(command);
+            }
+        });
+        globals.set("redis", redis);
+        globals.set("KEYS", table(List.of(READY, PROCESSING)));
+        globals.set("ARGV", table(List.of(String.valueOf(now), String.valueOf(limit), String.valueOf(visibilityTimeout))));
+        try {
+            String source = new String(new ClassPathResource("lua/delay_claim.lua").getInputStream().readAllBytes(),
+                    StandardCharsets.UTF_8);
+            LuaValue result = globals.load(source, "delay_claim.lua").call();
+            List<String> jobs = new ArrayList<>();
+            for (int i = 1; i <= result.length(); i++) {
+                jobs.add(result.get(i).tojstring());
+            }
+            return jobs;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private LuaValue execute(String[] command) {
+        Map<String, Double> zset = zsets.computeIfAbsent(command[1], k -> new HashMap<>());
+        switch (command[0].toUpperCase()) {
+            case "ZADD":
+                return LuaValue.valueOf(zset.put(command[3], Double.parseDouble(command[2])) == null ? 1 : 0);
+            case "ZREM":
+                return LuaValue.valueOf(zset.remove(command[2]) == null ? 0 : 1);
+            case "ZRANGEBYSCORE": {
+                // 只支持 ZRANGEBYSCORE key -inf max LIMIT offset count
+                double max = Double.parseDouble(command[3]);
+                int offset = Integer.parseInt(command[5]);
+                int count = Integer.parseInt(command[6]);
+                List<String> members = zset.entrySet().stream()
+                        .filter(e -> e.getValue() <= max)
+                        .sorted(Map.Entry.<String, Double>comparingByValue().thenComparing(Map.Entry.comparingByKey()))
+                        .skip(offset)
+                        .limit(count)
+                        .map(Map.Entry::getKey)
+                        .collect(Collectors.toList());
+                return table(members);
+            }
+            default:
+                throw new UnsupportedOperationException(command[0]);
+        }
+    }
+
+    private void zadd(String key, String member, double score) {
+        zsets.computeIfAbsent(key, k -> new HashMap<>()).put(member, score);
+    }
+
+    private static LuaTable table(List<String> values) {
+        LuaTable table = new LuaTable();
+        for (int i = 0; i < values.size(); i++) {
+            table.set(i + 1, LuaValue.valueOf(values.get(i)));
+        }
+        return table;
+    }
+}
@@ -35,11 +35,34 @@ public class JwtUtil {
     @Value("${jwt.issuer:mall-system}")
     private String issuer;
 
+    /**
+     * 由当前密钥构建的签名密钥与解析器，密钥不变时复用
+     */
+    private volatile SigningKeys signingKeys;
+
     /**
      * 获取签名密钥
      */
     private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        return getSigningKeys().key();
+    }
+
+    /**
+     * 获取解析器，JwtParser线程安全，可在请求间共享
+     */
+    private JwtParser getParser() {
+        return getSigningKeys().parser();
+    }
+
+    private SigningKeys getSigningKeys() {
+        String current = secret;
+        SigningKeys keys = signingKeys;
+        if (keys == null || !keys.secret().equals(current)) {
+            SecretKey key = Keys.hmacShaKeyFor(current.getBytes(StandardCharsets.UTF_8));
+            keys = new SigningKeys(current, key, Jwts.parser().verifyWith(key).build());
+            signingKeys = keys;
+        }
+        return keys;
     }
 
     /**
@@ -93,9 +116,7 @@ public class JwtUtil {
      */
     public Claims parseToken(String token) {
         try {
-            return Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
+            return getParser()
                     .parseSignedClaims(token)
                     .getPayload();
         } catch (ExpiredJwtException e) {
@@ -193,4 +214,7 @@ public class JwtUtil {
     public boolean isTokenExpiringSoon(String token) {
         return getTokenExpireTime(token) < 300;
     }
-}
\ No newline at end of file
+
+    private record SigningKeys(String secret, SecretKey key, JwtParser parser) {
+    }
+}
@@ -0,0 +1,31 @@
+package com.leo.gateway.accesslog;
+
+/**
+ * 一条访问日志
+ *
+ * @param requestId 请求ID
+ * @param timestamp 请求开始时刻（毫秒）
+ * @param method    请求方法
+ * @param path      请求路径
+ * @param query     查询串，无时为null
+ * @param route     路由ID，未匹配路由时为null
+ * @param status    响应状态码，未写出响应时为0
+ * @param outcome   结果：success、error、cancelled
+ * @param latency   耗时（毫秒）
+ * @param clientIp  客户端IP
+ * @param error     异常信息，无异常时为null
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+public record AccessLog(String requestId,
+                        long timestamp,
+                        String method,
+                        String path,
+                        String query,
+                        String route,
+                        int status,
+                        String outcome,
+                        long latency,
+                        String clientIp,
+                        String error) {
+}
@@ -0,0 +1,104 @@
+package com.leo.gateway.accesslog;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.leo.gateway.config.GatewayConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 访问日志异步写出
+ *
+ * 请求线程（Netty事件循环）只把记录放入有界队列，不做序列化与IO：
+ * 1. 队列：容量为queue-capacity，满时丢弃新记录并计数，不阻塞事件循环
+ * 2. 写出：后台线程批量取出，序列化为一行JSON，写入名为access-log的日志，可在日志配置中单独输出到文件
+ * 3. 关闭：停止时写完队列中剩余的记录
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Slf4j
+@Component
+public class AccessLogWriter {
+
+    private static final Logger ACCESS_LOG = LoggerFactory.getLogger("access-log");
+    private static final int BATCH_SIZE = 256;
+
+    private final ObjectMapper objectMapper;
+    private final BlockingQueue<AccessLog> queue;
+    private final Counter droppedCounter;
+    private final Thread writer;
+
+    private volatile boolean running = true;
+
+    public AccessLogWriter(ObjectMapper objectMapper, MeterRegistry meterRegistry, GatewayConfig gatewayConfig) {
+        this.objectMapper = objectMapper;
+        this.queue = new ArrayBlockingQueue<>(gatewayConfig.getAccessLog().getQueueCapacity());
+        this.droppedCounter = Counter.builder("gateway.access-log.dropped")
+                .description("队列已满被丢弃的访问日志数").register(meterRegistry);
+        Gauge.builder("gateway.access-log.pending", queue, BlockingQueue::size)
+                .description("待写出的访问日志数").register(meterRegistry);
+
+        this.writer = new Thread(this::drain, "access-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * 提交一条访问日志，队列已满时丢弃
+     */
+    public void submit(AccessLog accessLog) {
+        if (!queue.offer(accessLog)) {
+            droppedCounter.increment();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        writer.interrupt();
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        List<AccessLog> batch = new ArrayList<>(BATCH_SIZE);
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(batch, BATCH_SIZE - 1);
+            write(batch);
+        }
+        // 写完剩余记录
+        queue.drainTo(batch);
+        write(batch);
+    }
+
+    private void write(List<AccessLog> batch) {
+        for (AccessLog accessLog : batch) {
+            try {
+                ACCESS_LOG.info(objectMapper.writeValueAsString(accessLog));
+            } catch (Exception e) {
+                log.warn("访问日志写出失败: {}", e.getMessage());
+            }
+        }
+        batch.clear();
+    }
+}
@@ -0,0 +1,102 @@
+package com.leo.gateway.cache;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.leo.commoncore.constant.SecurityConstants;
+import com.leo.commonsecurity.util.JwtUtil;
+import com.leo.gateway.config.GatewayConfig;
+import io.jsonwebtoken.Claims;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 已验证令牌缓存
+ *
+ * 同一个令牌在有效期内会被反复携带，验证结果不会变化：
+ * 1. 键：令牌的SHA-256摘要，不在内存中保存令牌原文
+ * 2. 值：转发给下游的用户信息请求头，验证时一次算好，命中后直接写入请求
+ * 3. 过期：每个条目在令牌的exp时刻过期，命中时再校验一次，过期的令牌不会被放行
+ * 4. 容量：按条数上限淘汰，验证失败的令牌不缓存
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Component
+public class TokenCache {
+
+    private final JwtUtil jwtUtil;
+    private final boolean enabled;
+
+    private final Cache<String, AuthInfo> cache;
+
+    public TokenCache(JwtUtil jwtUtil, GatewayConfig gatewayConfig) {
+        this.jwtUtil = jwtUtil;
+        this.enabled = gatewayConfig.getTokenCache().isEnabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(gatewayConfig.getTokenCache().getMaximumSize())
+                .expireAfter(new Expiry<String, AuthInfo>() {
+                    @Override
+                    public long expireAfterCreate(String key, AuthInfo value, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, value.expireAt() - System.currentTimeMillis()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, AuthInfo value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, AuthInfo value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * 验证令牌，命中缓存时跳过签名验证与载荷解析
+     *
+     * @param token 令牌
+     * @return 用户信息请求头
+     * @throws RuntimeException 令牌无效或已过期
+     */
+    public AuthInfo verify(String token) {
+        if (!enabled) {
+            return toAuthInfo(jwtUtil.parseToken(token));
+        }
+        String key = DigestUtil.sha256Hex(token);
+        AuthInfo cached = cache.getIfPresent(key);
+        if (cached != null && cached.expireAt() > System.currentTimeMillis()) {
+            return cached;
+        }
+        AuthInfo authInfo = toAuthInfo(jwtUtil.parseToken(token));
+        cache.put(key, authInfo);
+        return authInfo;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static AuthInfo toAuthInfo(Claims claims) {
+        return new AuthInfo(
+                String.valueOf(claims.get(SecurityConstants.USER_ID)),
+                claims.getSubject(),
+                String.valueOf(claims.get(SecurityConstants.USER_TYPE)),
+                String.join(",", (List<String>) claims.get(SecurityConstants.ROLES)),
+                claims.getExpiration().getTime());
+    }
+
+    /**
+     * 转发给下游的用户信息
+     *
+     * @param userId   用户ID
+     * @param username 用户名
+     * @param userType 用户类型
+     * @param roles    角色，逗号分隔
+     * @param expireAt 令牌过期时刻（毫秒）
+     */
+    public record AuthInfo(String userId, String username, String userType, String roles, long expireAt) {
+    }
+}
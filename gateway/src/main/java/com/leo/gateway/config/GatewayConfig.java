@@ -4,6 +4,7 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -27,6 +28,26 @@ public class GatewayConfig {
      */
     private Jwt jwt = new Jwt();
 
+    /**
+     * 令牌缓存配置
+     */
+    private TokenCache tokenCache = new TokenCache();
+
+    /**
+     * 限流配置
+     */
+    private RateLimit rateLimit = new RateLimit();
+
+    /**
+     * 按路径的认证与限流策略
+     */
+    private List<PathPolicy> pathPolicies = new ArrayList<>();
+
+    /**
+     * 访问日志配置
+     */
+    private AccessLog accessLog = new AccessLog();
+
     @Data
     public static class WhiteList {
         /**
@@ -42,4 +63,106 @@ public class GatewayConfig {
          */
         private String secret;
     }
-}
\ No newline at end of file
+
+    @Data
+    public static class TokenCache {
+        /**
+         * 是否缓存已验证的令牌
+         */
+        private boolean enabled = true;
+
+        /**
+         * 最多缓存的令牌数
+         */
+        private long maximumSize = 100000;
+    }
+
+    @Data
+    public static class RateLimit {
+        /**
+         * 路由未配置时的默认每秒令牌数
+         */
+        private int defaultReplenishRate = 100;
+
+        /**
+         * 路由未配置时的默认桶容量
+         */
+        private int defaultBurstCapacity = 200;
+
+        /**
+         * 是否在响应头中返回剩余令牌数等信息
+         */
+        private boolean includeHeaders = true;
+
+        /**
+         * 本地消耗上报Redis的间隔（毫秒）
+         */
+        private long syncInterval = 200;
+
+        /**
+         * 集群对账窗口（毫秒）
+         */
+        private long window = 1000;
+
+        /**
+         * 令牌桶空闲多久后回收（毫秒）
+         */
+        private long idleTimeout = 60000;
+
+        /**
+         * 最多保存的令牌桶数
+         */
+        private long maximumBuckets = 100000;
+    }
+
+    @Data
+    public static class PathPolicy {
+        /**
+         * 策略名，用于日志与限流计数
+         */
+        private String name;
+
+        /**
+         * 路径模式列表，PathPattern语法
+         */
+        private List<String> patterns;
+
+        /**
+         * 是否需要认证
+         */
+        private boolean auth = true;
+
+        /**
+         * 每秒令牌数，未配置时不按路径限流
+         */
+        private Integer replenishRate;
+
+        /**
+         * 桶容量，未配置时取每秒令牌数的两倍
+         */
+        private Integer burstCapacity;
+    }
+
+    @Data
+    public static class AccessLog {
+        /**
+         * 是否输出访问日志，关闭后仍统计耗时指标
+         */
+        private boolean enabled = true;
+
+        /**
+         * 正常请求的采样比例，0~1，异常与慢请求全部记录
+         */
+        private double sampleRate = 0.1;
+
+        /**
+         * 慢请求阈值（毫秒）
+         */
+        private long slowThreshold = 1000;
+
+        /**
+         * 待写出队列容量，满时丢弃
+         */
+        private int queueCapacity = 8192;
+    }
+}
@@ -5,9 +5,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.leo.commoncore.constant.SecurityConstants;
 import com.leo.commoncore.response.R;
 
-import com.leo.commonsecurity.util.JwtUtil;
-import com.leo.gateway.config.GatewayConfig;
-import io.jsonwebtoken.Claims;
+import com.leo.gateway.cache.TokenCache;
+import com.leo.gateway.route.PathPolicies;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
@@ -19,12 +18,9 @@ import org.springframework.http.MediaType;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.stereotype.Component;
-import org.springframework.util.AntPathMatcher;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
-import java.util.List;
-
 /**
  * 认证过滤器
  *
@@ -36,19 +32,22 @@ import java.util.List;
 @RequiredArgsConstructor
 public class AuthFilter implements GlobalFilter, Ordered {
 
-    private final GatewayConfig gatewayConfig;
-    private final JwtUtil jwtUtil;
+    private final PathPolicies pathPolicies;
+    private final TokenCache tokenCache;
     private final ObjectMapper objectMapper;
-    private final AntPathMatcher pathMatcher = new AntPathMatcher();
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
         ServerHttpRequest request = exchange.getRequest();
         String path = request.getPath().value();
 
-        // 检查是否在白名单中
-        if (isWhiteList(path)) {
-            return chain.filter(exchange);
+        // 匹配路径策略，白名单中的路径不需要认证
+        PathPolicies.Policy policy = pathPolicies.classify(path);
+        if (policy != null) {
+            exchange.getAttributes().put(PathPolicies.POLICY_ATTR, policy);
+            if (!policy.auth()) {
+                return chain.filter(exchange);
+            }
         }
 
         // 获取Token
@@ -59,14 +58,14 @@ public class AuthFilter implements GlobalFilter, Ordered {
 
         // 验证Token
         try {
-            Claims claims = jwtUtil.parseToken(token);
+            TokenCache.AuthInfo authInfo = tokenCache.verify(token);
             
             // 构建新的请求，添加用户信息到Header
             ServerHttpRequest mutatedRequest = request.mutate()
-                    .header(SecurityConstants.USER_ID, String.valueOf(claims.get(SecurityConstants.USER_ID)))
-                    .header(SecurityConstants.USERNAME, claims.getSubject())
-                    .header(SecurityConstants.USER_TYPE, String.valueOf(claims.get(SecurityConstants.USER_TYPE)))
-                    .header(SecurityConstants.ROLES, String.join(",", (List<String>) claims.get(SecurityConstants.ROLES)))
+                    .header(SecurityConstants.USER_ID, authInfo.userId())
+                    .header(SecurityConstants.USERNAME, authInfo.username())
+                    .header(SecurityConstants.USER_TYPE, authInfo.userType())
+                    .header(SecurityConstants.ROLES, authInfo.roles())
                     .build();
 
             ServerWebExchange mutatedExchange = exchange.mutate()
@@ -80,19 +79,6 @@ public class AuthFilter implements GlobalFilter, Ordered {
         }
     }
 
-    /**
-     * 检查路径是否在白名单中
-     */
-    private boolean isWhiteList(String path) {
-        List<String> whiteList = gatewayConfig.getWhiteList().getUrls();
-        if (whiteList == null || whiteList.isEmpty()) {
-            return false;
-        }
-        
-        return whiteList.stream()
-                .anyMatch(pattern -> pathMatcher.match(pattern, path));
-    }
-
     /**
      * 获取Token
      */
@@ -0,0 +1,69 @@
+package com.leo.gateway.filter;
+
+import cn.hutool.core.util.StrUtil;
+import com.leo.commoncore.constant.SecurityConstants;
+import com.leo.gateway.ratelimit.LocalRateLimiter;
+import com.leo.gateway.route.PathPolicies;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * 按路径策略限流
+ *
+ * 在认证过滤器之后执行，读取认证过滤器匹配到的路径策略。需要认证的路径按认证过滤器写入的用户ID限流，
+ * 其余按IP限流，不需要认证的路径上用户ID请求头可被客户端伪造，不作为限流键
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PathRateLimitFilter implements GlobalFilter, Ordered {
+
+    private static final String KEY_PREFIX = "policy:";
+
+    private final LocalRateLimiter localRateLimiter;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        PathPolicies.Policy policy = exchange.getAttribute(PathPolicies.POLICY_ATTR);
+        if (policy == null || policy.limit() == null) {
+            return chain.filter(exchange);
+        }
+
+        return localRateLimiter.isAllowed(KEY_PREFIX + policy.name(), resolveKey(exchange.getRequest(), policy), policy.limit())
+                .flatMap(response -> {
+                    ServerHttpResponse httpResponse = exchange.getResponse();
+                    response.getHeaders().forEach(httpResponse.getHeaders()::add);
+                    if (response.isAllowed()) {
+                        return chain.filter(exchange);
+                    }
+                    log.debug("请求被路径策略{}限流: {}", policy.name(), exchange.getRequest().getPath().value());
+                    httpResponse.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+                    return httpResponse.setComplete();
+                });
+    }
+
+    private static String resolveKey(ServerHttpRequest request, PathPolicies.Policy policy) {
+        String userId = policy.auth() ? request.getHeaders().getFirst(SecurityConstants.USER_ID) : null;
+        if (StrUtil.isNotBlank(userId)) {
+            return SecurityConstants.USER_ID + ":" + userId;
+        }
+        return request.getRemoteAddress() != null ? request.getRemoteAddress().getHostString() : "unknown";
+    }
+
+    @Override
+    public int getOrder() {
+        return -90;
+    }
+}
@@ -1,19 +1,37 @@
 package com.leo.gateway.filter;
 
+import com.leo.gateway.accesslog.AccessLog;
+import com.leo.gateway.accesslog.AccessLogWriter;
+import com.leo.gateway.config.GatewayConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
 import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
 
-import java.util.UUID;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 请求日志过滤器
  *
+ * 1. 请求ID：本节点启动时刻与随机数作前缀，加自增序号，不使用UUID；请求已带X-Request-Id时沿用
+ * 2. 访问日志：每个请求结束时生成一条结构化记录，交给{@link AccessLogWriter}异步写出
+ * 3. 采样：异常、5xx与慢请求全部记录，其余按sample-rate采样
+ * 4. 指标：按路由与结果统计耗时直方图，不受采样影响
+ *
  * @author Miao Zheng
  * @date 2025-01-30
  */
@@ -22,50 +40,98 @@ import java.util.UUID;
 public class RequestLogFilter implements GlobalFilter, Ordered {
 
     private static final String REQUEST_ID_HEADER = "X-Request-Id";
-    private static final String REQUEST_TIME_ATTR = "requestTime";
+    private static final String NO_ROUTE = "none";
+
+    private final AccessLogWriter accessLogWriter;
+    private final MeterRegistry meterRegistry;
+    private final GatewayConfig.AccessLog properties;
+
+    private final String requestIdPrefix = Long.toHexString(System.currentTimeMillis())
+            + String.format("%04x", ThreadLocalRandom.current().nextInt(0x10000));
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public RequestLogFilter(AccessLogWriter accessLogWriter, MeterRegistry meterRegistry, GatewayConfig gatewayConfig) {
+        this.accessLogWriter = accessLogWriter;
+        this.meterRegistry = meterRegistry;
+        this.properties = gatewayConfig.getAccessLog();
+    }
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
         ServerHttpRequest request = exchange.getRequest();
-        
-        // 生成请求ID
-        String requestId = UUID.randomUUID().toString().replace("-", "");
-        
-        // 记录请求开始时间
-        exchange.getAttributes().put(REQUEST_TIME_ATTR, System.currentTimeMillis());
-        
-        // 打印请求日志
-        log.info("========== 请求开始 ==========");
-        log.info("Request ID: {}", requestId);
-        log.info("Request Method: {}", request.getMethod());
-        log.info("Request URI: {}", request.getURI());
-        log.info("Request Path: {}", request.getPath().value());
-        log.info("Request Headers: {}", request.getHeaders());
-        
-        // 修改请求，添加请求ID
-        ServerHttpRequest mutatedRequest = request.mutate()
-                .header(REQUEST_ID_HEADER, requestId)
-                .build();
-        
+        long timestamp = System.currentTimeMillis();
+        long start = System.nanoTime();
+
+        String requestId = request.getHeaders().getFirst(REQUEST_ID_HEADER);
+        if (requestId == null || requestId.isEmpty()) {
+            requestId = requestIdPrefix + Long.toHexString(sequence.incrementAndGet());
+            request = request.mutate()
+                    .header(REQUEST_ID_HEADER, requestId)
+                    .build();
+        }
         ServerWebExchange mutatedExchange = exchange.mutate()
-                .request(mutatedRequest)
+                .request(request)
                 .build();
-        
-        // 继续执行过滤器链
-        return chain.filter(mutatedExchange).then(Mono.fromRunnable(() -> {
-            Long startTime = exchange.getAttribute(REQUEST_TIME_ATTR);
-            if (startTime != null) {
-                long executeTime = System.currentTimeMillis() - startTime;
-                log.info("========== 请求结束 ==========");
-                log.info("Request ID: {}", requestId);
-                log.info("Response Status: {}", exchange.getResponse().getStatusCode());
-                log.info("Execute Time: {}ms", executeTime);
-            }
-        }));
+
+        String id = requestId;
+        Throwable[] error = new Throwable[1];
+        return chain.filter(mutatedExchange)
+                .doOnError(e -> error[0] = e)
+                .doFinally(signal -> complete(exchange, id, timestamp, System.nanoTime() - start, signal, error[0]));
+    }
+
+    /**
+     * 请求结束：记录耗时，按采样规则提交访问日志
+     */
+    private void complete(ServerWebExchange exchange, String requestId, long timestamp, long nanos,
+                          SignalType signal, Throwable error) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        String routeId = route != null ? route.getId() : NO_ROUTE;
+        HttpStatusCode statusCode = exchange.getResponse().getStatusCode();
+        int status = statusCode != null ? statusCode.value() : 0;
+        String outcome = signal == SignalType.CANCEL ? "cancelled"
+                : error != null || status >= 500 ? "error" : "success";
+        timer(routeId, outcome).record(nanos, TimeUnit.NANOSECONDS);
+
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long latency = TimeUnit.NANOSECONDS.toMillis(nanos);
+        boolean always = "error".equals(outcome) || latency >= properties.getSlowThreshold();
+        if (!always && ThreadLocalRandom.current().nextDouble() >= properties.getSampleRate()) {
+            return;
+        }
+
+        ServerHttpRequest request = exchange.getRequest();
+        accessLogWriter.submit(new AccessLog(
+                requestId,
+                timestamp,
+                request.getMethod().name(),
+                request.getPath().value(),
+                request.getURI().getRawQuery(),
+                route != null ? routeId : null,
+                status,
+                outcome,
+                latency,
+                request.getRemoteAddress() != null ? request.getRemoteAddress().getHostString() : null,
+                error != null ? error.toString() : null));
+    }
+
+    /**
+     * 路由耗时直方图，按路由与结果缓存
+     */
+    private Timer timer(String routeId, String outcome) {
+        return timers.computeIfAbsent(routeId + ":" + outcome, key -> Timer.builder("gateway.access.latency")
+                .description("网关请求耗时")
+                .tag("route", routeId)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
     }
 
     @Override
     public int getOrder() {
         return Ordered.HIGHEST_PRECEDENCE;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,282 @@
+package com.leo.gateway.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.leo.gateway.config.GatewayConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 本地令牌桶限流，定期与Redis对账实现集群限流
+ *
+ * 1. 判定：每个 路由+限流键 一个{@link TokenBucket}，桶保存在按哈希分段的并发表中，取令牌为一次CAS，请求路径上不访问Redis
+ * 2. 对账：每隔sync-interval把各桶的本地消耗一次Lua调用累加到Redis的窗口计数，取回集群累计消耗
+ * 3. 扣减：集群消耗超过窗口额度时，各节点按自己在窗口内的消耗占比扣减本地令牌，下一段时间内相应少放行
+ * 4. 配置：路由在RequestRateLimiter过滤器参数中以local-rate-limiter.replenish-rate、burst-capacity配置，
+ *    未配置时使用gateway.rate-limit下的默认值
+ * 5. 指标：按路由统计放行、拒绝次数，以及当前令牌桶数与对账失败次数
+ * 6. 路径策略：不经路由过滤器，由调用方以策略名作为键并给出配置，令牌桶与对账方式相同
+ *
+ * 集群限流是最终一致的：一个同步间隔内各节点可各自放行一个桶容量，超出部分在随后的时间内扣回。
+ * Redis不可用时退化为单节点限流，消耗在恢复后补报。
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Slf4j
+@Primary
+@Component
+public class LocalRateLimiter extends AbstractRateLimiter<LocalRateLimiter.Config> {
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "local-rate-limiter";
+
+    private static final String SYNC_KEY_PREFIX = "gateway:rate-limit:";
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final GatewayConfig.RateLimit properties;
+    private final Config defaultConfig;
+    private final DefaultRedisScript<List> syncScript;
+
+    private final Cache<String, TokenBucket> buckets;
+    private final Map<String, Counter[]> counters = new ConcurrentHashMap<>();
+
+    /**
+     * 调用方给出的限流配置，优先于路由配置
+     */
+    private final Map<String, Config> limits = new ConcurrentHashMap<>();
+    private final Counter syncFailedCounter;
+    private final ScheduledExecutorService syncer;
+    private final AtomicBoolean syncing = new AtomicBoolean();
+
+    public LocalRateLimiter(ConfigurationService configurationService,
+                            ReactiveStringRedisTemplate redisTemplate,
+                            MeterRegistry meterRegistry,
+                            GatewayConfig gatewayConfig) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.properties = gatewayConfig.getRateLimit();
+        this.defaultConfig = new Config();
+        this.defaultConfig.setReplenishRate(properties.getDefaultReplenishRate());
+        this.defaultConfig.setBurstCapacity(properties.getDefaultBurstCapacity());
+        this.syncScript = new DefaultRedisScript<>();
+        this.syncScript.setLocation(new ClassPathResource("lua/rate_limit_sync.lua"));
+        this.syncScript.setResultType(List.class);
+        this.buckets = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofMillis(properties.getIdleTimeout()))
+                .maximumSize(properties.getMaximumBuckets())
+                .build();
+
+        Gauge.builder("gateway.rate-limit.buckets", buckets, Cache::estimatedSize)
+                .description("当前令牌桶数").register(meterRegistry);
+        this.syncFailedCounter = Counter.builder("gateway.rate-limit.sync.failed")
+                .description("与Redis对账失败次数").register(meterRegistry);
+
+        this.syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "rate-limit-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getSyncInterval();
+        this.syncer.scheduleWithFixedDelay(this::sync, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        return acquire(routeId, id, loadConfig(routeId));
+    }
+
+    /**
+     * 按给定配置限流
+     *
+     * @param key    限流计数键，不能与路由ID重复
+     * @param id     限流对象，如用户ID或IP
+     * @param config 限流配置
+     */
+    public Mono<Response> isAllowed(String key, String id, Config config) {
+        if (limits.get(key) != config) {
+            limits.put(key, config);
+        }
+        return acquire(key, id, config);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        syncer.shutdownNow();
+    }
+
+    private Mono<Response> acquire(String routeId, String id, Config config) {
+        long interval = interval(config);
+        TokenBucket bucket = buckets.get(routeId + ":" + id, key -> new TokenBucket(routeId));
+        long remaining = bucket.tryAcquire(System.nanoTime(), interval, config.getBurstCapacity());
+
+        boolean allowed = remaining >= 0;
+        counters(routeId)[allowed ? 0 : 1].increment();
+        return Mono.just(new Response(allowed, headers(config, Math.max(remaining, 0))));
+    }
+
+    /**
+     * 上报各桶的本地消耗，按集群累计消耗扣减超额
+     * 上一次对账未完成时跳过本次
+     */
+    private void sync() {
+        if (!syncing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long window = System.currentTimeMillis() / properties.getWindow();
+            List<TokenBucket> reported = new ArrayList<>();
+            List<Long> deltas = new ArrayList<>();
+            List<String> keys = new ArrayList<>();
+            List<String> args = new ArrayList<>();
+            // 计数键多保留一个窗口，跨窗口的上报仍能累加
+            args.add(String.valueOf(properties.getWindow() * 2));
+            for (Map.Entry<String, TokenBucket> entry : buckets.asMap().entrySet()) {
+                TokenBucket bucket = entry.getValue();
+                if (bucket.window != window) {
+                    bucket.window = window;
+                    bucket.windowConsumed = 0;
+                    bucket.windowPenalized = 0;
+                }
+                long delta = bucket.unreported.sumThenReset();
+                if (delta == 0) {
+                    continue;
+                }
+                bucket.windowConsumed += delta;
+                reported.add(bucket);
+                deltas.add(delta);
+                keys.add(SYNC_KEY_PREFIX + entry.getKey() + ":" + window);
+                args.add(String.valueOf(delta));
+            }
+            if (reported.isEmpty()) {
+                syncing.set(false);
+                return;
+            }
+
+            redisTemplate.execute(syncScript, keys, args)
+                    .reduce(new ArrayList<Long>(), (totals, result) -> {
+                        for (Object total : result) {
+                            totals.add(((Number) total).longValue());
+                        }
+                        return totals;
+                    })
+                    .doFinally(signal -> syncing.set(false))
+                    .subscribe(totals -> reconcile(reported, totals), e -> {
+                        // 消耗放回，下次对账补报
+                        for (int i = 0; i < reported.size(); i++) {
+                            reported.get(i).unreported.add(deltas.get(i));
+                            reported.get(i).windowConsumed -= deltas.get(i);
+                        }
+                        syncFailedCounter.increment();
+                        log.warn("限流对账失败，暂按本节点限流: {}", e.getMessage());
+                    });
+        } catch (Exception e) {
+            syncing.set(false);
+            syncFailedCounter.increment();
+            log.warn("限流对账失败", e);
+        }
+    }
+
+    /**
+     * 集群消耗超过窗口额度时，按本节点在窗口内的消耗占比扣减令牌
+     */
+    private void reconcile(List<TokenBucket> reported, List<Long> totals) {
+        long now = System.nanoTime();
+        long maxDebt = TimeUnit.MILLISECONDS.toNanos(properties.getWindow());
+        for (int i = 0; i < reported.size() && i < totals.size(); i++) {
+            TokenBucket bucket = reported.get(i);
+            long total = totals.get(i);
+            Config config = loadConfig(bucket.routeId);
+            long allowance = Math.max(config.getBurstCapacity(),
+                    (long) config.getReplenishRate() * properties.getWindow() / 1000);
+            long excess = total - allowance;
+            if (excess <= 0 || total <= 0) {
+                continue;
+            }
+            long share = (excess * bucket.windowConsumed + total - 1) / total;
+            long penalty = share - bucket.windowPenalized;
+            if (penalty > 0) {
+                bucket.penalize(now, interval(config), penalty, maxDebt);
+                bucket.windowPenalized = share;
+            }
+        }
+    }
+
+    private Config loadConfig(String routeId) {
+        Config config = limits.get(routeId);
+        if (config == null) {
+            config = getConfig().get(routeId);
+        }
+        return config != null ? config : defaultConfig;
+    }
+
+    private static long interval(Config config) {
+        return TimeUnit.SECONDS.toNanos(1) / config.getReplenishRate();
+    }
+
+    private Map<String, String> headers(Config config, long remaining) {
+        if (!properties.isIncludeHeaders()) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> headers = new HashMap<>(4);
+        headers.put(RedisRateLimiter.REMAINING_HEADER, String.valueOf(remaining));
+        headers.put(RedisRateLimiter.REPLENISH_RATE_HEADER, String.valueOf(config.getReplenishRate()));
+        headers.put(RedisRateLimiter.BURST_CAPACITY_HEADER, String.valueOf(config.getBurstCapacity()));
+        return headers;
+    }
+
+    /**
+     * 路由的放行、拒绝计数器
+     */
+    private Counter[] counters(String routeId) {
+        return counters.computeIfAbsent(routeId, id -> new Counter[]{
+                Counter.builder("gateway.rate-limit.requests").tag("route", id).tag("result", "allowed")
+                        .description("限流判定次数").register(meterRegistry),
+                Counter.builder("gateway.rate-limit.requests").tag("route", id).tag("result", "rejected")
+                        .description("限流判定次数").register(meterRegistry)
+        });
+    }
+
+    /**
+     * 路由限流配置
+     */
+    @Data
+    @Validated
+    public static class Config {
+        /**
+         * 每秒补充的令牌数
+         */
+        @Min(1)
+        private int replenishRate;
+
+        /**
+         * 桶容量，允许的突发请求数
+         */
+        @Min(1)
+        private int burstCapacity;
+    }
+}
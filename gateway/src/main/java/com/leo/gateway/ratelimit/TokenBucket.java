@@ -0,0 +1,84 @@
+package com.leo.gateway.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 令牌桶
+ *
+ * 以GCRA实现：只保存下一个令牌的理论到达时刻tat，补充令牌不需要定时任务，也不需要锁，
+ * 一次取令牌是一次CAS：tat不晚于 当前时刻 + 突发容差 时放行，并把tat推后一个发放间隔。
+ *
+ * 另记录本节点的消耗，由{@link LocalRateLimiter}定期上报到Redis与其他节点的消耗对账。
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+class TokenBucket {
+
+    final String routeId;
+
+    /**
+     * 下一个令牌的理论到达时刻（纳秒）
+     */
+    private final AtomicLong tat = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * 上次上报以来放行的请求数
+     */
+    final LongAdder unreported = new LongAdder();
+
+    /**
+     * 以下字段只在同步线程访问：当前对账窗口、本节点在窗口内的消耗、已扣减的超额
+     */
+    long window = -1;
+    long windowConsumed;
+    long windowPenalized;
+
+    TokenBucket(String routeId) {
+        this.routeId = routeId;
+    }
+
+    /**
+     * 取一个令牌
+     *
+     * @param now      当前时刻（纳秒）
+     * @param interval 发放间隔（纳秒）
+     * @param burst    桶容量
+     * @return 放行后剩余的令牌数，未放行时返回-1
+     */
+    long tryAcquire(long now, long interval, long burst) {
+        long tolerance = interval * (burst - 1);
+        while (true) {
+            long current = tat.get();
+            long base = current == Long.MIN_VALUE ? now : Math.max(current, now);
+            if (base - now > tolerance) {
+                return -1;
+            }
+            long next = base + interval;
+            if (tat.compareAndSet(current, next)) {
+                unreported.increment();
+                return (now + tolerance - base) / interval;
+            }
+        }
+    }
+
+    /**
+     * 扣减令牌：集群在窗口内超额时，由本节点承担的部分
+     *
+     * @param now      当前时刻（纳秒）
+     * @param interval 发放间隔（纳秒）
+     * @param permits  扣减的令牌数
+     * @param maxDebt  最多欠下的时长（纳秒），避免长时间拒绝
+     */
+    void penalize(long now, long interval, long permits, long maxDebt) {
+        while (true) {
+            long current = tat.get();
+            long base = current == Long.MIN_VALUE ? now : Math.max(current, now);
+            long next = Math.min(base + interval * permits, now + maxDebt);
+            if (next <= current || tat.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.leo.gateway.route;
+
+import cn.hutool.core.collection.CollUtil;
+import com.leo.gateway.config.GatewayConfig;
+import com.leo.gateway.ratelimit.LocalRateLimiter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * 路径策略
+ *
+ * 白名单与gateway.path-policies在启动时编译为{@link PathPolicyMatcher}，请求路径的分类只与路径长度有关：
+ * 1. 白名单：编译为不需要认证的策略
+ * 2. 路径策略：是否需要认证，以及可选的按路径限流
+ * 3. 刷新：Nacos配置变更、配置属性重新绑定后重新编译，编译失败时继续使用原有的匹配器
+ *
+ * 一个路径同时匹配白名单与路径策略时，取最具体的模式，同样具体时路径策略优先，
+ * 因此对白名单中的路径配置限流时，策略中需同时配置auth: false。
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Slf4j
+@Component
+public class PathPolicies {
+
+    /**
+     * 请求匹配到的策略，由认证过滤器写入交换属性，后续过滤器直接读取
+     */
+    public static final String POLICY_ATTR = PathPolicies.class.getName() + ".policy";
+
+    private static final String WHITE_LIST = "white-list";
+
+    private final GatewayConfig gatewayConfig;
+
+    private volatile PathPolicyMatcher<Policy> matcher;
+
+    public PathPolicies(GatewayConfig gatewayConfig) {
+        this.gatewayConfig = gatewayConfig;
+        this.matcher = compile();
+    }
+
+    /**
+     * 请求路径对应的策略
+     *
+     * @return 未匹配任何策略时返回null
+     */
+    public Policy classify(String path) {
+        return matcher.match(path);
+    }
+
+    @EventListener(RefreshScopeRefreshedEvent.class)
+    public void refresh() {
+        try {
+            matcher = compile();
+            log.info("路径策略已重新编译");
+        } catch (Exception e) {
+            log.error("路径策略编译失败，继续使用原有配置", e);
+        }
+    }
+
+    private PathPolicyMatcher<Policy> compile() {
+        PathPolicyMatcher.Builder<Policy> builder = PathPolicyMatcher.builder();
+        if (gatewayConfig.getPathPolicies() != null) {
+            for (GatewayConfig.PathPolicy config : gatewayConfig.getPathPolicies()) {
+                if (CollUtil.isEmpty(config.getPatterns())) {
+                    continue;
+                }
+                Policy policy = new Policy(config.getName(), config.isAuth(), limit(config));
+                config.getPatterns().forEach(pattern -> builder.add(pattern, policy));
+            }
+        }
+        GatewayConfig.WhiteList whiteList = gatewayConfig.getWhiteList();
+        if (whiteList != null && CollUtil.isNotEmpty(whiteList.getUrls())) {
+            Policy policy = new Policy(WHITE_LIST, false, null);
+            whiteList.getUrls().forEach(url -> builder.add(url, policy));
+        }
+        return builder.build();
+    }
+
+    private static LocalRateLimiter.Config limit(GatewayConfig.PathPolicy config) {
+        if (config.getReplenishRate() == null) {
+            return null;
+        }
+        if (config.getReplenishRate() < 1 || (config.getBurstCapacity() != null && config.getBurstCapacity() < 1)) {
+            throw new IllegalArgumentException("路径策略" + config.getName() + "的限流参数必须大于0");
+        }
+        LocalRateLimiter.Config limit = new LocalRateLimiter.Config();
+        limit.setReplenishRate(config.getReplenishRate());
+        limit.setBurstCapacity(config.getBurstCapacity() != null
+                ? config.getBurstCapacity() : config.getReplenishRate() * 2);
+        return limit;
+    }
+
+    /**
+     * 编译后的策略
+     *
+     * @param name  策略名
+     * @param auth  是否需要认证
+     * @param limit 按路径限流的配置，不限流时为null
+     */
+    public record Policy(String name, boolean auth, LocalRateLimiter.Config limit) {
+    }
+}
@@ -0,0 +1,156 @@
+package com.leo.gateway.route;
+
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.*;
+
+/**
+ * 路径匹配器，构建后只读，可被多个线程并发使用
+ *
+ * 1. 精确路径：不含通配符与变量的模式放入哈希表，一次查找
+ * 2. 模式路径：按首个通配段之前的字面前缀挂到前缀树节点上，解析为{@link PathPattern}
+ * 3. 匹配：沿请求路径的各段向下走，只对途经节点上挂的模式逐个判定，与模式总数无关
+ *
+ * 多个模式同时匹配时，精确路径优先，其次字面前缀更长的，前缀相同时按PathPattern的具体程度，再按添加顺序。
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+public final class PathPolicyMatcher<T> {
+
+    private static final PathPatternParser PARSER = PathPatternParser.defaultInstance;
+
+    private final Map<String, T> exact;
+    private final Node<T> root;
+
+    private PathPolicyMatcher(Map<String, T> exact, Node<T> root) {
+        this.exact = exact;
+        this.root = root;
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * 匹配请求路径
+     *
+     * @return 最具体的模式对应的值，未匹配时返回null
+     */
+    public T match(String path) {
+        T value = exact.get(path);
+        if (value != null) {
+            return value;
+        }
+
+        // 记录途经的有模式的节点，自深向浅判定
+        List<Node<T>> visited = new ArrayList<>();
+        Node<T> node = root;
+        int start = path.startsWith("/") ? 1 : 0;
+        while (node != null) {
+            if (node.patterns.length > 0) {
+                visited.add(node);
+            }
+            if (start > path.length()) {
+                break;
+            }
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = path.length();
+            }
+            node = node.children.get(path.substring(start, end));
+            start = end + 1;
+        }
+        if (visited.isEmpty()) {
+            return null;
+        }
+
+        PathContainer container = PathContainer.parsePath(path);
+        for (int i = visited.size() - 1; i >= 0; i--) {
+            for (Entry<T> entry : visited.get(i).patterns) {
+                if (entry.pattern().matches(container)) {
+                    return entry.value();
+                }
+            }
+        }
+        return null;
+    }
+
+    public static final class Builder<T> {
+
+        private final Map<String, T> exact = new HashMap<>();
+        private final MutableNode<T> root = new MutableNode<>();
+        private int sequence;
+
+        private Builder() {
+        }
+
+        /**
+         * 添加模式，同一精确路径重复添加时保留先添加的
+         *
+         * @throws org.springframework.web.util.pattern.PatternParseException 模式不合法
+         */
+        public Builder<T> add(String pattern, T value) {
+            PathPattern parsed = PARSER.parse(pattern);
+            if (isLiteral(pattern)) {
+                exact.putIfAbsent(pattern, value);
+                return this;
+            }
+            MutableNode<T> node = root;
+            int start = pattern.startsWith("/") ? 1 : 0;
+            while (start <= pattern.length()) {
+                int end = pattern.indexOf('/', start);
+                if (end < 0) {
+                    end = pattern.length();
+                }
+                String segment = pattern.substring(start, end);
+                if (!isLiteral(segment)) {
+                    break;
+                }
+                node = node.children.computeIfAbsent(segment, s -> new MutableNode<>());
+                start = end + 1;
+            }
+            node.patterns.add(new Entry<>(parsed, value, sequence++));
+            return this;
+        }
+
+        public PathPolicyMatcher<T> build() {
+            return new PathPolicyMatcher<>(Map.copyOf(exact), root.freeze());
+        }
+
+        private static boolean isLiteral(String pattern) {
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                if (c == '*' || c == '?' || c == '{') {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private record Entry<T>(PathPattern pattern, T value, int sequence) {
+    }
+
+    private record Node<T>(Map<String, Node<T>> children, Entry<T>[] patterns) {
+    }
+
+    private static final class MutableNode<T> {
+
+        final Map<String, MutableNode<T>> children = new HashMap<>();
+        final List<Entry<T>> patterns = new ArrayList<>();
+
+        @SuppressWarnings("unchecked")
+        Node<T> freeze() {
+            Map<String, Node<T>> frozen = new HashMap<>(children.size() * 2);
+            children.forEach((segment, child) -> frozen.put(segment, child.freeze()));
+            Entry<T>[] sorted = patterns.stream()
+                    .sorted(Comparator.comparing(Entry<T>::pattern, PathPattern.SPECIFICITY_COMPARATOR)
+                            .thenComparingInt(Entry::sequence))
+                    .toArray(Entry[]::new);
+            return new Node<>(Map.copyOf(frozen), sorted);
+        }
+    }
+}
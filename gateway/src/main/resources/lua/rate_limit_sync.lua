@@ -0,0 +1,12 @@
+-- 上报各限流键在当前窗口内的本地消耗，返回集群累计消耗
+-- KEYS    : 各限流键当前窗口的计数键
+-- ARGV[1] : 计数键过期时间（毫秒）
+-- ARGV[2..] : 与KEYS一一对应的本地消耗增量
+local ttl = tonumber(ARGV[1])
+local result = {}
+for i = 1, #KEYS do
+    local total = redis.call('INCRBY', KEYS[i], tonumber(ARGV[i + 1]))
+    redis.call('PEXPIRE', KEYS[i], ttl)
+    result[i] = total
+end
+return result
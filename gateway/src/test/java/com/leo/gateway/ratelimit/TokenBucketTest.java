@@ -0,0 +1,123 @@
+package com.leo.gateway.ratelimit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 单元测试：TokenBucket（GCRA）
+ * 突发容量内放行，按发放间隔补充令牌，超额扣减推迟放行且欠下的时长有上限
+ */
+public class TokenBucketTest {
+
+    private static final long INTERVAL = 100;
+    private static final long BURST = 3;
+
+    private TokenBucket bucket;
+
+    @BeforeEach
+    public void setUp() {
+        bucket = new TokenBucket("route");
+    }
+
+    @Test
+    void tryAcquire_allowsBurstThenRejects() {
+        assertEquals(2, bucket.tryAcquire(0, INTERVAL, BURST));
+        assertEquals(1, bucket.tryAcquire(0, INTERVAL, BURST));
+        assertEquals(0, bucket.tryAcquire(0, INTERVAL, BURST));
+        assertEquals(-1, bucket.tryAcquire(0, INTERVAL, BURST));
+        // 拒绝的请求不计入消耗
+        assertEquals(3, bucket.unreported.sum());
+    }
+
+    @Test
+    void tryAcquire_replenishesOneTokenPerInterval() {
+        for (int i = 0; i < BURST; i++) {
+            bucket.tryAcquire(0, INTERVAL, BURST);
+        }
+
+        assertEquals(-1, bucket.tryAcquire(99, INTERVAL, BURST));
+        assertEquals(0, bucket.tryAcquire(100, INTERVAL, BURST));
+        assertEquals(-1, bucket.tryAcquire(150, INTERVAL, BURST));
+        assertEquals(0, bucket.tryAcquire(200, INTERVAL, BURST));
+    }
+
+    @Test
+    void tryAcquire_idleBucketIsCappedAtBurst() {
+        bucket.tryAcquire(0, INTERVAL, BURST);
+
+        // 空闲很久后令牌数不超过桶容量
+        assertEquals(2, bucket.tryAcquire(1_000_000, INTERVAL, BURST));
+        assertEquals(1, bucket.tryAcquire(1_000_000, INTERVAL, BURST));
+    }
+
+    @Test
+    void penalize_consumesTokens() {
+        bucket.penalize(0, INTERVAL, 2, 10_000);
+
+        assertEquals(0, bucket.tryAcquire(0, INTERVAL, BURST));
+        assertEquals(-1, bucket.tryAcquire(0, INTERVAL, BURST));
+        // 扣减不计入本节点的消耗
+        assertEquals(1, bucket.unreported.sum());
+    }
+
+    @Test
+    void penalize_debtIsCappedAtMaxDebt() {
+        bucket.penalize(0, INTERVAL, 1_000, 1_000);
+
+        assertEquals(-1, bucket.tryAcquire(799, INTERVAL, BURST));
+        assertEquals(0, bucket.tryAcquire(800, INTERVAL, BURST));
+    }
+
+    @Test
+    void penalize_neverMovesBackwards() {
+        for (int i = 0; i < BURST; i++) {
+            bucket.tryAcquire(0, INTERVAL, BURST);
+        }
+
+        // 上限早于当前的到达时刻，不应把已消耗的令牌还回去
+        bucket.penalize(0, INTERVAL, 1, INTERVAL);
+
+        assertEquals(-1, bucket.tryAcquire(0, INTERVAL, BURST));
+        assertEquals(0, bucket.tryAcquire(100, INTERVAL, BURST));
+        assertEquals(-1, bucket.tryAcquire(100, INTERVAL, BURST));
+    }
+
+    @Test
+    void tryAcquire_concurrentCallersNeverExceedBurst() throws InterruptedException {
+        int threads = 8;
+        int attempts = 1_000;
+        long burst = 500;
+        AtomicInteger allowed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < attempts; i++) {
+                    if (bucket.tryAcquire(0, INTERVAL, burst) >= 0) {
+                        allowed.incrementAndGet();
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(burst, allowed.get());
+        assertEquals(burst, bucket.unreported.sum());
+    }
+}
@@ -0,0 +1,164 @@
+package com.leo.gateway.route;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.util.pattern.PatternParseException;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 单元测试：PathPolicyMatcher
+ * 精确路径优先，其次字面前缀更长的，再按具体程度与添加顺序；白名单判定与原AntPathMatcher一致
+ */
+public class PathPolicyMatcherTest {
+
+    /**
+     * application.yml中的白名单
+     */
+    private static final List<String> WHITE_LIST = List.of(
+            "/api/v1/auth/register",
+            "/api/v1/auth/login",
+            "/api/v1/auth/refresh",
+            "/api/v1/auth/check/**",
+            "/admin/api/v1/auth/login",
+            "/admin/api/v1/auth/refresh",
+            "/v3/api-docs/**",
+            "/swagger-ui/**",
+            "/swagger-resources/**",
+            "/webjars/**");
+
+    @Test
+    void match_exactPathWinsOverPattern() {
+        PathPolicyMatcher<String> matcher = PathPolicyMatcher.<String>builder()
+                .add("/api/**", "all")
+                .add("/api/login", "login")
+                .build();
+
+        assertEquals("login", matcher.match("/api/login"));
+        assertEquals("all", matcher.match("/api/logout"));
+    }
+
+    @Test
+    void match_deeperLiteralPrefixWins() {
+        PathPolicyMatcher<String> matcher = PathPolicyMatcher.<String>builder()
+                .add("/api/v1/**", "v1")
+                .add("/api/*/orders", "orders")
+                .add("/**", "root")
+                .build();
+
+        // 字面前缀更长的先判定，即使另一个模式更具体
+        assertEquals("v1", matcher.match("/api/v1/orders"));
+        assertEquals("orders", matcher.match("/api/v2/orders"));
+        assertEquals("root", matcher.match("/api/v2/users"));
+        assertEquals("root", matcher.match("/"));
+    }
+
+    @Test
+    void match_samePrefixUsesSpecificity() {
+        PathPolicyMatcher<String> matcher = PathPolicyMatcher.<String>builder()
+                .add("/api/**", "any")
+                .add("/api/*", "star")
+                .add("/api/{id}", "id")
+                .build();
+
+        // PathPattern中路径变量比通配符更具体，与添加顺序无关
+        assertEquals("id", matcher.match("/api/1"));
+        assertEquals("any", matcher.match("/api/1/2"));
+    }
+
+    @Test
+    void match_equallySpecificUsesInsertionOrder() {
+        PathPolicyMatcher<String> first = PathPolicyMatcher.<String>builder()
+                .add("/api/{id}", "id")
+                .add("/api/{name}", "name")
+                .build();
+        PathPolicyMatcher<String> second = PathPolicyMatcher.<String>builder()
+                .add("/api/{name}", "name")
+                .add("/api/{id}", "id")
+                .build();
+
+        assertEquals("id", first.match("/api/1"));
+        assertEquals("name", second.match("/api/1"));
+    }
+
+    @Test
+    void add_duplicateExactPathKeepsFirst() {
+        PathPolicyMatcher<String> matcher = PathPolicyMatcher.<String>builder()
+                .add("/api/login", "first")
+                .add("/api/login", "second")
+                .build();
+
+        assertEquals("first", matcher.match("/api/login"));
+    }
+
+    @Test
+    void match_noPatternReturnsNull() {
+        PathPolicyMatcher<String> matcher = PathPolicyMatcher.<String>builder()
+                .add("/api/v1/**", "v1")
+                .build();
+
+        assertNull(matcher.match("/admin/api"));
+        assertNull(matcher.match("/api"));
+    }
+
+    @Test
+    void add_rejectsDoubleWildcardInMiddle() {
+        PathPolicyMatcher.Builder<String> builder = PathPolicyMatcher.builder();
+
+        assertThrows(PatternParseException.class, () -> builder.add("/api/**/orders", "orders"));
+    }
+
+    @Test
+    void match_configuredPoliciesAndWhiteList() {
+        PathPolicyMatcher.Builder<String> builder = PathPolicyMatcher.<String>builder()
+                .add("/api/v1/auth/check/**", "check")
+                .add("/api/v1/auth/check/{token}", "checkvar");
+        WHITE_LIST.forEach(url -> builder.add(url, url.endsWith("/**") ? url : "exact"));
+        builder.add("/**", "/**");
+        PathPolicyMatcher<String> matcher = builder.build();
+
+        assertEquals("exact", matcher.match("/api/v1/auth/login"));
+        // 同样具体时先添加的路径策略优先于白名单
+        assertEquals("check", matcher.match("/api/v1/auth/check"));
+        assertEquals("checkvar", matcher.match("/api/v1/auth/check/a"));
+        assertEquals("check", matcher.match("/api/v1/auth/check/a/b"));
+        assertEquals("/v3/api-docs/**", matcher.match("/v3/api-docs"));
+        assertEquals("/**", matcher.match("/api/v1/order/list"));
+    }
+
+    @Test
+    void match_whiteListAgreesWithAntPathMatcher() {
+        AntPathMatcher ant = new AntPathMatcher();
+        PathPolicyMatcher.Builder<String> builder = PathPolicyMatcher.builder();
+        WHITE_LIST.forEach(url -> builder.add(url, url));
+        PathPolicyMatcher<String> matcher = builder.build();
+
+        List<String> paths = List.of(
+                "/api/v1/auth/register",
+                "/api/v1/auth/login",
+                "/api/v1/auth/login/extra",
+                "/api/v1/auth/logout",
+                "/api/v1/auth/refresh",
+                "/api/v1/auth/check",
+                "/api/v1/auth/check/token",
+                "/api/v1/auth/check/a/b/c",
+                "/api/v1/auth/checked",
+                "/admin/api/v1/auth/login",
+                "/admin/api/v1/auth/refresh",
+                "/admin/api/v1/product/list",
+                "/v3/api-docs",
+                "/v3/api-docs/product-service",
+                "/v3/api-docs-x",
+                "/swagger-ui/index.html",
+                "/swagger-resources",
+                "/webjars/js/app.js",
+                "/api/v1/order/list",
+                "/");
+        for (String path : paths) {
+            boolean expected = WHITE_LIST.stream().anyMatch(url -> ant.match(url, path));
+            assertEquals(expected, matcher.match(path) != null, path);
+        }
+    }
+}
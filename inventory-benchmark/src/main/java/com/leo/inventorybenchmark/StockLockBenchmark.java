@@ -0,0 +1,134 @@
+package com.leo.inventorybenchmark;
+
+import com.leo.commoncore.exception.BizException;
+import com.leo.inventorybenchmark.support.BenchmarkEnvironment;
+import com.leo.inventoryservice.dto.StockLockDTO;
+import com.leo.inventoryservice.service.InventoryService;
+import com.leo.inventoryservice.vo.StockLockResultVO;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 库存锁定争用基准测试
+ *
+ * 多线程并发调用 lockStock / unlockStock / deductStock，衡量不同热点分布与仓库数下的吞吐和延迟：
+ * 1. skew=UNIFORM：订单内的SKU在全部SKU中均匀抽取
+ * 2. skew=HOT：每个订单的第一个商品固定为同一个热点SKU（秒杀场景）
+ * 3. mode=DB：数据库行锁；mode=REDIS：Redis预占 + 异步回写
+ * 4. hotBuckets：热点SKU拆分的分桶数，1表示不拆分
+ *
+ * 解锁与扣减都需要先锁定，因此以"锁定+解锁"、"锁定+扣减"的完整周期计量。
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@Threads(8)
+public class StockLockBenchmark {
+
+    @Param({"UNIFORM", "HOT"})
+    public String skew;
+
+    @Param({"1", "5"})
+    public int itemsPerOrder;
+
+    @Param({"1", "4"})
+    public int warehouseCount;
+
+    @Param({"DB", "REDIS"})
+    public String mode;
+
+    @Param({"1", "8"})
+    public int hotBuckets;
+
+    @Param("1000")
+    public int skuCount;
+
+    @Param("16")
+    public int poolSize;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private BenchmarkEnvironment environment;
+    private InventoryService inventoryService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        environment = BenchmarkEnvironment.start(skuCount, warehouseCount, "REDIS".equals(mode),
+                hotBuckets, poolSize);
+        inventoryService = environment.inventoryService();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        environment.close();
+    }
+
+    @Benchmark
+    public StockLockResultVO lock() {
+        return lockOrder();
+    }
+
+    @Benchmark
+    public boolean lockAndUnlock() {
+        return inventoryService.unlockStock(lockOrder().getOrderSn());
+    }
+
+    @Benchmark
+    public boolean lockAndDeduct() {
+        return inventoryService.deductStock(lockOrder().getOrderSn());
+    }
+
+    private StockLockResultVO lockOrder() {
+        StockLockResultVO result = inventoryService.lockStock(nextOrder());
+        if (!Boolean.TRUE.equals(result.getSuccess())) {
+            throw new BizException("基准测试锁定失败：" + result.getFailureReason());
+        }
+        return result;
+    }
+
+    /**
+     * 构造订单，订单内SKU互不重复
+     */
+    private StockLockDTO nextOrder() {
+        long seq = sequence.incrementAndGet();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        List<Long> skuIds = new ArrayList<>(itemsPerOrder);
+        if ("HOT".equals(skew)) {
+            skuIds.add(BenchmarkEnvironment.HOT_SKU_ID);
+        }
+        while (skuIds.size() < itemsPerOrder) {
+            long skuId = "HOT".equals(skew)
+                    ? random.nextLong(BenchmarkEnvironment.HOT_SKU_ID + 1, skuCount + 1)
+                    : random.nextLong(1, skuCount + 1);
+            if (!skuIds.contains(skuId)) {
+                skuIds.add(skuId);
+            }
+        }
+
+        List<StockLockDTO.StockLockItem> items = new ArrayList<>(itemsPerOrder);
+        for (Long skuId : skuIds) {
+            StockLockDTO.StockLockItem item = new StockLockDTO.StockLockItem();
+            item.setSkuId(skuId);
+            item.setSkuName("SKU-" + skuId);
+            item.setQuantity(1);
+            items.add(item);
+        }
+
+        StockLockDTO lockDTO = new StockLockDTO();
+        lockDTO.setOrderSn("BENCH" + seq);
+        lockDTO.setOrderId(seq);
+        lockDTO.setItems(items);
+        return lockDTO;
+    }
+}
@@ -0,0 +1,49 @@
+package com.leo.inventorybenchmark;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 库存锁定基准测试入口
+ *
+ * 依次执行吞吐量（ops/s）与采样延迟（p50/p99/p999，微秒）两轮，
+ * 结果写入 target/jmh-throughput.json 与 target/jmh-latency.json，便于与基线对比。
+ * 命令行参数与JMH一致，例如 -p mode=DB -p skew=HOT 缩小参数组合。
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+public class StockLockBenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        String include = commandLine.getIncludes().isEmpty()
+                ? StockLockBenchmark.class.getSimpleName()
+                : commandLine.getIncludes().get(0);
+
+        new Runner(new OptionsBuilder()
+                .parent(commandLine)
+                .include(include)
+                .mode(Mode.Throughput)
+                .timeUnit(TimeUnit.SECONDS)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-throughput.json")
+                .build()).run();
+
+        new Runner(new OptionsBuilder()
+                .parent(commandLine)
+                .include(include)
+                .mode(Mode.SampleTime)
+                .timeUnit(TimeUnit.MICROSECONDS)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-latency.json")
+                .build()).run();
+    }
+}
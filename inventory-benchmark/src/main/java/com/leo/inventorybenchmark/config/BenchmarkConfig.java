@@ -0,0 +1,146 @@
+package com.leo.inventorybenchmark.config;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.config.GlobalConfig;
+import com.baomidou.mybatisplus.core.handlers.MetaObjectHandler;
+import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
+import com.baomidou.mybatisplus.extension.spring.MybatisSqlSessionFactoryBean;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.leo.commoncore.response.R;
+import com.leo.commonmybatis.config.MyBatisPlusConfig;
+import com.leo.commonredis.config.RedisConfig;
+import com.leo.commonredis.delay.RedisDelayQueue;
+import com.leo.commonredis.util.RedisUtil;
+import com.leo.inventorybenchmark.support.BenchmarkEnvironment;
+import com.leo.inventorybenchmark.support.BenchmarkSettings;
+import com.leo.inventoryservice.client.ProductFeignClient;
+import com.leo.inventoryservice.config.InventoryConfig;
+import com.leo.inventoryservice.config.OutboxConfig;
+import com.leo.inventoryservice.service.impl.InventoryServiceImpl;
+import com.leo.inventoryservice.stock.RedisStockReserver;
+import com.leo.inventoryservice.stock.StockEventWriter;
+import com.leo.inventoryservice.stock.StockBucketRebalancer;
+import com.leo.inventoryservice.stock.StockIndexSyncer;
+import com.leo.inventoryservice.stock.StockReserveReconciler;
+import com.leo.inventoryservice.stock.StockUnlockSweeper;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.annotation.MapperScan;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+import org.redisson.spring.data.connection.RedissonConnectionFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * 基准测试容器配置
+ *
+ * 只装配库存锁定链路需要的Bean（数据源、MyBatis Plus、Redis、库存服务），
+ * 不启动Web、Nacos、Sentinel等与测量无关的组件。
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Configuration
+@MapperScan("com.leo.inventoryservice.mapper")
+@Import({MyBatisPlusConfig.class, RedisConfig.class, RedisUtil.class, RedisDelayQueue.class,
+        InventoryServiceImpl.class, RedisStockReserver.class, StockReserveReconciler.class,
+        StockBucketRebalancer.class, StockUnlockSweeper.class, StockEventWriter.class, StockIndexSyncer.class,
+        OutboxConfig.class})
+public class BenchmarkConfig {
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource dataSource(BenchmarkSettings settings) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(settings.getJdbcUrl());
+        dataSource.setUsername("sa");
+        dataSource.setMaximumPoolSize(settings.getPoolSize());
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        return dataSource;
+    }
+
+    @Bean
+    public PlatformTransactionManager transactionManager(DataSource dataSource) {
+        return new DataSourceTransactionManager(dataSource);
+    }
+
+    @Bean
+    public SqlSessionFactory sqlSessionFactory(DataSource dataSource,
+                                               MybatisPlusInterceptor mybatisPlusInterceptor,
+                                               MetaObjectHandler metaObjectHandler) throws Exception {
+        MybatisConfiguration configuration = new MybatisConfiguration();
+        configuration.setMapUnderscoreToCamelCase(true);
+        configuration.setCacheEnabled(false);
+
+        GlobalConfig globalConfig = new GlobalConfig();
+        globalConfig.setMetaObjectHandler(metaObjectHandler);
+
+        MybatisSqlSessionFactoryBean factory = new MybatisSqlSessionFactoryBean();
+        factory.setDataSource(dataSource);
+        factory.setConfiguration(configuration);
+        factory.setGlobalConfig(globalConfig);
+        factory.setPlugins(mybatisPlusInterceptor);
+        return factory.getObject();
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public RedissonClient redissonClient(BenchmarkSettings settings) {
+        Config config = new Config();
+        config.useSingleServer().setAddress(settings.getRedisAddress());
+        return Redisson.create(config);
+    }
+
+    @Bean
+    public RedisConnectionFactory redisConnectionFactory(RedissonClient redissonClient) {
+        return new RedissonConnectionFactory(redissonClient);
+    }
+
+    @Bean
+    public StringRedisTemplate stringRedisTemplate(RedisConnectionFactory redisConnectionFactory) {
+        return new StringRedisTemplate(redisConnectionFactory);
+    }
+
+    @Bean
+    public ObjectMapper objectMapper() {
+        return new ObjectMapper();
+    }
+
+    @Bean
+    public MeterRegistry meterRegistry() {
+        return new SimpleMeterRegistry();
+    }
+
+    /**
+     * 商品服务不参与测量，库存状态同步直接返回成功
+     */
+    @Bean
+    public ProductFeignClient productFeignClient() {
+        return stocks -> R.success();
+    }
+
+    @Bean
+    public InventoryConfig inventoryConfig(BenchmarkSettings settings) {
+        InventoryConfig inventoryConfig = new InventoryConfig();
+        inventoryConfig.getRedisReserve().setEnabled(settings.isRedisReserve());
+        inventoryConfig.getRedisReserve().setWarmUpOnStartup(false);
+        if (settings.getHotBuckets() > 1) {
+            inventoryConfig.getBucket().setEnabled(true);
+            inventoryConfig.getBucket().setHotSkuIds(List.of(BenchmarkEnvironment.HOT_SKU_ID));
+            inventoryConfig.getBucket().setBucketCount(settings.getHotBuckets());
+        }
+        return inventoryConfig;
+    }
+}
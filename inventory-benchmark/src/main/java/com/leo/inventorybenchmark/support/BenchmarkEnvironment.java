@@ -0,0 +1,188 @@
+package com.leo.inventorybenchmark.support;
+
+import com.github.fppt.jedismock.RedisServer;
+import com.leo.inventorybenchmark.config.BenchmarkConfig;
+import com.leo.inventoryservice.service.InventoryService;
+import com.leo.inventoryservice.stock.RedisStockReserver;
+import com.leo.inventoryservice.stock.StockBucketRebalancer;
+import com.leo.inventoryservice.stock.StockReserveReconciler;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RedissonClient;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基准测试运行环境
+ *
+ * 每个Trial创建一套独立的内嵌数据库与Redis，并灌入库存数据：
+ * 1. 数据库：H2内存库（MySQL兼容模式），表结构见schema.sql
+ * 2. Redis：默认使用进程内的jedis-mock，指定 -Dbench.redis=redis://host:port 时使用真实Redis
+ * 3. Redis预占模式下额外启动回写线程，热点SKU分桶时额外启动再平衡，与线上定时任务的节奏一致
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Slf4j
+public class BenchmarkEnvironment implements AutoCloseable {
+
+    /**
+     * 每个库存行的初始库存，保证测量期间不会因库存耗尽而失败
+     */
+    public static final int INITIAL_STOCK = 1_000_000_000;
+
+    /**
+     * 热点SKU
+     */
+    public static final long HOT_SKU_ID = 1L;
+
+    private static final String REDIS_PROPERTY = "bench.redis";
+    private static final long FLUSH_INTERVAL_MILLIS = 200;
+    private static final long REBALANCE_INTERVAL_MILLIS = 1000;
+    private static final int SEED_BATCH_SIZE = 1000;
+
+    private final RedisServer redisServer;
+    private final AnnotationConfigApplicationContext context;
+    private final ScheduledExecutorService background;
+
+    private BenchmarkEnvironment(RedisServer redisServer,
+                                 AnnotationConfigApplicationContext context,
+                                 ScheduledExecutorService background) {
+        this.redisServer = redisServer;
+        this.context = context;
+        this.background = background;
+    }
+
+    /**
+     * 启动环境并灌入数据
+     *
+     * @param skuCount       SKU数量
+     * @param warehouseCount 每个SKU分布的仓库数
+     * @param redisReserve   是否启用Redis预占
+     * @param hotBuckets     热点SKU分桶数
+     * @param poolSize       连接池大小
+     */
+    public static BenchmarkEnvironment start(int skuCount, int warehouseCount, boolean redisReserve,
+                                             int hotBuckets, int poolSize) {
+        RedisServer redisServer = null;
+        String redisAddress = System.getProperty(REDIS_PROPERTY);
+        try {
+            if (redisAddress == null) {
+                redisServer = RedisServer.newRedisServer().start();
+                redisAddress = "redis://" + redisServer.getHost() + ":" + redisServer.getBindPort();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("启动内嵌Redis失败", e);
+        }
+
+        BenchmarkSettings settings = BenchmarkSettings.builder()
+                .jdbcUrl("jdbc:h2:mem:inventory_" + System.nanoTime()
+                        + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;LOCK_TIMEOUT=10000;DB_CLOSE_DELAY=-1")
+                .redisAddress(redisAddress)
+                .redisReserve(redisReserve)
+                .hotBuckets(hotBuckets)
+                .poolSize(poolSize)
+                .build();
+
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.registerBean(BenchmarkSettings.class, () -> settings);
+        context.register(BenchmarkConfig.class);
+        context.refresh();
+
+        // 共享的真实Redis上只清理库存相关的键
+        context.getBean(RedissonClient.class).getKeys().deleteByPattern("inventory:*");
+        seed(context.getBean(DataSource.class), skuCount, warehouseCount);
+
+        ScheduledExecutorService background = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "inventory-background");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (hotBuckets > 1) {
+            StockBucketRebalancer rebalancer = context.getBean(StockBucketRebalancer.class);
+            rebalancer.rebalance();
+            background.scheduleWithFixedDelay(() -> runQuietly(rebalancer::rebalance, "库存分桶再平衡失败"),
+                    REBALANCE_INTERVAL_MILLIS, REBALANCE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        if (redisReserve) {
+            context.getBean(RedisStockReserver.class).run(null);
+            StockReserveReconciler reconciler = context.getBean(StockReserveReconciler.class);
+            background.scheduleWithFixedDelay(() -> runQuietly(reconciler::flush, "库存回写失败"),
+                    FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        return new BenchmarkEnvironment(redisServer, context, background);
+    }
+
+    private static void runQuietly(Runnable task, String message) {
+        try {
+            task.run();
+        } catch (Exception e) {
+            log.warn("{}：{}", message, e.getMessage());
+        }
+    }
+
+    /**
+     * 灌入仓库与库存数据，SKU ID从1开始连续编号，仓库ID从1开始
+     */
+    private static void seed(DataSource dataSource, int skuCount, int warehouseCount) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        for (long wareId = 1; wareId <= warehouseCount; wareId++) {
+            jdbcTemplate.update("INSERT INTO wms_ware_info (id, name, code, status, priority, deleted, version) "
+                    + "VALUES (?, ?, ?, 1, ?, 0, 1)", wareId, "仓库" + wareId, "WH" + wareId, wareId);
+        }
+        String sql = "INSERT INTO wms_ware_sku (id, sku_id, ware_id, stock, stock_locked, sku_name, status, deleted, version) "
+                + "VALUES (?, ?, ?, ?, 0, ?, 1, 0, 1)";
+        List<Object[]> batch = new ArrayList<>(SEED_BATCH_SIZE);
+        long id = 1;
+        for (long skuId = 1; skuId <= skuCount; skuId++) {
+            for (long wareId = 1; wareId <= warehouseCount; wareId++) {
+                batch.add(new Object[]{id++, skuId, wareId, INITIAL_STOCK, "SKU-" + skuId});
+                if (batch.size() == SEED_BATCH_SIZE) {
+                    jdbcTemplate.batchUpdate(sql, batch);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, batch);
+        }
+    }
+
+    public InventoryService inventoryService() {
+        return context.getBean(InventoryService.class);
+    }
+
+    /**
+     * 关闭环境，Redis预占模式下先把剩余记录回写
+     */
+    @Override
+    public void close() {
+        try {
+            background.shutdown();
+            background.awaitTermination(10, TimeUnit.SECONDS);
+            if (context.getBean(RedisStockReserver.class).isEnabled()) {
+                context.getBean(StockReserveReconciler.class).flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            context.close();
+            if (redisServer != null) {
+                try {
+                    redisServer.stop();
+                } catch (IOException e) {
+                    log.warn("关闭内嵌Redis失败：{}", e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.leo.inventorybenchmark.support;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * 基准环境参数
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Getter
+@Builder
+public class BenchmarkSettings {
+
+    /**
+     * 内嵌数据库连接
+     */
+    private final String jdbcUrl;
+
+    /**
+     * Redis地址（redis://host:port）
+     */
+    private final String redisAddress;
+
+    /**
+     * 是否启用Redis预占
+     */
+    private final boolean redisReserve;
+
+    /**
+     * 热点SKU分桶数，大于1时启用分桶
+     */
+    private final int hotBuckets;
+
+    /**
+     * 连接池大小
+     */
+    private final int poolSize;
+}
@@ -0,0 +1,142 @@
+-- 基准测试用库存表结构（H2 MySQL兼容模式，字段与 sql/inventory/inventory.sql 保持一致）
+
+CREATE TABLE IF NOT EXISTS wms_ware_info (
+    id             BIGINT        NOT NULL PRIMARY KEY,
+    tenant_id      BIGINT        DEFAULT 0,
+    name           VARCHAR(255)  NOT NULL,
+    code           VARCHAR(50)   NOT NULL,
+    address        VARCHAR(500),
+    province_id    BIGINT,
+    city_id        BIGINT,
+    area_id        BIGINT,
+    detail_address VARCHAR(500),
+    type           TINYINT       DEFAULT 1,
+    manager        VARCHAR(50),
+    phone          VARCHAR(20),
+    post_code      VARCHAR(10),
+    longitude      DECIMAL(10,6),
+    latitude       DECIMAL(10,6),
+    status         TINYINT       DEFAULT 1,
+    priority       INT           DEFAULT 0,
+    create_time    DATETIME      DEFAULT CURRENT_TIMESTAMP,
+    update_time    DATETIME      DEFAULT CURRENT_TIMESTAMP,
+    create_by      VARCHAR(50),
+    update_by      VARCHAR(50),
+    remark         VARCHAR(500),
+    deleted        TINYINT       DEFAULT 0,
+    version        INT           DEFAULT 0,
+    CONSTRAINT uk_code UNIQUE (code)
+);
+
+CREATE TABLE IF NOT EXISTS wms_ware_sku (
+    id           BIGINT       NOT NULL PRIMARY KEY,
+    tenant_id    BIGINT       DEFAULT 0,
+    sku_id       BIGINT       NOT NULL,
+    ware_id      BIGINT       NOT NULL,
+    bucket       TINYINT      DEFAULT 0,
+    stock        INT          DEFAULT 0,
+    stock_locked INT          DEFAULT 0,
+    sku_name     VARCHAR(200),
+    min_stock    INT          DEFAULT 0,
+    max_stock    INT          DEFAULT 99999,
+    status       TINYINT      DEFAULT 1,
+    create_time  DATETIME     DEFAULT CURRENT_TIMESTAMP,
+    update_time  DATETIME     DEFAULT CURRENT_TIMESTAMP,
+    create_by    VARCHAR(50),
+    update_by    VARCHAR(50),
+    remark       VARCHAR(500),
+    deleted      TINYINT      DEFAULT 0,
+    version      INT          DEFAULT 0,
+    CONSTRAINT uk_sku_ware UNIQUE (sku_id, ware_id, bucket, deleted)
+);
+CREATE INDEX IF NOT EXISTS idx_ware_sku_query ON wms_ware_sku (sku_id, ware_id, deleted, status);
+
+CREATE TABLE IF NOT EXISTS wms_ware_order_task (
+    id               BIGINT       NOT NULL PRIMARY KEY,
+    tenant_id        BIGINT       DEFAULT 0,
+    order_sn         VARCHAR(50)  NOT NULL,
+    order_id         BIGINT,
+    consignee        VARCHAR(100),
+    consignee_tel    VARCHAR(20),
+    delivery_address VARCHAR(500),
+    order_comment    VARCHAR(500),
+    payment_way      TINYINT,
+    task_status      TINYINT      DEFAULT 0,
+    order_body       VARCHAR(500),
+    tracking_no      VARCHAR(50),
+    ware_id          BIGINT,
+    lock_time        DATETIME,
+    unlock_time      DATETIME,
+    deduct_time      DATETIME,
+    reason           VARCHAR(500),
+    create_time      DATETIME     DEFAULT CURRENT_TIMESTAMP,
+    update_time      DATETIME     DEFAULT CURRENT_TIMESTAMP,
+    create_by        VARCHAR(50),
+    update_by        VARCHAR(50),
+    remark           VARCHAR(500),
+    deleted          TINYINT      DEFAULT 0,
+    version          INT          DEFAULT 0,
+    CONSTRAINT uk_order_sn UNIQUE (order_sn, deleted)
+);
+CREATE INDEX IF NOT EXISTS idx_task_timeout ON wms_ware_order_task (task_status, lock_time);
+
+CREATE TABLE IF NOT EXISTS wms_ware_order_task_detail (
+    id          BIGINT       NOT NULL PRIMARY KEY,
+    tenant_id   BIGINT       DEFAULT 0,
+    sku_id      BIGINT       NOT NULL,
+    sku_name    VARCHAR(200),
+    sku_num     INT          NOT NULL,
+    task_id     BIGINT       NOT NULL,
+    ware_id     BIGINT,
+    bucket      TINYINT      DEFAULT 0,
+    lock_status TINYINT      DEFAULT 0,
+    locked_num  INT          DEFAULT 0,
+    reason      VARCHAR(500),
+    create_time DATETIME     DEFAULT CURRENT_TIMESTAMP,
+    update_time DATETIME     DEFAULT CURRENT_TIMESTAMP,
+    create_by   VARCHAR(50),
+    update_by   VARCHAR(50),
+    remark      VARCHAR(500),
+    deleted     TINYINT      DEFAULT 0,
+    version     INT          DEFAULT 0
+);
+CREATE INDEX IF NOT EXISTS idx_task_id ON wms_ware_order_task_detail (task_id);
+
+CREATE TABLE IF NOT EXISTS wms_ware_log (
+    id              BIGINT       NOT NULL PRIMARY KEY,
+    tenant_id       BIGINT       DEFAULT 0,
+    sku_id          BIGINT       NOT NULL,
+    ware_id         BIGINT       NOT NULL,
+    operation_type  TINYINT      NOT NULL,
+    change_quantity INT          NOT NULL,
+    stock_before    INT,
+    stock_after     INT,
+    locked_before   INT,
+    locked_after    INT,
+    relation_sn     VARCHAR(50),
+    relation_type   TINYINT,
+    operator_id     BIGINT,
+    operator_name   VARCHAR(50),
+    operate_time    DATETIME     DEFAULT CURRENT_TIMESTAMP,
+    operate_note    VARCHAR(500),
+    create_time     DATETIME     DEFAULT CURRENT_TIMESTAMP,
+    update_time     DATETIME     DEFAULT CURRENT_TIMESTAMP,
+    create_by       VARCHAR(50),
+    update_by       VARCHAR(50),
+    remark          VARCHAR(500),
+    deleted         TINYINT      DEFAULT 0,
+    version         INT          DEFAULT 0
+);
+
+CREATE TABLE IF NOT EXISTS outbox_message (
+    id              BIGINT       NOT NULL PRIMARY KEY,
+    topic           VARCHAR(100) NOT NULL,
+    event_type      VARCHAR(100) NOT NULL,
+    biz_key         VARCHAR(64),
+    payload         TEXT,
+    status          TINYINT      NOT NULL DEFAULT 0,
+    attempts        INT          NOT NULL DEFAULT 0,
+    next_retry_time DATETIME     NOT NULL,
+    create_time     DATETIME     DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_status_retry ON outbox_message (status, next_retry_time, id);
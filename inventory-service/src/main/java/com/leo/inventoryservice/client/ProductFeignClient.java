@@ -0,0 +1,23 @@
+package com.leo.inventoryservice.client;
+
+import com.leo.commoncore.response.R;
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+
+import java.util.Map;
+
+/**
+ * 商品服务Feign客户端
+ */
+@FeignClient(name = "product-service", path = "/search")
+public interface ProductFeignClient {
+
+    /**
+     * 批量更新商品索引中的库存状态
+     *
+     * @param stocks SKU ID -> 是否有库存
+     */
+    @PostMapping("/stock")
+    R<Void> updateStocks(@RequestBody Map<Long, Boolean> stocks);
+}
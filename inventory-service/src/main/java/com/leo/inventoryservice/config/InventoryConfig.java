@@ -0,0 +1,132 @@
+package com.leo.inventoryservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 库存服务配置
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "inventory")
+public class InventoryConfig {
+
+    /**
+     * Redis库存预占配置
+     */
+    private RedisReserve redisReserve = new RedisReserve();
+
+    /**
+     * 热点SKU库存分桶配置
+     */
+    private Bucket bucket = new Bucket();
+
+    /**
+     * 超时解锁扫描配置
+     */
+    private UnlockSweep unlockSweep = new UnlockSweep();
+
+    /**
+     * 库存状态同步到商品索引的配置
+     */
+    private EsSync esSync = new EsSync();
+
+    @Data
+    public static class RedisReserve {
+        /**
+         * 是否启用Redis预占（关闭时走数据库锁定）
+         */
+        private boolean enabled = false;
+
+        /**
+         * 启动时是否预热全部库存
+         */
+        private boolean warmUpOnStartup = true;
+
+        /**
+         * 回写间隔（毫秒）
+         */
+        private long flushInterval = 200;
+
+        /**
+         * 回写批次大小
+         */
+        private int flushBatchSize = 500;
+    }
+
+    @Data
+    public static class Bucket {
+        /**
+         * 是否启用分桶（关闭后已拆分的分桶仍可正常锁定，只是不再拆分与再平衡）
+         */
+        private boolean enabled = false;
+
+        /**
+         * 需要拆分的热点SKU
+         */
+        private List<Long> hotSkuIds = new ArrayList<>();
+
+        /**
+         * 每个(SKU, 仓库)的分桶数
+         */
+        private int bucketCount = 4;
+
+        /**
+         * 再平衡间隔（毫秒）
+         */
+        private long rebalanceInterval = 5000;
+
+        /**
+         * 倾斜阈值：最小分桶可用库存低于平均值的该比例时再平衡
+         */
+        private double skewThreshold = 0.5;
+    }
+
+    @Data
+    public static class UnlockSweep {
+        /**
+         * 扫描间隔（毫秒）
+         */
+        private long interval = 60000;
+
+        /**
+         * 分区数（按工作单ID取模）
+         */
+        private int partitions = 8;
+
+        /**
+         * 每批解锁的工作单数
+         */
+        private int batchSize = 200;
+
+        /**
+         * 每个分区单次扫描的最大批次数
+         */
+        private int maxBatchesPerRun = 50;
+
+        /**
+         * 分区租约时长（秒），节点宕机后租约到期由其他节点接管
+         */
+        private int leaseSeconds = 60;
+    }
+
+    @Data
+    public static class EsSync {
+        /**
+         * 同步间隔（毫秒），间隔内同一SKU的多次变化只同步一次
+         */
+        private long interval = 500;
+
+        /**
+         * 每次调用商品服务同步的SKU数
+         */
+        private int batchSize = 500;
+    }
+}
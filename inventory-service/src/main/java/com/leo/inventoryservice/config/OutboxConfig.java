@@ -0,0 +1,49 @@
+package com.leo.inventoryservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.leo.commonmybatis.outbox.*;
+import com.leo.inventoryservice.mapper.OutboxMessageMapper;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.stream.Collectors;
+
+/**
+ * 发件箱配置
+ * 库存服务未接入消息中间件，工作单事件由进程内发布器投递给本服务的订阅者
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Configuration
+public class OutboxConfig {
+
+    @Bean
+    @ConfigurationProperties(prefix = "outbox")
+    public OutboxProperties outboxProperties() {
+        return new OutboxProperties();
+    }
+
+    @Bean
+    public OutboxPublisher outboxPublisher(ObjectProvider<OutboxEventHandler> handlers) {
+        return new LocalOutboxPublisher(handlers.orderedStream().collect(Collectors.toList()));
+    }
+
+    @Bean
+    public OutboxRelay outboxRelay(OutboxMessageMapper outboxMessageMapper,
+                                   OutboxPublisher outboxPublisher,
+                                   OutboxProperties outboxProperties,
+                                   PlatformTransactionManager transactionManager) {
+        return new OutboxRelay(outboxMessageMapper, outboxPublisher, outboxProperties, transactionManager);
+    }
+
+    @Bean
+    public OutboxWriter outboxWriter(OutboxMessageMapper outboxMessageMapper,
+                                     OutboxRelay outboxRelay,
+                                     ObjectMapper objectMapper) {
+        return new OutboxWriter(outboxMessageMapper, outboxRelay, objectMapper);
+    }
+}
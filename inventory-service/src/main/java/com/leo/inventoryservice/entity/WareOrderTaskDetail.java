@@ -42,6 +42,11 @@ public class WareOrderTaskDetail extends BaseEntity {
      */
     private Long wareId;
 
+    /**
+     * 锁定的库存分桶号，解锁和扣减回到同一分桶
+     */
+    private Integer bucket;
+
     /**
      * 锁定状态：1-已锁定，2-已解锁，3-已扣减
      */
@@ -34,6 +34,12 @@ public class WareSku extends BaseEntity {
      */
     private Long wareId;
 
+    /**
+     * 库存分桶号：0-主桶，热点SKU拆分出的子桶从1开始
+     * 同一(skuId, wareId)的全部分桶合计才是该仓库的库存
+     */
+    private Integer bucket;
+
     /**
      * 实际库存数量
      */
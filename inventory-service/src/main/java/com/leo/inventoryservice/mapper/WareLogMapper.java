@@ -2,6 +2,7 @@ package com.leo.inventoryservice.mapper;
 
 import com.leo.commonmybatis.mapper.BaseMapperPlus;
 import com.leo.inventoryservice.entity.WareLog;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
@@ -24,4 +25,20 @@ public interface WareLogMapper extends BaseMapperPlus<WareLog> {
             "LIMIT #{limit}")
     List<WareLog> selectBySkuId(@Param("skuId") Long skuId,
                                 @Param("limit") Integer limit);
-}
\ No newline at end of file
+
+    /**
+     * 批量插入库存流水
+     */
+    @Override
+    @Insert("<script>" +
+            "INSERT INTO wms_ware_log " +
+            "(id, sku_id, ware_id, operation_type, change_quantity, stock_before, stock_after, " +
+            "locked_before, locked_after, relation_sn, relation_type, operate_time, operate_note) VALUES " +
+            "<foreach collection='list' item='item' separator=','>" +
+            "(#{item.id}, #{item.skuId}, #{item.wareId}, #{item.operationType}, #{item.changeQuantity}, " +
+            "#{item.stockBefore}, #{item.stockAfter}, #{item.lockedBefore}, #{item.lockedAfter}, " +
+            "#{item.relationSn}, #{item.relationType}, #{item.operateTime}, #{item.operateNote})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("list") List<WareLog> list);
+}
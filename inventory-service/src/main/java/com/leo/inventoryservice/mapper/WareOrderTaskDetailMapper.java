@@ -1,9 +1,11 @@
 package com.leo.inventoryservice.mapper;
 import com.leo.commonmybatis.mapper.BaseMapperPlus;
 import com.leo.inventoryservice.entity.WareOrderTaskDetail;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
 import java.util.List;
 /**
@@ -19,4 +21,61 @@ public interface WareOrderTaskDetailMapper extends BaseMapperPlus<WareOrderTaskD
             "WHERE task_id = #{taskId} " +
             "AND deleted = 0")
     List<WareOrderTaskDetail> selectByTaskId(@Param("taskId") Long taskId);
-}
\ No newline at end of file
+
+    /**
+     * 查询已存在详情的工作单ID
+     */
+    @Select("<script>" +
+            "SELECT DISTINCT task_id FROM wms_ware_order_task_detail " +
+            "WHERE task_id IN " +
+            "<foreach collection='taskIds' item='taskId' open='(' separator=',' close=')'>" +
+            "#{taskId}" +
+            "</foreach> " +
+            "AND deleted = 0" +
+            "</script>")
+    List<Long> selectTaskIdsWithDetail(@Param("taskIds") List<Long> taskIds);
+
+    /**
+     * 查询一批工作单中仍处于锁定状态的详情
+     */
+    @Select("<script>" +
+            "SELECT * FROM wms_ware_order_task_detail " +
+            "WHERE task_id IN " +
+            "<foreach collection='taskIds' item='taskId' open='(' separator=',' close=')'>" +
+            "#{taskId}" +
+            "</foreach> " +
+            "AND lock_status = 1 " +
+            "AND deleted = 0" +
+            "</script>")
+    List<WareOrderTaskDetail> selectLockedByTaskIds(@Param("taskIds") List<Long> taskIds);
+
+    /**
+     * 批量把一批工作单的已锁定详情标记为已解锁
+     */
+    @Update("<script>" +
+            "UPDATE wms_ware_order_task_detail " +
+            "SET lock_status = 2, " +
+            "    version = version + 1 " +
+            "WHERE task_id IN " +
+            "<foreach collection='taskIds' item='taskId' open='(' separator=',' close=')'>" +
+            "#{taskId}" +
+            "</foreach> " +
+            "AND lock_status = 1 " +
+            "AND deleted = 0" +
+            "</script>")
+    int batchUnlockByTaskIds(@Param("taskIds") List<Long> taskIds);
+
+    /**
+     * 批量插入工作单详情
+     */
+    @Override
+    @Insert("<script>" +
+            "INSERT INTO wms_ware_order_task_detail " +
+            "(id, sku_id, sku_name, sku_num, task_id, ware_id, bucket, lock_status, locked_num, reason) VALUES " +
+            "<foreach collection='list' item='item' separator=','>" +
+            "(#{item.id}, #{item.skuId}, #{item.skuName}, #{item.skuNum}, #{item.taskId}, " +
+            "#{item.wareId}, #{item.bucket}, #{item.lockStatus}, #{item.lockedNum}, #{item.reason})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("list") List<WareOrderTaskDetail> list);
+}
@@ -4,6 +4,7 @@ import com.leo.inventoryservice.entity.WareOrderTask;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -21,4 +22,98 @@ public interface WareOrderTaskMapper extends BaseMapperPlus<WareOrderTask> {
             "AND lock_time < #{timeoutTime} " +
             "AND deleted = 0")
     List<WareOrderTask> selectTimeoutTasks(@Param("timeoutTime") LocalDateTime timeoutTime);
-}
\ No newline at end of file
+
+    /**
+     * 按(lock_time, id)游标分页查询一个分区内的超时工作单
+     * 走idx_task_timeout(task_status, lock_time)索引，只返回id和lock_time
+     *
+     * @param deadline     锁定时间早于该时间视为超时
+     * @param lastLockTime 上一页最后一条的锁定时间，首页为空
+     * @param lastId       上一页最后一条的ID
+     * @param partitions   分区数
+     * @param partition    分区号
+     * @param limit        每页条数
+     */
+    @Select("<script>" +
+            "SELECT id, lock_time FROM wms_ware_order_task " +
+            "WHERE task_status = 1 " +
+            "AND lock_time &lt; #{deadline} " +
+            "<if test='lastLockTime != null'>" +
+            "AND (lock_time > #{lastLockTime} OR (lock_time = #{lastLockTime} AND id > #{lastId})) " +
+            "</if>" +
+            "AND MOD(id, #{partitions}) = #{partition} " +
+            "AND deleted = 0 " +
+            "ORDER BY lock_time, id " +
+            "LIMIT #{limit}" +
+            "</script>")
+    List<WareOrderTask> selectTimeoutPage(@Param("deadline") LocalDateTime deadline,
+                                          @Param("lastLockTime") LocalDateTime lastLockTime,
+                                          @Param("lastId") Long lastId,
+                                          @Param("partitions") int partitions,
+                                          @Param("partition") int partition,
+                                          @Param("limit") int limit);
+
+    /**
+     * 锁定仍处于已锁定状态的工作单，并发的解锁、扣减已处理的工作单不会返回
+     * 按主键顺序加锁，锁定事务尚未提交的工作单会等待其提交或回滚
+     */
+    @Select("<script>" +
+            "SELECT id, order_sn, order_id FROM wms_ware_order_task " +
+            "WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>" +
+            "#{id}" +
+            "</foreach> " +
+            "AND task_status = 1 " +
+            "AND deleted = 0 " +
+            "ORDER BY id " +
+            "FOR UPDATE" +
+            "</script>")
+    List<WareOrderTask> selectLockedForUpdate(@Param("ids") List<Long> ids);
+
+    /**
+     * 按订单号锁定工作单
+     * 解锁、扣减在修改库存前先锁定工作单行，与超时解锁互斥，并读取行锁内的最新状态
+     */
+    @Select("SELECT * FROM wms_ware_order_task " +
+            "WHERE order_sn = #{orderSn} " +
+            "AND deleted = 0 " +
+            "FOR UPDATE")
+    WareOrderTask selectByOrderSnForUpdate(@Param("orderSn") String orderSn);
+
+    /**
+     * 按ID锁定工作单
+     */
+    @Select("SELECT * FROM wms_ware_order_task " +
+            "WHERE id = #{id} " +
+            "AND deleted = 0 " +
+            "FOR UPDATE")
+    WareOrderTask selectByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * 批量标记工作单为已解锁
+     */
+    @Update("<script>" +
+            "UPDATE wms_ware_order_task " +
+            "SET task_status = 2, " +
+            "    unlock_time = #{unlockTime}, " +
+            "    reason = #{reason}, " +
+            "    version = version + 1 " +
+            "WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>" +
+            "#{id}" +
+            "</foreach> " +
+            "AND task_status = 1 " +
+            "AND deleted = 0" +
+            "</script>")
+    int batchMarkUnlocked(@Param("ids") List<Long> ids,
+                          @Param("unlockTime") LocalDateTime unlockTime,
+                          @Param("reason") String reason);
+
+    /**
+     * 查询最早的已锁定时间，用于计算超时解锁积压
+     */
+    @Select("SELECT MIN(lock_time) FROM wms_ware_order_task " +
+            "WHERE task_status = 1 " +
+            "AND deleted = 0")
+    LocalDateTime selectOldestLockTime();
+}
@@ -7,7 +7,9 @@ import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 库存Mapper
@@ -31,17 +33,65 @@ public interface WareSkuMapper extends BaseMapperPlus<WareSku> {
             "    version = version + 1 " +
             "WHERE sku_id = #{skuId} " +
             "  AND ware_id = #{wareId} " +
+            "  AND bucket = 0 " +
             "  AND stock - stock_locked >= #{quantity} " +
             "  AND deleted = 0")
     int lockStock(@Param("skuId") Long skuId,
                   @Param("wareId") Long wareId,
                   @Param("quantity") Integer quantity);
 
+    /**
+     * 批量锁定库存（一条多行UPDATE）
+     *
+     * @param changes        库存行ID -> 锁定数量
+     * @param checkAvailable 是否校验可用库存（Redis预占回写时已在Redis侧校验）
+     * @return 更新行数
+     */
+    @Update("<script>" +
+            "UPDATE wms_ware_sku " +
+            "SET stock_locked = stock_locked + CASE id " +
+            "<foreach collection='changes' index='id' item='quantity'>WHEN #{id} THEN #{quantity} </foreach>" +
+            "END, " +
+            "    version = version + 1 " +
+            "WHERE id IN " +
+            "<foreach collection='changes' index='id' open='(' separator=',' close=')'>#{id}</foreach> " +
+            "<if test='checkAvailable'>" +
+            "  AND stock - stock_locked >= CASE id " +
+            "<foreach collection='changes' index='id' item='quantity'>WHEN #{id} THEN #{quantity} </foreach>" +
+            "END " +
+            "</if>" +
+            "  AND deleted = 0" +
+            "</script>")
+    int batchLockStock(@Param("changes") Map<Long, Integer> changes,
+                       @Param("checkAvailable") boolean checkAvailable);
+
+    /**
+     * 批量解锁库存（一条多行UPDATE）
+     *
+     * @param changes 库存行ID -> 解锁数量
+     * @return 更新行数
+     */
+    @Update("<script>" +
+            "UPDATE wms_ware_sku " +
+            "SET stock_locked = stock_locked - CASE id " +
+            "<foreach collection='changes' index='id' item='quantity'>WHEN #{id} THEN #{quantity} </foreach>" +
+            "END, " +
+            "    version = version + 1 " +
+            "WHERE id IN " +
+            "<foreach collection='changes' index='id' open='(' separator=',' close=')'>#{id}</foreach> " +
+            "  AND stock_locked >= CASE id " +
+            "<foreach collection='changes' index='id' item='quantity'>WHEN #{id} THEN #{quantity} </foreach>" +
+            "END " +
+            "  AND deleted = 0" +
+            "</script>")
+    int batchUnlockStock(@Param("changes") Map<Long, Integer> changes);
+
     /**
      * 解锁库存
      *
      * @param skuId    商品SKU ID
      * @param wareId   仓库ID
+     * @param bucket   分桶号
      * @param quantity 解锁数量
      * @return 更新行数
      */
@@ -50,10 +100,12 @@ public interface WareSkuMapper extends BaseMapperPlus<WareSku> {
             "    version = version + 1 " +
             "WHERE sku_id = #{skuId} " +
             "  AND ware_id = #{wareId} " +
+            "  AND bucket = #{bucket} " +
             "  AND stock_locked >= #{quantity} " +
             "  AND deleted = 0")
     int unlockStock(@Param("skuId") Long skuId,
                     @Param("wareId") Long wareId,
+                    @Param("bucket") Integer bucket,
                     @Param("quantity") Integer quantity);
 
     /**
@@ -61,6 +113,7 @@ public interface WareSkuMapper extends BaseMapperPlus<WareSku> {
      *
      * @param skuId    商品SKU ID
      * @param wareId   仓库ID
+     * @param bucket   分桶号
      * @param quantity 扣减数量
      * @return 更新行数
      */
@@ -70,15 +123,18 @@ public interface WareSkuMapper extends BaseMapperPlus<WareSku> {
             "    version = version + 1 " +
             "WHERE sku_id = #{skuId} " +
             "  AND ware_id = #{wareId} " +
+            "  AND bucket = #{bucket} " +
             "  AND stock >= #{quantity} " +
             "  AND stock_locked >= #{quantity} " +
             "  AND deleted = 0")
     int deductStock(@Param("skuId") Long skuId,
                     @Param("wareId") Long wareId,
+                    @Param("bucket") Integer bucket,
                     @Param("quantity") Integer quantity);
 
     /**
      * 增加库存（入库）
+     * 入库数量计入主桶，由分桶再平衡任务分摊到子桶
      *
      * @param skuId    商品SKU ID
      * @param wareId   仓库ID
@@ -90,6 +146,7 @@ public interface WareSkuMapper extends BaseMapperPlus<WareSku> {
             "    version = version + 1 " +
             "WHERE sku_id = #{skuId} " +
             "  AND ware_id = #{wareId} " +
+            "  AND bucket = 0 " +
             "  AND deleted = 0")
     int addStock(@Param("skuId") Long skuId,
                  @Param("wareId") Long wareId,
@@ -117,21 +174,157 @@ public interface WareSkuMapper extends BaseMapperPlus<WareSku> {
     List<WareSku> selectBySkuIds(@Param("skuIds") List<Long> skuIds);
 
     /**
-     * 查询有库存的SKU列表
+     * 查询有库存的SKU列表（按SKU合计全部仓库与分桶）
      *
      * @param skuIds SKU ID列表
      * @return 有库存的SKU ID列表
      */
     @Select("<script>" +
-            "SELECT DISTINCT sku_id " +
+            "SELECT sku_id " +
             "FROM wms_ware_sku " +
             "WHERE sku_id IN " +
             "<foreach collection='skuIds' item='skuId' open='(' separator=',' close=')'>" +
             "#{skuId}" +
             "</foreach> " +
-            "AND stock - stock_locked > 0 " +
             "AND deleted = 0 " +
-            "AND status = 1" +
+            "AND status = 1 " +
+            "GROUP BY sku_id " +
+            "HAVING SUM(stock - stock_locked) > 0" +
             "</script>")
     List<Long> selectHasStockSkuIds(@Param("skuIds") List<Long> skuIds);
-}
\ No newline at end of file
+
+    /**
+     * 查询并锁定SKU的全部候选库存行
+     * 按主键顺序加锁，并发订单之间不会因加锁顺序不同而死锁
+     *
+     * @param skuIds SKU ID列表
+     * @return 库存列表
+     */
+    @Select("<script>" +
+            "SELECT * FROM wms_ware_sku " +
+            "WHERE sku_id IN " +
+            "<foreach collection='skuIds' item='skuId' open='(' separator=',' close=')'>" +
+            "#{skuId}" +
+            "</foreach> " +
+            "AND status = 1 " +
+            "AND deleted = 0 " +
+            "ORDER BY id " +
+            "FOR UPDATE" +
+            "</script>")
+    List<WareSku> selectForLock(@Param("skuIds") List<Long> skuIds);
+
+    /**
+     * 查询并锁定SKU的全部库存行（含已停用的库存行），用于解锁
+     * 按主键顺序加锁
+     *
+     * @param skuIds SKU ID集合
+     * @return 库存列表
+     */
+    @Select("<script>" +
+            "SELECT * FROM wms_ware_sku " +
+            "WHERE sku_id IN " +
+            "<foreach collection='skuIds' item='skuId' open='(' separator=',' close=')'>" +
+            "#{skuId}" +
+            "</foreach> " +
+            "AND deleted = 0 " +
+            "ORDER BY id " +
+            "FOR UPDATE" +
+            "</script>")
+    List<WareSku> selectBySkuIdsForUpdate(@Param("skuIds") Collection<Long> skuIds);
+
+    /**
+     * 查询SKU的全部候选库存行（不加锁），用于预先选择分桶
+     *
+     * @param skuIds SKU ID列表
+     * @return 库存列表
+     */
+    @Select("<script>" +
+            "SELECT * FROM wms_ware_sku " +
+            "WHERE sku_id IN " +
+            "<foreach collection='skuIds' item='skuId' open='(' separator=',' close=')'>" +
+            "#{skuId}" +
+            "</foreach> " +
+            "AND status = 1 " +
+            "AND deleted = 0" +
+            "</script>")
+    List<WareSku> selectCandidates(@Param("skuIds") List<Long> skuIds);
+
+    /**
+     * 按主键查询并锁定库存行
+     *
+     * @param ids 库存行ID列表
+     * @return 库存列表
+     */
+    @Select("<script>" +
+            "SELECT * FROM wms_ware_sku " +
+            "WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>" +
+            "#{id}" +
+            "</foreach> " +
+            "AND status = 1 " +
+            "AND deleted = 0 " +
+            "ORDER BY id " +
+            "FOR UPDATE" +
+            "</script>")
+    List<WareSku> selectForLockByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 查询已拆分分桶的(SKU, 仓库)的全部分桶（不加锁）
+     *
+     * @return 库存列表
+     */
+    @Select("SELECT w.* FROM wms_ware_sku w " +
+            "JOIN (SELECT DISTINCT sku_id, ware_id FROM wms_ware_sku WHERE bucket > 0 AND deleted = 0) g " +
+            "ON w.sku_id = g.sku_id AND w.ware_id = g.ware_id " +
+            "WHERE w.deleted = 0 " +
+            "ORDER BY w.id")
+    List<WareSku> selectBucketedRows();
+
+    /**
+     * 查询SKU的全部分桶（不加锁）
+     *
+     * @param skuId SKU ID
+     * @return 库存列表
+     */
+    @Select("SELECT * FROM wms_ware_sku " +
+            "WHERE sku_id = #{skuId} " +
+            "AND deleted = 0 " +
+            "ORDER BY id")
+    List<WareSku> selectBuckets(@Param("skuId") Long skuId);
+
+    /**
+     * 查询并锁定SKU在一个仓库的全部分桶
+     *
+     * @param skuId  SKU ID
+     * @param wareId 仓库ID，为空时查询全部仓库
+     * @return 库存列表
+     */
+    @Select("<script>" +
+            "SELECT * FROM wms_ware_sku " +
+            "WHERE sku_id = #{skuId} " +
+            "<if test='wareId != null'>AND ware_id = #{wareId} </if>" +
+            "AND deleted = 0 " +
+            "ORDER BY id " +
+            "FOR UPDATE" +
+            "</script>")
+    List<WareSku> selectBucketsForUpdate(@Param("skuId") Long skuId,
+                                         @Param("wareId") Long wareId);
+
+    /**
+     * 批量设置实际库存（分桶再平衡，一条多行UPDATE）
+     *
+     * @param stocks 库存行ID -> 实际库存
+     * @return 更新行数
+     */
+    @Update("<script>" +
+            "UPDATE wms_ware_sku " +
+            "SET stock = CASE id " +
+            "<foreach collection='stocks' index='id' item='stock'>WHEN #{id} THEN #{stock} </foreach>" +
+            "END, " +
+            "    version = version + 1 " +
+            "WHERE id IN " +
+            "<foreach collection='stocks' index='id' open='(' separator=',' close=')'>#{id}</foreach> " +
+            "  AND deleted = 0" +
+            "</script>")
+    int batchSetStock(@Param("stocks") Map<Long, Integer> stocks);
+}
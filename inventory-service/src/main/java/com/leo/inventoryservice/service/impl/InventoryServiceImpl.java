@@ -3,12 +3,14 @@ package com.leo.inventoryservice.service.impl;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.util.StrUtil;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.leo.commoncore.constant.InventoryConstants;
 import com.leo.commoncore.exception.BizException;
 import com.leo.commoncore.page.PageQuery;
 import com.leo.commoncore.page.PageResult;
 import com.leo.commonmybatis.util.PageHelper;
+import com.leo.commonredis.delay.RedisDelayQueue;
 import com.leo.commonredis.util.RedisUtil;
 import com.leo.inventoryservice.dto.StockLockDTO;
 import com.leo.inventoryservice.dto.StockQueryDTO;
@@ -16,6 +18,12 @@ import com.leo.inventoryservice.dto.StockUpdateDTO;
 import com.leo.inventoryservice.entity.*;
 import com.leo.inventoryservice.mapper.*;
 import com.leo.inventoryservice.service.InventoryService;
+import com.leo.inventoryservice.stock.RedisStockReserver;
+import com.leo.inventoryservice.stock.StockBucketAllocator;
+import com.leo.inventoryservice.stock.StockEventWriter;
+import com.leo.inventoryservice.stock.StockIndexSyncer;
+import com.leo.inventoryservice.stock.StockReserveReconciler;
+import com.leo.inventoryservice.stock.StockUnlockSweeper;
 import com.leo.inventoryservice.vo.StockLockResultVO;
 import com.leo.inventoryservice.vo.StockVO;
 import lombok.RequiredArgsConstructor;
@@ -24,7 +32,9 @@ import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
 import org.springframework.beans.BeanUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.*;
@@ -36,7 +46,7 @@ import java.util.stream.Collectors;
  * 
  * 核心功能：
  * 1. 库存查询：批量查询、库存状态判断
- * 2. 库存锁定：分布式锁 + 乐观锁防止超卖
+ * 2. 库存锁定：分布式锁 + 乐观锁防止超卖，热点SKU分桶，可选Redis原子预占 + 异步回写
  * 3. 库存解锁：订单取消或支付超时
  * 4. 库存扣减：支付成功后实际扣减
  * 5. 库存管理：入库、调拨、盘点
@@ -56,6 +66,13 @@ public class InventoryServiceImpl implements InventoryService {
     private final WareLogMapper wareLogMapper;
     private final RedissonClient redissonClient;
     private final RedisUtil redisUtil;
+    private final RedisStockReserver redisStockReserver;
+    private final StockReserveReconciler stockReserveReconciler;
+    private final StockUnlockSweeper stockUnlockSweeper;
+    private final RedisDelayQueue redisDelayQueue;
+    private final StockEventWriter stockEventWriter;
+    private final StockIndexSyncer stockIndexSyncer;
+    private final PlatformTransactionManager transactionManager;
 
     /**
      * 查询SKU库存信息
@@ -68,9 +85,15 @@ public class InventoryServiceImpl implements InventoryService {
 
         // 从数据库查询
         List<WareSku> wareSkuList = wareSkuMapper.selectBySkuIds(skuIds);
+
+        // 同一(SKU, 仓库)的分桶合并为一条，保持仓库优先级顺序
+        Map<String, WareSku> merged = new LinkedHashMap<>();
+        for (WareSku wareSku : wareSkuList) {
+            merged.merge(wareSku.getSkuId() + ":" + wareSku.getWareId(), wareSku, this::mergeBucket);
+        }
         
         // 转换为VO
-        return wareSkuList.stream().map(this::convertToStockVO).collect(Collectors.toList());
+        return merged.values().stream().map(this::convertToStockVO).collect(Collectors.toList());
     }
 
     /**
@@ -97,9 +120,9 @@ public class InventoryServiceImpl implements InventoryService {
     /**
      * 锁定库存
      * 使用分布式锁 + 数据库乐观锁双重保障
+     * 选中的分桶在行锁内复核不足时整体回滚，释放已持有的行锁后在新事务中锁定全部候选行重试
      */
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public StockLockResultVO lockStock(StockLockDTO lockDTO) {
         String lockKey = InventoryConstants.LOCK_KEY_PREFIX + lockDTO.getOrderSn();
         RLock lock = redissonClient.getLock(lockKey);
@@ -109,51 +132,15 @@ public class InventoryServiceImpl implements InventoryService {
             if (!lock.tryLock(3, 10, TimeUnit.SECONDS)) {
                 throw new BizException("系统繁忙，请稍后重试");
             }
-            
-            // 创建工作单
-            WareOrderTask task = createOrderTask(lockDTO);
-            wareOrderTaskMapper.insert(task);
-            
-            // 锁定结果
-            StockLockResultVO resultVO = new StockLockResultVO();
-            resultVO.setOrderSn(lockDTO.getOrderSn());
-            resultVO.setTaskId(task.getId());
-            
-            List<StockLockResultVO.LockDetail> lockDetails = new ArrayList<>();
-            boolean allSuccess = true;
-            
-            // 逐个锁定SKU
-            for (StockLockDTO.StockLockItem item : lockDTO.getItems()) {
-                StockLockResultVO.LockDetail detail = lockSingleSku(item, task.getId());
-                lockDetails.add(detail);
-                
-                if (!detail.getSuccess()) {
-                    allSuccess = false;
-                    break; // 有一个失败就停止
-                }
-            }
-            
-            resultVO.setSuccess(allSuccess);
-            resultVO.setDetails(lockDetails);
-            
-            // 如果有失败，回滚已锁定的库存
-            if (!allSuccess) {
-                rollbackLockedStock(task.getId());
-                task.setTaskStatus(2); // 设置为已解锁
-                task.setReason("部分商品库存不足");
-                wareOrderTaskMapper.updateById(task);
-                resultVO.setFailureReason("部分商品库存不足，请检查");
-            } else {
-                task.setTaskStatus(1); // 设置为已锁定
-                task.setLockTime(LocalDateTime.now());
-                wareOrderTaskMapper.updateById(task);
-                
-                // 发送延迟消息，30分钟后自动解锁
-                sendDelayUnlockMessage(task.getId());
+
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            try {
+                return transactionTemplate.execute(status -> doLockStock(lockDTO, false));
+            } catch (BucketContendedException e) {
+                log.debug("选中的库存分桶已被并发订单占用，锁定全部候选行重试，订单号：{}", lockDTO.getOrderSn());
+                return transactionTemplate.execute(status -> doLockStock(lockDTO, true));
             }
             
-            return resultVO;
-            
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new BizException("库存锁定失败");
@@ -165,68 +152,239 @@ public class InventoryServiceImpl implements InventoryService {
     }
 
     /**
-     * 锁定单个SKU
+     * 在一个事务内创建工作单并锁定库存
+     *
+     * @param lockAll 是否直接锁定全部候选行
      */
-    private StockLockResultVO.LockDetail lockSingleSku(StockLockDTO.StockLockItem item, Long taskId) {
-        StockLockResultVO.LockDetail detail = new StockLockResultVO.LockDetail();
-        detail.setSkuId(item.getSkuId());
-        detail.setSkuName(item.getSkuName());
-        detail.setRequestQuantity(item.getQuantity());
-        
-        // 查询该SKU在各仓库的库存
-        List<WareSku> wareSkuList = wareSkuMapper.selectList(
-            new LambdaQueryWrapper<WareSku>()
-                .eq(WareSku::getSkuId, item.getSkuId())
-                .eq(WareSku::getStatus, 1)
-                .orderByDesc(WareSku::getStock)
-        );
-        
-        if (CollUtil.isEmpty(wareSkuList)) {
-            detail.setSuccess(false);
-            detail.setReason("商品不存在或已下架");
-            return detail;
+    private StockLockResultVO doLockStock(StockLockDTO lockDTO, boolean lockAll) {
+        // 创建工作单
+        WareOrderTask task = createOrderTask(lockDTO);
+        wareOrderTaskMapper.insert(task);
+
+        // Redis预占模式：一次脚本调用预占全部明细，数据库异步回写
+        if (redisStockReserver.isEnabled()) {
+            return lockStockByRedis(lockDTO, task);
         }
-        
-        // 优先从指定仓库锁定，否则按优先级选择仓库
-        boolean locked = false;
-        for (WareSku wareSku : wareSkuList) {
-            if (item.getWareId() != null && !wareSku.getWareId().equals(item.getWareId())) {
-                continue; // 跳过非指定仓库
-            }
-            
-            // 尝试锁定库存
-            int rows = wareSkuMapper.lockStock(wareSku.getSkuId(), wareSku.getWareId(), item.getQuantity());
-            if (rows > 0) {
-                // 锁定成功，记录详情
+
+        return lockStockByDb(lockDTO, task, lockAll);
+    }
+
+    /**
+     * 通过Redis预占锁定库存
+     */
+    private StockLockResultVO lockStockByRedis(StockLockDTO lockDTO, WareOrderTask task) {
+        List<StockLockDTO.StockLockItem> items = lockDTO.getItems();
+        RedisStockReserver.ReserveResult reserveResult = redisStockReserver.reserve(task.getId(), items);
+
+        StockLockResultVO resultVO = new StockLockResultVO();
+        resultVO.setOrderSn(lockDTO.getOrderSn());
+        resultVO.setTaskId(task.getId());
+        resultVO.setSuccess(reserveResult.isSuccess());
+
+        List<StockLockResultVO.LockDetail> lockDetails = new ArrayList<>();
+        int count = reserveResult.isSuccess() ? items.size() : reserveResult.getFailedIndex() + 1;
+        for (int i = 0; i < count; i++) {
+            StockLockDTO.StockLockItem item = items.get(i);
+            StockLockResultVO.LockDetail detail = new StockLockResultVO.LockDetail();
+            detail.setSkuId(item.getSkuId());
+            detail.setSkuName(item.getSkuName());
+            detail.setRequestQuantity(item.getQuantity());
+            if (reserveResult.isSuccess()) {
                 detail.setSuccess(true);
                 detail.setLockedQuantity(item.getQuantity());
-                detail.setWareId(wareSku.getWareId());
-                
-                // 保存工作单详情
+                detail.setWareId(reserveResult.getWareIds().get(i));
+            } else {
+                // 全部或全不，失败前的明细同样未锁定
+                detail.setSuccess(false);
+                detail.setReason(i == reserveResult.getFailedIndex() ? "库存不足" : "同单其他商品库存不足");
+            }
+            lockDetails.add(detail);
+        }
+        resultVO.setDetails(lockDetails);
+
+        if (reserveResult.isSuccess()) {
+            task.setTaskStatus(1); // 设置为已锁定
+            task.setLockTime(LocalDateTime.now());
+            wareOrderTaskMapper.updateById(task);
+
+            stockEventWriter.locked(task);
+
+            // 发送延迟消息，30分钟后自动解锁
+            sendDelayUnlockMessage(task.getId());
+        } else {
+            task.setTaskStatus(2); // 设置为已解锁
+            task.setReason("部分商品库存不足");
+            wareOrderTaskMapper.updateById(task);
+            resultVO.setFailureReason("部分商品库存不足，请检查");
+        }
+        return resultVO;
+    }
+
+    /**
+     * 通过数据库集合化SQL锁定库存
+     * 先不加锁选出仓库与分桶，只对选中的库存行SELECT ... FOR UPDATE，热点SKU的并发订单落在不同分桶；
+     * 行锁内复核不足时抛出{@link BucketContendedException}回滚事务，由调用方以lockAll重试，
+     * 重试时一条语句按主键顺序锁定全部候选行，任何时刻持有的行锁都按主键顺序获得，不会与并发订单死锁。
+     * 最后由一条多行UPDATE和两条多行INSERT落库，语句数与明细数无关
+     */
+    private StockLockResultVO lockStockByDb(StockLockDTO lockDTO, WareOrderTask task, boolean lockAll) {
+        List<StockLockDTO.StockLockItem> items = lockDTO.getItems();
+        List<Long> skuIds = items.stream()
+                .map(StockLockDTO.StockLockItem::getSkuId)
+                .distinct()
+                .collect(Collectors.toList());
+        int seed = bucketSeed(lockDTO.getOrderSn());
+
+        List<StockLockResultVO.LockDetail> lockDetails = new ArrayList<>();
+        List<List<StockBucketAllocator.Allocation>> plan;
+        if (lockAll) {
+            plan = allocate(items, wareSkuMapper.selectForLock(skuIds), seed, lockDetails);
+        } else {
+            plan = allocate(items, wareSkuMapper.selectCandidates(skuIds), seed, lockDetails);
+            if (plan != null) {
+                // 按主键顺序只锁定选中的分桶，并在行锁内按最新数据复核
+                Set<Long> rowIds = plan.stream()
+                        .flatMap(List::stream)
+                        .map(allocation -> allocation.row().getId())
+                        .collect(Collectors.toCollection(TreeSet::new));
+                plan = allocate(items, wareSkuMapper.selectForLockByIds(rowIds), seed, lockDetails);
+                if (plan == null) {
+                    // 选中的分桶已被并发订单占用；此时再锁定其他候选行会打乱加锁顺序，回滚后整体重试
+                    throw new BucketContendedException();
+                }
+            }
+        }
+
+        StockLockResultVO resultVO = new StockLockResultVO();
+        resultVO.setOrderSn(lockDTO.getOrderSn());
+        resultVO.setTaskId(task.getId());
+        resultVO.setSuccess(plan != null);
+        resultVO.setDetails(lockDetails);
+
+        if (plan == null) {
+            // 全部或全不：尚未更新任何库存，无需回滚
+            task.setTaskStatus(2); // 设置为已解锁
+            task.setReason("部分商品库存不足");
+            wareOrderTaskMapper.updateById(task);
+            resultVO.setFailureReason("部分商品库存不足，请检查");
+            return resultVO;
+        }
+
+        // 库存行ID -> 本单分配数量（按主键顺序）
+        Map<Long, Integer> allocated = new LinkedHashMap<>();
+        plan.stream().flatMap(List::stream)
+                .sorted(Comparator.comparing(allocation -> allocation.row().getId()))
+                .forEach(allocation -> allocated.merge(allocation.row().getId(), allocation.quantity(), Integer::sum));
+
+        // 分配的行已被本事务锁定，条件更新不会失败；若失败说明数据被绕过行锁修改
+        if (wareSkuMapper.batchLockStock(allocated, true) != allocated.size()) {
+            throw new BizException("库存锁定失败，请稍后重试");
+        }
+
+        List<WareOrderTaskDetail> taskDetails = new ArrayList<>(items.size());
+        List<WareLog> wareLogs = new ArrayList<>(items.size());
+        Map<Long, Integer> lockedRunning = new HashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            StockLockDTO.StockLockItem item = items.get(i);
+            // 拆分到多个分桶时每个分桶一条详情
+            for (StockBucketAllocator.Allocation allocation : plan.get(i)) {
+                WareSku wareSku = allocation.row();
+
                 WareOrderTaskDetail taskDetail = new WareOrderTaskDetail();
-                taskDetail.setTaskId(taskId);
+                taskDetail.setId(IdWorker.getId());
+                taskDetail.setTaskId(task.getId());
                 taskDetail.setSkuId(item.getSkuId());
                 taskDetail.setSkuName(item.getSkuName());
-                taskDetail.setSkuNum(item.getQuantity());
+                taskDetail.setSkuNum(allocation.quantity());
                 taskDetail.setWareId(wareSku.getWareId());
+                taskDetail.setBucket(StockBucketAllocator.bucketOf(wareSku));
                 taskDetail.setLockStatus(1); // 已锁定
-                taskDetail.setLockedNum(item.getQuantity());
-                wareOrderTaskDetailMapper.insert(taskDetail);
-                
-                // 记录库存流水
-                recordWareLog(wareSku, item.getQuantity(), 3, "订单锁定");
-                
-                locked = true;
-                break;
+                taskDetail.setLockedNum(allocation.quantity());
+                taskDetails.add(taskDetail);
+
+                // 同一库存行多次分配时流水按顺序累计
+                int lockedBefore = lockedRunning.getOrDefault(wareSku.getId(), wareSku.getStockLocked());
+                WareLog wareLog = buildWareLog(wareSku, allocation.quantity(), 3, "订单锁定");
+                wareLog.setId(IdWorker.getId());
+                wareLog.setLockedBefore(lockedBefore);
+                wareLog.setLockedAfter(lockedBefore + allocation.quantity());
+                wareLogs.add(wareLog);
+                lockedRunning.put(wareSku.getId(), lockedBefore + allocation.quantity());
             }
         }
-        
-        if (!locked) {
-            detail.setSuccess(false);
-            detail.setReason("库存不足");
+        wareOrderTaskDetailMapper.insertBatch(taskDetails);
+        wareLogMapper.insertBatch(wareLogs);
+
+        task.setTaskStatus(1); // 设置为已锁定
+        task.setLockTime(LocalDateTime.now());
+        wareOrderTaskMapper.updateById(task);
+
+        stockEventWriter.locked(task);
+
+        // 发送延迟消息，30分钟后自动解锁
+        sendDelayUnlockMessage(task.getId());
+
+        return resultVO;
+    }
+
+    /**
+     * 在给定的库存行中为全部明细分配仓库与分桶
+     * 逐项评估并填充锁定详情，任一明细不足时整单失败
+     *
+     * @return 每个明细的分配结果，失败时返回null
+     */
+    private List<List<StockBucketAllocator.Allocation>> allocate(List<StockLockDTO.StockLockItem> items,
+                                                                 List<WareSku> rows,
+                                                                 int seed,
+                                                                 List<StockLockResultVO.LockDetail> lockDetails) {
+        Map<Long, List<WareSku>> candidatesBySku = rows.stream().collect(Collectors.groupingBy(WareSku::getSkuId));
+        Map<Long, Integer> allocated = new HashMap<>();
+        List<List<StockBucketAllocator.Allocation>> plan = new ArrayList<>(items.size());
+        boolean allSuccess = true;
+        lockDetails.clear();
+
+        for (StockLockDTO.StockLockItem item : items) {
+            StockLockResultVO.LockDetail detail = new StockLockResultVO.LockDetail();
+            detail.setSkuId(item.getSkuId());
+            detail.setSkuName(item.getSkuName());
+            detail.setRequestQuantity(item.getQuantity());
+            lockDetails.add(detail);
+
+            List<WareSku> candidates = candidatesBySku.get(item.getSkuId());
+            if (CollUtil.isEmpty(candidates)) {
+                detail.setSuccess(false);
+                detail.setReason("商品不存在或已下架");
+                allSuccess = false;
+                continue;
+            }
+
+            // 优先从指定仓库锁定，否则按库存选择仓库
+            List<StockBucketAllocator.Allocation> allocations = StockBucketAllocator.allocate(
+                    candidates, item.getWareId(), item.getQuantity(), seed, allocated);
+            if (allocations.isEmpty()) {
+                detail.setSuccess(false);
+                detail.setReason("库存不足");
+                allSuccess = false;
+                continue;
+            }
+            plan.add(allocations);
+            detail.setSuccess(true);
+            detail.setLockedQuantity(item.getQuantity());
+            detail.setWareId(allocations.get(0).row().getWareId());
         }
-        
-        return detail;
+
+        if (allSuccess) {
+            return plan;
+        }
+        for (StockLockResultVO.LockDetail detail : lockDetails) {
+            if (detail.getSuccess()) {
+                detail.setSuccess(false);
+                detail.setLockedQuantity(null);
+                detail.setWareId(null);
+                detail.setReason("同单其他商品库存不足");
+            }
+        }
+        return null;
     }
 
     /**
@@ -235,19 +393,18 @@ public class InventoryServiceImpl implements InventoryService {
     @Override
     @Transactional(rollbackFor = Exception.class)
     public boolean unlockStock(String orderSn) {
-        // 查询工作单
-        WareOrderTask task = wareOrderTaskMapper.selectOne(
-            new LambdaQueryWrapper<WareOrderTask>()
-                .eq(WareOrderTask::getOrderSn, orderSn)
-                .eq(WareOrderTask::getTaskStatus, 1) // 已锁定状态
-        );
-        
-        if (task == null) {
+        // 锁定工作单，与超时解锁、扣减互斥
+        WareOrderTask task = wareOrderTaskMapper.selectByOrderSnForUpdate(orderSn);
+        if (task == null || task.getTaskStatus() != 1) { // 已锁定状态
             log.warn("工作单不存在或已处理，订单号：{}", orderSn);
             return false;
         }
+        if (!applyReservedStock(task.getId())) {
+            // 预占无法回写，工作单已解锁并归还预占
+            return true;
+        }
         
-        return unlockStockByTaskId(task.getId());
+        return unlockTask(task);
     }
 
     /**
@@ -256,8 +413,27 @@ public class InventoryServiceImpl implements InventoryService {
     @Override
     @Transactional(rollbackFor = Exception.class)
     public boolean unlockStockByTaskId(Long taskId) {
+        // 锁定工作单，已解锁或已扣减的工作单不再处理
+        WareOrderTask task = wareOrderTaskMapper.selectByIdForUpdate(taskId);
+        if (task == null || task.getTaskStatus() != 1) { // 已锁定状态
+            log.warn("工作单不存在或已处理，工作单ID：{}", taskId);
+            return false;
+        }
+        if (!applyReservedStock(taskId)) {
+            // 预占无法回写，工作单已解锁并归还预占
+            return true;
+        }
+
+        return unlockTask(task);
+    }
+
+    /**
+     * 解锁已锁定的工作单，调用方已锁定工作单行
+     */
+    private boolean unlockTask(WareOrderTask task) {
         // 查询工作单详情
-        List<WareOrderTaskDetail> details = wareOrderTaskDetailMapper.selectByTaskId(taskId);
+        List<WareOrderTaskDetail> details = wareOrderTaskDetailMapper.selectByTaskId(task.getId());
+        List<WareOrderTaskDetail> unlockedDetails = new ArrayList<>();
         
         for (WareOrderTaskDetail detail : details) {
             if (detail.getLockStatus() == 1) { // 已锁定
@@ -265,19 +441,22 @@ public class InventoryServiceImpl implements InventoryService {
                 int rows = wareSkuMapper.unlockStock(
                     detail.getSkuId(), 
                     detail.getWareId(), 
+                    detail.getBucket(),
                     detail.getLockedNum()
                 );
                 
                 if (rows > 0) {
                     // 更新详情状态
                     detail.setLockStatus(2); // 已解锁
-                    wareOrderTaskDetailMapper.updateById(detail);
+                    updateDetail(detail);
+                    unlockedDetails.add(detail);
                     
                     // 记录流水
                     WareSku wareSku = wareSkuMapper.selectOne(
                         new LambdaQueryWrapper<WareSku>()
                             .eq(WareSku::getSkuId, detail.getSkuId())
                             .eq(WareSku::getWareId, detail.getWareId())
+                            .eq(WareSku::getBucket, detail.getBucket())
                     );
                     recordWareLog(wareSku, detail.getLockedNum(), 4, "订单取消解锁");
                 }
@@ -285,10 +464,15 @@ public class InventoryServiceImpl implements InventoryService {
         }
         
         // 更新工作单状态
-        WareOrderTask task = wareOrderTaskMapper.selectById(taskId);
         task.setTaskStatus(2); // 已解锁
         task.setUnlockTime(LocalDateTime.now());
-        wareOrderTaskMapper.updateById(task);
+        updateTask(task);
+        stockEventWriter.unlocked(List.of(task));
+
+        // 事务提交后归还Redis可用库存
+        if (redisStockReserver.isEnabled()) {
+            redisStockReserver.release(unlockedDetails);
+        }
         
         return true;
     }
@@ -299,16 +483,16 @@ public class InventoryServiceImpl implements InventoryService {
     @Override
     @Transactional(rollbackFor = Exception.class)
     public boolean deductStock(String orderSn) {
-        // 查询工作单
-        WareOrderTask task = wareOrderTaskMapper.selectOne(
-            new LambdaQueryWrapper<WareOrderTask>()
-                .eq(WareOrderTask::getOrderSn, orderSn)
-                .eq(WareOrderTask::getTaskStatus, 1) // 已锁定状态
-        );
-        
-        if (task == null) {
+        // 锁定工作单，与超时解锁互斥：超时解锁先提交时这里读到已解锁状态，不会扣减已释放的库存
+        WareOrderTask task = wareOrderTaskMapper.selectByOrderSnForUpdate(orderSn);
+        if (task == null || task.getTaskStatus() != 1) { // 已锁定状态
             throw new BizException("工作单不存在或已处理");
         }
+        if (!applyReservedStock(task.getId())) {
+            // 预占无法回写，工作单已解锁，提交解锁结果后返回扣减失败
+            log.error("库存扣减失败，预占无法回写，订单号：{}", orderSn);
+            return false;
+        }
         
         // 查询工作单详情
         List<WareOrderTaskDetail> details = wareOrderTaskDetailMapper.selectByTaskId(task.getId());
@@ -319,19 +503,21 @@ public class InventoryServiceImpl implements InventoryService {
                 int rows = wareSkuMapper.deductStock(
                     detail.getSkuId(), 
                     detail.getWareId(), 
+                    detail.getBucket(),
                     detail.getLockedNum()
                 );
                 
                 if (rows > 0) {
                     // 更新详情状态
                     detail.setLockStatus(3); // 已扣减
-                    wareOrderTaskDetailMapper.updateById(detail);
+                    updateDetail(detail);
                     
                     // 记录流水
                     WareSku wareSku = wareSkuMapper.selectOne(
                         new LambdaQueryWrapper<WareSku>()
                             .eq(WareSku::getSkuId, detail.getSkuId())
                             .eq(WareSku::getWareId, detail.getWareId())
+                            .eq(WareSku::getBucket, detail.getBucket())
                     );
                     recordWareLog(wareSku, detail.getLockedNum(), 2, "订单出库");
                 } else {
@@ -343,7 +529,8 @@ public class InventoryServiceImpl implements InventoryService {
         // 更新工作单状态
         task.setTaskStatus(3); // 已扣减
         task.setDeductTime(LocalDateTime.now());
-        wareOrderTaskMapper.updateById(task);
+        updateTask(task);
+        stockEventWriter.deducted(task);
         
         return true;
     }
@@ -365,31 +552,58 @@ public class InventoryServiceImpl implements InventoryService {
     }
 
     /**
-     * 回滚已锁定的库存
+     * 按版本号更新工作单，未更新说明被并发修改，回滚整个事务
      */
-    private void rollbackLockedStock(Long taskId) {
-        List<WareOrderTaskDetail> details = wareOrderTaskDetailMapper.selectByTaskId(taskId);
-        for (WareOrderTaskDetail detail : details) {
-            if (detail.getLockStatus() == 1) {
-                wareSkuMapper.unlockStock(detail.getSkuId(), detail.getWareId(), detail.getLockedNum());
-                detail.setLockStatus(2); // 已解锁
-                wareOrderTaskDetailMapper.updateById(detail);
-            }
+    private void updateTask(WareOrderTask task) {
+        if (wareOrderTaskMapper.updateById(task) == 0) {
+            throw new BizException("工作单已被并发修改，请重试");
+        }
+    }
+
+    /**
+     * 按版本号更新工作单详情，未更新说明被并发修改，回滚整个事务
+     */
+    private void updateDetail(WareOrderTaskDetail detail) {
+        if (wareOrderTaskDetailMapper.updateById(detail) == 0) {
+            throw new BizException("工作单详情已被并发修改，请重试");
+        }
+    }
+
+    /**
+     * 回写本工作单尚未落库的Redis预占
+     * 在锁定工作单行之后、读取工作单详情之前调用，不等待其他工作单的回写
+     *
+     * @return 预占无法回写、工作单已被标记为已解锁时返回false
+     */
+    private boolean applyReservedStock(Long taskId) {
+        if (redisStockReserver.isEnabled()) {
+            return !stockReserveReconciler.applyPending(List.of(taskId)).contains(taskId);
         }
+        return true;
     }
 
     /**
      * 发送延迟解锁消息
+     * 锁定超时时刻到期后由{@link com.leo.inventoryservice.task.StockUnlockDelayHandler}解锁，
+     * 事务回滚时任务到期后按工作单状态跳过
      */
     private void sendDelayUnlockMessage(Long taskId) {
-        // TODO: 集成RocketMQ发送延迟消息
-        log.info("发送延迟解锁消息，工作单ID：{}", taskId);
+        long dueAt = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(InventoryConstants.LOCK_TIMEOUT_MINUTES);
+        redisDelayQueue.offer(InventoryConstants.STOCK_UNLOCK_DELAY_TOPIC, String.valueOf(taskId), dueAt);
+        log.debug("发送延迟解锁消息，工作单ID：{}", taskId);
     }
 
     /**
      * 记录库存流水
      */
     private void recordWareLog(WareSku wareSku, Integer quantity, Integer operationType, String note) {
+        wareLogMapper.insert(buildWareLog(wareSku, quantity, operationType, note));
+    }
+
+    /**
+     * 构建库存流水
+     */
+    private WareLog buildWareLog(WareSku wareSku, Integer quantity, Integer operationType, String note) {
         WareLog log = new WareLog();
         log.setSkuId(wareSku.getSkuId());
         log.setWareId(wareSku.getWareId());
@@ -399,7 +613,27 @@ public class InventoryServiceImpl implements InventoryService {
         log.setLockedBefore(wareSku.getStockLocked());
         log.setOperateTime(LocalDateTime.now());
         log.setOperateNote(note);
-        wareLogMapper.insert(log);
+        return log;
+    }
+
+    /**
+     * 合并同一(SKU, 仓库)的两个分桶，主桶的属性优先
+     */
+    private WareSku mergeBucket(WareSku a, WareSku b) {
+        WareSku main = StockBucketAllocator.bucketOf(a) <= StockBucketAllocator.bucketOf(b) ? a : b;
+        WareSku merged = new WareSku();
+        BeanUtils.copyProperties(main, merged);
+        merged.setStock(a.getStock() + b.getStock());
+        merged.setStockLocked(a.getStockLocked() + b.getStockLocked());
+        return merged;
+    }
+
+    /**
+     * 分桶哈希种子，同一订单的重试落在相同分桶
+     */
+    private int bucketSeed(String orderSn) {
+        int h = orderSn.hashCode();
+        return h ^ (h >>> 16);
     }
 
     /**
@@ -441,12 +675,22 @@ public class InventoryServiceImpl implements InventoryService {
 
     @Override
     public int autoUnlockTimeoutStock(int minutes) {
-        // TODO: 实现自动解锁
-        return 0;
+        return stockUnlockSweeper.sweep(minutes);
     }
 
     @Override
     public void syncStockToEs(List<Long> skuIds) {
-        // TODO: 同步到ES
+        // 登记后由定时任务合并同步
+        stockIndexSyncer.markDirty(skuIds);
+    }
+
+    /**
+     * 选中的分桶在行锁内复核不足，回滚当前事务以释放已持有的行锁
+     */
+    private static class BucketContendedException extends RuntimeException {
+
+        BucketContendedException() {
+            super(null, null, false, false);
+        }
     }
-}
\ No newline at end of file
+}
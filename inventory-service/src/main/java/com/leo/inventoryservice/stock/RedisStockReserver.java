@@ -0,0 +1,323 @@
+package com.leo.inventoryservice.stock;
+
+import cn.hutool.core.collection.CollUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.leo.commoncore.constant.InventoryConstants;
+import com.leo.commoncore.exception.BizException;
+import com.leo.inventoryservice.config.InventoryConfig;
+import com.leo.inventoryservice.dto.StockLockDTO;
+import com.leo.inventoryservice.entity.WareOrderTaskDetail;
+import com.leo.inventoryservice.entity.WareSku;
+import com.leo.inventoryservice.mapper.WareSkuMapper;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Redis库存预占器
+ *
+ * 每个SKU一个Hash（field为仓库ID，value为该仓库全部分桶的可用库存合计），一个订单的全部明细
+ * 由一次Lua脚本原子预占，锁定吞吐取决于Redis而不是wms_ware_sku的行锁。
+ * 预占结果通过回写队列异步落库，见{@link StockReserveReconciler}。
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Slf4j
+@Component
+public class RedisStockReserver implements ApplicationRunner {
+
+    /**
+     * 预热标记field，保证无库存的SKU也不会反复预热
+     */
+    private static final String WARM_MARK = "_";
+
+    private static final int WARM_UP_PAGE_SIZE = 1000;
+
+    private final WareSkuMapper wareSkuMapper;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedissonClient redissonClient;
+    private final InventoryConfig inventoryConfig;
+    private final StockReserveReconciler reconciler;
+    private final TransactionTemplate nonTransactional;
+    private final DefaultRedisScript<List> reserveScript;
+    private final DefaultRedisScript<Long> releaseScript;
+
+    public RedisStockReserver(WareSkuMapper wareSkuMapper,
+                              StringRedisTemplate stringRedisTemplate,
+                              RedissonClient redissonClient,
+                              InventoryConfig inventoryConfig,
+                              StockReserveReconciler reconciler,
+                              PlatformTransactionManager transactionManager) {
+        this.wareSkuMapper = wareSkuMapper;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.redissonClient = redissonClient;
+        this.inventoryConfig = inventoryConfig;
+        this.reconciler = reconciler;
+        // 预热时挂起调用方事务，读取最新提交的库存
+        this.nonTransactional = new TransactionTemplate(transactionManager);
+        this.nonTransactional.setPropagationBehavior(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
+        this.reserveScript = new DefaultRedisScript<>();
+        this.reserveScript.setLocation(new ClassPathResource("lua/stock_reserve.lua"));
+        this.reserveScript.setResultType(List.class);
+        this.releaseScript = new DefaultRedisScript<>();
+        this.releaseScript.setLocation(new ClassPathResource("lua/stock_release.lua"));
+        this.releaseScript.setResultType(Long.class);
+    }
+
+    /**
+     * 是否启用Redis预占
+     */
+    public boolean isEnabled() {
+        return inventoryConfig.getRedisReserve().isEnabled();
+    }
+
+    /**
+     * 原子预占一个工作单的全部明细
+     * 调用方事务回滚时自动归还预占并撤销回写
+     *
+     * @param taskId 工作单ID
+     * @param items  锁定明细
+     * @return 预占结果
+     */
+    @SuppressWarnings("unchecked")
+    public ReserveResult reserve(Long taskId, List<StockLockDTO.StockLockItem> items) {
+        List<String> keys = new ArrayList<>(items.size() + 2);
+        List<String> args = new ArrayList<>(items.size() * 3 + 1);
+        args.add(String.valueOf(taskId));
+        for (StockLockDTO.StockLockItem item : items) {
+            keys.add(availableKey(item.getSkuId()));
+            args.add(String.valueOf(item.getSkuId()));
+            args.add(String.valueOf(item.getQuantity()));
+            args.add(item.getWareId() == null ? "" : String.valueOf(item.getWareId()));
+        }
+        keys.add(InventoryConstants.STOCK_RESERVE_QUEUE);
+        keys.add(InventoryConstants.STOCK_RESERVE_PENDING);
+
+        // 首次未命中时预热本单全部SKU后重试一次
+        for (int attempt = 0; ; attempt++) {
+            List<String> result = stringRedisTemplate.execute(reserveScript, keys, args.toArray());
+            if (result == null || result.isEmpty()) {
+                throw new BizException("库存预占失败");
+            }
+            if ("1".equals(result.get(0))) {
+                List<Long> wareIds = result.subList(1, result.size()).stream()
+                        .map(Long::valueOf)
+                        .collect(Collectors.toList());
+                compensateOnRollback(taskId, items, wareIds);
+                return ReserveResult.success(wareIds);
+            }
+            if ("-1".equals(result.get(0)) && attempt == 0) {
+                warmUp(items.stream().map(StockLockDTO.StockLockItem::getSkuId).collect(Collectors.toSet()));
+                continue;
+            }
+            return ReserveResult.failure(Integer.parseInt(result.get(1)) - 1);
+        }
+    }
+
+    /**
+     * 归还已解锁明细的可用库存
+     * 在调用方事务提交后执行，避免回滚导致重复归还
+     *
+     * @param details 已解锁的工作单详情
+     */
+    public void release(List<WareOrderTaskDetail> details) {
+        if (CollUtil.isEmpty(details)) {
+            return;
+        }
+        List<Long> skuIds = details.stream().map(WareOrderTaskDetail::getSkuId).collect(Collectors.toList());
+        List<Long> wareIds = details.stream().map(WareOrderTaskDetail::getWareId).collect(Collectors.toList());
+        List<Integer> quantities = details.stream().map(WareOrderTaskDetail::getLockedNum).collect(Collectors.toList());
+        afterCommit(() -> executeRelease(skuIds, wareIds, quantities, ""));
+    }
+
+    /**
+     * 预热SKU可用库存
+     * 持有回写锁并先清空回写队列，保证数据库中的锁定数量已包含全部预占
+     *
+     * @param skuIds SKU ID集合
+     */
+    public void warmUp(Collection<Long> skuIds) {
+        if (CollUtil.isEmpty(skuIds)) {
+            return;
+        }
+        RLock lock = redissonClient.getLock(InventoryConstants.STOCK_RECONCILE_LOCK);
+        try {
+            if (!lock.tryLock(3, TimeUnit.SECONDS)) {
+                throw new BizException("系统繁忙，请稍后重试");
+            }
+            List<Long> missing = skuIds.stream()
+                    .filter(skuId -> !Boolean.TRUE.equals(stringRedisTemplate.hasKey(availableKey(skuId))))
+                    .collect(Collectors.toList());
+            if (missing.isEmpty()) {
+                return;
+            }
+            reconciler.flush();
+
+            List<WareSku> wareSkuList = nonTransactional.execute(status -> wareSkuMapper.selectList(
+                    new LambdaQueryWrapper<WareSku>()
+                            .in(WareSku::getSkuId, missing)
+                            .eq(WareSku::getStatus, 1)
+            ));
+            Map<Long, Map<String, String>> fieldsBySku = new HashMap<>();
+            for (Long skuId : missing) {
+                fieldsBySku.computeIfAbsent(skuId, k -> new HashMap<>()).put(WARM_MARK, "0");
+            }
+            // 同一仓库的分桶合计为一个field
+            for (WareSku wareSku : wareSkuList) {
+                fieldsBySku.get(wareSku.getSkuId()).merge(String.valueOf(wareSku.getWareId()),
+                        String.valueOf(wareSku.getAvailableStock()),
+                        (a, b) -> String.valueOf(Long.parseLong(a) + Long.parseLong(b)));
+            }
+            fieldsBySku.forEach((skuId, fields) -> stringRedisTemplate.opsForHash().putAll(availableKey(skuId), fields));
+            log.info("库存预热完成，SKU数：{}", missing.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BizException("库存预热失败");
+        } finally {
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 使SKU可用库存失效，下次预占时从数据库重新预热
+     * 用于入库、盘点等直接修改数据库库存的场景
+     *
+     * @param skuIds SKU ID集合
+     */
+    public void evict(Collection<Long> skuIds) {
+        if (CollUtil.isEmpty(skuIds)) {
+            return;
+        }
+        List<String> keys = skuIds.stream().map(this::availableKey).collect(Collectors.toList());
+        afterCommit(() -> stringRedisTemplate.delete(keys));
+    }
+
+    /**
+     * 启动时预热全部库存
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!isEnabled() || !inventoryConfig.getRedisReserve().isWarmUpOnStartup()) {
+            return;
+        }
+        try {
+            long lastId = 0L;
+            List<WareSku> page;
+            do {
+                page = wareSkuMapper.selectList(new LambdaQueryWrapper<WareSku>()
+                        .select(WareSku::getId, WareSku::getSkuId)
+                        .gt(WareSku::getId, lastId)
+                        .orderByAsc(WareSku::getId)
+                        .last("LIMIT " + WARM_UP_PAGE_SIZE));
+                if (!page.isEmpty()) {
+                    warmUp(page.stream().map(WareSku::getSkuId).collect(Collectors.toSet()));
+                    lastId = page.get(page.size() - 1).getId();
+                }
+            } while (page.size() == WARM_UP_PAGE_SIZE);
+        } catch (Exception e) {
+            log.error("启动预热库存失败，将在首次预占时按需预热", e);
+        }
+    }
+
+    /**
+     * 调用方事务回滚时归还预占并追加撤销记录
+     */
+    private void compensateOnRollback(Long taskId, List<StockLockDTO.StockLockItem> items, List<Long> wareIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        List<Long> skuIds = items.stream().map(StockLockDTO.StockLockItem::getSkuId).collect(Collectors.toList());
+        List<Integer> quantities = items.stream().map(StockLockDTO.StockLockItem::getQuantity).collect(Collectors.toList());
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    log.warn("库存锁定事务回滚，归还预占，工作单ID：{}", taskId);
+                    executeRelease(skuIds, wareIds, quantities, "C|" + taskId);
+                }
+            }
+        });
+    }
+
+    private void executeRelease(List<Long> skuIds, List<Long> wareIds, List<Integer> quantities, String record) {
+        List<String> keys = new ArrayList<>(skuIds.size() + 1);
+        List<String> args = new ArrayList<>(skuIds.size() * 2 + 1);
+        for (int i = 0; i < skuIds.size(); i++) {
+            keys.add(availableKey(skuIds.get(i)));
+            args.add(String.valueOf(wareIds.get(i)));
+            args.add(String.valueOf(quantities.get(i)));
+        }
+        keys.add(InventoryConstants.STOCK_RESERVE_QUEUE);
+        args.add(record);
+        stringRedisTemplate.execute(releaseScript, keys, args.toArray());
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private String availableKey(Long skuId) {
+        return InventoryConstants.STOCK_AVAILABLE_PREFIX + skuId;
+    }
+
+    /**
+     * 预占结果
+     */
+    @Getter
+    public static class ReserveResult {
+
+        private final boolean success;
+
+        /**
+         * 成功时每个明细分配的仓库ID
+         */
+        private final List<Long> wareIds;
+
+        /**
+         * 失败时第一个不满足的明细下标
+         */
+        private final int failedIndex;
+
+        private ReserveResult(boolean success, List<Long> wareIds, int failedIndex) {
+            this.success = success;
+            this.wareIds = wareIds;
+            this.failedIndex = failedIndex;
+        }
+
+        static ReserveResult success(List<Long> wareIds) {
+            return new ReserveResult(true, wareIds, -1);
+        }
+
+        static ReserveResult failure(int failedIndex) {
+            return new ReserveResult(false, Collections.emptyList(), failedIndex);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.leo.inventoryservice.stock;
+
+import com.leo.inventoryservice.entity.WareSku;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 库存分桶分配器
+ *
+ * 热点SKU在同一仓库拆成多个分桶行，并发订单按哈希落到不同分桶，行锁互不阻塞：
+ * 1. 仓库按合计库存降序选择，指定仓库时只在该仓库内分配
+ * 2. 仓库内从哈希选中的分桶开始，依次尝试兄弟分桶
+ * 3. 单个分桶都不足但仓库合计充足时，拆分到多个分桶
+ *
+ * 未拆分的SKU每个仓库只有一个分桶，退化为按仓库选择。
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+public final class StockBucketAllocator {
+
+    private StockBucketAllocator() {
+    }
+
+    /**
+     * 为一个明细分配库存行
+     *
+     * @param candidates 该SKU的全部候选库存行
+     * @param wareId     指定仓库，为空时自动选择
+     * @param quantity   锁定数量
+     * @param seed       分桶哈希种子（同一订单内保持一致）
+     * @param allocated  本单已分配数量（库存行ID -> 数量），分配成功时累加
+     * @return 分配结果，库存不足时返回空列表
+     */
+    public static List<Allocation> allocate(List<WareSku> candidates, Long wareId, int quantity,
+                                            int seed, Map<Long, Integer> allocated) {
+        Map<Long, List<WareSku>> bucketsByWare = candidates.stream()
+                .filter(ws -> wareId == null || wareId.equals(ws.getWareId()))
+                .sorted(Comparator.comparing(StockBucketAllocator::bucketOf))
+                .collect(Collectors.groupingBy(WareSku::getWareId, LinkedHashMap::new, Collectors.toList()));
+
+        // 仓库按合计库存降序
+        List<List<WareSku>> wares = new ArrayList<>(bucketsByWare.values());
+        wares.sort(Comparator.comparingLong((List<WareSku> buckets) ->
+                buckets.stream().mapToLong(WareSku::getStock).sum()).reversed());
+
+        for (List<WareSku> buckets : wares) {
+            List<WareSku> ordered = rotate(buckets, seed);
+
+            for (WareSku bucket : ordered) {
+                if (available(bucket, allocated) >= quantity) {
+                    allocated.merge(bucket.getId(), quantity, Integer::sum);
+                    return List.of(new Allocation(bucket, quantity));
+                }
+            }
+
+            long total = ordered.stream().mapToLong(bucket -> Math.max(0, available(bucket, allocated))).sum();
+            if (ordered.size() > 1 && total >= quantity) {
+                List<Allocation> split = new ArrayList<>();
+                int remaining = quantity;
+                for (WareSku bucket : ordered) {
+                    int take = Math.min(remaining, available(bucket, allocated));
+                    if (take > 0) {
+                        allocated.merge(bucket.getId(), take, Integer::sum);
+                        split.add(new Allocation(bucket, take));
+                        remaining -= take;
+                    }
+                    if (remaining == 0) {
+                        break;
+                    }
+                }
+                return split;
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * 分桶号，历史数据为空时视为主桶
+     */
+    public static int bucketOf(WareSku wareSku) {
+        return wareSku.getBucket() == null ? 0 : wareSku.getBucket();
+    }
+
+    /**
+     * 扣除本单已分配数量后的可用库存
+     */
+    private static int available(WareSku wareSku, Map<Long, Integer> allocated) {
+        return wareSku.getAvailableStock() - allocated.getOrDefault(wareSku.getId(), 0);
+    }
+
+    /**
+     * 从哈希选中的分桶开始轮转
+     */
+    private static List<WareSku> rotate(List<WareSku> buckets, int seed) {
+        if (buckets.size() == 1) {
+            return buckets;
+        }
+        int start = Math.floorMod(seed, buckets.size());
+        List<WareSku> ordered = new ArrayList<>(buckets.size());
+        for (int i = 0; i < buckets.size(); i++) {
+            ordered.add(buckets.get((start + i) % buckets.size()));
+        }
+        return ordered;
+    }
+
+    /**
+     * 分配结果
+     *
+     * @param row      库存行
+     * @param quantity 分配数量
+     */
+    public record Allocation(WareSku row, int quantity) {
+    }
+}
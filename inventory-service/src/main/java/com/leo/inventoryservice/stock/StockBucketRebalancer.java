@@ -0,0 +1,203 @@
+package com.leo.inventoryservice.stock;
+
+import com.leo.commoncore.constant.InventoryConstants;
+import com.leo.inventoryservice.config.InventoryConfig;
+import com.leo.inventoryservice.entity.WareSku;
+import com.leo.inventoryservice.mapper.WareSkuMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 库存分桶再平衡器
+ *
+ * 1. 拆分：把配置的热点SKU在每个仓库补齐到指定分桶数，新分桶从0库存开始
+ * 2. 再平衡：分桶间可用库存倾斜时，在分桶之间移动实际库存，使可用库存均分
+ *
+ * 移动只改变各分桶的stock，不改变stock_locked，(SKU, 仓库)合计库存保持不变。
+ * 先不加锁读取分桶数与可用库存，只有需要拆分或倾斜超过阈值的(SKU, 仓库)才在独立的短事务内
+ * 锁定全部分桶、重新校验后调整，已拆分且均衡的分桶不加行锁，不阻塞下单锁库存。
+ * 多节点由分布式锁保证只有一个节点执行。
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Slf4j
+@Component
+public class StockBucketRebalancer {
+
+    private final WareSkuMapper wareSkuMapper;
+    private final RedissonClient redissonClient;
+    private final InventoryConfig inventoryConfig;
+    private final TransactionTemplate transactionTemplate;
+
+    public StockBucketRebalancer(WareSkuMapper wareSkuMapper,
+                                 RedissonClient redissonClient,
+                                 InventoryConfig inventoryConfig,
+                                 PlatformTransactionManager transactionManager) {
+        this.wareSkuMapper = wareSkuMapper;
+        this.redissonClient = redissonClient;
+        this.inventoryConfig = inventoryConfig;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * 拆分配置的热点SKU并再平衡全部已拆分的分桶
+     *
+     * @return 调整过的(SKU, 仓库)数量
+     */
+    public int rebalance() {
+        InventoryConfig.Bucket config = inventoryConfig.getBucket();
+        if (!config.isEnabled()) {
+            return 0;
+        }
+        RLock lock = redissonClient.getLock(InventoryConstants.STOCK_REBALANCE_LOCK);
+        if (!lock.tryLock()) {
+            return 0;
+        }
+        try {
+            for (Long skuId : config.getHotSkuIds()) {
+                split(skuId, config.getBucketCount());
+            }
+
+            Map<List<Long>, List<WareSku>> groups = wareSkuMapper.selectBucketedRows().stream()
+                    .collect(Collectors.groupingBy(bucket -> List.of(bucket.getSkuId(), bucket.getWareId()),
+                            LinkedHashMap::new, Collectors.toList()));
+            int rebalanced = 0;
+            for (List<WareSku> buckets : groups.values()) {
+                if (!isSkewed(buckets, config.getSkewThreshold())) {
+                    continue;
+                }
+                WareSku group = buckets.get(0);
+                // 锁定后按最新库存重新校验，读取后已被下单扣减均衡的不再调整
+                Boolean changed = transactionTemplate.execute(status -> rebalanceGroup(
+                        wareSkuMapper.selectBucketsForUpdate(group.getSkuId(), group.getWareId()),
+                        config.getSkewThreshold()));
+                if (Boolean.TRUE.equals(changed)) {
+                    rebalanced++;
+                }
+            }
+            if (rebalanced > 0) {
+                log.info("库存分桶再平衡完成，调整数：{}", rebalanced);
+            }
+            return rebalanced;
+        } finally {
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 把SKU在每个仓库补齐到指定分桶数并均分可用库存
+     *
+     * @param skuId       SKU ID
+     * @param bucketCount 分桶数
+     */
+    public void split(Long skuId, int bucketCount) {
+        Set<Long> wareIds = wareSkuMapper.selectBuckets(skuId).stream()
+                .collect(Collectors.groupingBy(WareSku::getWareId, LinkedHashMap::new, Collectors.counting()))
+                .entrySet().stream()
+                .filter(e -> e.getValue() < bucketCount)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        for (Long wareId : wareIds) {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<WareSku> buckets = wareSkuMapper.selectBucketsForUpdate(skuId, wareId);
+                if (buckets.isEmpty() || buckets.size() >= bucketCount) {
+                    return;
+                }
+                WareSku main = buckets.stream().min(Comparator.comparing(StockBucketAllocator::bucketOf)).get();
+                Set<Integer> existing = buckets.stream()
+                        .map(StockBucketAllocator::bucketOf)
+                        .collect(Collectors.toSet());
+                for (int bucket = 1; buckets.size() < bucketCount; bucket++) {
+                    if (existing.contains(bucket)) {
+                        continue;
+                    }
+                    WareSku child = new WareSku();
+                    child.setSkuId(skuId);
+                    child.setWareId(wareId);
+                    child.setBucket(bucket);
+                    child.setStock(0);
+                    child.setStockLocked(0);
+                    child.setSkuName(main.getSkuName());
+                    child.setMinStock(0);
+                    child.setMaxStock(main.getMaxStock());
+                    child.setStatus(main.getStatus());
+                    wareSkuMapper.insert(child);
+                    buckets.add(child);
+                }
+                // 新分桶从主桶均分可用库存
+                rebalanceGroup(buckets, 1.0);
+                log.info("热点SKU库存拆分完成，SKU：{}，仓库：{}，分桶数：{}", skuId, wareId, buckets.size());
+            });
+        }
+    }
+
+    /**
+     * 均分一组分桶的可用库存
+     * 调用方需已锁定全部分桶
+     *
+     * @param buckets       同一(SKU, 仓库)的全部分桶
+     * @param skewThreshold 最小分桶可用库存低于平均值的该比例时才调整
+     * @return 是否调整
+     */
+    private boolean rebalanceGroup(List<WareSku> buckets, double skewThreshold) {
+        if (!isSkewed(buckets, skewThreshold)) {
+            return false;
+        }
+        int n = buckets.size();
+        long totalAvailable = buckets.stream().mapToLong(WareSku::getAvailableStock).sum();
+
+        // 按主键顺序分配余数，结果稳定
+        List<WareSku> ordered = new ArrayList<>(buckets);
+        ordered.sort(Comparator.comparing(WareSku::getId));
+        Map<Long, Integer> stocks = new LinkedHashMap<>();
+        long share = totalAvailable / n;
+        long remainder = totalAvailable % n;
+        for (int i = 0; i < n; i++) {
+            WareSku bucket = ordered.get(i);
+            long available = share + (i < remainder ? 1 : 0);
+            int stock = Math.toIntExact(bucket.getStockLocked() + available);
+            if (stock != bucket.getStock()) {
+                stocks.put(bucket.getId(), stock);
+            }
+        }
+        if (stocks.isEmpty()) {
+            return false;
+        }
+        wareSkuMapper.batchSetStock(stocks);
+        return true;
+    }
+
+    /**
+     * 判断一组分桶的可用库存是否倾斜
+     *
+     * @param buckets       同一(SKU, 仓库)的全部分桶
+     * @param skewThreshold 最小分桶可用库存低于平均值的该比例时视为倾斜
+     * @return 是否需要再平衡
+     */
+    private static boolean isSkewed(List<WareSku> buckets, double skewThreshold) {
+        int n = buckets.size();
+        if (n < 2) {
+            return false;
+        }
+        long totalAvailable = buckets.stream().mapToLong(WareSku::getAvailableStock).sum();
+        if (totalAvailable < 0) {
+            return false;
+        }
+        long minAvailable = buckets.stream().mapToLong(WareSku::getAvailableStock).min().getAsLong();
+        double average = (double) totalAvailable / n;
+        return minAvailable < average * skewThreshold || minAvailable < 0;
+    }
+}
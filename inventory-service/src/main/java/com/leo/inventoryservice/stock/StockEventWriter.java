@@ -0,0 +1,62 @@
+package com.leo.inventoryservice.stock;
+
+import com.leo.commoncore.constant.InventoryConstants;
+import com.leo.commonmybatis.outbox.OutboxWriter;
+import com.leo.inventoryservice.entity.WareOrderTask;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 库存工作单事件写入器
+ * 工作单状态变化时在同一事务内写入发件箱，业务键为工作单ID
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Component
+@RequiredArgsConstructor
+public class StockEventWriter {
+
+    private final OutboxWriter outboxWriter;
+
+    /**
+     * 工作单已锁定
+     */
+    public void locked(WareOrderTask task) {
+        append(InventoryConstants.EventType.LOCKED, List.of(task));
+    }
+
+    /**
+     * 工作单已解锁
+     */
+    public void unlocked(List<WareOrderTask> tasks) {
+        append(InventoryConstants.EventType.UNLOCKED, tasks);
+    }
+
+    /**
+     * 工作单已扣减
+     */
+    public void deducted(WareOrderTask task) {
+        append(InventoryConstants.EventType.DEDUCTED, List.of(task));
+    }
+
+    private void append(String eventType, List<WareOrderTask> tasks) {
+        outboxWriter.appendAll(tasks.stream()
+                .map(task -> outboxWriter.build(InventoryConstants.STOCK_EVENT_TOPIC, eventType,
+                        String.valueOf(task.getId()), payload(task)))
+                .collect(Collectors.toList()));
+    }
+
+    private Map<String, Object> payload(WareOrderTask task) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("taskId", task.getId());
+        payload.put("orderSn", task.getOrderSn());
+        payload.put("orderId", task.getOrderId());
+        return payload;
+    }
+}
@@ -0,0 +1,44 @@
+package com.leo.inventoryservice.stock;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.leo.commoncore.constant.InventoryConstants;
+import com.leo.commonmybatis.outbox.OutboxEventHandler;
+import com.leo.commonmybatis.outbox.OutboxMessage;
+import com.leo.inventoryservice.entity.WareOrderTaskDetail;
+import com.leo.inventoryservice.mapper.WareOrderTaskDetailMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.stream.Collectors;
+
+/**
+ * 库存工作单事件处理器
+ * 工作单锁定、解锁、扣减提交后，登记其中的SKU等待同步库存状态到商品索引
+ *
+ * Redis预占模式下锁定时详情尚未落库，锁定事件登记不到SKU；
+ * 数据库中的可用库存在回写后才变化，由{@link StockReserveReconciler}回写提交后登记。
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Component
+@RequiredArgsConstructor
+public class StockIndexEventHandler implements OutboxEventHandler {
+
+    private final ObjectMapper objectMapper;
+    private final WareOrderTaskDetailMapper wareOrderTaskDetailMapper;
+    private final StockIndexSyncer stockIndexSyncer;
+
+    @Override
+    public String topic() {
+        return InventoryConstants.STOCK_EVENT_TOPIC;
+    }
+
+    @Override
+    public void handle(OutboxMessage message) throws Exception {
+        long taskId = objectMapper.readTree(message.getPayload()).path("taskId").asLong();
+        stockIndexSyncer.markDirty(wareOrderTaskDetailMapper.selectByTaskId(taskId).stream()
+                .map(WareOrderTaskDetail::getSkuId)
+                .collect(Collectors.toSet()));
+    }
+}
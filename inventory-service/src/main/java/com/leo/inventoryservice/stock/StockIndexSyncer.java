@@ -0,0 +1,83 @@
+package com.leo.inventoryservice.stock;
+
+import cn.hutool.core.collection.CollUtil;
+import com.leo.commoncore.response.R;
+import com.leo.inventoryservice.client.ProductFeignClient;
+import com.leo.inventoryservice.config.InventoryConfig;
+import com.leo.inventoryservice.mapper.WareSkuMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 库存状态索引同步
+ *
+ * 库存变化只登记SKU，定时批量查询当前是否有库存并一次调用同步到商品索引：
+ * 1. 同一SKU在一个间隔内多次锁定、解锁、扣减只同步一次，同步的是同步时刻的最新状态
+ * 2. 调用失败或商品服务返回失败时SKU重新登记，下次间隔重试
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StockIndexSyncer {
+
+    private final WareSkuMapper wareSkuMapper;
+    private final ProductFeignClient productFeignClient;
+    private final InventoryConfig inventoryConfig;
+
+    /**
+     * 待同步的SKU
+     */
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 登记库存状态可能变化的SKU
+     */
+    public void markDirty(Collection<Long> skuIds) {
+        if (CollUtil.isNotEmpty(skuIds)) {
+            dirty.addAll(skuIds);
+        }
+    }
+
+    /**
+     * 同步已登记的SKU
+     *
+     * @return 同步的SKU数
+     */
+    public int flush() {
+        int batchSize = inventoryConfig.getEsSync().getBatchSize();
+        int total = 0;
+        while (!dirty.isEmpty()) {
+            List<Long> batch = new ArrayList<>(batchSize);
+            Iterator<Long> it = dirty.iterator();
+            while (it.hasNext() && batch.size() < batchSize) {
+                batch.add(it.next());
+                it.remove();
+            }
+
+            try {
+                Set<Long> inStock = new HashSet<>(wareSkuMapper.selectHasStockSkuIds(batch));
+                Map<Long, Boolean> stocks = new HashMap<>(batch.size() * 2);
+                for (Long skuId : batch) {
+                    stocks.put(skuId, inStock.contains(skuId));
+                }
+                R<?> result = productFeignClient.updateStocks(stocks);
+                if (result == null || !result.isSuccess()) {
+                    throw new IllegalStateException("商品服务返回失败：" + (result == null ? null : result.getMessage()));
+                }
+                total += batch.size();
+            } catch (Exception e) {
+                dirty.addAll(batch);
+                log.warn("库存状态同步到商品索引失败，下次重试，SKU数：{}", batch.size(), e);
+                break;
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,469 @@
+package com.leo.inventoryservice.stock;
+
+import cn.hutool.core.collection.CollUtil;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import com.leo.commoncore.constant.InventoryConstants;
+import com.leo.commoncore.exception.BizException;
+import com.leo.inventoryservice.config.InventoryConfig;
+import com.leo.inventoryservice.entity.WareLog;
+import com.leo.inventoryservice.entity.WareOrderTask;
+import com.leo.inventoryservice.entity.WareOrderTaskDetail;
+import com.leo.inventoryservice.entity.WareSku;
+import com.leo.inventoryservice.mapper.WareLogMapper;
+import com.leo.inventoryservice.mapper.WareOrderTaskDetailMapper;
+import com.leo.inventoryservice.mapper.WareOrderTaskMapper;
+import com.leo.inventoryservice.mapper.WareSkuMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Redis库存预占回写器
+ *
+ * 预占脚本把每个成功的预占追加到回写队列，本类按批次领取队列记录，
+ * 在一个事务内把锁定数量合并写入wms_ware_sku并批量插入工作单详情与流水：
+ * 1. 同一库存行在一个批次内只更新一次，整批只发一条UPDATE，热点行的更新次数与订单数解耦
+ * 2. 领取的记录先转入处理中队列，事务提交后才确认，宕机后重放
+ * 3. 已存在详情的工作单直接跳过，重放是幂等的
+ * 4. 解锁、扣减不等待全量回写，只回写自己的工作单，见{@link #applyPending(Collection)}
+ * 5. 回写后数据库中的可用库存才变化，提交后登记涉及的SKU同步库存状态到商品索引
+ *
+ * 回写与解锁、扣减都先锁定工作单行再检查详情是否存在，同一工作单的预占只会落库一次；
+ * 锁定事务回滚后工作单不存在，对应的预占记录直接丢弃。
+ *
+ * 库存行在回写事务内按主键顺序加锁，锁定数量按可用库存校验后写入；库存行不存在或数据库可用库存不足时，
+ * 该工作单整单不落库，标记为已解锁，提交后归还Redis预占并追加撤销记录，与锁定事务回滚的补偿路径一致。
+ *
+ * 记录格式：
+ * R|taskId|skuId:wareId:qty,skuId:wareId:qty  预占
+ * C|taskId                                    撤销（Redis侧已归还）
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Slf4j
+@Component
+public class StockReserveReconciler {
+
+    private static final String TYPE_RESERVE = "R";
+    private static final String TYPE_CANCEL = "C";
+
+    private static final String REJECT_REASON = "库存回写失败，预占已归还";
+
+    private final WareSkuMapper wareSkuMapper;
+    private final WareOrderTaskMapper wareOrderTaskMapper;
+    private final WareOrderTaskDetailMapper wareOrderTaskDetailMapper;
+    private final WareLogMapper wareLogMapper;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedissonClient redissonClient;
+    private final InventoryConfig inventoryConfig;
+    private final StockIndexSyncer stockIndexSyncer;
+    private final StockEventWriter stockEventWriter;
+    private final TransactionTemplate transactionTemplate;
+    private final DefaultRedisScript<List> claimScript;
+    private final DefaultRedisScript<Long> releaseScript;
+
+    public StockReserveReconciler(WareSkuMapper wareSkuMapper,
+                                  WareOrderTaskMapper wareOrderTaskMapper,
+                                  WareOrderTaskDetailMapper wareOrderTaskDetailMapper,
+                                  WareLogMapper wareLogMapper,
+                                  StringRedisTemplate stringRedisTemplate,
+                                  RedissonClient redissonClient,
+                                  InventoryConfig inventoryConfig,
+                                  StockIndexSyncer stockIndexSyncer,
+                                  StockEventWriter stockEventWriter,
+                                  PlatformTransactionManager transactionManager) {
+        this.wareSkuMapper = wareSkuMapper;
+        this.wareOrderTaskMapper = wareOrderTaskMapper;
+        this.wareOrderTaskDetailMapper = wareOrderTaskDetailMapper;
+        this.wareLogMapper = wareLogMapper;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.redissonClient = redissonClient;
+        this.inventoryConfig = inventoryConfig;
+        this.stockIndexSyncer = stockIndexSyncer;
+        this.stockEventWriter = stockEventWriter;
+        // 回写使用独立事务，调用方事务回滚不影响已确认的记录
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.claimScript = new DefaultRedisScript<>();
+        this.claimScript.setLocation(new ClassPathResource("lua/stock_reserve_claim.lua"));
+        this.claimScript.setResultType(List.class);
+        this.releaseScript = new DefaultRedisScript<>();
+        this.releaseScript.setLocation(new ClassPathResource("lua/stock_release.lua"));
+        this.releaseScript.setResultType(Long.class);
+    }
+
+    /**
+     * 回写队列中的全部记录
+     * 其他节点正在回写时直接返回，由持有回写锁的节点处理队列
+     *
+     * @return 回写的记录数
+     */
+    public int flush() {
+        RLock lock = redissonClient.getLock(InventoryConstants.STOCK_RECONCILE_LOCK);
+        try {
+            if (!lock.tryLock(0, TimeUnit.SECONDS)) {
+                return 0;
+            }
+            int total = 0;
+            List<String> claimed;
+            while (!(claimed = claim()).isEmpty()) {
+                List<String> records = claimed;
+                Set<String> taskIds = new HashSet<>();
+                transactionTemplate.executeWithoutResult(status -> taskIds.addAll(apply(records)));
+                // 事务提交后确认
+                stringRedisTemplate.delete(InventoryConstants.STOCK_RESERVE_PROCESSING);
+                removePending(taskIds);
+                total += records.size();
+            }
+            if (total > 0) {
+                log.debug("库存预占回写完成，记录数：{}", total);
+            }
+            return total;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BizException("库存回写失败");
+        } finally {
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 在调用方事务内回写指定工作单尚未落库的预占
+     * 调用方须已锁定这些工作单行；不持有回写锁，也不处理其他工作单的记录
+     *
+     * @param taskIds 工作单ID
+     * @return 无法回写、已标记为已解锁的工作单ID
+     */
+    public Set<Long> applyPending(Collection<Long> taskIds) {
+        if (CollUtil.isEmpty(taskIds)) {
+            return Collections.emptySet();
+        }
+        List<Object> fields = taskIds.stream().map(String::valueOf).collect(Collectors.toList());
+        List<Object> values = stringRedisTemplate.opsForHash().multiGet(InventoryConstants.STOCK_RESERVE_PENDING, fields);
+        List<ReserveRecord> reserves = new ArrayList<>();
+        Set<String> applied = new HashSet<>();
+        for (Object value : values) {
+            if (value != null) {
+                ReserveRecord record = ReserveRecord.parse(value.toString().split("\\|"));
+                reserves.add(record);
+                applied.add(String.valueOf(record.taskId()));
+            }
+        }
+        if (reserves.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<Long> rejected = applyReserves(reserves);
+        // 队列中的同一记录之后由回写任务按已有详情或工作单状态跳过
+        afterCommit(() -> removePending(applied));
+        return rejected;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private void removePending(Set<String> taskIds) {
+        if (!taskIds.isEmpty()) {
+            stringRedisTemplate.opsForHash().delete(InventoryConstants.STOCK_RESERVE_PENDING, taskIds.toArray());
+        }
+    }
+
+    /**
+     * 领取一批记录
+     */
+    @SuppressWarnings("unchecked")
+    private List<String> claim() {
+        List<String> records = stringRedisTemplate.execute(claimScript,
+                List.of(InventoryConstants.STOCK_RESERVE_QUEUE, InventoryConstants.STOCK_RESERVE_PROCESSING),
+                String.valueOf(inventoryConfig.getRedisReserve().getFlushBatchSize()));
+        return records == null ? Collections.emptyList() : records;
+    }
+
+    /**
+     * 在同一事务内应用一批记录
+     *
+     * @return 记录涉及的工作单ID
+     */
+    private Set<String> apply(List<String> records) {
+        List<ReserveRecord> reserves = new ArrayList<>();
+        List<Long> cancelTaskIds = new ArrayList<>();
+        for (String record : records) {
+            try {
+                String[] parts = record.split("\\|");
+                if (TYPE_RESERVE.equals(parts[0])) {
+                    reserves.add(ReserveRecord.parse(parts));
+                } else if (TYPE_CANCEL.equals(parts[0])) {
+                    cancelTaskIds.add(Long.valueOf(parts[1]));
+                } else {
+                    log.error("未知的库存回写记录：{}", record);
+                }
+            } catch (RuntimeException e) {
+                log.error("无法解析的库存回写记录：{}", record, e);
+            }
+        }
+
+        Set<String> taskIds = new HashSet<>();
+        reserves.forEach(r -> taskIds.add(String.valueOf(r.taskId())));
+        cancelTaskIds.forEach(taskId -> taskIds.add(String.valueOf(taskId)));
+        if (taskIds.isEmpty()) {
+            return taskIds;
+        }
+
+        // 按主键顺序锁定工作单行，与解锁、扣减单独回写互斥；锁定事务尚未提交时等待其结束
+        // 只回写仍处于已锁定状态的工作单，已解锁、已扣减或回写失败的工作单重放时跳过
+        Set<Long> locked = wareOrderTaskMapper.selectLockedForUpdate(
+                        taskIds.stream().map(Long::valueOf).sorted().collect(Collectors.toList()))
+                .stream().map(WareOrderTask::getId).collect(Collectors.toSet());
+        applyReserves(reserves.stream().filter(r -> locked.contains(r.taskId())).collect(Collectors.toList()));
+        for (Long taskId : cancelTaskIds) {
+            applyCancel(taskId);
+        }
+        return taskIds;
+    }
+
+    /**
+     * 应用预占记录，调用方须已锁定这些工作单行
+     *
+     * @return 无法回写、已标记为已解锁的工作单ID
+     */
+    private Set<Long> applyReserves(List<ReserveRecord> reserves) {
+        if (reserves.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        // 重放时跳过已经回写过的工作单
+        List<Long> taskIds = reserves.stream().map(ReserveRecord::taskId).collect(Collectors.toList());
+        Set<Long> applied = new HashSet<>(wareOrderTaskDetailMapper.selectTaskIdsWithDetail(taskIds));
+        List<ReserveRecord> pending = reserves.stream()
+                .filter(r -> !applied.contains(r.taskId()))
+                .collect(Collectors.toList());
+        if (pending.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        Set<Long> skuIds = pending.stream()
+                .flatMap(r -> r.items().stream())
+                .map(ReserveItem::skuId)
+                .collect(Collectors.toSet());
+        // 按主键顺序锁定候选库存行，分配与写入之间可用库存不会被并发修改
+        Map<Long, List<WareSku>> rowsBySku = wareSkuMapper.selectForLock(new ArrayList<>(skuIds)).stream()
+                .collect(Collectors.groupingBy(WareSku::getSkuId));
+
+        // Redis按仓库合计预占，回写时再分配到该仓库的分桶；一个工作单的明细全部分配成功才落库
+        Map<Long, Integer> allocated = new HashMap<>();
+        List<WareOrderTaskDetail> details = new ArrayList<>();
+        List<StockBucketAllocator.Allocation> allocations = new ArrayList<>();
+        List<ReserveRecord> rejected = new ArrayList<>();
+        for (ReserveRecord record : pending) {
+            Map<Long, Integer> recordAllocated = new HashMap<>(allocated);
+            List<StockBucketAllocator.Allocation> recordAllocations = new ArrayList<>();
+            List<WareOrderTaskDetail> recordDetails = new ArrayList<>();
+            if (!allocate(record, rowsBySku, recordAllocated, recordAllocations, recordDetails)) {
+                rejected.add(record);
+                continue;
+            }
+            allocated = recordAllocated;
+            allocations.addAll(recordAllocations);
+            details.addAll(recordDetails);
+        }
+
+        // 一条多行UPDATE写入整批锁定数量，同一库存行在一个批次内只更新一次
+        if (!allocated.isEmpty()) {
+            Map<Long, Integer> changes = new LinkedHashMap<>();
+            allocated.entrySet().stream()
+                    .sorted(Map.Entry.comparingByKey())
+                    .forEach(e -> changes.put(e.getKey(), e.getValue()));
+            // 库存行已加锁且按可用库存分配，更新行数不符说明库存行在锁外被修改，回滚后重放
+            int updated = wareSkuMapper.batchLockStock(changes, true);
+            if (updated != changes.size()) {
+                throw new BizException("库存回写失败，库存行可用库存不足");
+            }
+        }
+
+        List<WareLog> logs = new ArrayList<>(allocations.size());
+        Map<Long, Integer> lockedRunning = new HashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (StockBucketAllocator.Allocation allocation : allocations) {
+            WareSku row = allocation.row();
+            int lockedBefore = lockedRunning.getOrDefault(row.getId(), row.getStockLocked());
+            WareLog wareLog = new WareLog();
+            wareLog.setId(IdWorker.getId());
+            wareLog.setSkuId(row.getSkuId());
+            wareLog.setWareId(row.getWareId());
+            wareLog.setOperationType(InventoryConstants.OperationType.LOCK);
+            wareLog.setChangeQuantity(-allocation.quantity());
+            wareLog.setStockBefore(row.getStock());
+            wareLog.setStockAfter(row.getStock());
+            wareLog.setLockedBefore(lockedBefore);
+            wareLog.setLockedAfter(lockedBefore + allocation.quantity());
+            wareLog.setOperateTime(now);
+            wareLog.setOperateNote("订单锁定");
+            logs.add(wareLog);
+            lockedRunning.put(row.getId(), lockedBefore + allocation.quantity());
+        }
+
+        if (CollUtil.isNotEmpty(details)) {
+            wareOrderTaskDetailMapper.insertBatch(details);
+        }
+        if (CollUtil.isNotEmpty(logs)) {
+            wareLogMapper.insertBatch(logs);
+        }
+        if (!allocated.isEmpty()) {
+            afterCommit(() -> stockIndexSyncer.markDirty(skuIds));
+        }
+        return reject(rejected);
+    }
+
+    /**
+     * 为一个预占记录的全部明细分配库存行
+     *
+     * @return 库存行不存在或可用库存不足时返回false
+     */
+    private boolean allocate(ReserveRecord record, Map<Long, List<WareSku>> rowsBySku, Map<Long, Integer> allocated,
+                             List<StockBucketAllocator.Allocation> allocations, List<WareOrderTaskDetail> details) {
+        int seed = Long.hashCode(record.taskId());
+        for (ReserveItem item : record.items()) {
+            List<WareSku> rows = rowsBySku.getOrDefault(item.skuId(), Collections.emptyList()).stream()
+                    .filter(ws -> ws.getWareId().equals(item.wareId()))
+                    .collect(Collectors.toList());
+            if (rows.isEmpty()) {
+                log.error("库存回写失败，库存记录不存在，工作单ID：{}，SKU：{}，仓库：{}",
+                        record.taskId(), item.skuId(), item.wareId());
+                return false;
+            }
+            List<StockBucketAllocator.Allocation> itemAllocations =
+                    StockBucketAllocator.allocate(rows, item.wareId(), item.quantity(), seed, allocated);
+            if (itemAllocations.isEmpty()) {
+                log.error("库存回写失败，数据库可用库存不足，工作单ID：{}，SKU：{}，仓库：{}，数量：{}",
+                        record.taskId(), item.skuId(), item.wareId(), item.quantity());
+                return false;
+            }
+            for (StockBucketAllocator.Allocation allocation : itemAllocations) {
+                WareSku row = allocation.row();
+                details.add(buildDetail(record.taskId(), item.skuId(), row.getSkuName(), item.wareId(),
+                        StockBucketAllocator.bucketOf(row), allocation.quantity()));
+                allocations.add(allocation);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 无法回写的工作单标记为已解锁，提交后归还Redis预占并追加撤销记录
+     *
+     * @return 标记为已解锁的工作单ID
+     */
+    private Set<Long> reject(List<ReserveRecord> records) {
+        if (records.isEmpty()) {
+            return Collections.emptySet();
+        }
+        List<WareOrderTask> tasks = wareOrderTaskMapper.selectLockedForUpdate(
+                records.stream().map(ReserveRecord::taskId).sorted().collect(Collectors.toList()));
+        if (tasks.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<Long> taskIds = tasks.stream().map(WareOrderTask::getId).collect(Collectors.toSet());
+        wareOrderTaskMapper.batchMarkUnlocked(new ArrayList<>(taskIds), LocalDateTime.now(), REJECT_REASON);
+        stockEventWriter.unlocked(tasks);
+        List<ReserveRecord> released = records.stream()
+                .filter(r -> taskIds.contains(r.taskId()))
+                .collect(Collectors.toList());
+        afterCommit(() -> released.forEach(this::release));
+        return taskIds;
+    }
+
+    /**
+     * 归还一个预占记录的Redis可用库存并追加撤销记录
+     */
+    private void release(ReserveRecord record) {
+        List<String> keys = new ArrayList<>(record.items().size() + 1);
+        List<String> args = new ArrayList<>(record.items().size() * 2 + 1);
+        for (ReserveItem item : record.items()) {
+            keys.add(InventoryConstants.STOCK_AVAILABLE_PREFIX + item.skuId());
+            args.add(String.valueOf(item.wareId()));
+            args.add(String.valueOf(item.quantity()));
+        }
+        keys.add(InventoryConstants.STOCK_RESERVE_QUEUE);
+        args.add(TYPE_CANCEL + "|" + record.taskId());
+        stringRedisTemplate.execute(releaseScript, keys, args.toArray());
+    }
+
+    /**
+     * 构建已锁定的工作单详情
+     */
+    private WareOrderTaskDetail buildDetail(Long taskId, Long skuId, String skuName, Long wareId,
+                                            int bucket, int quantity) {
+        WareOrderTaskDetail detail = new WareOrderTaskDetail();
+        detail.setId(IdWorker.getId());
+        detail.setTaskId(taskId);
+        detail.setSkuId(skuId);
+        detail.setSkuName(skuName);
+        detail.setSkuNum(quantity);
+        detail.setWareId(wareId);
+        detail.setBucket(bucket);
+        detail.setLockStatus(InventoryConstants.LockStatus.LOCKED);
+        detail.setLockedNum(quantity);
+        return detail;
+    }
+
+    /**
+     * 应用撤销记录（锁定事务回滚后的补偿）
+     */
+    private void applyCancel(Long taskId) {
+        List<WareOrderTaskDetail> details = wareOrderTaskDetailMapper.selectByTaskId(taskId);
+        for (WareOrderTaskDetail detail : details) {
+            if (detail.getLockStatus() == InventoryConstants.LockStatus.LOCKED) {
+                wareSkuMapper.unlockStock(detail.getSkuId(), detail.getWareId(), detail.getBucket(), detail.getLockedNum());
+                detail.setLockStatus(InventoryConstants.LockStatus.UNLOCKED);
+                wareOrderTaskDetailMapper.updateById(detail);
+            }
+        }
+    }
+
+    /**
+     * 预占明细
+     */
+    private record ReserveItem(Long skuId, Long wareId, Integer quantity) {
+    }
+
+    /**
+     * 预占记录
+     */
+    private record ReserveRecord(Long taskId, List<ReserveItem> items) {
+
+        static ReserveRecord parse(String[] parts) {
+            List<ReserveItem> items = new ArrayList<>();
+            for (String item : parts[2].split(",")) {
+                String[] fields = item.split(":");
+                items.add(new ReserveItem(Long.valueOf(fields[0]), Long.valueOf(fields[1]), Integer.valueOf(fields[2])));
+            }
+            return new ReserveRecord(Long.valueOf(parts[1]), items);
+        }
+    }
+}
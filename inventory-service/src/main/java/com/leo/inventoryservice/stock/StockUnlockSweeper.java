@@ -0,0 +1,358 @@
+package com.leo.inventoryservice.stock;
+
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import com.leo.commoncore.constant.InventoryConstants;
+import com.leo.commoncore.exception.BizException;
+import com.leo.inventoryservice.config.InventoryConfig;
+import com.leo.inventoryservice.entity.WareLog;
+import com.leo.inventoryservice.entity.WareOrderTask;
+import com.leo.inventoryservice.entity.WareOrderTaskDetail;
+import com.leo.inventoryservice.entity.WareSku;
+import com.leo.inventoryservice.mapper.WareLogMapper;
+import com.leo.inventoryservice.mapper.WareOrderTaskDetailMapper;
+import com.leo.inventoryservice.mapper.WareOrderTaskMapper;
+import com.leo.inventoryservice.mapper.WareSkuMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 超时库存解锁扫描器
+ *
+ * 1. 按(lock_time, id)游标沿idx_task_timeout索引分页，不做全表扫描，也不重复读取已跳过的工作单
+ * 2. 每批工作单在一个短事务内集合化解锁：一条多行UPDATE解锁库存，详情、工作单各一条UPDATE，流水一条多行INSERT
+ * 3. 工作单按ID取模分区，节点通过带过期时间的分区租约认领分区，多节点并发扫描互不重叠，节点宕机后租约到期自动接管
+ * 4. 解锁的工作单在同一事务内写入发件箱
+ * 5. 库存行在批次事务内加锁后复核锁定数量，库存记录不存在或锁定数量不足的工作单不解锁，保持已锁定状态等待人工处理
+ * 6. 暴露解锁数、跳过数、批次数、耗时与积压（最早超时工作单已超时的秒数）指标
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Slf4j
+@Component
+public class StockUnlockSweeper {
+
+    private static final String UNLOCK_REASON = "支付超时自动解锁";
+
+    private final WareSkuMapper wareSkuMapper;
+    private final WareOrderTaskMapper wareOrderTaskMapper;
+    private final WareOrderTaskDetailMapper wareOrderTaskDetailMapper;
+    private final WareLogMapper wareLogMapper;
+    private final RedissonClient redissonClient;
+    private final InventoryConfig inventoryConfig;
+    private final RedisStockReserver redisStockReserver;
+    private final StockReserveReconciler stockReserveReconciler;
+    private final StockEventWriter stockEventWriter;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Counter unlockedCounter;
+    private final Counter skippedCounter;
+    private final Counter batchCounter;
+    private final Timer sweepTimer;
+    private final AtomicLong lagSeconds = new AtomicLong();
+
+    public StockUnlockSweeper(WareSkuMapper wareSkuMapper,
+                              WareOrderTaskMapper wareOrderTaskMapper,
+                              WareOrderTaskDetailMapper wareOrderTaskDetailMapper,
+                              WareLogMapper wareLogMapper,
+                              RedissonClient redissonClient,
+                              InventoryConfig inventoryConfig,
+                              RedisStockReserver redisStockReserver,
+                              StockReserveReconciler stockReserveReconciler,
+                              StockEventWriter stockEventWriter,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry) {
+        this.wareSkuMapper = wareSkuMapper;
+        this.wareOrderTaskMapper = wareOrderTaskMapper;
+        this.wareOrderTaskDetailMapper = wareOrderTaskDetailMapper;
+        this.wareLogMapper = wareLogMapper;
+        this.redissonClient = redissonClient;
+        this.inventoryConfig = inventoryConfig;
+        this.redisStockReserver = redisStockReserver;
+        this.stockReserveReconciler = stockReserveReconciler;
+        this.stockEventWriter = stockEventWriter;
+        // 每批独立事务，单批失败不影响已提交的批次
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        this.unlockedCounter = Counter.builder("inventory.unlock.sweep.unlocked")
+                .description("超时自动解锁的工作单数").register(meterRegistry);
+        this.skippedCounter = Counter.builder("inventory.unlock.sweep.skipped")
+                .description("扫描到但已被并发解锁或扣减的工作单数").register(meterRegistry);
+        this.batchCounter = Counter.builder("inventory.unlock.sweep.batches")
+                .description("超时解锁批次数").register(meterRegistry);
+        this.sweepTimer = Timer.builder("inventory.unlock.sweep.duration")
+                .description("单次超时解锁扫描耗时").register(meterRegistry);
+        Gauge.builder("inventory.unlock.sweep.lag", lagSeconds, AtomicLong::get)
+                .description("最早未解锁的超时工作单已超时的秒数")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 扫描并解锁超时工作单
+     *
+     * @param minutes 超时时间（分钟）
+     * @return 本节点解锁的工作单数
+     */
+    public int sweep(int minutes) {
+        return sweepTimer.record(() -> {
+            InventoryConfig.UnlockSweep config = inventoryConfig.getUnlockSweep();
+            LocalDateTime deadline = LocalDateTime.now().minusMinutes(minutes);
+            int partitions = Math.max(1, config.getPartitions());
+            // 随机起点，多个节点同时启动时尽量认领不同分区
+            int offset = ThreadLocalRandom.current().nextInt(partitions);
+
+            int total = 0;
+            for (int i = 0; i < partitions; i++) {
+                int partition = (offset + i) % partitions;
+                RLock lease = redissonClient.getLock(InventoryConstants.STOCK_UNLOCK_SWEEP_LEASE + partition);
+                try {
+                    // 显式租期不续约，节点宕机后分区自动释放
+                    if (!lease.tryLock(0, config.getLeaseSeconds(), TimeUnit.SECONDS)) {
+                        continue;
+                    }
+                    total += sweepPartition(partition, partitions, deadline, config);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } finally {
+                    if (lease.isHeldByCurrentThread()) {
+                        lease.unlock();
+                    }
+                }
+            }
+
+            updateLag(minutes);
+            return total;
+        });
+    }
+
+    /**
+     * 解锁指定的到期工作单
+     * 供延迟任务在到期时直接解锁，已解锁或已扣减的工作单跳过
+     *
+     * @param taskIds 工作单ID
+     * @return 实际解锁的工作单数
+     */
+    public int unlock(List<Long> taskIds) {
+        if (taskIds.isEmpty()) {
+            return 0;
+        }
+        Integer count = transactionTemplate.execute(status -> unlockBatch(taskIds));
+        int unlocked = count == null ? 0 : count;
+        unlockedCounter.increment(unlocked);
+        skippedCounter.increment(taskIds.size() - unlocked);
+        batchCounter.increment();
+        return unlocked;
+    }
+
+    /**
+     * 扫描一个分区
+     * 在租约到期前停止，避免与接管分区的节点重叠
+     */
+    private int sweepPartition(int partition, int partitions, LocalDateTime deadline,
+                               InventoryConfig.UnlockSweep config) {
+        long stopAt = System.nanoTime() + TimeUnit.SECONDS.toNanos(config.getLeaseSeconds()) * 4 / 5;
+        LocalDateTime lastLockTime = null;
+        Long lastId = null;
+        int unlocked = 0;
+
+        for (int batch = 0; batch < config.getMaxBatchesPerRun() && System.nanoTime() < stopAt; batch++) {
+            List<WareOrderTask> page = wareOrderTaskMapper.selectTimeoutPage(deadline, lastLockTime, lastId,
+                    partitions, partition, config.getBatchSize());
+            if (page.isEmpty()) {
+                break;
+            }
+            WareOrderTask last = page.get(page.size() - 1);
+            lastLockTime = last.getLockTime();
+            lastId = last.getId();
+
+            List<Long> taskIds = page.stream().map(WareOrderTask::getId).collect(Collectors.toList());
+            Integer count = transactionTemplate.execute(status -> unlockBatch(taskIds));
+            int batchUnlocked = count == null ? 0 : count;
+            unlocked += batchUnlocked;
+            unlockedCounter.increment(batchUnlocked);
+            skippedCounter.increment(taskIds.size() - batchUnlocked);
+            batchCounter.increment();
+
+            if (page.size() < config.getBatchSize()) {
+                break;
+            }
+        }
+        if (unlocked > 0) {
+            log.info("超时库存解锁完成，分区：{}，解锁工作单数：{}", partition, unlocked);
+        }
+        return unlocked;
+    }
+
+    /**
+     * 集合化解锁一批工作单
+     *
+     * @return 实际解锁的工作单数
+     */
+    private int unlockBatch(List<Long> candidateIds) {
+        // 锁定仍处于已锁定状态的工作单；手动解锁、扣减同样先锁定工作单行并复核状态，二者互斥
+        List<WareOrderTask> tasks = wareOrderTaskMapper.selectLockedForUpdate(candidateIds);
+        if (tasks.isEmpty()) {
+            return 0;
+        }
+        // Redis预占模式下先回写这批工作单尚未落库的预占，无法回写的工作单已被标记为已解锁
+        if (redisStockReserver.isEnabled()) {
+            Set<Long> rejected = stockReserveReconciler.applyPending(
+                    tasks.stream().map(WareOrderTask::getId).collect(Collectors.toList()));
+            tasks = tasks.stream().filter(task -> !rejected.contains(task.getId())).collect(Collectors.toList());
+            if (tasks.isEmpty()) {
+                return 0;
+            }
+        }
+        List<WareOrderTaskDetail> details = wareOrderTaskDetailMapper.selectLockedByTaskIds(
+                tasks.stream().map(WareOrderTask::getId).collect(Collectors.toList()));
+        if (!details.isEmpty()) {
+            // 库存行异常的工作单不标记解锁，也不归还Redis预占，数据库与Redis保持一致
+            Set<Long> failed = unlockDetails(details);
+            if (!failed.isEmpty()) {
+                tasks = tasks.stream().filter(task -> !failed.contains(task.getId())).collect(Collectors.toList());
+                details = details.stream().filter(detail -> !failed.contains(detail.getTaskId())).collect(Collectors.toList());
+                if (tasks.isEmpty()) {
+                    return 0;
+                }
+            }
+        }
+        List<Long> taskIds = tasks.stream().map(WareOrderTask::getId).collect(Collectors.toList());
+        wareOrderTaskMapper.batchMarkUnlocked(taskIds, LocalDateTime.now(), UNLOCK_REASON);
+        stockEventWriter.unlocked(tasks);
+
+        // 事务提交后归还Redis可用库存
+        if (redisStockReserver.isEnabled()) {
+            redisStockReserver.release(details);
+        }
+        return taskIds.size();
+    }
+
+    /**
+     * 解锁详情对应的库存并记录流水
+     * 先按主键顺序锁定库存行并复核锁定数量，涉及不存在或锁定数量不足的库存行的工作单整单跳过
+     *
+     * @return 未解锁的工作单ID
+     */
+    private Set<Long> unlockDetails(List<WareOrderTaskDetail> details) {
+        Set<Long> skuIds = details.stream().map(WareOrderTaskDetail::getSkuId).collect(Collectors.toSet());
+        Map<String, WareSku> rows = wareSkuMapper.selectBySkuIdsForUpdate(skuIds).stream()
+                .collect(Collectors.toMap(this::rowKey, ws -> ws, (a, b) -> a));
+
+        // 库存行ID -> 需要解锁的数量
+        Map<Long, Integer> required = new HashMap<>();
+        Set<Long> failed = new HashSet<>();
+        for (WareOrderTaskDetail detail : details) {
+            WareSku row = rows.get(rowKey(detail));
+            if (row == null) {
+                log.error("超时解锁失败，库存记录不存在，工作单ID：{}，SKU：{}，仓库：{}",
+                        detail.getTaskId(), detail.getSkuId(), detail.getWareId());
+                failed.add(detail.getTaskId());
+            } else {
+                required.merge(row.getId(), detail.getLockedNum(), Integer::sum);
+            }
+        }
+        Set<Long> shortRows = rows.values().stream()
+                .filter(row -> required.getOrDefault(row.getId(), 0) > row.getStockLocked())
+                .map(WareSku::getId)
+                .collect(Collectors.toSet());
+        for (WareOrderTaskDetail detail : details) {
+            WareSku row = rows.get(rowKey(detail));
+            if (row != null && shortRows.contains(row.getId())) {
+                log.error("超时解锁失败，锁定数量不足，工作单ID：{}，库存行ID：{}，锁定数量：{}，需解锁：{}",
+                        detail.getTaskId(), row.getId(), row.getStockLocked(), required.get(row.getId()));
+                failed.add(detail.getTaskId());
+            }
+        }
+
+        // 库存行ID -> 解锁数量（按主键顺序）
+        Map<Long, Integer> changes = new TreeMap<>();
+        List<WareLog> logs = new ArrayList<>(details.size());
+        Map<Long, Integer> lockedRunning = new HashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+        details.stream()
+                .filter(detail -> !failed.contains(detail.getTaskId()))
+                .sorted(Comparator.comparing(WareOrderTaskDetail::getSkuId)
+                        .thenComparing(WareOrderTaskDetail::getWareId)
+                        .thenComparing(detail -> bucketOf(detail)))
+                .forEach(detail -> {
+                    WareSku row = rows.get(rowKey(detail));
+                    changes.merge(row.getId(), detail.getLockedNum(), Integer::sum);
+
+                    int lockedBefore = lockedRunning.getOrDefault(row.getId(), row.getStockLocked());
+                    WareLog wareLog = new WareLog();
+                    wareLog.setId(IdWorker.getId());
+                    wareLog.setSkuId(row.getSkuId());
+                    wareLog.setWareId(row.getWareId());
+                    wareLog.setOperationType(InventoryConstants.OperationType.UNLOCK);
+                    wareLog.setChangeQuantity(-detail.getLockedNum());
+                    wareLog.setStockBefore(row.getStock());
+                    wareLog.setStockAfter(row.getStock());
+                    wareLog.setLockedBefore(lockedBefore);
+                    wareLog.setLockedAfter(lockedBefore - detail.getLockedNum());
+                    wareLog.setOperateTime(now);
+                    wareLog.setOperateNote(UNLOCK_REASON);
+                    logs.add(wareLog);
+                    lockedRunning.put(row.getId(), lockedBefore - detail.getLockedNum());
+                });
+        if (changes.isEmpty()) {
+            return failed;
+        }
+
+        // 库存行已加锁并复核，更新行数不符说明库存行在锁外被修改，回滚整批
+        int updated = wareSkuMapper.batchUnlockStock(new LinkedHashMap<>(changes));
+        if (updated != changes.size()) {
+            throw new BizException("超时解锁库存行更新数不符，应更新：" + changes.size() + "，实际更新：" + updated);
+        }
+        wareOrderTaskDetailMapper.batchUnlockByTaskIds(details.stream()
+                .map(WareOrderTaskDetail::getTaskId)
+                .filter(taskId -> !failed.contains(taskId))
+                .distinct()
+                .collect(Collectors.toList()));
+        if (!logs.isEmpty()) {
+            wareLogMapper.insertBatch(logs);
+        }
+        return failed;
+    }
+
+    /**
+     * 更新积压指标
+     */
+    private void updateLag(int minutes) {
+        LocalDateTime oldest = wareOrderTaskMapper.selectOldestLockTime();
+        long lag = oldest == null ? 0
+                : Duration.between(oldest.plusMinutes(minutes), LocalDateTime.now()).getSeconds();
+        lagSeconds.set(Math.max(0, lag));
+    }
+
+    private String rowKey(WareSku wareSku) {
+        return wareSku.getSkuId() + ":" + wareSku.getWareId() + ":" + StockBucketAllocator.bucketOf(wareSku);
+    }
+
+    private String rowKey(WareOrderTaskDetail detail) {
+        return detail.getSkuId() + ":" + detail.getWareId() + ":" + bucketOf(detail);
+    }
+
+    private int bucketOf(WareOrderTaskDetail detail) {
+        return detail.getBucket() == null ? 0 : detail.getBucket();
+    }
+}
@@ -1,6 +1,10 @@
 package com.leo.inventoryservice.task;
 
+import com.leo.inventoryservice.config.InventoryConfig;
 import com.leo.inventoryservice.service.InventoryService;
+import com.leo.inventoryservice.stock.StockBucketRebalancer;
+import com.leo.inventoryservice.stock.StockIndexSyncer;
+import com.leo.inventoryservice.stock.StockReserveReconciler;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -18,12 +22,62 @@ import org.springframework.stereotype.Component;
 public class InventoryScheduledTask {
 
     private final InventoryService inventoryService;
+    private final StockReserveReconciler stockReserveReconciler;
+    private final StockBucketRebalancer stockBucketRebalancer;
+    private final StockIndexSyncer stockIndexSyncer;
+    private final InventoryConfig inventoryConfig;
+
+    /**
+     * 回写Redis库存预占
+     * 默认每200毫秒执行一次
+     */
+    @Scheduled(fixedDelayString = "${inventory.redis-reserve.flush-interval:200}")
+    public void flushStockReserve() {
+        if (!inventoryConfig.getRedisReserve().isEnabled()) {
+            return;
+        }
+        try {
+            stockReserveReconciler.flush();
+        } catch (Exception e) {
+            log.error("库存预占回写失败，将在下次执行时重放", e);
+        }
+    }
+
+    /**
+     * 热点SKU库存分桶再平衡
+     * 默认每5秒执行一次
+     */
+    @Scheduled(fixedDelayString = "${inventory.bucket.rebalance-interval:5000}")
+    public void rebalanceStockBuckets() {
+        if (!inventoryConfig.getBucket().isEnabled()) {
+            return;
+        }
+        try {
+            stockBucketRebalancer.rebalance();
+        } catch (Exception e) {
+            log.error("库存分桶再平衡失败", e);
+        }
+    }
+
+    /**
+     * 同步库存状态到商品索引
+     * 默认每500毫秒执行一次
+     */
+    @Scheduled(fixedDelayString = "${inventory.es-sync.interval:500}")
+    public void syncStockToEs() {
+        try {
+            stockIndexSyncer.flush();
+        } catch (Exception e) {
+            log.error("库存状态同步失败", e);
+        }
+    }
 
     /**
      * 自动解锁超时未支付的库存
-     * 每5分钟执行一次
+     * 到期解锁由延迟任务完成，这里兜底处理延迟任务丢失或Redis不可用期间的工作单
+     * 默认每分钟执行一次，多节点按分区租约分担
      */
-    @Scheduled(cron = "0 */5 * * * ?")
+    @Scheduled(fixedDelayString = "${inventory.unlock-sweep.interval:60000}")
     public void autoUnlockTimeoutStock() {
         try {
             log.info("开始执行库存解锁定时任务...");
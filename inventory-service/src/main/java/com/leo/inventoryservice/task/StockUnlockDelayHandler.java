@@ -0,0 +1,43 @@
+package com.leo.inventoryservice.task;
+
+import com.leo.commoncore.constant.InventoryConstants;
+import com.leo.commonredis.delay.DelayJobHandler;
+import com.leo.inventoryservice.stock.StockUnlockSweeper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 库存超时解锁延迟任务
+ * 工作单锁定成功时投递，到期后集合化解锁；定时扫描只作为兜底
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StockUnlockDelayHandler implements DelayJobHandler {
+
+    private final StockUnlockSweeper stockUnlockSweeper;
+
+    @Override
+    public String topic() {
+        return InventoryConstants.STOCK_UNLOCK_DELAY_TOPIC;
+    }
+
+    @Override
+    public Collection<String> handle(List<String> payloads) {
+        List<Long> taskIds = payloads.stream().map(Long::valueOf).collect(Collectors.toList());
+        int unlocked = stockUnlockSweeper.unlock(taskIds);
+        if (unlocked > 0) {
+            log.info("到期库存解锁完成，到期工作单数：{}，解锁数：{}", taskIds.size(), unlocked);
+        }
+        // 同一事务内处理整批，提交即全部完成
+        return payloads;
+    }
+}
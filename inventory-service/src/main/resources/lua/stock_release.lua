@@ -0,0 +1,17 @@
+-- 归还预占库存
+-- KEYS[1..n]  : SKU可用库存Hash
+-- KEYS[n+1]   : 回写队列
+-- ARGV[2i-1]  : 第i个明细的仓库ID
+-- ARGV[2i]    : 第i个明细的数量
+-- ARGV[2n+1]  : 需要追加到回写队列的记录（空串表示不追加）
+local n = #KEYS - 1
+for i = 1, n do
+    -- 未预热的SKU以数据库为准，下次预热时自然包含归还的数量
+    if redis.call('EXISTS', KEYS[i]) == 1 then
+        redis.call('HINCRBY', KEYS[i], ARGV[2 * i - 1], tonumber(ARGV[2 * i]))
+    end
+end
+if ARGV[2 * n + 1] ~= '' then
+    redis.call('RPUSH', KEYS[n + 1], ARGV[2 * n + 1])
+end
+return n
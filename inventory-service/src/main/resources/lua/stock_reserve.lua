@@ -0,0 +1,61 @@
+-- 原子预占一个订单的全部库存（全部成功或全部失败）
+-- KEYS[1..n]  : 每个明细对应SKU的可用库存Hash（field为仓库ID，"_"为预热标记）
+-- KEYS[n+1]   : 回写队列
+-- KEYS[n+2]   : 未回写预占Hash（field为工作单ID），供解锁、扣减单独回写一个工作单
+-- ARGV[1]     : 工作单ID
+-- ARGV[3i-1]  : 第i个明细的SKU ID
+-- ARGV[3i]    : 第i个明细的数量
+-- ARGV[3i+1]  : 第i个明细指定的仓库ID（空串表示不指定）
+-- 返回：{"1", 仓库ID...} 成功；{"-1", i} 第i个SKU未预热；{"-2", i} 第i个SKU库存不足
+local n = #KEYS - 2
+local taken = {}
+local chosen = {}
+
+for i = 1, n do
+    local key = KEYS[i]
+    if redis.call('EXISTS', key) == 0 then
+        return {'-1', tostring(i)}
+    end
+
+    local qty = tonumber(ARGV[3 * i])
+    local ware = ARGV[3 * i + 1]
+    local pick = nil
+
+    if ware ~= '' then
+        local value = redis.call('HGET', key, ware)
+        if value and tonumber(value) - (taken[key .. ':' .. ware] or 0) >= qty then
+            pick = ware
+        end
+    else
+        -- 未指定仓库时选择可用库存最多的仓库
+        local fields = redis.call('HGETALL', key)
+        local best = -1
+        for j = 1, #fields, 2 do
+            if fields[j] ~= '_' then
+                local available = tonumber(fields[j + 1]) - (taken[key .. ':' .. fields[j]] or 0)
+                if available >= qty and available > best then
+                    best = available
+                    pick = fields[j]
+                end
+            end
+        end
+    end
+
+    if not pick then
+        return {'-2', tostring(i)}
+    end
+    taken[key .. ':' .. pick] = (taken[key .. ':' .. pick] or 0) + qty
+    chosen[i] = pick
+end
+
+local parts = {}
+local result = {'1'}
+for i = 1, n do
+    redis.call('HINCRBY', KEYS[i], chosen[i], -tonumber(ARGV[3 * i]))
+    parts[i] = ARGV[3 * i - 1] .. ':' .. chosen[i] .. ':' .. ARGV[3 * i]
+    result[i + 1] = chosen[i]
+end
+local record = 'R|' .. ARGV[1] .. '|' .. table.concat(parts, ',')
+redis.call('RPUSH', KEYS[n + 1], record)
+redis.call('HSET', KEYS[n + 2], ARGV[1], record)
+return result
@@ -0,0 +1,19 @@
+-- 领取一批待回写记录
+-- KEYS[1] : 回写队列
+-- KEYS[2] : 处理中队列
+-- ARGV[1] : 批次大小
+-- 处理中队列非空说明上一批未确认，优先重放
+local processing = redis.call('LRANGE', KEYS[2], 0, -1)
+if #processing > 0 then
+    return processing
+end
+
+local records = redis.call('LRANGE', KEYS[1], 0, tonumber(ARGV[1]) - 1)
+if #records == 0 then
+    return records
+end
+redis.call('LTRIM', KEYS[1], #records, -1)
+for i = 1, #records do
+    redis.call('RPUSH', KEYS[2], records[i])
+end
+return records
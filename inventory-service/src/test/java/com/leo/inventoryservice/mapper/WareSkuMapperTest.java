@@ -0,0 +1,146 @@
+package com.leo.inventoryservice.mapper;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.MybatisSqlSessionFactoryBuilder;
+import com.leo.inventoryservice.entity.WareSku;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 单元测试：WareSkuMapper集合化锁定与解锁（H2 MySQL兼容模式）
+ * 一条多行UPDATE按行校验数量，不满足条件的行不更新，调用方按更新行数判断整批是否成功
+ */
+public class WareSkuMapperTest {
+
+    private SqlSession session;
+    private WareSkuMapper wareSkuMapper;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        UnpooledDataSource dataSource = new UnpooledDataSource("org.h2.Driver",
+                "jdbc:h2:mem:ware_sku;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        MybatisConfiguration configuration = new MybatisConfiguration(
+                new Environment("test", new JdbcTransactionFactory(), dataSource));
+        configuration.setMapUnderscoreToCamelCase(true);
+        configuration.addMapper(WareSkuMapper.class);
+        SqlSessionFactory factory = new MybatisSqlSessionFactoryBuilder().build(configuration);
+        session = factory.openSession(true);
+        wareSkuMapper = session.getMapper(WareSkuMapper.class);
+
+        try (Statement statement = session.getConnection().createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS wms_ware_sku");
+            statement.execute("CREATE TABLE wms_ware_sku (id BIGINT PRIMARY KEY, sku_id BIGINT, ware_id BIGINT, " +
+                    "bucket INT, stock INT, stock_locked INT, status INT, deleted INT, version INT)");
+            // 1、2为SKU 1的两个仓库，3为已停用的库存行，4为已删除的库存行
+            statement.execute("INSERT INTO wms_ware_sku VALUES " +
+                    "(1, 1, 1, 0, 10, 2, 1, 0, 0), (2, 1, 2, 0, 5, 4, 1, 0, 0), " +
+                    "(3, 2, 1, 0, 8, 3, 0, 0, 0), (4, 2, 2, 0, 8, 3, 1, 1, 0)");
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        session.close();
+    }
+
+    @Test
+    void batchLockStock_checkAvailableSkipsShortRows() throws SQLException {
+        // 行2可用库存为1，不足2
+        int updated = wareSkuMapper.batchLockStock(changes(1L, 3, 2L, 2), true);
+
+        assertEquals(1, updated);
+        Map<Long, String> rows = rows();
+        assertEquals("10|5|1", rows.get(1L));
+        assertEquals("5|4|0", rows.get(2L));
+    }
+
+    @Test
+    void batchLockStock_withoutCheckLocksAllRows() throws SQLException {
+        int updated = wareSkuMapper.batchLockStock(changes(1L, 3, 2L, 2), false);
+
+        assertEquals(2, updated);
+        Map<Long, String> rows = rows();
+        assertEquals("10|5|1", rows.get(1L));
+        assertEquals("5|6|1", rows.get(2L));
+    }
+
+    @Test
+    void batchUnlockStock_skipsRowsWithInsufficientLocked() throws SQLException {
+        // 行2锁定数量为4，不足5
+        int updated = wareSkuMapper.batchUnlockStock(changes(1L, 2, 2L, 5));
+
+        assertEquals(1, updated);
+        Map<Long, String> rows = rows();
+        assertEquals("10|0|1", rows.get(1L));
+        assertEquals("5|4|0", rows.get(2L));
+    }
+
+    @Test
+    void batchLockAndUnlock_ignoreDeletedRows() throws SQLException {
+        assertEquals(0, wareSkuMapper.batchLockStock(changes(4L, 1), false));
+        assertEquals(0, wareSkuMapper.batchUnlockStock(changes(4L, 1)));
+        assertEquals("8|3|0", rows().get(4L));
+    }
+
+    @Test
+    void selectForLock_returnsActiveRowsInIdOrder() {
+        List<Long> ids = wareSkuMapper.selectForLock(List.of(2L, 1L)).stream()
+                .map(WareSku::getId).collect(Collectors.toList());
+
+        assertEquals(List.of(1L, 2L), ids);
+    }
+
+    @Test
+    void selectBucketedRows_returnsAllBucketsOfSplitGroups() throws SQLException {
+        try (Statement statement = session.getConnection().createStatement()) {
+            // 行5为SKU 1仓库1的分桶1
+            statement.execute("INSERT INTO wms_ware_sku VALUES (5, 1, 1, 1, 0, 0, 1, 0, 0)");
+        }
+
+        List<Long> ids = wareSkuMapper.selectBucketedRows().stream()
+                .map(WareSku::getId).collect(Collectors.toList());
+
+        // 主桶1一并返回，未拆分的仓库2不返回
+        assertEquals(List.of(1L, 5L), ids);
+    }
+
+    private static Map<Long, Integer> changes(Object... idAndQuantity) {
+        Map<Long, Integer> changes = new LinkedHashMap<>();
+        for (int i = 0; i < idAndQuantity.length; i += 2) {
+            changes.put((Long) idAndQuantity[i], (Integer) idAndQuantity[i + 1]);
+        }
+        return changes;
+    }
+
+    /**
+     * 库存行ID -> 库存|锁定|版本
+     */
+    private Map<Long, String> rows() throws SQLException {
+        Map<Long, String> rows = new HashMap<>();
+        try (Statement statement = session.getConnection().createStatement();
+             ResultSet rs = statement.executeQuery("SELECT id, stock, stock_locked, version FROM wms_ware_sku")) {
+            while (rs.next()) {
+                rows.put(rs.getLong("id"),
+                        rs.getInt("stock") + "|" + rs.getInt("stock_locked") + "|" + rs.getInt("version"));
+            }
+        }
+        return rows;
+    }
+}
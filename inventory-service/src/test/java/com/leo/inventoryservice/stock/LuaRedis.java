@@ -0,0 +1,135 @@
+package com.leo.inventoryservice.stock;
+
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.VarArgFunction;
+import org.luaj.vm2.lib.jse.JsePlatform;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * 测试用的内存Redis：在luaj中执行库存Lua脚本
+ * 只实现脚本用到的Hash与List命令，返回值按Redis的Lua类型转换规则转换
+ */
+class LuaRedis {
+
+    final Map<String, Map<String, String>> hashes = new HashMap<>();
+    final Map<String, List<String>> lists = new HashMap<>();
+
+    /**
+     * 执行resources下的脚本
+     *
+     * @return 字符串、Long、List或null
+     */
+    Object eval(String script, List<String> keys, List<String> args) {
+        Globals globals = JsePlatform.standardGlobals();
+        LuaTable redis = new LuaTable();
+        redis.set("call", new VarArgFunction() {
+            @Override
+            public Varargs invoke(Varargs varargs) {
+                String[] command = new String[varargs.narg()];
+                for (int i = 0; i < command.length; i++) {
+                    command[i] = varargs.arg(i + 1).tojstring();
+                }
+                return execute(command);
+            }
+        });
+        globals.set("redis", redis);
+        globals.set("KEYS", table(keys));
+        globals.set("ARGV", table(args));
+        try {
+            String source = new String(new ClassPathResource(script).getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            return toJava(globals.load(source, script).call());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    Map<String, String> hash(String key) {
+        return hashes.computeIfAbsent(key, k -> new HashMap<>());
+    }
+
+    List<String> list(String key) {
+        return lists.computeIfAbsent(key, k -> new ArrayList<>());
+    }
+
+    private LuaValue execute(String[] command) {
+        String key = command[1];
+        switch (command[0].toUpperCase()) {
+            case "EXISTS":
+                return LuaValue.valueOf(hashes.containsKey(key) || lists.containsKey(key) ? 1 : 0);
+            case "HGET": {
+                String value = hashes.getOrDefault(key, Map.of()).get(command[2]);
+                return value == null ? LuaValue.FALSE : LuaValue.valueOf(value);
+            }
+            case "HGETALL": {
+                List<String> flat = new ArrayList<>();
+                hashes.getOrDefault(key, Map.of()).forEach((field, value) -> {
+                    flat.add(field);
+                    flat.add(value);
+                });
+                return table(flat);
+            }
+            case "HSET":
+                return LuaValue.valueOf(hash(key).put(command[2], command[3]) == null ? 1 : 0);
+            case "HINCRBY": {
+                long value = Long.parseLong(hash(key).getOrDefault(command[2], "0")) + Long.parseLong(command[3]);
+                hash(key).put(command[2], String.valueOf(value));
+                return LuaValue.valueOf(value);
+            }
+            case "RPUSH":
+                list(key).addAll(Arrays.asList(command).subList(2, command.length));
+                return LuaValue.valueOf(list(key).size());
+            case "LRANGE":
+                return table(range(lists.getOrDefault(key, List.of()), Integer.parseInt(command[2]), Integer.parseInt(command[3])));
+            case "LTRIM": {
+                List<String> kept = range(list(key), Integer.parseInt(command[2]), Integer.parseInt(command[3]));
+                if (kept.isEmpty()) {
+                    lists.remove(key);
+                } else {
+                    lists.put(key, new ArrayList<>(kept));
+                }
+                return LuaValue.valueOf("OK");
+            }
+            default:
+                throw new UnsupportedOperationException(command[0]);
+        }
+    }
+
+    private static List<String> range(List<String> list, int start, int stop) {
+        int size = list.size();
+        int from = Math.max(0, start < 0 ? size + start : start);
+        int to = Math.min(size - 1, stop < 0 ? size + stop : stop);
+        return from > to ? List.of() : new ArrayList<>(list.subList(from, to + 1));
+    }
+
+    private static LuaTable table(List<String> values) {
+        LuaTable table = new LuaTable();
+        for (int i = 0; i < values.size(); i++) {
+            table.set(i + 1, LuaValue.valueOf(values.get(i)));
+        }
+        return table;
+    }
+
+    private static Object toJava(LuaValue value) {
+        if (value.istable()) {
+            List<Object> list = new ArrayList<>();
+            for (int i = 1; i <= value.length(); i++) {
+                list.add(toJava(value.get(i)));
+            }
+            return list;
+        }
+        if (value.type() == LuaValue.TNUMBER) {
+            return value.tolong();
+        }
+        if (value.type() == LuaValue.TSTRING) {
+            return value.tojstring();
+        }
+        return null;
+    }
+}
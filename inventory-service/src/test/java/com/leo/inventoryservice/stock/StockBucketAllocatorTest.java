@@ -0,0 +1,116 @@
+package com.leo.inventoryservice.stock;
+
+import com.leo.inventoryservice.entity.WareSku;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 库存分桶分配测试
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+public class StockBucketAllocatorTest {
+
+    private static final Long SKU_ID = 999L;
+
+    @Test
+    void allocate_singleBucket() {
+        WareSku row = row(1L, 1L, null, 10);
+        Map<Long, Integer> allocated = new HashMap<>();
+
+        List<StockBucketAllocator.Allocation> result = StockBucketAllocator.allocate(List.of(row), null, 4, 7, allocated);
+
+        assertEquals(1, result.size());
+        assertSame(row, result.get(0).row());
+        assertEquals(4, result.get(0).quantity());
+        assertEquals(Map.of(1L, 4), allocated);
+    }
+
+    @Test
+    void allocate_startsAtSeedBucket() {
+        List<WareSku> rows = List.of(row(12L, 1L, 2, 10), row(10L, 1L, 0, 10), row(11L, 1L, 1, 10));
+
+        // 分桶按桶号排序后从 seed % 分桶数 开始，负数种子取模后非负
+        assertEquals(1, bucketOf(StockBucketAllocator.allocate(rows, null, 1, 1, new HashMap<>())));
+        assertEquals(2, bucketOf(StockBucketAllocator.allocate(rows, null, 1, -1, new HashMap<>())));
+        assertEquals(0, bucketOf(StockBucketAllocator.allocate(rows, null, 1, 3, new HashMap<>())));
+    }
+
+    @Test
+    void allocate_fallsBackToSiblingBucket() {
+        List<WareSku> rows = List.of(row(10L, 1L, 0, 1), row(11L, 1L, 1, 10));
+
+        List<StockBucketAllocator.Allocation> result = StockBucketAllocator.allocate(rows, null, 5, 0, new HashMap<>());
+
+        assertEquals(1, result.size());
+        assertEquals(11L, result.get(0).row().getId());
+    }
+
+    @Test
+    void allocate_splitsAcrossBucketsWhenNoneIsEnough() {
+        List<WareSku> rows = List.of(row(10L, 1L, 0, 3), row(11L, 1L, 1, 3), row(12L, 1L, 2, 3));
+        Map<Long, Integer> allocated = new HashMap<>();
+
+        List<StockBucketAllocator.Allocation> result = StockBucketAllocator.allocate(rows, null, 7, 1, allocated);
+
+        // 从分桶1开始依次取满
+        assertEquals(List.of(11L, 12L, 10L), result.stream().map(a -> a.row().getId()).collect(Collectors.toList()));
+        assertEquals(List.of(3, 3, 1), result.stream().map(StockBucketAllocator.Allocation::quantity).collect(Collectors.toList()));
+        assertEquals(Map.of(10L, 1, 11L, 3, 12L, 3), allocated);
+    }
+
+    @Test
+    void allocate_countsQuantityAlreadyAllocatedInOrder() {
+        List<WareSku> rows = List.of(row(10L, 1L, 0, 5), row(11L, 1L, 1, 5));
+        Map<Long, Integer> allocated = new HashMap<>();
+
+        StockBucketAllocator.allocate(rows, null, 4, 0, allocated);
+        List<StockBucketAllocator.Allocation> second = StockBucketAllocator.allocate(rows, null, 4, 0, allocated);
+
+        // 分桶0只剩1，同一订单的第二个明细落到分桶1
+        assertEquals(1, second.size());
+        assertEquals(11L, second.get(0).row().getId());
+        assertEquals(Map.of(10L, 4, 11L, 4), allocated);
+    }
+
+    @Test
+    void allocate_prefersWarehouseWithMostStock() {
+        List<WareSku> rows = List.of(row(10L, 1L, 0, 5), row(20L, 2L, 0, 50));
+
+        assertEquals(20L, StockBucketAllocator.allocate(rows, null, 1, 0, new HashMap<>()).get(0).row().getId());
+        assertEquals(10L, StockBucketAllocator.allocate(rows, 1L, 1, 0, new HashMap<>()).get(0).row().getId());
+    }
+
+    @Test
+    void allocate_insufficientReturnsEmptyAndLeavesAllocatedUnchanged() {
+        List<WareSku> rows = List.of(row(10L, 1L, 0, 3), row(11L, 1L, 1, 3), row(20L, 2L, 0, 4));
+        Map<Long, Integer> allocated = new HashMap<>();
+
+        // 仓库之间不拆分
+        assertTrue(StockBucketAllocator.allocate(rows, null, 7, 0, allocated).isEmpty());
+        assertTrue(allocated.isEmpty());
+    }
+
+    private static int bucketOf(List<StockBucketAllocator.Allocation> result) {
+        assertEquals(1, result.size());
+        return StockBucketAllocator.bucketOf(result.get(0).row());
+    }
+
+    private static WareSku row(Long id, Long wareId, Integer bucket, int available) {
+        WareSku wareSku = new WareSku();
+        wareSku.setId(id);
+        wareSku.setSkuId(SKU_ID);
+        wareSku.setWareId(wareId);
+        wareSku.setBucket(bucket);
+        wareSku.setStock(available + 2);
+        wareSku.setStockLocked(2);
+        return wareSku;
+    }
+}
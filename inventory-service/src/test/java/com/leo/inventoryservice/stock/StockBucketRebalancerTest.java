@@ -0,0 +1,122 @@
+package com.leo.inventoryservice.stock;
+
+import com.leo.inventoryservice.config.InventoryConfig;
+import com.leo.inventoryservice.entity.WareSku;
+import com.leo.inventoryservice.mapper.WareSkuMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 单元测试：StockBucketRebalancer（mock Mapper）
+ * 不加锁读取后只锁定需要拆分或倾斜的(SKU, 仓库)，均衡与已拆分的分桶不加行锁
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class StockBucketRebalancerTest {
+
+    @Mock
+    private WareSkuMapper wareSkuMapper;
+
+    @Mock
+    private RedissonClient redissonClient;
+
+    @Mock
+    private RLock lock;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private InventoryConfig inventoryConfig;
+
+    private StockBucketRebalancer rebalancer;
+
+    @BeforeEach
+    public void setUp() {
+        inventoryConfig = new InventoryConfig();
+        inventoryConfig.getBucket().setEnabled(true);
+        rebalancer = new StockBucketRebalancer(wareSkuMapper, redissonClient, inventoryConfig, transactionManager);
+        when(redissonClient.getLock(anyString())).thenReturn(lock);
+        when(lock.tryLock()).thenReturn(true);
+        when(lock.isHeldByCurrentThread()).thenReturn(true);
+    }
+
+    @Test
+    void rebalance_locksOnlySkewedGroups() {
+        // SKU 1仓库1均衡，SKU 2仓库1分桶1可用库存为0
+        when(wareSkuMapper.selectBucketedRows()).thenReturn(List.of(
+                row(11L, 1L, 1L, 0, 10, 0), row(12L, 1L, 1L, 1, 9, 0),
+                row(21L, 2L, 1L, 0, 12, 2), row(22L, 2L, 1L, 1, 3, 3)));
+        when(wareSkuMapper.selectBucketsForUpdate(2L, 1L)).thenReturn(new ArrayList<>(List.of(
+                row(21L, 2L, 1L, 0, 12, 2), row(22L, 2L, 1L, 1, 3, 3))));
+
+        assertEquals(1, rebalancer.rebalance());
+
+        verify(wareSkuMapper, never()).selectBucketsForUpdate(eq(1L), any());
+        // 可用库存10均分，实际库存 = 锁定 + 5
+        verify(wareSkuMapper).batchSetStock(Map.of(21L, 7, 22L, 8));
+    }
+
+    @Test
+    void rebalance_skipsGroupBalancedAfterLocking() {
+        when(wareSkuMapper.selectBucketedRows()).thenReturn(List.of(
+                row(21L, 2L, 1L, 0, 12, 2), row(22L, 2L, 1L, 1, 3, 3)));
+        // 读取后已被调整均衡
+        when(wareSkuMapper.selectBucketsForUpdate(2L, 1L)).thenReturn(new ArrayList<>(List.of(
+                row(21L, 2L, 1L, 0, 7, 2), row(22L, 2L, 1L, 1, 8, 3))));
+
+        assertEquals(0, rebalancer.rebalance());
+
+        verify(wareSkuMapper, never()).batchSetStock(anyMap());
+    }
+
+    @Test
+    void split_locksOnlyWaresMissingBuckets() {
+        inventoryConfig.getBucket().setHotSkuIds(List.of(1L));
+        inventoryConfig.getBucket().setBucketCount(2);
+        when(wareSkuMapper.selectBucketedRows()).thenReturn(List.of());
+        // 仓库1已拆分，仓库2只有主桶
+        when(wareSkuMapper.selectBuckets(1L)).thenReturn(List.of(
+                row(11L, 1L, 1L, 0, 5, 0), row(12L, 1L, 1L, 1, 5, 0), row(13L, 1L, 2L, 0, 10, 0)));
+        when(wareSkuMapper.selectBucketsForUpdate(1L, 2L)).thenReturn(new ArrayList<>(List.of(
+                row(13L, 1L, 2L, 0, 10, 0))));
+        when(wareSkuMapper.insert(any(WareSku.class))).thenAnswer(invocation -> {
+            invocation.<WareSku>getArgument(0).setId(14L);
+            return 1;
+        });
+
+        rebalancer.rebalance();
+
+        verify(wareSkuMapper, never()).selectBucketsForUpdate(1L, 1L);
+        verify(wareSkuMapper, never()).selectBucketsForUpdate(1L, null);
+        verify(wareSkuMapper, times(1)).insert(any(WareSku.class));
+        verify(wareSkuMapper).batchSetStock(Map.of(13L, 5, 14L, 5));
+    }
+
+    private static WareSku row(Long id, Long skuId, Long wareId, int bucket, int stock, int locked) {
+        WareSku row = new WareSku();
+        row.setId(id);
+        row.setSkuId(skuId);
+        row.setWareId(wareId);
+        row.setBucket(bucket);
+        row.setStock(stock);
+        row.setStockLocked(locked);
+        row.setStatus(1);
+        return row;
+    }
+}
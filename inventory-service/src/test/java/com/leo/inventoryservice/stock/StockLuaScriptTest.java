@@ -0,0 +1,160 @@
+package com.leo.inventoryservice.stock;
+
+import com.leo.commoncore.constant.InventoryConstants;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 单元测试：库存预占、归还与回写领取Lua脚本（luaj执行，内存Redis）
+ * 预占整单原子，失败时不扣减任何明细；领取的记录在确认前重放
+ */
+public class StockLuaScriptTest {
+
+    private static final String QUEUE = InventoryConstants.STOCK_RESERVE_QUEUE;
+    private static final String PROCESSING = InventoryConstants.STOCK_RESERVE_PROCESSING;
+    private static final String PENDING = InventoryConstants.STOCK_RESERVE_PENDING;
+
+    private LuaRedis redis;
+
+    @BeforeEach
+    public void setUp() {
+        redis = new LuaRedis();
+        warm(1L, Map.of("1", "10", "2", "5"));
+        warm(2L, Map.of("1", "2"));
+    }
+
+    @Test
+    void reserve_picksWareWithMostStockAndQueuesRecord() {
+        Object result = reserve(100L, item(1L, 3, null), item(2L, 2, 1L));
+
+        assertEquals(List.of("1", "1", "1"), result);
+        assertEquals("7", redis.hash(available(1L)).get("1"));
+        assertEquals("0", redis.hash(available(2L)).get("1"));
+        assertEquals(List.of("R|100|1:1:3,2:1:2"), redis.list(QUEUE));
+        assertEquals("R|100|1:1:3,2:1:2", redis.hash(PENDING).get("100"));
+    }
+
+    @Test
+    void reserve_countsEarlierItemsOfSameOrder() {
+        // 同一SKU的第二个明细扣除第一个明细已占用的数量后重新选择仓库
+        Object result = reserve(100L, item(1L, 6, null), item(1L, 5, null));
+
+        assertEquals(List.of("1", "1", "2"), result);
+        assertEquals("4", redis.hash(available(1L)).get("1"));
+        assertEquals("0", redis.hash(available(1L)).get("2"));
+    }
+
+    @Test
+    void reserve_insufficientReservesNothing() {
+        Object result = reserve(100L, item(1L, 3, null), item(2L, 3, 1L));
+
+        assertEquals(List.of("-2", "2"), result);
+        assertEquals("10", redis.hash(available(1L)).get("1"));
+        assertEquals("2", redis.hash(available(2L)).get("1"));
+        assertTrue(redis.list(QUEUE).isEmpty());
+        assertFalse(redis.hash(PENDING).containsKey("100"));
+    }
+
+    @Test
+    void reserve_specifiedWareIsNotSubstituted() {
+        assertEquals(List.of("-2", "1"), reserve(100L, item(1L, 6, 2L)));
+        assertEquals("5", redis.hash(available(1L)).get("2"));
+    }
+
+    @Test
+    void reserve_reportsSkuNotWarmedUp() {
+        assertEquals(List.of("-1", "2"), reserve(100L, item(1L, 1, null), item(3L, 1, null)));
+        assertEquals("10", redis.hash(available(1L)).get("1"));
+    }
+
+    @Test
+    void release_returnsStockAndAppendsCancelRecord() {
+        reserve(100L, item(1L, 3, null), item(2L, 2, 1L));
+
+        Object result = redis.eval("lua/stock_release.lua",
+                List.of(available(1L), available(2L), available(3L), QUEUE),
+                List.of("1", "3", "1", "2", "1", "4", "C|100"));
+
+        assertEquals(3L, result);
+        assertEquals("10", redis.hash(available(1L)).get("1"));
+        assertEquals("2", redis.hash(available(2L)).get("1"));
+        // 未预热的SKU不创建
+        assertFalse(redis.hashes.containsKey(available(3L)));
+        assertEquals(List.of("R|100|1:1:3,2:1:2", "C|100"), redis.list(QUEUE));
+    }
+
+    @Test
+    void release_withoutRecordOnlyReturnsStock() {
+        redis.eval("lua/stock_release.lua", List.of(available(1L), QUEUE), List.of("2", "1", ""));
+
+        assertEquals("6", redis.hash(available(1L)).get("2"));
+        assertFalse(redis.lists.containsKey(QUEUE));
+    }
+
+    @Test
+    void claim_movesBatchToProcessing() {
+        redis.list(QUEUE).addAll(List.of("R|1|1:1:1", "R|2|1:1:1", "R|3|1:1:1"));
+
+        assertEquals(List.of("R|1|1:1:1", "R|2|1:1:1"), claim(2));
+        assertEquals(List.of("R|3|1:1:1"), redis.list(QUEUE));
+        assertEquals(List.of("R|1|1:1:1", "R|2|1:1:1"), redis.list(PROCESSING));
+    }
+
+    @Test
+    void claim_replaysUnacknowledgedBatchFirst() {
+        redis.list(QUEUE).addAll(List.of("R|1|1:1:1", "R|2|1:1:1", "R|3|1:1:1"));
+        claim(2);
+
+        // 上一批未确认（处理中队列未删除），再次领取得到同一批，回写队列不变
+        assertEquals(List.of("R|1|1:1:1", "R|2|1:1:1"), claim(2));
+        assertEquals(List.of("R|3|1:1:1"), redis.list(QUEUE));
+
+        redis.lists.remove(PROCESSING);
+        assertEquals(List.of("R|3|1:1:1"), claim(2));
+        assertFalse(redis.lists.containsKey(QUEUE));
+    }
+
+    @Test
+    void claim_emptyQueueReturnsEmpty() {
+        assertEquals(List.of(), claim(10));
+        assertFalse(redis.lists.containsKey(PROCESSING));
+    }
+
+    private Object reserve(Long taskId, String[]... items) {
+        List<String> keys = new ArrayList<>();
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(taskId));
+        for (String[] item : items) {
+            keys.add(available(Long.valueOf(item[0])));
+            args.add(item[0]);
+            args.add(item[1]);
+            args.add(item[2]);
+        }
+        keys.add(QUEUE);
+        keys.add(PENDING);
+        return redis.eval("lua/stock_reserve.lua", keys, args);
+    }
+
+    private Object claim(int batchSize) {
+        return redis.eval("lua/stock_reserve_claim.lua", List.of(QUEUE, PROCESSING), List.of(String.valueOf(batchSize)));
+    }
+
+    private void warm(Long skuId, Map<String, String> available) {
+        redis.hash(available(skuId)).put("_", "0");
+        redis.hash(available(skuId)).putAll(available);
+    }
+
+    private static String[] item(Long skuId, int quantity, Long wareId) {
+        return new String[]{String.valueOf(skuId), String.valueOf(quantity), wareId == null ? "" : String.valueOf(wareId)};
+    }
+
+    private static String available(Long skuId) {
+        return InventoryConstants.STOCK_AVAILABLE_PREFIX + skuId;
+    }
+}
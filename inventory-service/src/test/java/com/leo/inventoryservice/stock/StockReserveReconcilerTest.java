@@ -0,0 +1,288 @@
+package com.leo.inventoryservice.stock;
+
+import com.leo.commoncore.constant.InventoryConstants;
+import com.leo.commoncore.exception.BizException;
+import com.leo.inventoryservice.config.InventoryConfig;
+import com.leo.inventoryservice.entity.WareOrderTask;
+import com.leo.inventoryservice.entity.WareOrderTaskDetail;
+import com.leo.inventoryservice.entity.WareSku;
+import com.leo.inventoryservice.mapper.WareLogMapper;
+import com.leo.inventoryservice.mapper.WareOrderTaskDetailMapper;
+import com.leo.inventoryservice.mapper.WareOrderTaskMapper;
+import com.leo.inventoryservice.mapper.WareSkuMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 单元测试：StockReserveReconciler（mock Mapper与Redis）
+ * 回写按可用库存校验并锁定库存行，重放跳过已回写的工作单，无法回写的工作单整单撤销并归还预占
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class StockReserveReconcilerTest {
+
+    @Mock
+    private WareSkuMapper wareSkuMapper;
+
+    @Mock
+    private WareOrderTaskMapper wareOrderTaskMapper;
+
+    @Mock
+    private WareOrderTaskDetailMapper wareOrderTaskDetailMapper;
+
+    @Mock
+    private WareLogMapper wareLogMapper;
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    @Mock
+    private RedissonClient redissonClient;
+
+    @Mock
+    private RLock lock;
+
+    @Mock
+    private StockIndexSyncer stockIndexSyncer;
+
+    @Mock
+    private StockEventWriter stockEventWriter;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private StockReserveReconciler reconciler;
+
+    /**
+     * 依次领取的批次
+     */
+    private final Deque<List<String>> batches = new ArrayDeque<>();
+
+    /**
+     * 执行归还脚本时的KEYS与ARGV
+     */
+    private final List<List<String>> releases = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        reconciler = new StockReserveReconciler(wareSkuMapper, wareOrderTaskMapper, wareOrderTaskDetailMapper,
+                wareLogMapper, stringRedisTemplate, redissonClient, new InventoryConfig(), stockIndexSyncer,
+                stockEventWriter, transactionManager);
+        when(redissonClient.getLock(InventoryConstants.STOCK_RECONCILE_LOCK)).thenReturn(lock);
+        when(lock.tryLock(0, TimeUnit.SECONDS)).thenReturn(true);
+        when(lock.isHeldByCurrentThread()).thenReturn(true);
+        when(stringRedisTemplate.opsForHash()).thenReturn(hashOperations);
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenAnswer(invocation -> {
+            DefaultRedisScript<?> script = invocation.getArgument(0);
+            if (script.getResultType() == List.class) {
+                return batches.isEmpty() ? List.of() : batches.poll();
+            }
+            List<String> call = new ArrayList<>(invocation.<List<String>>getArgument(1));
+            for (Object arg : (Object[]) invocation.getRawArguments()[2]) {
+                call.add(arg.toString());
+            }
+            releases.add(call);
+            return 1L;
+        });
+        when(wareOrderTaskDetailMapper.selectTaskIdsWithDetail(anyList())).thenReturn(List.of());
+        when(wareSkuMapper.batchLockStock(anyMap(), anyBoolean()))
+                .thenAnswer(invocation -> invocation.<Map<?, ?>>getArgument(0).size());
+    }
+
+    @Test
+    void flush_locksRowsAndWritesCheckedQuantities() {
+        batches.add(List.of("R|100|1:1:3", "R|101|1:1:4,2:1:1"));
+        lockedTasks(100L, 101L);
+        rows(row(11L, 1L, 1L, 10, 2), row(21L, 2L, 1L, 5, 0));
+
+        assertEquals(2, reconciler.flush());
+
+        verify(wareSkuMapper).selectForLock(argThat(ids -> new HashSet<>(ids).equals(Set.of(1L, 2L))));
+        verify(wareSkuMapper).batchLockStock(Map.of(11L, 7, 21L, 1), true);
+        List<WareOrderTaskDetail> details = insertedDetails();
+        assertEquals(3, details.size());
+        assertTrue(details.stream().allMatch(d -> d.getLockStatus() == InventoryConstants.LockStatus.LOCKED));
+        verify(wareOrderTaskMapper, never()).batchMarkUnlocked(anyList(), any(), anyString());
+        // 提交后确认
+        verify(stringRedisTemplate).delete(InventoryConstants.STOCK_RESERVE_PROCESSING);
+        assertEquals(Set.of("100", "101"), removedPending());
+        verify(stockIndexSyncer).markDirty(Set.of(1L, 2L));
+        assertTrue(releases.isEmpty());
+    }
+
+    @Test
+    void flush_replaySkipsTasksAlreadyWritten() {
+        batches.add(List.of("R|100|1:1:3", "R|101|1:1:4"));
+        lockedTasks(100L, 101L);
+        when(wareOrderTaskDetailMapper.selectTaskIdsWithDetail(anyList())).thenReturn(List.of(100L));
+        rows(row(11L, 1L, 1L, 10, 0));
+
+        reconciler.flush();
+
+        verify(wareSkuMapper).batchLockStock(Map.of(11L, 4), true);
+        assertEquals(Set.of(101L), insertedDetails().stream().map(WareOrderTaskDetail::getTaskId).collect(Collectors.toSet()));
+    }
+
+    @Test
+    void flush_skipsTasksNoLongerLocked() {
+        // 工作单已解锁、已扣减或锁定事务已回滚
+        batches.add(List.of("R|100|1:1:3"));
+        lockedTasks();
+
+        assertEquals(1, reconciler.flush());
+
+        verify(wareSkuMapper, never()).selectForLock(anyList());
+        verify(wareSkuMapper, never()).batchLockStock(anyMap(), anyBoolean());
+        verify(wareOrderTaskDetailMapper, never()).insertBatch(anyList());
+        verify(stringRedisTemplate).delete(InventoryConstants.STOCK_RESERVE_PROCESSING);
+    }
+
+    @Test
+    void flush_missingRowRejectsWholeTaskAndReleasesReservation() {
+        batches.add(List.of("R|100|1:1:3,9:1:2", "R|101|1:1:4"));
+        lockedTasks(100L, 101L);
+        rows(row(11L, 1L, 1L, 10, 0));
+
+        reconciler.flush();
+
+        // 工作单100整单不落库，不记到任何库存行
+        verify(wareSkuMapper).batchLockStock(Map.of(11L, 4), true);
+        assertEquals(Set.of(101L), insertedDetails().stream().map(WareOrderTaskDetail::getTaskId).collect(Collectors.toSet()));
+        verify(wareOrderTaskMapper).batchMarkUnlocked(eq(List.of(100L)), any(), anyString());
+        verify(stockEventWriter).unlocked(argThat(tasks -> tasks.size() == 1 && tasks.get(0).getId().equals(100L)));
+        assertEquals(List.of(List.of(available(1L), available(9L), InventoryConstants.STOCK_RESERVE_QUEUE,
+                "1", "3", "1", "2", "C|100")), releases);
+    }
+
+    @Test
+    void flush_insufficientRowIsNotChargedToMainBucket() {
+        batches.add(List.of("R|100|1:1:3"));
+        lockedTasks(100L);
+        rows(row(10L, 1L, 1L, 0, 2, 2), row(11L, 1L, 1L, 1, 2, 0));
+
+        reconciler.flush();
+
+        verify(wareSkuMapper, never()).batchLockStock(anyMap(), anyBoolean());
+        verify(wareOrderTaskDetailMapper, never()).insertBatch(anyList());
+        verify(wareOrderTaskMapper).batchMarkUnlocked(eq(List.of(100L)), any(), anyString());
+        assertEquals(1, releases.size());
+        assertEquals("C|100", releases.get(0).get(releases.get(0).size() - 1));
+        verify(stockIndexSyncer, never()).markDirty(any());
+    }
+
+    @Test
+    void flush_rollsBackWhenRowChangedOutsideLock() {
+        batches.add(List.of("R|100|1:1:3"));
+        lockedTasks(100L);
+        rows(row(11L, 1L, 1L, 10, 0));
+        when(wareSkuMapper.batchLockStock(anyMap(), anyBoolean())).thenReturn(0);
+
+        assertThrows(BizException.class, () -> reconciler.flush());
+
+        // 未确认，下次领取时重放
+        verify(stringRedisTemplate, never()).delete(InventoryConstants.STOCK_RESERVE_PROCESSING);
+        verify(lock).unlock();
+    }
+
+    @Test
+    void flush_returnsImmediatelyWhenAnotherNodeIsFlushing() throws InterruptedException {
+        when(lock.tryLock(0, TimeUnit.SECONDS)).thenReturn(false);
+        when(lock.isHeldByCurrentThread()).thenReturn(false);
+        batches.add(List.of("R|100|1:1:3"));
+
+        assertEquals(0, reconciler.flush());
+
+        assertEquals(1, batches.size());
+        verify(lock, never()).unlock();
+    }
+
+    @Test
+    void applyPending_returnsRejectedTasks() {
+        when(hashOperations.multiGet(eq(InventoryConstants.STOCK_RESERVE_PENDING), anyCollection()))
+                .thenReturn(Arrays.asList("R|100|1:1:3", "R|101|1:1:20", null));
+        lockedTasks(101L);
+        rows(row(11L, 1L, 1L, 10, 0));
+
+        Set<Long> rejected = reconciler.applyPending(List.of(100L, 101L, 102L));
+
+        assertEquals(Set.of(101L), rejected);
+        verify(wareSkuMapper).batchLockStock(Map.of(11L, 3), true);
+        assertEquals(Set.of("100", "101"), removedPending());
+    }
+
+    private void lockedTasks(Long... taskIds) {
+        List<WareOrderTask> tasks = Arrays.stream(taskIds).map(id -> {
+            WareOrderTask task = new WareOrderTask();
+            task.setId(id);
+            task.setOrderSn("order-" + id);
+            return task;
+        }).collect(Collectors.toList());
+        when(wareOrderTaskMapper.selectLockedForUpdate(anyList())).thenAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(0);
+            return tasks.stream().filter(task -> ids.contains(task.getId())).collect(Collectors.toList());
+        });
+    }
+
+    private void rows(WareSku... rows) {
+        when(wareSkuMapper.selectForLock(anyList())).thenAnswer(invocation -> {
+            List<Long> skuIds = invocation.getArgument(0);
+            return Arrays.stream(rows).filter(row -> skuIds.contains(row.getSkuId())).collect(Collectors.toList());
+        });
+    }
+
+    private Set<Object> removedPending() {
+        ArgumentCaptor<Object[]> captor = ArgumentCaptor.forClass(Object[].class);
+        verify(hashOperations).delete(eq(InventoryConstants.STOCK_RESERVE_PENDING), captor.capture());
+        return new HashSet<>(Arrays.asList(captor.getValue()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<WareOrderTaskDetail> insertedDetails() {
+        ArgumentCaptor<List<WareOrderTaskDetail>> captor = ArgumentCaptor.forClass(List.class);
+        verify(wareOrderTaskDetailMapper).insertBatch(captor.capture());
+        return captor.getValue();
+    }
+
+    private static WareSku row(Long id, Long skuId, Long wareId, int stock, int locked) {
+        return row(id, skuId, wareId, 0, stock, locked);
+    }
+
+    private static WareSku row(Long id, Long skuId, Long wareId, int bucket, int stock, int locked) {
+        WareSku row = new WareSku();
+        row.setId(id);
+        row.setSkuId(skuId);
+        row.setWareId(wareId);
+        row.setBucket(bucket);
+        row.setStock(stock);
+        row.setStockLocked(locked);
+        return row;
+    }
+
+    private static String available(Long skuId) {
+        return InventoryConstants.STOCK_AVAILABLE_PREFIX + skuId;
+    }
+}
@@ -0,0 +1,225 @@
+package com.leo.inventoryservice.stock;
+
+import com.leo.commoncore.constant.InventoryConstants;
+import com.leo.commoncore.exception.BizException;
+import com.leo.inventoryservice.config.InventoryConfig;
+import com.leo.inventoryservice.entity.WareOrderTask;
+import com.leo.inventoryservice.entity.WareOrderTaskDetail;
+import com.leo.inventoryservice.entity.WareSku;
+import com.leo.inventoryservice.mapper.WareLogMapper;
+import com.leo.inventoryservice.mapper.WareOrderTaskDetailMapper;
+import com.leo.inventoryservice.mapper.WareOrderTaskMapper;
+import com.leo.inventoryservice.mapper.WareSkuMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 单元测试：StockUnlockSweeper（mock Mapper与分区租约）
+ * 按(lock_time, id)游标分页，跳过被其他节点持有的分区，库存行异常的工作单整单不解锁
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class StockUnlockSweeperTest {
+
+    private static final LocalDateTime LOCK_TIME = LocalDateTime.of(2025, 2, 3, 10, 0);
+
+    @Mock
+    private WareSkuMapper wareSkuMapper;
+
+    @Mock
+    private WareOrderTaskMapper wareOrderTaskMapper;
+
+    @Mock
+    private WareOrderTaskDetailMapper wareOrderTaskDetailMapper;
+
+    @Mock
+    private WareLogMapper wareLogMapper;
+
+    @Mock
+    private RedissonClient redissonClient;
+
+    @Mock
+    private RedisStockReserver redisStockReserver;
+
+    @Mock
+    private StockReserveReconciler stockReserveReconciler;
+
+    @Mock
+    private StockEventWriter stockEventWriter;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private InventoryConfig inventoryConfig;
+
+    private StockUnlockSweeper sweeper;
+
+    /**
+     * 分区 -> 租约
+     */
+    private final Map<Integer, RLock> leases = new HashMap<>();
+
+    @BeforeEach
+    public void setUp() {
+        inventoryConfig = new InventoryConfig();
+        sweeper = new StockUnlockSweeper(wareSkuMapper, wareOrderTaskMapper, wareOrderTaskDetailMapper, wareLogMapper,
+                redissonClient, inventoryConfig, redisStockReserver, stockReserveReconciler, stockEventWriter,
+                transactionManager, new SimpleMeterRegistry());
+        when(redissonClient.getLock(startsWith(InventoryConstants.STOCK_UNLOCK_SWEEP_LEASE))).thenAnswer(invocation -> {
+            String key = invocation.getArgument(0);
+            int partition = Integer.parseInt(key.substring(InventoryConstants.STOCK_UNLOCK_SWEEP_LEASE.length()));
+            return leases.computeIfAbsent(partition, p -> lease(true));
+        });
+        when(wareOrderTaskMapper.selectLockedForUpdate(anyList())).thenAnswer(invocation ->
+                invocation.<List<Long>>getArgument(0).stream().map(StockUnlockSweeperTest::task).collect(Collectors.toList()));
+        when(wareOrderTaskDetailMapper.selectLockedByTaskIds(anyList())).thenReturn(List.of());
+        when(wareSkuMapper.batchUnlockStock(anyMap())).thenAnswer(invocation -> invocation.<Map<?, ?>>getArgument(0).size());
+    }
+
+    @Test
+    void sweep_pagesByLockTimeAndIdCursor() {
+        inventoryConfig.getUnlockSweep().setPartitions(1);
+        inventoryConfig.getUnlockSweep().setBatchSize(2);
+        when(wareOrderTaskMapper.selectTimeoutPage(any(), isNull(), isNull(), eq(1), eq(0), eq(2)))
+                .thenReturn(List.of(task(1L), task(2L)));
+        when(wareOrderTaskMapper.selectTimeoutPage(any(), eq(LOCK_TIME.plusSeconds(2)), eq(2L), eq(1), eq(0), eq(2)))
+                .thenReturn(List.of(task(3L)));
+
+        assertEquals(3, sweeper.sweep(30));
+
+        // 第二页不足一批，不再查询第三页
+        verify(wareOrderTaskMapper, times(2)).selectTimeoutPage(any(), any(), any(), anyInt(), anyInt(), anyInt());
+        verify(wareOrderTaskMapper).batchMarkUnlocked(eq(List.of(1L, 2L)), any(), anyString());
+        verify(wareOrderTaskMapper).batchMarkUnlocked(eq(List.of(3L)), any(), anyString());
+        verify(leases.get(0)).unlock();
+    }
+
+    @Test
+    void sweep_skipsPartitionHeldByAnotherNode() throws InterruptedException {
+        inventoryConfig.getUnlockSweep().setPartitions(2);
+        leases.put(0, lease(false));
+        when(wareOrderTaskMapper.selectTimeoutPage(any(), any(), any(), anyInt(), anyInt(), anyInt())).thenReturn(List.of());
+
+        sweeper.sweep(30);
+
+        verify(wareOrderTaskMapper, never()).selectTimeoutPage(any(), any(), any(), eq(2), eq(0), anyInt());
+        verify(wareOrderTaskMapper).selectTimeoutPage(any(), any(), any(), eq(2), eq(1), anyInt());
+        verify(leases.get(1)).tryLock(0, inventoryConfig.getUnlockSweep().getLeaseSeconds(), TimeUnit.SECONDS);
+        verify(leases.get(0), never()).unlock();
+    }
+
+    @Test
+    void unlock_leavesTasksWithShortOrMissingRowsLocked() {
+        when(redisStockReserver.isEnabled()).thenReturn(true);
+        List<WareOrderTaskDetail> details = List.of(
+                detail(100L, 1L, 2),
+                detail(101L, 1L, 1),
+                detail(101L, 2L, 3),
+                detail(102L, 3L, 1));
+        when(wareOrderTaskDetailMapper.selectLockedByTaskIds(anyList())).thenReturn(details);
+        // SKU 2的锁定数量不足，SKU 3的库存记录不存在
+        when(wareSkuMapper.selectBySkuIdsForUpdate(anyCollection()))
+                .thenReturn(List.of(row(11L, 1L, 10, 3), row(21L, 2L, 10, 1)));
+
+        assertEquals(1, sweeper.unlock(List.of(100L, 101L, 102L)));
+
+        // 101的SKU 1明细也不解锁，工作单整单保持锁定
+        verify(wareSkuMapper).batchUnlockStock(Map.of(11L, 2));
+        verify(wareOrderTaskDetailMapper).batchUnlockByTaskIds(List.of(100L));
+        verify(wareOrderTaskMapper).batchMarkUnlocked(eq(List.of(100L)), any(), anyString());
+        verify(redisStockReserver).release(List.of(details.get(0)));
+        assertEquals(List.of(100L), unlockedTaskIds());
+    }
+
+    @Test
+    void unlock_allTasksFailedMarksNothing() {
+        when(wareOrderTaskDetailMapper.selectLockedByTaskIds(anyList())).thenReturn(List.of(detail(100L, 3L, 1)));
+        when(wareSkuMapper.selectBySkuIdsForUpdate(anyCollection())).thenReturn(List.of());
+
+        assertEquals(0, sweeper.unlock(List.of(100L)));
+
+        verify(wareSkuMapper, never()).batchUnlockStock(anyMap());
+        verify(wareOrderTaskMapper, never()).batchMarkUnlocked(anyList(), any(), anyString());
+        verify(stockEventWriter, never()).unlocked(anyList());
+    }
+
+    @Test
+    void unlock_rowCountMismatchRollsBackBatch() {
+        when(wareOrderTaskDetailMapper.selectLockedByTaskIds(anyList()))
+                .thenReturn(List.of(detail(100L, 1L, 2), detail(101L, 2L, 1)));
+        when(wareSkuMapper.selectBySkuIdsForUpdate(anyCollection()))
+                .thenReturn(List.of(row(11L, 1L, 10, 2), row(21L, 2L, 10, 1)));
+        when(wareSkuMapper.batchUnlockStock(anyMap())).thenReturn(1);
+
+        assertThrows(BizException.class, () -> sweeper.unlock(List.of(100L, 101L)));
+
+        verify(wareOrderTaskMapper, never()).batchMarkUnlocked(anyList(), any(), anyString());
+        verify(redisStockReserver, never()).release(anyList());
+        verify(transactionManager).rollback(any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> unlockedTaskIds() {
+        ArgumentCaptor<List<WareOrderTask>> captor = ArgumentCaptor.forClass(List.class);
+        verify(stockEventWriter).unlocked(captor.capture());
+        return captor.getValue().stream().map(WareOrderTask::getId).collect(Collectors.toList());
+    }
+
+    private static RLock lease(boolean acquired) {
+        RLock lease = mock(RLock.class);
+        try {
+            when(lease.tryLock(anyLong(), anyLong(), any(TimeUnit.class))).thenReturn(acquired);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        when(lease.isHeldByCurrentThread()).thenReturn(acquired);
+        return lease;
+    }
+
+    private static WareOrderTask task(Long id) {
+        WareOrderTask task = new WareOrderTask();
+        task.setId(id);
+        task.setOrderSn("order-" + id);
+        task.setLockTime(LOCK_TIME.plusSeconds(id));
+        return task;
+    }
+
+    private static WareOrderTaskDetail detail(Long taskId, Long skuId, int lockedNum) {
+        WareOrderTaskDetail detail = new WareOrderTaskDetail();
+        detail.setTaskId(taskId);
+        detail.setSkuId(skuId);
+        detail.setWareId(1L);
+        detail.setLockedNum(lockedNum);
+        return detail;
+    }
+
+    private static WareSku row(Long id, Long skuId, int stock, int locked) {
+        WareSku row = new WareSku();
+        row.setId(id);
+        row.setSkuId(skuId);
+        row.setWareId(1L);
+        row.setBucket(0);
+        row.setStock(stock);
+        row.setStockLocked(locked);
+        return row;
+    }
+}
@@ -0,0 +1,221 @@
+package com.leo.orderservice.cache;
+
+import cn.hutool.core.collection.CollUtil;
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.leo.orderservice.client.ProductFeignClient;
+import com.leo.orderservice.vo.clientVo.ProductSkuVO;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 商品SKU快照本地缓存
+ *
+ * 下单时校验价格需要SKU快照，热点商品每单都回源商品服务。这里在进程内缓存快照：
+ * 1. 短TTL过期，作为失效通知丢失时的兜底
+ * 2. 商品服务修改价格后经Redis发布订阅推送(skuId, version)，收到后失效本地条目，
+ *    同一SKU只处理比已见版本更新的通知，重复或乱序到达的旧通知直接丢弃
+ * 3. 未命中的SKU合并回源：同一SKU的并发请求共享同一个加载结果，
+ *    不同请求的未命中SKU在有空闲调用槽位时合并为一次getSkusByIds调用，调用槽位满时排队等待下一批
+ *
+ * 加载中的条目被失效时，Caffeine不会把加载结果写回缓存，不会缓存失效前读到的旧快照。
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Slf4j
+@Component
+public class ProductSkuCache implements MessageListener {
+
+    private final ProductFeignClient productFeignClient;
+    private final ExecutorService loader;
+    private final int batchSize;
+    private final int maxInFlight;
+
+    private final AsyncLoadingCache<Long, ProductSkuVO> cache;
+
+    /**
+     * 每个SKU已处理的最大变更版本
+     */
+    private final Cache<Long, Integer> versions;
+
+    /**
+     * 等待回源的SKU，按加入顺序分批
+     */
+    private final Map<Long, CompletableFuture<ProductSkuVO>> pending = new LinkedHashMap<>();
+    private int inFlight;
+
+    public ProductSkuCache(ProductFeignClient productFeignClient,
+                           @Value("${product.sku-cache.ttl:5000}") long ttl,
+                           @Value("${product.sku-cache.maximum-size:10000}") long maximumSize,
+                           @Value("${product.sku-cache.batch-size:100}") int batchSize,
+                           @Value("${product.sku-cache.max-in-flight:4}") int maxInFlight) {
+        this.productFeignClient = productFeignClient;
+        this.batchSize = batchSize;
+        this.maxInFlight = maxInFlight;
+        // 回源线程数等于调用槽位数，不与下单的远程调用线程池共用，避免等待快照的线程占满线程池
+        this.loader = Executors.newFixedThreadPool(maxInFlight, r -> {
+            Thread thread = new Thread(r, "sku-cache-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(ttl))
+                .maximumSize(maximumSize)
+                .buildAsync(new AsyncCacheLoader<>() {
+                    @Override
+                    public CompletableFuture<ProductSkuVO> asyncLoad(Long skuId, Executor executor) {
+                        return enqueue(List.of(skuId)).get(skuId);
+                    }
+
+                    @Override
+                    public CompletableFuture<Map<Long, ProductSkuVO>> asyncLoadAll(Set<? extends Long> skuIds,
+                                                                                  Executor executor) {
+                        Map<Long, CompletableFuture<ProductSkuVO>> futures = enqueue(skuIds);
+                        return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0]))
+                                .thenApply(ignored -> {
+                                    Map<Long, ProductSkuVO> loaded = new HashMap<>();
+                                    futures.forEach((skuId, future) -> {
+                                        ProductSkuVO sku = future.join();
+                                        if (sku != null) {
+                                            loaded.put(skuId, sku);
+                                        }
+                                    });
+                                    return loaded;
+                                });
+                    }
+                });
+        this.versions = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(ttl).multipliedBy(10))
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    /**
+     * 批量获取SKU快照
+     *
+     * @param skuIds SKU ID列表
+     * @return 存在的SKU快照，按传入顺序
+     */
+    public List<ProductSkuVO> getSkus(List<Long> skuIds) {
+        if (CollUtil.isEmpty(skuIds)) {
+            return Collections.emptyList();
+        }
+        Map<Long, ProductSkuVO> skus = cache.getAll(skuIds).join();
+        return skuIds.stream()
+                .distinct()
+                .map(skus::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 失效SKU快照
+     *
+     * @param skuId   SKU ID
+     * @param version 变更后的版本
+     * @return 是否为新版本
+     */
+    public boolean invalidate(Long skuId, int version) {
+        boolean[] newer = new boolean[1];
+        versions.asMap().compute(skuId, (id, seen) -> {
+            newer[0] = seen == null || seen < version;
+            return newer[0] ? version : seen;
+        });
+        if (newer[0]) {
+            cache.synchronous().invalidate(skuId);
+        }
+        return newer[0];
+    }
+
+    /**
+     * 商品服务的SKU变更通知，格式为skuId:version，多个以逗号分隔
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        for (String entry : body.split(",")) {
+            int separator = entry.indexOf(':');
+            try {
+                invalidate(Long.valueOf(entry.substring(0, separator).trim()),
+                        Integer.parseInt(entry.substring(separator + 1).trim()));
+            } catch (RuntimeException e) {
+                log.warn("忽略无法解析的SKU变更通知：{}", entry);
+            }
+        }
+    }
+
+    /**
+     * 登记待回源的SKU，已在等待的SKU复用同一个结果
+     */
+    private Map<Long, CompletableFuture<ProductSkuVO>> enqueue(Collection<? extends Long> skuIds) {
+        Map<Long, CompletableFuture<ProductSkuVO>> futures = new HashMap<>();
+        synchronized (pending) {
+            for (Long skuId : skuIds) {
+                futures.put(skuId, pending.computeIfAbsent(skuId, id -> new CompletableFuture<>()));
+            }
+        }
+        drain();
+        return futures;
+    }
+
+    /**
+     * 有空闲调用槽位时把等待中的SKU按批发出
+     */
+    private void drain() {
+        List<Map<Long, CompletableFuture<ProductSkuVO>>> batches = new ArrayList<>();
+        synchronized (pending) {
+            while (!pending.isEmpty() && inFlight < maxInFlight) {
+                Map<Long, CompletableFuture<ProductSkuVO>> batch = new LinkedHashMap<>();
+                Iterator<Map.Entry<Long, CompletableFuture<ProductSkuVO>>> it = pending.entrySet().iterator();
+                while (it.hasNext() && batch.size() < batchSize) {
+                    Map.Entry<Long, CompletableFuture<ProductSkuVO>> entry = it.next();
+                    batch.put(entry.getKey(), entry.getValue());
+                    it.remove();
+                }
+                inFlight++;
+                batches.add(batch);
+            }
+        }
+        for (Map<Long, CompletableFuture<ProductSkuVO>> batch : batches) {
+            loader.execute(() -> load(batch));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loader.shutdownNow();
+    }
+
+    private void load(Map<Long, CompletableFuture<ProductSkuVO>> batch) {
+        try {
+            List<ProductSkuVO> skus = productFeignClient.getSkusByIds(new ArrayList<>(batch.keySet())).getData();
+            Map<Long, ProductSkuVO> byId = skus == null ? Collections.emptyMap() : skus.stream()
+                    .collect(Collectors.toMap(ProductSkuVO::getId, Function.identity(), (a, b) -> a));
+            batch.forEach((skuId, future) -> future.complete(byId.get(skuId)));
+        } catch (Throwable e) {
+            batch.values().forEach(future -> future.completeExceptionally(e));
+        } finally {
+            synchronized (pending) {
+                inFlight--;
+            }
+            drain();
+        }
+    }
+}
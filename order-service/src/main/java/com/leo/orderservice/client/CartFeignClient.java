@@ -1,11 +1,13 @@
 package com.leo.orderservice.client;
 
+import com.leo.commoncore.constant.OrderConstants;
 import com.leo.commoncore.response.R;
 import com.leo.orderservice.vo.clientVo.CartItemVO;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 
 import java.util.List;
@@ -22,7 +24,8 @@ public interface CartFeignClient {
     
     @PostMapping("/clear")
     R<Boolean> clearCart(@RequestBody List<Long> cartIds,
-                        @RequestParam("userId") Long userId);
+                        @RequestParam("userId") Long userId,
+                        @RequestHeader(OrderConstants.IDEMPOTENCY_KEY_HEADER) String idempotencyKey);
     
     @DeleteMapping("/remove")
     R<Boolean> removeCartItems(@RequestBody List<Long> skuIds,
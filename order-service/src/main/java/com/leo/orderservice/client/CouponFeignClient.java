@@ -1,9 +1,11 @@
 package com.leo.orderservice.client;
 
+import com.leo.commoncore.constant.OrderConstants;
 import com.leo.commoncore.response.R;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 
 import java.math.BigDecimal;
@@ -20,7 +22,8 @@ public interface CouponFeignClient {
     
     @PostMapping("/return")
     R<Boolean> returnCoupon(@RequestParam("couponId") Long couponId,
-                           @RequestParam("userId") Long userId);
+                           @RequestParam("userId") Long userId,
+                           @RequestHeader(OrderConstants.IDEMPOTENCY_KEY_HEADER) String idempotencyKey);
     
     @GetMapping("/calculate")
     R<BigDecimal> calculateDiscount(@RequestParam("couponId") Long couponId,
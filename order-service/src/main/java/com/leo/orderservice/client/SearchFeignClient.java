@@ -0,0 +1,22 @@
+package com.leo.orderservice.client;
+
+import com.leo.commoncore.constant.OrderConstants;
+import com.leo.commoncore.response.R;
+import com.leo.orderservice.vo.clientVo.HotEventDTO;
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+
+import java.util.List;
+
+/**
+ * 商品搜索Feign客户端
+ */
+@FeignClient(name = "product-service", contextId = "searchFeignClient", path = "/search")
+public interface SearchFeignClient {
+
+    @PostMapping("/hot/events")
+    R<Void> recordHotEvents(@RequestBody List<HotEventDTO> events,
+                            @RequestHeader(OrderConstants.IDEMPOTENCY_KEY_HEADER) String idempotencyKey);
+}
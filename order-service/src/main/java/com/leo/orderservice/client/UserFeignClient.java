@@ -1,5 +1,6 @@
 package com.leo.orderservice.client;
 
+import com.leo.commoncore.constant.OrderConstants;
 import com.leo.commoncore.response.R;
 import com.leo.orderservice.vo.clientVo.AddressVO;
 import com.leo.orderservice.vo.clientVo.ProductSkuVO;
@@ -28,11 +29,13 @@ public interface UserFeignClient {
     
     @PostMapping("/integration/return")
     R<Boolean> returnIntegration(@RequestParam("userId") Long userId,
-                                 @RequestParam("amount") Integer amount);
+                                 @RequestParam("amount") Integer amount,
+                                 @RequestHeader(OrderConstants.IDEMPOTENCY_KEY_HEADER) String idempotencyKey);
     
     @PostMapping("/integration/add")
     R<Boolean> addIntegration(@RequestParam("userId") Long userId,
-                             @RequestParam("amount") Integer amount);
+                             @RequestParam("amount") Integer amount,
+                             @RequestHeader(OrderConstants.IDEMPOTENCY_KEY_HEADER) String idempotencyKey);
 }
 
 
@@ -0,0 +1,84 @@
+package com.leo.orderservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.leo.commoncore.constant.OrderConstants;
+import com.leo.commonmybatis.outbox.*;
+import com.leo.orderservice.event.RabbitOutboxPublisher;
+import com.leo.orderservice.mapper.OutboxMessageMapper;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.stream.Collectors;
+
+/**
+ * 发件箱配置
+ * outbox.publisher=rabbit时经RabbitMQ投递并声明订单事件交换机与本服务队列，否则进程内投递
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Configuration
+public class OutboxConfig {
+
+    @Bean
+    @ConfigurationProperties(prefix = "outbox")
+    public OutboxProperties outboxProperties() {
+        return new OutboxProperties();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "outbox", name = "publisher", havingValue = "rabbit")
+    public OutboxPublisher rabbitOutboxPublisher(RabbitTemplate rabbitTemplate,
+                                                 @Value("${outbox.confirm-timeout:5000}") long confirmTimeout) {
+        return new RabbitOutboxPublisher(rabbitTemplate, confirmTimeout);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "outbox", name = "publisher", havingValue = "local", matchIfMissing = true)
+    public OutboxPublisher localOutboxPublisher(ObjectProvider<OutboxEventHandler> handlers) {
+        return new LocalOutboxPublisher(handlers.orderedStream().collect(Collectors.toList()));
+    }
+
+    @Bean
+    public OutboxRelay outboxRelay(OutboxMessageMapper outboxMessageMapper,
+                                   OutboxPublisher outboxPublisher,
+                                   OutboxProperties outboxProperties,
+                                   PlatformTransactionManager transactionManager) {
+        return new OutboxRelay(outboxMessageMapper, outboxPublisher, outboxProperties, transactionManager);
+    }
+
+    @Bean
+    public OutboxWriter outboxWriter(OutboxMessageMapper outboxMessageMapper,
+                                     OutboxRelay outboxRelay,
+                                     ObjectMapper objectMapper) {
+        return new OutboxWriter(outboxMessageMapper, outboxRelay, objectMapper);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "outbox", name = "publisher", havingValue = "rabbit")
+    public TopicExchange orderEventExchange() {
+        return new TopicExchange(OrderConstants.EVENT_TOPIC);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "outbox", name = "publisher", havingValue = "rabbit")
+    public Queue orderEventQueue() {
+        return new Queue(OrderConstants.EVENT_QUEUE);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "outbox", name = "publisher", havingValue = "rabbit")
+    public Binding orderEventBinding(Queue orderEventQueue, TopicExchange orderEventExchange) {
+        return BindingBuilder.bind(orderEventQueue).to(orderEventExchange).with("order.#");
+    }
+}
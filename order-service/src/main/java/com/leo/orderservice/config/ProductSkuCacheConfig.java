@@ -0,0 +1,29 @@
+package com.leo.orderservice.config;
+
+import com.leo.commoncore.constant.ProductConstants;
+import com.leo.orderservice.cache.ProductSkuCache;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * 商品SKU快照缓存配置
+ * 订阅商品服务的SKU变更频道，收到通知后失效本地快照
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Configuration
+public class ProductSkuCacheConfig {
+
+    @Bean
+    public RedisMessageListenerContainer productSkuListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                     ProductSkuCache productSkuCache) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(productSkuCache, new ChannelTopic(ProductConstants.SKU_CHANGED_CHANNEL));
+        return container;
+    }
+}
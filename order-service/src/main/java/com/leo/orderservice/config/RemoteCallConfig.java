@@ -0,0 +1,34 @@
+package com.leo.orderservice.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 远程调用线程池配置
+ * 下单时并发发起互不依赖的Feign调用，线程池有界，队列满时由调用线程执行，退化为串行
+ *
+ * 线程池不作为默认候选Bean，按名称注入；不占用Executor类型，Spring Boot仍会创建applicationTaskExecutor
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Configuration
+public class RemoteCallConfig {
+
+    public static final String REMOTE_CALL_EXECUTOR = "remoteCallExecutor";
+
+    @Bean(name = REMOTE_CALL_EXECUTOR, defaultCandidate = false)
+    public ThreadPoolTaskExecutor remoteCallExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(16);
+        executor.setMaxPoolSize(64);
+        executor.setQueueCapacity(256);
+        executor.setKeepAliveSeconds(60);
+        executor.setThreadNamePrefix("order-remote-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+}
@@ -0,0 +1,48 @@
+package com.leo.orderservice.dto;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 订单事件内容
+ * 订单状态变化时写入发件箱，由{@link com.leo.orderservice.event.OrderEventHandler}异步完成后续处理
+ */
+@Data
+public class OrderEventDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Long orderId;
+
+    private String orderSn;
+
+    private Long userId;
+
+    /**
+     * 使用的优惠券ID
+     */
+    private Long couponId;
+
+    /**
+     * 使用的积分
+     */
+    private Integer useIntegration;
+
+    /**
+     * 可获得的积分
+     */
+    private Integer integration;
+
+    /**
+     * 下单时需要清除的购物车ID
+     */
+    private List<Long> cartIds;
+
+    /**
+     * 下单的SKU -> 购买件数，用于统计商品热度
+     */
+    private Map<Long, Integer> skuQuantities;
+}
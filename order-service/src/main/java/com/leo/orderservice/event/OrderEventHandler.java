@@ -0,0 +1,161 @@
+package com.leo.orderservice.event;
+
+import cn.hutool.core.collection.CollUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.leo.commoncore.constant.OrderConstants;
+import com.leo.commoncore.exception.BizException;
+import com.leo.commoncore.response.R;
+import com.leo.commonmybatis.outbox.OutboxEventHandler;
+import com.leo.commonmybatis.outbox.OutboxMessage;
+import com.leo.orderservice.client.CartFeignClient;
+import com.leo.orderservice.client.CouponFeignClient;
+import com.leo.orderservice.client.InventoryFeignClient;
+import com.leo.orderservice.client.SearchFeignClient;
+import com.leo.orderservice.client.UserFeignClient;
+import com.leo.orderservice.dto.OrderEventDTO;
+import com.leo.orderservice.vo.clientVo.HotEventDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 订单事件处理器
+ *
+ * 订单状态变化提交后异步完成的跨服务操作：
+ * 1. 创建：清空购物车、上报商品下单热度
+ * 2. 取消：释放库存、返还优惠券、返还积分
+ * 3. 支付：增加积分、发送订单消息
+ *
+ * 投递语义为至少一次：消息逐条确认，失败或重复投递时整条消息重新处理。
+ * 每个跨服务写操作成功后按 订单号:操作 记录完成标记，重新处理时跳过已完成的步骤；
+ * 调用成功但标记写入前宕机时该步骤仍会重复调用，幂等键随请求头传给下游，由下游自行决定是否去重。
+ * 下游返回失败时抛出异常，消息稍后重试。
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderEventHandler implements OutboxEventHandler {
+
+    /**
+     * 完成标记保留时间，覆盖消息的最长重试周期
+     */
+    private static final Duration STEP_DONE_TTL = Duration.ofDays(3);
+
+    private final ObjectMapper objectMapper;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final UserFeignClient userFeignClient;
+    private final InventoryFeignClient inventoryFeignClient;
+    private final CartFeignClient cartFeignClient;
+    private final CouponFeignClient couponFeignClient;
+    private final SearchFeignClient searchFeignClient;
+
+    @Override
+    public String topic() {
+        return OrderConstants.EVENT_TOPIC;
+    }
+
+    @Override
+    public void handle(OutboxMessage message) throws Exception {
+        OrderEventDTO event = objectMapper.readValue(message.getPayload(), OrderEventDTO.class);
+        switch (message.getEventType()) {
+            case OrderConstants.EventType.CREATED -> onCreated(event);
+            case OrderConstants.EventType.CANCELLED -> onCancelled(event);
+            case OrderConstants.EventType.PAID -> onPaid(event);
+            default -> log.warn("未知订单事件：{}，订单号：{}", message.getEventType(), event.getOrderSn());
+        }
+    }
+
+    private void onCreated(OrderEventDTO event) {
+        if (CollUtil.isNotEmpty(event.getCartIds())) {
+            once(event, "clear-cart", key -> cartFeignClient.clearCart(event.getCartIds(), event.getUserId(), key));
+        }
+        reportHotEvents(event);
+    }
+
+    /**
+     * 上报下单热度，热度为统计值，失败时不重试；消息因其他步骤失败而重新处理时按幂等键只计数一次
+     */
+    private void reportHotEvents(OrderEventDTO event) {
+        if (CollUtil.isEmpty(event.getSkuQuantities())) {
+            return;
+        }
+        List<HotEventDTO> events = event.getSkuQuantities().entrySet().stream()
+                .map(entry -> {
+                    HotEventDTO hotEvent = new HotEventDTO();
+                    hotEvent.setSkuId(entry.getKey());
+                    hotEvent.setType("ORDER");
+                    hotEvent.setCount(entry.getValue());
+                    return hotEvent;
+                })
+                .collect(Collectors.toList());
+        try {
+            searchFeignClient.recordHotEvents(events, idempotencyKey(event, "hot"));
+        } catch (Exception e) {
+            log.warn("上报商品热度失败，订单号：{}", event.getOrderSn(), e);
+        }
+    }
+
+    private void onCancelled(OrderEventDTO event) {
+        // 释放库存（已解锁的工作单返回false，重复投递无副作用）
+        Boolean unlockResult = inventoryFeignClient.unlockStock(event.getOrderSn()).getData();
+        if (!Boolean.TRUE.equals(unlockResult)) {
+            log.warn("订单取消释放库存未生效，可能已由超时解锁处理：{}", event.getOrderSn());
+        }
+
+        // 返还优惠券
+        if (event.getCouponId() != null) {
+            once(event, "return-coupon", key -> couponFeignClient.returnCoupon(event.getCouponId(), event.getUserId(), key));
+        }
+
+        // 返还积分
+        if (event.getUseIntegration() != null && event.getUseIntegration() > 0) {
+            once(event, "return-integration",
+                    key -> userFeignClient.returnIntegration(event.getUserId(), event.getUseIntegration(), key));
+        }
+    }
+
+    private void onPaid(OrderEventDTO event) {
+        // 增加用户积分
+        if (event.getIntegration() != null && event.getIntegration() > 0) {
+            once(event, "add-integration",
+                    key -> userFeignClient.addIntegration(event.getUserId(), event.getIntegration(), key));
+        }
+
+        // TODO: 调用消息服务发送通知
+        log.info("发送订单消息：订单号={}, 内容={}", event.getOrderSn(), "您的订单已支付成功");
+    }
+
+    /**
+     * 执行一个跨服务写操作，已完成的步骤跳过，成功后记录完成标记
+     *
+     * @param event  订单事件
+     * @param action 操作名，与订单号组成幂等键
+     * @param call   以幂等键发起的调用
+     */
+    private void once(OrderEventDTO event, String action, Function<String, R<?>> call) {
+        String key = idempotencyKey(event, action);
+        String doneKey = OrderConstants.EVENT_STEP_DONE_PREFIX + key;
+        if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(doneKey))) {
+            log.debug("订单事件步骤已完成，跳过：{}", key);
+            return;
+        }
+        R<?> result = call.apply(key);
+        if (result == null || !result.isSuccess()) {
+            throw new BizException("订单事件步骤执行失败：" + key + "，" + (result == null ? null : result.getMessage()));
+        }
+        stringRedisTemplate.opsForValue().set(doneKey, "1", STEP_DONE_TTL);
+    }
+
+    private static String idempotencyKey(OrderEventDTO event, String action) {
+        return event.getOrderSn() + ":" + action;
+    }
+}
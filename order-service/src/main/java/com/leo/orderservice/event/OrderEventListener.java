@@ -0,0 +1,39 @@
+package com.leo.orderservice.event;
+
+import com.leo.commoncore.constant.OrderConstants;
+import com.leo.commonmybatis.outbox.OutboxMessage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 订单事件消费者
+ * 发件箱经RabbitMQ投递时，订单服务从自己的队列消费订单事件，交给{@link OrderEventHandler}处理
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "outbox", name = "publisher", havingValue = "rabbit")
+public class OrderEventListener {
+
+    private final OrderEventHandler orderEventHandler;
+
+    @RabbitListener(queues = OrderConstants.EVENT_QUEUE)
+    public void onMessage(Message message) throws Exception {
+        MessageProperties properties = message.getMessageProperties();
+        OutboxMessage outboxMessage = new OutboxMessage();
+        outboxMessage.setId(Long.valueOf(properties.getMessageId()));
+        outboxMessage.setTopic(properties.getReceivedExchange());
+        outboxMessage.setEventType(properties.getHeader(RabbitOutboxPublisher.HEADER_EVENT_TYPE));
+        outboxMessage.setBizKey(properties.getHeader(RabbitOutboxPublisher.HEADER_BIZ_KEY));
+        outboxMessage.setPayload(new String(message.getBody(), StandardCharsets.UTF_8));
+        orderEventHandler.handle(outboxMessage);
+    }
+}
@@ -0,0 +1,76 @@
+package com.leo.orderservice.event;
+
+import com.leo.commonmybatis.outbox.OutboxMessage;
+import com.leo.commonmybatis.outbox.OutboxPublisher;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * RabbitMQ发件箱发布器
+ * 一批消息连续发送，再统一等待各条的发布确认，一次往返确认整批；
+ * 每条消息单独关联确认结果，被拒绝或超时未确认的消息单独重试（需publisher-confirm-type=correlated）
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Slf4j
+public class RabbitOutboxPublisher implements OutboxPublisher {
+
+    public static final String HEADER_EVENT_TYPE = "x-event-type";
+    public static final String HEADER_BIZ_KEY = "x-biz-key";
+
+    private final RabbitTemplate rabbitTemplate;
+    private final long confirmTimeout;
+
+    public RabbitOutboxPublisher(RabbitTemplate rabbitTemplate, long confirmTimeout) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.confirmTimeout = confirmTimeout;
+    }
+
+    @Override
+    public Set<Long> publish(List<OutboxMessage> messages) throws InterruptedException {
+        List<CorrelationData> correlations = new ArrayList<>(messages.size());
+        for (OutboxMessage message : messages) {
+            MessageProperties properties = new MessageProperties();
+            // 消息ID即发件箱ID，消费端据此去重
+            properties.setMessageId(String.valueOf(message.getId()));
+            properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+            properties.setHeader(HEADER_EVENT_TYPE, message.getEventType());
+            properties.setHeader(HEADER_BIZ_KEY, message.getBizKey());
+            CorrelationData correlation = new CorrelationData(String.valueOf(message.getId()));
+            rabbitTemplate.send(message.getTopic(), message.getEventType(),
+                    new Message(message.getPayload().getBytes(StandardCharsets.UTF_8), properties), correlation);
+            correlations.add(correlation);
+        }
+
+        // 所有消息共用一个等待截止时刻
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(confirmTimeout);
+        Set<Long> confirmed = new HashSet<>(messages.size() * 2);
+        for (CorrelationData correlation : correlations) {
+            try {
+                CorrelationData.Confirm confirm = correlation.getFuture()
+                        .get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (confirm.isAck()) {
+                    confirmed.add(Long.valueOf(correlation.getId()));
+                } else {
+                    log.warn("发件箱消息被拒绝，消息ID：{}，原因：{}", correlation.getId(), confirm.getReason());
+                }
+            } catch (TimeoutException | ExecutionException e) {
+                log.warn("发件箱消息未确认，消息ID：{}", correlation.getId(), e);
+            }
+        }
+        return confirmed;
+    }
+}
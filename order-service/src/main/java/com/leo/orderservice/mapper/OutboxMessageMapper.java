@@ -0,0 +1,11 @@
+package com.leo.orderservice.mapper;
+
+import com.leo.commonmybatis.outbox.OutboxMapper;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * 发件箱消息Mapper
+ */
+@Mapper
+public interface OutboxMessageMapper extends OutboxMapper {
+}
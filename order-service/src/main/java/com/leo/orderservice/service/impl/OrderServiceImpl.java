@@ -9,8 +9,12 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.leo.commoncore.constant.OrderConstants;
 import com.leo.commoncore.exception.BizException;
 import com.leo.commoncore.page.PageResult;
+import com.leo.commonmybatis.outbox.OutboxWriter;
+import com.leo.commonredis.delay.RedisDelayQueue;
 import com.leo.commonredis.util.RedisUtil;
+import com.leo.orderservice.cache.ProductSkuCache;
 import com.leo.orderservice.client.*;
+import com.leo.orderservice.config.RemoteCallConfig;
 import com.leo.orderservice.converter.OrderConverter;
 import com.leo.orderservice.dto.*;
 import com.leo.orderservice.entity.Order;
@@ -27,10 +31,13 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -38,7 +45,12 @@ import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -51,6 +63,8 @@ import java.util.stream.Collectors;
  * 4. 订单查询：详情、列表、统计
  * 5. 自动任务：超时取消、自动收货、自动好评
  * 
+ * 订单状态变化与订单事件在同一事务内写入发件箱，跨服务的后续操作提交后异步执行
+ * 
  * @author Miao Zheng
  * @date 2025-02-03
  */
@@ -59,6 +73,11 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements OrderService {
 
+    /**
+     * 单个远程调用超时时间（毫秒）
+     */
+    private static final long REMOTE_CALL_TIMEOUT_MS = 3000;
+
     private final OrderMapper orderMapper;
     private final OrderItemMapper orderItemMapper;
     private final OrderOperateHistoryMapper operateHistoryMapper;
@@ -68,20 +87,29 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
     
     // Feign客户端
     private final UserFeignClient userFeignClient;
-    private final ProductFeignClient productFeignClient;
     private final InventoryFeignClient inventoryFeignClient;
-    private final CartFeignClient cartFeignClient;
     private final CouponFeignClient couponFeignClient;
+
+    // 商品SKU快照本地缓存
+    private final ProductSkuCache productSkuCache;
     
     private final RedissonClient redissonClient;
     private final RedisUtil redisUtil;
-    private final RabbitTemplate rabbitTemplate;
+    private final RedisDelayQueue redisDelayQueue;
+    private final OutboxWriter outboxWriter;
+    private final TransactionTemplate transactionTemplate;
+    
+    // 远程调用线程池
+    @Qualifier(RemoteCallConfig.REMOTE_CALL_EXECUTOR)
+    private final Executor remoteCallExecutor;
 
     /**
      * 创建订单
+     * 
+     * 用户、地址、商品三个查询并发发起，耗时取决于最慢的一个；远程调用全部完成后才开启数据库事务，
+     * 事务内只有本地写入。事务失败时补偿释放已锁定的库存和已使用的优惠券。
      */
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public Long createOrder(OrderCreateDTO createDTO, Long userId) {
         // 1. 分布式锁防止重复下单
         String lockKey = OrderConstants.CREATE_LOCK_PREFIX + userId;
@@ -92,60 +120,56 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
                 throw new BizException("订单创建中，请勿重复提交");
             }
             
-            // 2. 获取用户信息
-            UserInfoVO userInfo = userFeignClient.getUserInfo(userId).getData();
+            // 2. 并发获取用户信息、收货地址、商品信息
+            CompletableFuture<UserInfoVO> userInfoFuture = callAsync(
+                () -> userFeignClient.getUserInfo(userId).getData());
+            CompletableFuture<AddressVO> addressFuture = callAsync(
+                () -> userFeignClient.getAddress(createDTO.getAddressId()).getData());
+            CompletableFuture<List<ProductSkuVO>> skuFuture = callAsync(
+                () -> getAndValidateProducts(createDTO.getOrderItems()));
+            
+            UserInfoVO userInfo = await(userInfoFuture, "获取用户信息");
             if (userInfo == null) {
                 throw new BizException("用户信息不存在");
             }
-            
-            // 3. 获取收货地址
-            AddressVO address = userFeignClient.getAddress(createDTO.getAddressId()).getData();
+            AddressVO address = await(addressFuture, "获取收货地址");
             if (address == null) {
                 throw new BizException("收货地址不存在");
             }
+            // 3. 校验商品信息
+            List<ProductSkuVO> skuList = await(skuFuture, "获取商品信息");
             
-            // 4. 获取商品信息并校验
-            List<ProductSkuVO> skuList = getAndValidateProducts(createDTO.getOrderItems());
-            
-            // 5. 计算订单金额
+            // 4. 计算订单金额
             OrderPriceCalc priceCalc = calculateOrderPrice(skuList, createDTO);
             
-            // 6. 锁定库存
-            StockLockDTO stockLockDTO = buildStockLockDTO(createDTO, address);
+            // 5. 锁定库存（工作单与订单使用同一订单号）
+            String orderSn = generateOrderSn();
+            StockLockDTO stockLockDTO = buildStockLockDTO(orderSn, createDTO, address);
             StockLockResultVO lockResult = inventoryFeignClient.lockStock(stockLockDTO).getData();
             if (!lockResult.getSuccess()) {
                 throw new BizException("库存不足：" + lockResult.getFailureReason());
             }
             
-            // 7. 使用优惠券
+            // 6. 使用优惠券
             if (createDTO.getCouponId() != null) {
                 boolean useResult = couponFeignClient.useCoupon(createDTO.getCouponId(), userId).getData();
                 if (!useResult) {
                     // 释放库存
-                    inventoryFeignClient.unlockStock(generateOrderSn()).getData();
+                    inventoryFeignClient.unlockStock(orderSn).getData();
                     throw new BizException("优惠券使用失败");
                 }
             }
             
-            // 8. 创建订单
-            Order order = createOrderEntity(createDTO, userInfo, address, priceCalc);
-            orderMapper.insert(order);
-            
-            // 9. 创建订单商品
-            List<OrderItem> orderItems = createOrderItems(order, skuList, createDTO.getOrderItems());
-            orderItems.forEach(orderItemMapper::insert);
-            
-            // 10. 记录操作历史
-            saveOperateHistory(order.getId(), "系统", 0, "订单创建");
-            
-            // 11. 清空购物车
-            if (CollUtil.isNotEmpty(createDTO.getCartIds())) {
-                cartFeignClient.clearCart(createDTO.getCartIds(), userId);
+            // 7. 远程数据齐备后开启事务写入订单
+            Order order;
+            try {
+                order = transactionTemplate.execute(status ->
+                    saveOrder(orderSn, createDTO, userInfo, address, skuList, priceCalc));
+            } catch (RuntimeException e) {
+                compensateCreate(orderSn, createDTO.getCouponId(), userId);
+                throw e;
             }
             
-            // 12. 发送延迟消息，30分钟后检查支付状态
-            sendDelayMessage(order);
-            
             log.info("订单创建成功：订单号={}, 用户ID={}", order.getOrderSn(), userId);
             return order.getId();
             
@@ -159,6 +183,53 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
         }
     }
 
+    /**
+     * 在事务内写入订单、订单商品、操作历史与订单创建事件
+     */
+    private Order saveOrder(String orderSn, OrderCreateDTO createDTO, UserInfoVO userInfo, AddressVO address,
+                            List<ProductSkuVO> skuList, OrderPriceCalc priceCalc) {
+        // 1. 创建订单
+        Order order = createOrderEntity(orderSn, createDTO, userInfo, address, priceCalc);
+        orderMapper.insert(order);
+        
+        // 2. 创建订单商品
+        List<OrderItem> orderItems = createOrderItems(order, skuList, createDTO.getOrderItems());
+        orderItems.forEach(orderItemMapper::insert);
+        
+        // 3. 记录操作历史
+        saveOperateHistory(order.getId(), "系统", 0, "订单创建");
+        
+        // 4. 写入订单创建事件，提交后异步清空购物车
+        OrderEventDTO event = buildOrderEvent(order);
+        event.setCartIds(createDTO.getCartIds());
+        event.setSkuQuantities(createDTO.getOrderItems().stream()
+            .collect(Collectors.toMap(
+                OrderCreateDTO.OrderItemDTO::getProductSkuId,
+                OrderCreateDTO.OrderItemDTO::getQuantity,
+                Integer::sum
+            )));
+        outboxWriter.append(OrderConstants.EVENT_TOPIC, OrderConstants.EventType.CREATED, order.getOrderSn(), event);
+        
+        // 5. 提交后发送延迟消息，30分钟后检查支付状态；回滚时不留下指向不存在订单的任务
+        afterCommit(() -> sendDelayMessage(order));
+        return order;
+    }
+
+    /**
+     * 订单写入失败时释放已锁定的库存、返还已使用的优惠券
+     */
+    private void compensateCreate(String orderSn, Long couponId, Long userId) {
+        try {
+            inventoryFeignClient.unlockStock(orderSn);
+            if (couponId != null) {
+                couponFeignClient.returnCoupon(couponId, userId, orderSn + ":return-coupon");
+            }
+        } catch (Exception e) {
+            // 库存由超时解锁兜底
+            log.error("订单创建失败后补偿失败：{}", orderSn, e);
+        }
+    }
+
     /**
      * 取消订单
      */
@@ -181,31 +252,19 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
             throw new BizException("订单状态不允许取消");
         }
         
-        // 4. 释放库存
-        boolean unlockResult = inventoryFeignClient.unlockStock(order.getOrderSn()).getData();
-        if (!unlockResult) {
-            log.error("订单取消失败，库存释放失败：{}", order.getOrderSn());
-        }
-        
-        // 5. 返还优惠券
-        if (order.getCouponId() != null) {
-            couponFeignClient.returnCoupon(order.getCouponId(), order.getUserId());
-        }
-        
-        // 6. 返还积分
-        if (order.getUseIntegration() != null && order.getUseIntegration() > 0) {
-            userFeignClient.returnIntegration(order.getUserId(), order.getUseIntegration());
-        }
-        
-        // 7. 更新订单状态
+        // 4. 更新订单状态
         order.setStatus(OrderConstants.Status.CLOSED);
         order.setModifyTime(LocalDateTime.now());
         orderMapper.updateById(order);
         
-        // 8. 记录操作历史
+        // 5. 记录操作历史
         String operator = userId != null ? "用户" : "系统";
         saveOperateHistory(orderId, operator, OrderConstants.Status.CLOSED, reason);
         
+        // 6. 写入订单取消事件，提交后异步释放库存、返还优惠券和积分
+        outboxWriter.append(OrderConstants.EVENT_TOPIC, OrderConstants.EventType.CANCELLED,
+            order.getOrderSn(), buildOrderEvent(order));
+        
         log.info("订单取消成功：订单号={}", order.getOrderSn());
         return true;
     }
@@ -251,13 +310,13 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
         saveOperateHistory(order.getId(), "系统", OrderConstants.Status.UNDELIVERED, 
             "支付成功，交易号：" + transactionId);
         
-        // 6. 发送订单消息
-        sendOrderMessage(order, "您的订单已支付成功");
+        // 6. 写入订单支付事件，提交后异步增加积分、发送订单消息
+        outboxWriter.append(OrderConstants.EVENT_TOPIC, OrderConstants.EventType.PAID,
+            orderSn, buildOrderEvent(order));
         
-        // 7. 增加用户积分
-        if (order.getIntegration() != null && order.getIntegration() > 0) {
-            userFeignClient.addIntegration(order.getUserId(), order.getIntegration());
-        }
+        // 7. 提交后撤销超时取消任务，事务回滚时任务保留，到期仍会检查支付状态
+        String delayJob = String.valueOf(order.getId());
+        afterCommit(() -> redisDelayQueue.remove(OrderConstants.CANCEL_DELAY_TOPIC, delayJob));
         
         log.info("订单支付成功：订单号={}, 支付方式={}", orderSn, payType);
         return true;
@@ -341,6 +400,7 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
 
     /**
      * 自动取消超时订单
+     * 到期取消由延迟任务完成，这里兜底处理延迟任务丢失的订单
      */
     @Override
     @Transactional(rollbackFor = Exception.class)
@@ -381,6 +441,33 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
         return "OD" + datetime + random;
     }
 
+    /**
+     * 在远程调用线程池中发起调用，超时后不再等待
+     */
+    private <T> CompletableFuture<T> callAsync(Supplier<T> call) {
+        return CompletableFuture.supplyAsync(call, remoteCallExecutor)
+            .orTimeout(REMOTE_CALL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 等待远程调用结果，业务异常原样抛出，超时与其他异常转为业务异常
+     */
+    private <T> T await(CompletableFuture<T> future, String action) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof BizException bizException) {
+                throw bizException;
+            }
+            if (cause instanceof TimeoutException) {
+                throw new BizException(action + "超时，请稍后重试");
+            }
+            log.error("{}失败", action, cause);
+            throw new BizException(action + "失败");
+        }
+    }
+
     /**
      * 获取并校验商品信息
      */
@@ -389,7 +476,7 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
             .map(OrderCreateDTO.OrderItemDTO::getProductSkuId)
             .collect(Collectors.toList());
         
-        List<ProductSkuVO> skuList = productFeignClient.getSkusByIds(skuIds).getData();
+        List<ProductSkuVO> skuList = productSkuCache.getSkus(skuIds);
         
         if (CollUtil.isEmpty(skuList) || skuList.size() != items.size()) {
             throw new BizException("商品信息有误");
@@ -469,9 +556,9 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
     /**
      * 构建库存锁定DTO
      */
-    private StockLockDTO buildStockLockDTO(OrderCreateDTO createDTO, AddressVO address) {
+    private StockLockDTO buildStockLockDTO(String orderSn, OrderCreateDTO createDTO, AddressVO address) {
         StockLockDTO lockDTO = new StockLockDTO();
-        lockDTO.setOrderSn(generateOrderSn());
+        lockDTO.setOrderSn(orderSn);
         lockDTO.setOrderId(System.currentTimeMillis());
         lockDTO.setConsignee(address.getName());
         lockDTO.setConsigneeTel(address.getPhone());
@@ -493,10 +580,10 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
     /**
      * 创建订单实体
      */
-    private Order createOrderEntity(OrderCreateDTO createDTO, UserInfoVO userInfo, 
+    private Order createOrderEntity(String orderSn, OrderCreateDTO createDTO, UserInfoVO userInfo, 
                                    AddressVO address, OrderPriceCalc priceCalc) {
         Order order = new Order();
-        order.setOrderSn(generateOrderSn());
+        order.setOrderSn(orderSn);
         order.setUserId(userInfo.getId());
         order.setUsername(userInfo.getUsername());
         
@@ -541,18 +628,44 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
 
     /**
      * 发送延迟消息
+     * 30分钟后由{@link com.leo.orderservice.task.OrderCancelDelayHandler}检查支付状态。
+     * 在订单提交后调用，发送失败不影响已提交的订单，由超时订单定时任务兜底取消
      */
     private void sendDelayMessage(Order order) {
-        // TODO: 发送到RabbitMQ延迟队列
-        log.info("发送延迟消息，30分钟后检查订单：{}", order.getOrderSn());
+        long dueAt = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(30);
+        try {
+            redisDelayQueue.offer(OrderConstants.CANCEL_DELAY_TOPIC, String.valueOf(order.getId()), dueAt);
+            log.info("发送延迟消息，30分钟后检查订单：{}", order.getOrderSn());
+        } catch (Exception e) {
+            log.error("发送延迟消息失败，由超时订单定时任务兜底取消：{}", order.getOrderSn(), e);
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 
     /**
-     * 发送订单消息
+     * 构建订单事件内容
      */
-    private void sendOrderMessage(Order order, String content) {
-        // TODO: 调用消息服务发送通知
-        log.info("发送订单消息：订单号={}, 内容={}", order.getOrderSn(), content);
+    private OrderEventDTO buildOrderEvent(Order order) {
+        OrderEventDTO event = new OrderEventDTO();
+        event.setOrderId(order.getId());
+        event.setOrderSn(order.getOrderSn());
+        event.setUserId(order.getUserId());
+        event.setCouponId(order.getCouponId());
+        event.setUseIntegration(order.getUseIntegration());
+        event.setIntegration(order.getIntegration());
+        return event;
     }
 
     // 内部类
@@ -0,0 +1,64 @@
+package com.leo.orderservice.task;
+
+import com.leo.commoncore.constant.OrderConstants;
+import com.leo.commoncore.exception.BizException;
+import com.leo.commonredis.delay.DelayJobHandler;
+import com.leo.orderservice.entity.Order;
+import com.leo.orderservice.service.OrderService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 订单超时取消延迟任务
+ * 订单创建时投递，30分钟到期后仍未支付则取消；定时扫描只作为兜底
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderCancelDelayHandler implements DelayJobHandler {
+
+    private final OrderService orderService;
+
+    @Override
+    public String topic() {
+        return OrderConstants.CANCEL_DELAY_TOPIC;
+    }
+
+    @Override
+    public Collection<String> handle(List<String> payloads) {
+        List<String> done = new ArrayList<>(payloads.size());
+        for (String payload : payloads) {
+            Long orderId;
+            try {
+                orderId = Long.valueOf(payload);
+            } catch (NumberFormatException e) {
+                // 无法解析的任务重试也不会成功，确认后丢弃，避免每次可见性超时后反复投递
+                log.error("订单超时取消任务内容非法，已丢弃：{}", payload);
+                done.add(payload);
+                continue;
+            }
+            try {
+                Order order = orderService.getById(orderId);
+                if (order != null && OrderConstants.Status.UNPAID.equals(order.getStatus())) {
+                    orderService.cancelOrder(orderId, null, "支付超时自动取消");
+                }
+                done.add(payload);
+            } catch (BizException e) {
+                // 并发支付或取消导致状态已变化，无需重试
+                log.warn("订单超时取消跳过：{}，原因：{}", orderId, e.getMessage());
+                done.add(payload);
+            } catch (Exception e) {
+                log.error("订单超时取消失败，将重新投递：{}", orderId, e);
+            }
+        }
+        return done;
+    }
+}
@@ -0,0 +1,25 @@
+package com.leo.orderservice.vo.clientVo;
+
+import lombok.Data;
+
+/**
+ * 商品热度事件DTO
+ */
+@Data
+public class HotEventDTO {
+
+    /**
+     * SKU ID
+     */
+    private Long skuId;
+
+    /**
+     * 事件类型：VIEW-浏览，CART-加购，ORDER-下单
+     */
+    private String type;
+
+    /**
+     * 次数
+     */
+    private Integer count;
+}
@@ -1,10 +1,13 @@
 package com.leo.orderservice.vo.clientVo;
 
+import lombok.Data;
+
 import java.math.BigDecimal;
 
 /**
  * 商品SKU VO
  */
+@Data
 public class ProductSkuVO {
     private Long id;
     private Long spuId;
@@ -6,12 +6,14 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
 import org.springframework.cloud.openfeign.EnableFeignClients;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableDiscoveryClient
 @ComponentScan(basePackages = "com.leo")
 @EnableFeignClients
 @MapperScan("com.leo.productservice.mapper")
+@EnableScheduling
 public class ProductServiceApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,231 @@
+package com.leo.productservice.cache;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.leo.commoncore.constant.ProductConstants;
+import com.leo.productservice.converter.CategoryConverter;
+import com.leo.productservice.entity.Category;
+import com.leo.productservice.mapper.CategoryMapper;
+import com.leo.productservice.vo.CategoryTreeVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 分类两级缓存
+ *
+ * 1. 一级：进程内保存构建好的分类树和分类路径索引，浏览分类直接从堆内返回，不经网络
+ * 2. 二级：Redis按版本号保存快照JSON，本地未命中时优先从Redis加载，避免每个节点都查库建树
+ * 3. 失效：分类变更提交后递增Redis中的版本号并经发布订阅广播，各节点丢弃版本更旧的本地快照
+ *
+ * 版本号在事务提交后才递增，读到新版本号的节点一定能从数据库读到新数据；
+ * 读到旧版本号的节点即使读到新数据也只写入旧版本的键，不会让新版本读到旧快照。
+ * 发布订阅不保证送达，本地快照另有过期时间兜底。
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Slf4j
+@Component
+public class CategoryCache implements MessageListener {
+
+    private static final String SNAPSHOT_KEY = "snapshot";
+
+    private final CategoryMapper categoryMapper;
+    private final CategoryConverter categoryConverter;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ObjectMapper objectMapper;
+    private final long expireTime;
+
+    private final LoadingCache<String, CategorySnapshot> local;
+
+    /**
+     * 已知的最新版本号
+     */
+    private final AtomicLong latestVersion = new AtomicLong();
+
+    public CategoryCache(CategoryMapper categoryMapper,
+                         CategoryConverter categoryConverter,
+                         StringRedisTemplate stringRedisTemplate,
+                         ObjectMapper objectMapper,
+                         @Value("${cache.category.expire-time:86400}") long expireTime,
+                         @Value("${cache.category.local-expire-time:600}") long localExpireTime) {
+        this.categoryMapper = categoryMapper;
+        this.categoryConverter = categoryConverter;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.objectMapper = objectMapper;
+        this.expireTime = expireTime;
+        this.local = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(localExpireTime))
+                .build(key -> load());
+    }
+
+    /**
+     * 分类树
+     */
+    public List<CategoryTreeVO> getTree() {
+        return snapshot().getTree();
+    }
+
+    /**
+     * 分类路径，不存在时返回null
+     */
+    public List<Long> getPath(Long categoryId) {
+        return snapshot().getPaths().get(categoryId);
+    }
+
+    /**
+     * 分类已变更，事务内调用时在提交后递增版本号并广播
+     */
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish();
+                }
+            });
+        } else {
+            publish();
+        }
+    }
+
+    /**
+     * 其他节点广播的新版本号
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            onVersion(Long.parseLong(new String(message.getBody(), StandardCharsets.UTF_8)));
+        } catch (NumberFormatException e) {
+            log.warn("忽略无法解析的分类变更通知");
+        }
+    }
+
+    private CategorySnapshot snapshot() {
+        CategorySnapshot snapshot = local.get(SNAPSHOT_KEY);
+        if (snapshot.getVersion() < latestVersion.get()) {
+            local.invalidate(SNAPSHOT_KEY);
+            snapshot = local.get(SNAPSHOT_KEY);
+        }
+        return snapshot;
+    }
+
+    private void publish() {
+        try {
+            Long version = stringRedisTemplate.opsForValue().increment(ProductConstants.CATEGORY_VERSION_KEY);
+            onVersion(version);
+            stringRedisTemplate.convertAndSend(ProductConstants.CATEGORY_CHANGED_CHANNEL, String.valueOf(version));
+            stringRedisTemplate.delete(ProductConstants.CATEGORY_TREE_CACHE_KEY + (version - 1));
+            log.info("分类缓存已失效，版本：{}", version);
+        } catch (Exception e) {
+            // Redis不可用时至少让本节点失效，其他节点等待本地快照过期
+            local.invalidate(SNAPSHOT_KEY);
+            log.warn("分类变更广播失败", e);
+        }
+    }
+
+    private void onVersion(long version) {
+        latestVersion.accumulateAndGet(version, Math::max);
+        CategorySnapshot snapshot = local.getIfPresent(SNAPSHOT_KEY);
+        if (snapshot != null && snapshot.getVersion() < version) {
+            local.invalidate(SNAPSHOT_KEY);
+        }
+    }
+
+    /**
+     * 先从Redis加载当前版本的快照，没有时查库构建并写回Redis
+     */
+    private CategorySnapshot load() {
+        long version;
+        try {
+            String current = stringRedisTemplate.opsForValue().get(ProductConstants.CATEGORY_VERSION_KEY);
+            version = current == null ? 0 : Long.parseLong(current);
+            latestVersion.accumulateAndGet(version, Math::max);
+
+            String json = stringRedisTemplate.opsForValue().get(ProductConstants.CATEGORY_TREE_CACHE_KEY + version);
+            if (json != null) {
+                return objectMapper.readValue(json, CategorySnapshot.class);
+            }
+        } catch (Exception e) {
+            log.warn("读取分类二级缓存失败，直接查询数据库", e);
+            return build(latestVersion.get());
+        }
+
+        CategorySnapshot snapshot = build(version);
+        try {
+            stringRedisTemplate.opsForValue().setIfAbsent(ProductConstants.CATEGORY_TREE_CACHE_KEY + version,
+                    objectMapper.writeValueAsString(snapshot), expireTime, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("写入分类二级缓存失败", e);
+        }
+        return snapshot;
+    }
+
+    /**
+     * 查询全部分类，构建分类树与路径索引
+     */
+    private CategorySnapshot build(long version) {
+        List<Category> categories = categoryMapper.selectList(
+                new LambdaQueryWrapper<Category>()
+                        .orderByAsc(Category::getSort)
+        );
+
+        // 分类树只包含显示中的分类
+        List<CategoryTreeVO> voList = categories.stream()
+                .filter(category -> Integer.valueOf(1).equals(category.getShowStatus()))
+                .map(categoryConverter::toTreeVO)
+                .collect(Collectors.toList());
+        Map<Long, CategoryTreeVO> voMap = voList.stream()
+                .collect(Collectors.toMap(CategoryTreeVO::getId, Function.identity()));
+        List<CategoryTreeVO> tree = new ArrayList<>();
+        for (CategoryTreeVO vo : voList) {
+            if (vo.getParentId() == 0) {
+                tree.add(vo);
+            } else {
+                CategoryTreeVO parent = voMap.get(vo.getParentId());
+                if (parent != null) {
+                    if (parent.getChildren() == null) {
+                        parent.setChildren(new ArrayList<>());
+                    }
+                    parent.getChildren().add(vo);
+                }
+            }
+        }
+
+        // 路径索引包含全部分类，沿父分类上溯，父分类缺失时截断
+        Map<Long, Category> categoryMap = categories.stream()
+                .collect(Collectors.toMap(Category::getId, Function.identity()));
+        Map<Long, List<Long>> paths = new HashMap<>(categories.size() * 2);
+        for (Category category : categories) {
+            LinkedList<Long> path = new LinkedList<>();
+            Category current = category;
+            while (current != null && path.size() <= ProductConstants.CATEGORY_LEVEL_THREE) {
+                path.addFirst(current.getId());
+                current = current.getParentId() == 0 ? null : categoryMap.get(current.getParentId());
+            }
+            paths.put(category.getId(), List.copyOf(path));
+        }
+
+        CategorySnapshot snapshot = new CategorySnapshot();
+        snapshot.setVersion(version);
+        snapshot.setTree(Collections.unmodifiableList(tree));
+        snapshot.setPaths(Collections.unmodifiableMap(paths));
+        return snapshot;
+    }
+}
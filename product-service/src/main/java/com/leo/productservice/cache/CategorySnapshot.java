@@ -0,0 +1,33 @@
+package com.leo.productservice.cache;
+
+import com.leo.productservice.vo.CategoryTreeVO;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分类缓存快照
+ * 构建后不再修改，本地缓存与Redis中保存的都是同一结构
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Data
+public class CategorySnapshot {
+
+    /**
+     * 构建时的分类版本号
+     */
+    private long version;
+
+    /**
+     * 分类树（只含显示中的分类）
+     */
+    private List<CategoryTreeVO> tree;
+
+    /**
+     * 分类ID -> 从一级分类到自身的ID路径（含隐藏分类）
+     */
+    private Map<Long, List<Long>> paths;
+}
@@ -0,0 +1,198 @@
+package com.leo.productservice.cache;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.leo.commoncore.constant.ProductConstants;
+import com.leo.productservice.dto.SearchParam;
+import com.leo.productservice.dto.SearchResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 商品搜索结果缓存
+ *
+ * 热门搜索（同一关键字、分类、排序）的结果在短时间内不变，直接从堆内返回：
+ * 1. 键：搜索参数规范化后取摘要，品牌、属性及属性值排序后拼接，顺序不同的等价查询共用一个键
+ * 2. 本地：Caffeine按条数LRU淘汰，短TTL过期
+ * 3. 合并：同一键的并发未命中只有第一个请求查询ES，其余请求等待同一个结果
+ * 4. 共享：可选地经Redis在节点间共享，Redis键带代次号，失效时递增代次，旧键自然过期
+ *
+ * 商品上下架、库存变化时清空本节点缓存并递增代次；其他节点的本地缓存在TTL内可能仍为旧结果。
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Slf4j
+@Component
+public class SearchResultCache {
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final boolean redisEnabled;
+    private final long ttl;
+
+    private final AsyncCache<String, SearchResult> local;
+
+    public SearchResultCache(StringRedisTemplate stringRedisTemplate,
+                             ObjectMapper objectMapper,
+                             @Value("${cache.search.enabled:true}") boolean enabled,
+                             @Value("${cache.search.redis-enabled:false}") boolean redisEnabled,
+                             @Value("${cache.search.ttl:5000}") long ttl,
+                             @Value("${cache.search.maximum-size:1000}") long maximumSize) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.redisEnabled = redisEnabled;
+        this.ttl = ttl;
+        this.local = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(ttl))
+                .maximumSize(maximumSize)
+                .buildAsync();
+    }
+
+    /**
+     * 查询缓存，未命中时执行搜索并写入缓存
+     *
+     * @param param  搜索参数
+     * @param loader 实际搜索
+     * @return 搜索结果
+     */
+    public SearchResult get(SearchParam param, SearchLoader loader) throws IOException {
+        if (!enabled) {
+            return loader.load();
+        }
+        String key = DigestUtil.md5Hex(canonicalize(param));
+
+        CompletableFuture<SearchResult> created = new CompletableFuture<>();
+        CompletableFuture<SearchResult> existing = local.asMap().putIfAbsent(key, created);
+        if (existing == null) {
+            // 本请求负责加载，失败的结果Caffeine会自动移除
+            try {
+                created.complete(load(key, loader));
+            } catch (IOException | RuntimeException e) {
+                created.completeExceptionally(e);
+                throw e;
+            }
+            return created.join();
+        }
+
+        try {
+            return existing.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 索引数据变化，清空本节点缓存并让共享缓存整体失效
+     */
+    public void invalidateAll() {
+        if (!enabled) {
+            return;
+        }
+        local.synchronous().invalidateAll();
+        if (redisEnabled) {
+            try {
+                stringRedisTemplate.opsForValue().increment(ProductConstants.SEARCH_CACHE_GENERATION_KEY);
+            } catch (Exception e) {
+                log.warn("搜索共享缓存失效失败，等待过期", e);
+            }
+        }
+    }
+
+    private SearchResult load(String key, SearchLoader loader) throws IOException {
+        if (!redisEnabled) {
+            return loader.load();
+        }
+
+        String redisKey = null;
+        try {
+            String generation = stringRedisTemplate.opsForValue().get(ProductConstants.SEARCH_CACHE_GENERATION_KEY);
+            redisKey = ProductConstants.SEARCH_CACHE_KEY + (generation == null ? "0" : generation) + ":" + key;
+            String json = stringRedisTemplate.opsForValue().get(redisKey);
+            if (json != null) {
+                return objectMapper.readValue(json, SearchResult.class);
+            }
+        } catch (Exception e) {
+            log.warn("读取搜索共享缓存失败", e);
+        }
+
+        SearchResult result = loader.load();
+        if (redisKey != null) {
+            try {
+                stringRedisTemplate.opsForValue().set(redisKey, objectMapper.writeValueAsString(result),
+                        ttl, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                log.warn("写入搜索共享缓存失败", e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 规范化搜索参数，不影响查询语义的顺序差异不产生不同的键
+     */
+    private static String canonicalize(SearchParam param) {
+        String brandIds = CollUtil.isEmpty(param.getBrandIds()) ? "" : param.getBrandIds().stream()
+                .distinct()
+                .sorted()
+                .map(String::valueOf)
+                .collect(Collectors.joining(","));
+        String attrs = CollUtil.isEmpty(param.getAttrs()) ? "" : param.getAttrs().stream()
+                .map(SearchResultCache::canonicalizeAttr)
+                .distinct()
+                .sorted()
+                .collect(Collectors.joining(","));
+        return String.join("|",
+                param.getKeyword() == null ? "" : param.getKeyword().trim(),
+                String.valueOf(param.getCategoryId()),
+                brandIds,
+                attrs,
+                String.valueOf(param.getHasStock()),
+                param.getPriceRange() == null ? "" : param.getPriceRange(),
+                String.valueOf(param.getSort()),
+                String.valueOf(param.getPageNum()),
+                String.valueOf(param.getPageSize()));
+    }
+
+    /**
+     * 属性筛选 attrId_v1:v2 中的属性值排序
+     */
+    private static String canonicalizeAttr(String attr) {
+        int separator = attr.indexOf('_');
+        if (separator < 0) {
+            return attr;
+        }
+        List<String> values = Arrays.stream(attr.substring(separator + 1).split(":"))
+                .distinct()
+                .sorted()
+                .collect(Collectors.toList());
+        return attr.substring(0, separator + 1) + String.join(":", values);
+    }
+
+    /**
+     * 实际搜索
+     */
+    @FunctionalInterface
+    public interface SearchLoader {
+        SearchResult load() throws IOException;
+    }
+}
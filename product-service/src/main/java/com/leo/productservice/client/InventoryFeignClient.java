@@ -0,0 +1,25 @@
+package com.leo.productservice.client;
+
+import com.leo.commoncore.response.R;
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 库存服务Feign客户端
+ */
+@FeignClient(name = "inventory-service", path = "/api/inventory")
+public interface InventoryFeignClient {
+
+    /**
+     * 批量查询SKU是否有库存
+     *
+     * @param skuIds SKU ID列表
+     * @return SKU ID -> 是否有库存
+     */
+    @PostMapping("/stock/has-stock")
+    R<Map<Long, Boolean>> hasStock(@RequestBody List<Long> skuIds);
+}
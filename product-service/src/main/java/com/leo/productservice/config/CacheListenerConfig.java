@@ -0,0 +1,33 @@
+package com.leo.productservice.config;
+
+import com.leo.commoncore.constant.ProductConstants;
+import com.leo.productservice.cache.CategoryCache;
+import com.leo.productservice.search.SuggestIndex;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * 缓存失效通知订阅配置
+ * 订阅分类变更频道，各节点收到后丢弃旧版本的本地缓存；
+ * 订阅搜索建议变更频道，各节点收到后更新本地建议索引
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Configuration
+public class CacheListenerConfig {
+
+    @Bean
+    public RedisMessageListenerContainer cacheListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                CategoryCache categoryCache,
+                                                                SuggestIndex suggestIndex) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(categoryCache, new ChannelTopic(ProductConstants.CATEGORY_CHANGED_CHANNEL));
+        container.addMessageListener(suggestIndex, new ChannelTopic(ProductConstants.SUGGEST_CHANGED_CHANNEL));
+        return container;
+    }
+}
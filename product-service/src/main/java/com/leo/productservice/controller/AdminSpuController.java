@@ -1,12 +1,14 @@
 package com.leo.productservice.controller;
 
 import com.leo.commoncore.constant.PermissionConstants;
+import com.leo.commoncore.exception.BizException;
 import com.leo.commoncore.page.PageQuery;
 import com.leo.commoncore.page.PageResult;
 import com.leo.commoncore.response.R;
 import com.leo.commonsecurity.annotation.RequireLogin;
 import com.leo.commonsecurity.annotation.RequirePermission;
 import com.leo.productservice.dto.SpuSaveDTO;
+import com.leo.productservice.search.ProductReindexer;
 import com.leo.productservice.service.SpuService;
 import com.leo.productservice.vo.SpuVO;
 import io.swagger.v3.oas.annotations.Operation;
@@ -16,6 +18,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 /**
@@ -38,6 +41,7 @@ import java.util.List;
 public class AdminSpuController {
 
     private final SpuService spuService;
+    private final ProductReindexer productReindexer;
 
     @GetMapping("/page")
     @Operation(summary = "分页查询商品")
@@ -77,6 +81,15 @@ public class AdminSpuController {
         return R.success("商品更新成功");
     }
 
+    @PutMapping("/sku/{skuId}/price")
+    @Operation(summary = "修改SKU价格")
+    @RequirePermission(PermissionConstants.PRODUCT_SPU_UPDATE)
+    public R<String> updateSkuPrice(@PathVariable Long skuId,
+                                    @Parameter(description = "新价格") @RequestParam BigDecimal price) {
+        spuService.updateSkuPrice(skuId, price);
+        return R.success("价格修改成功");
+    }
+
     @DeleteMapping("/{id}")
     @Operation(summary = "删除商品")
     @RequirePermission(PermissionConstants.PRODUCT_SPU_DELETE)
@@ -100,4 +113,14 @@ public class AdminSpuController {
         spuService.down(ids);
         return R.success("商品下架成功");
     }
-}
\ No newline at end of file
+
+    @PostMapping("/reindex")
+    @Operation(summary = "全量重建商品索引")
+    @RequirePermission(PermissionConstants.PRODUCT_SPU_PUBLISH)
+    public R<String> reindex() {
+        if (!productReindexer.start()) {
+            throw new BizException("商品索引正在重建中");
+        }
+        return R.success("商品索引开始重建");
+    }
+}
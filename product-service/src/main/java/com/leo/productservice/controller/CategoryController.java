@@ -12,6 +12,7 @@ import org.springframework.web.bind.annotation.*;
 import com.leo.productservice.vo.CategoryTreeVO;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 商品分类控制器
@@ -60,4 +61,10 @@ public class CategoryController {
     public R<List<Long>> getCategoryPath(@PathVariable Long id) {
         return R.success(categoryService.getCategoryPath(id));
     }
+
+    @PostMapping("/paths")
+    @Operation(summary = "批量获取分类路径")
+    public R<Map<Long, List<Long>>> getCategoryPaths(@RequestBody List<Long> ids) {
+        return R.success(categoryService.getCategoryPaths(ids));
+    }
 }
\ No newline at end of file
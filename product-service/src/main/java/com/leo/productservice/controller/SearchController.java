@@ -1,9 +1,12 @@
 package com.leo.productservice.controller;
 
+import com.leo.commoncore.constant.OrderConstants;
 import com.leo.commoncore.response.R;
 
+import com.leo.productservice.dto.HotEventDTO;
 import com.leo.productservice.dto.SearchParam;
 import com.leo.productservice.dto.SearchResult;
+import com.leo.productservice.search.HotKeywordTracker;
 import com.leo.productservice.service.SearchService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -13,6 +16,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 商品搜索控制器
@@ -41,17 +45,30 @@ public class SearchController {
         }
     }
     
+    @Operation(summary = "批量更新库存状态", description = "内部接口，库存服务调用")
+    @PostMapping("/stock")
+    public R<Void> updateStocks(@RequestBody Map<Long, Boolean> stocks) {
+        searchService.updateStocks(stocks);
+        return R.success();
+    }
+    
+    @Operation(summary = "记录热度事件", description = "内部接口，订单、购物车服务调用")
+    @PostMapping("/hot/events")
+    public R<Void> recordHotEvents(@RequestBody List<HotEventDTO> events,
+                                   @RequestHeader(value = OrderConstants.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        searchService.recordHotEvents(events, idempotencyKey);
+        return R.success();
+    }
+    
     @Operation(summary = "获取搜索建议")
     @GetMapping("/suggest")
     public R<List<String>> suggest(@RequestParam String keyword) {
-        // TODO: 实现搜索建议功能
-        return R.success(List.of());
+        return R.success(searchService.suggest(keyword));
     }
     
-    @Operation(summary = "获取热门搜索")
+    @Operation(summary = "获取热门搜索", description = "range: HOUR近一小时，DAY近一天")
     @GetMapping("/hot")
-    public R<List<String>> hotSearch() {
-        // TODO: 从Redis获取热门搜索词
-        return R.success(List.of("iPhone", "华为", "小米", "笔记本", "耳机"));
+    public R<List<String>> hotSearch(@RequestParam(defaultValue = "DAY") HotKeywordTracker.Range range) {
+        return R.success(searchService.getHotKeywords(range));
     }
 }
\ No newline at end of file
@@ -1,8 +1,11 @@
 package com.leo.productservice.controller;
 
+import cn.hutool.core.collection.CollUtil;
 import com.leo.commoncore.page.PageQuery;
 import com.leo.commoncore.page.PageResult;
 import com.leo.commoncore.response.R;
+import com.leo.productservice.dto.HotEventDTO;
+import com.leo.productservice.service.SearchService;
 import com.leo.productservice.service.SpuService;
 import com.leo.productservice.vo.SpuVO;
 import io.swagger.v3.oas.annotations.Operation;
@@ -12,6 +15,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * 前台商品控制器
@@ -31,6 +35,7 @@ import java.util.List;
 public class SpuController {
 
     private final SpuService spuService;
+    private final SearchService searchService;
 
     @GetMapping("/page")
     @Operation(summary = "分页查询商品")
@@ -48,6 +53,12 @@ public class SpuController {
     @Operation(summary = "获取商品详情")
     public R<SpuVO> getDetail(@PathVariable Long id) {
         SpuVO detail = spuService.getDetail(id);
+        // 详情浏览计入各SKU的热度
+        if (detail != null && CollUtil.isNotEmpty(detail.getSkuList())) {
+            searchService.recordHotEvents(detail.getSkuList().stream()
+                    .map(sku -> HotEventDTO.of(sku.getId(), HotEventDTO.Type.VIEW, 1))
+                    .collect(Collectors.toList()));
+        }
         return R.success(detail);
     }
 
@@ -0,0 +1,45 @@
+package com.leo.productservice.dto;
+
+import lombok.Data;
+
+/**
+ * 商品热度事件
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Data
+public class HotEventDTO {
+
+    /**
+     * SKU ID
+     */
+    private Long skuId;
+
+    /**
+     * 事件类型
+     */
+    private Type type;
+
+    /**
+     * 次数（下单为购买件数），为空时按1计
+     */
+    private Integer count;
+
+    public static HotEventDTO of(Long skuId, Type type, Integer count) {
+        HotEventDTO event = new HotEventDTO();
+        event.setSkuId(skuId);
+        event.setType(type);
+        event.setCount(count);
+        return event;
+    }
+
+    public enum Type {
+        /** 浏览 */
+        VIEW,
+        /** 加入购物车 */
+        CART,
+        /** 下单 */
+        ORDER
+    }
+}
@@ -68,4 +68,16 @@ public class SearchParam {
      * 每页大小
      */
     private Integer pageSize = 20;
+
+    /**
+     * 是否使用游标翻页
+     * 基于point-in-time与search_after，每页开销与页码无关，适合深度翻页和批量导出；
+     * 游标模式忽略pageNum，且只在第一页返回聚合结果
+     */
+    private Boolean useCursor = false;
+
+    /**
+     * 游标，取上一页结果的nextCursor，为空时从第一页开始
+     */
+    private String cursor;
 }
\ No newline at end of file
@@ -39,6 +39,11 @@ public class SearchResult {
      */
     private Integer pageSize;
     
+    /**
+     * 下一页游标（游标模式），为空表示已是最后一页
+     */
+    private String nextCursor;
+    
     /**
      * 品牌聚合信息
      */
@@ -0,0 +1,40 @@
+package com.leo.productservice.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 建立商品索引所需的SKU数据，已关联品牌与分类
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Data
+public class SkuIndexDTO {
+
+    private Long skuId;
+
+    private Long spuId;
+
+    private String skuTitle;
+
+    private String skuImg;
+
+    private BigDecimal price;
+
+    private Long saleCount;
+
+    private Long brandId;
+
+    private String brandName;
+
+    private String brandImg;
+
+    private Long categoryId;
+
+    private String categoryName;
+
+    private LocalDateTime createTime;
+}
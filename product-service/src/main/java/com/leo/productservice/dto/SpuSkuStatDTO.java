@@ -0,0 +1,35 @@
+package com.leo.productservice.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * SPU下SKU的价格与销量汇总
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Data
+public class SpuSkuStatDTO {
+
+    /**
+     * SPU ID
+     */
+    private Long spuId;
+
+    /**
+     * 最低价格
+     */
+    private BigDecimal minPrice;
+
+    /**
+     * 最高价格
+     */
+    private BigDecimal maxPrice;
+
+    /**
+     * 总销量
+     */
+    private Long saleCount;
+}
@@ -75,6 +75,12 @@ public class Category extends BaseEntity {
      */
     private String description;
 
+    /**
+     * 分类路径：从一级分类到自身的ID，以/分隔，如 1/5/23
+     * 创建、移动分类时维护，移动时子孙分类一并更新
+     */
+    private String path;
+
     /**
      * 子分类列表（不映射到数据库）
      */
@@ -0,0 +1,65 @@
+package com.leo.productservice.event;
+
+import cn.hutool.core.collection.CollUtil;
+import com.leo.commoncore.constant.ProductConstants;
+import com.leo.productservice.entity.SkuInfo;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * SKU快照变更通知
+ *
+ * 价格等快照字段变更后经Redis发布订阅推送(skuId, version)，订单服务据此失效进程内缓存。
+ * 事务内调用时在提交后发布，避免订阅方在提交前回源读到旧数据并重新缓存。
+ * 发布订阅不保证送达，订阅方缓存的过期时间是最终兜底。
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SkuChangePublisher {
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 发布SKU快照变更
+     *
+     * @param skus 变更后的SKU（需包含id与version）
+     */
+    public void publish(List<SkuInfo> skus) {
+        if (CollUtil.isEmpty(skus)) {
+            return;
+        }
+        String message = skus.stream()
+                .map(sku -> sku.getId() + ":" + sku.getVersion())
+                .collect(Collectors.joining(","));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    send(message);
+                }
+            });
+        } else {
+            send(message);
+        }
+    }
+
+    private void send(String message) {
+        try {
+            stringRedisTemplate.convertAndSend(ProductConstants.SKU_CHANGED_CHANNEL, message);
+        } catch (Exception e) {
+            log.warn("SKU变更通知发布失败，订阅方将在缓存过期后刷新：{}", message, e);
+        }
+    }
+}
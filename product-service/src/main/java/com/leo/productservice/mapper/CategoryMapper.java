@@ -24,4 +24,17 @@ public interface CategoryMapper extends BaseMapperPlus<Category> {
      */
     @Update("UPDATE pms_category SET product_count = product_count + #{count} WHERE id = #{categoryId}")
     int updateProductCount(@Param("categoryId") Long categoryId, @Param("count") int count);
+
+    /**
+     * 移动分类后更新全部子孙分类的路径前缀与层级
+     *
+     * @param oldPath    移动前的路径
+     * @param newPath    移动后的路径
+     * @param levelDelta 层级变化
+     * @return 影响行数
+     */
+    @Update("UPDATE pms_category SET path = CONCAT(#{newPath}, SUBSTRING(path, CHAR_LENGTH(#{oldPath}) + 1)), " +
+            "level = level + #{levelDelta} WHERE path LIKE CONCAT(#{oldPath}, '/%')")
+    int moveDescendants(@Param("oldPath") String oldPath, @Param("newPath") String newPath,
+                        @Param("levelDelta") int levelDelta);
 }
\ No newline at end of file
@@ -2,9 +2,27 @@ package com.leo.productservice.mapper;
 import com.leo.commonmybatis.mapper.BaseMapperPlus;
 import com.leo.productservice.entity.*;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.Collection;
+import java.util.List;
+
 /**
  * 商品属性值Mapper
  */
 @Mapper
 public interface ProductAttrValueMapper extends BaseMapperPlus<ProductAttrValue> {
-}
\ No newline at end of file
+
+    /**
+     * 查询SPU的可检索属性值
+     */
+    @Select("<script>" +
+            "SELECT v.spu_id, v.attr_id, v.attr_name, v.attr_value FROM pms_product_attr_value v " +
+            "JOIN pms_attr a ON a.id = v.attr_id AND a.deleted = 0 AND a.search_type = 1 " +
+            "WHERE v.deleted = 0 AND v.spu_id IN " +
+            "<foreach collection='spuIds' item='spuId' open='(' separator=',' close=')'>#{spuId}</foreach> " +
+            "ORDER BY v.spu_id, v.attr_sort" +
+            "</script>")
+    List<ProductAttrValue> selectSearchAttrsBySpuIds(@Param("spuIds") Collection<Long> spuIds);
+}
@@ -1,8 +1,20 @@
 package com.leo.productservice.mapper;
 
 import com.leo.commonmybatis.mapper.BaseMapperPlus;
+import com.leo.productservice.dto.SkuIndexDTO;
+import com.leo.productservice.dto.SpuSkuStatDTO;
 import com.leo.productservice.entity.SkuInfo;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * @program: leomall
@@ -12,4 +24,73 @@ import org.apache.ibatis.annotations.Mapper;
  **/
 @Mapper
 public interface SkuInfoMapper extends BaseMapperPlus<SkuInfo> {
+
+    /**
+     * 建立商品索引的查询，关联品牌与分类，只包含已上架SPU下的SKU
+     */
+    String INDEX_SELECT = "SELECT s.id AS sku_id, s.spu_id, s.sku_title, s.sku_default_img AS sku_img, " +
+            "s.price, s.sale_count, s.brand_id, b.name AS brand_name, b.logo AS brand_img, " +
+            "s.category_id, c.name AS category_name, s.create_time " +
+            "FROM pms_sku_info s " +
+            "JOIN pms_spu_info p ON p.id = s.spu_id AND p.deleted = 0 AND p.publish_status = 1 " +
+            "LEFT JOIN pms_brand b ON b.id = s.brand_id " +
+            "LEFT JOIN pms_category c ON c.id = s.category_id " +
+            "WHERE s.deleted = 0 ";
+
+    /**
+     * 修改价格并递增快照版本
+     */
+    @Update("UPDATE pms_sku_info SET price = #{price}, version = version + 1 WHERE id = #{id} AND deleted = 0")
+    int updatePrice(@Param("id") Long id, @Param("price") BigDecimal price);
+
+    /**
+     * 递增SPU下全部SKU的快照版本（SPU名称、分类、品牌属于SKU快照）
+     */
+    @Update("UPDATE pms_sku_info SET version = version + 1 WHERE spu_id = #{spuId} AND deleted = 0")
+    int increaseVersionBySpuId(@Param("spuId") Long spuId);
+
+    /**
+     * 查询SKU的快照版本
+     */
+    @Select("SELECT id, version FROM pms_sku_info WHERE spu_id = #{spuId} AND deleted = 0")
+    List<SkuInfo> selectVersionsBySpuId(@Param("spuId") Long spuId);
+
+    /**
+     * 按SPU汇总SKU价格区间与销量
+     */
+    @Select("<script>" +
+            "SELECT spu_id, MIN(price) AS min_price, MAX(price) AS max_price, " +
+            "COALESCE(SUM(sale_count), 0) AS sale_count " +
+            "FROM pms_sku_info WHERE deleted = 0 AND spu_id IN " +
+            "<foreach collection='spuIds' item='spuId' open='(' separator=',' close=')'>#{spuId}</foreach> " +
+            "GROUP BY spu_id" +
+            "</script>")
+    List<SpuSkuStatDTO> selectStatsBySpuIds(@Param("spuIds") Collection<Long> spuIds);
+
+    /**
+     * 流式读取全部待索引的SKU
+     * MySQL驱动在fetchSize为Integer.MIN_VALUE时逐行读取，需在事务内使用，
+     * 游标关闭前同一连接不能执行其他语句
+     */
+    @Select(INDEX_SELECT + "ORDER BY s.id")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<SkuIndexDTO> scanIndexDocuments();
+
+    /**
+     * 查询指定SPU下待索引的SKU
+     */
+    @Select("<script>" + INDEX_SELECT +
+            "AND s.spu_id IN " +
+            "<foreach collection='spuIds' item='spuId' open='(' separator=',' close=')'>#{spuId}</foreach>" +
+            "</script>")
+    List<SkuIndexDTO> selectIndexDocumentsBySpuIds(@Param("spuIds") Collection<Long> spuIds);
+
+    /**
+     * 查询指定SKU中待索引的SKU，未上架或已删除的SKU不在结果中
+     */
+    @Select("<script>" + INDEX_SELECT +
+            "AND s.id IN " +
+            "<foreach collection='skuIds' item='skuId' open='(' separator=',' close=')'>#{skuId}</foreach>" +
+            "</script>")
+    List<SkuIndexDTO> selectIndexDocumentsBySkuIds(@Param("skuIds") Collection<Long> skuIds);
 }
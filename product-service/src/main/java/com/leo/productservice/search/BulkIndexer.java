@@ -0,0 +1,337 @@
+package com.leo.productservice.search;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.leo.productservice.model.ProductEsModel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 商品索引bulk写入
+ *
+ * 上下架、全量重建、增量更新共用：
+ * 1. 分批：按当前批次文档数与字节上限切分，任一达到即发出
+ * 2. 重试：只重试失败的文档，且只重试可恢复的失败（429拒绝、5xx、请求级异常），按指数退避加抖动等待；
+ *    映射错误、文档不存在等不可恢复的失败直接返回给调用方
+ * 3. 自适应：出现拒绝时批次减半，耗时超过目标时缩小四分之一，否则每批增大十分之一，
+ *    批次大小在本节点的所有写入间共享，集群繁忙时整体退让
+ * 4. 指标：每批耗时、字节数、文档数，以及重试、拒绝、最终失败数与当前批次大小
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Slf4j
+@Component
+public class BulkIndexer {
+
+    /**
+     * 每个操作行（action与元数据）的估算字节数
+     */
+    private static final int ACTION_BYTES = 64;
+
+    private final ElasticsearchClient esClient;
+    private final ObjectMapper objectMapper;
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final long maxBytes;
+    private final long targetLatency;
+    private final int maxRetries;
+    private final long initialBackoff;
+    private final long maxBackoff;
+
+    private final AtomicInteger batchSize;
+
+    private final Timer batchTimer;
+    private final DistributionSummary batchBytes;
+    private final DistributionSummary batchDocs;
+    private final Counter retriedCounter;
+    private final Counter rejectedCounter;
+    private final Counter failedCounter;
+
+    public BulkIndexer(ElasticsearchClient esClient,
+                       ObjectMapper objectMapper,
+                       MeterRegistry meterRegistry,
+                       @Value("${search.bulk.initial-batch-size:500}") int initialBatchSize,
+                       @Value("${search.bulk.min-batch-size:50}") int minBatchSize,
+                       @Value("${search.bulk.max-batch-size:5000}") int maxBatchSize,
+                       @Value("${search.bulk.max-bytes:5242880}") long maxBytes,
+                       @Value("${search.bulk.target-latency:1000}") long targetLatency,
+                       @Value("${search.bulk.max-retries:5}") int maxRetries,
+                       @Value("${search.bulk.initial-backoff:100}") long initialBackoff,
+                       @Value("${search.bulk.max-backoff:10000}") long maxBackoff) {
+        this.esClient = esClient;
+        this.objectMapper = objectMapper;
+        this.minBatchSize = minBatchSize;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBytes = maxBytes;
+        this.targetLatency = targetLatency;
+        this.maxRetries = maxRetries;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.batchSize = new AtomicInteger(initialBatchSize);
+
+        this.batchTimer = Timer.builder("search.bulk.duration")
+                .description("单个bulk请求耗时").register(meterRegistry);
+        this.batchBytes = DistributionSummary.builder("search.bulk.bytes")
+                .description("单个bulk请求的估算字节数").baseUnit("bytes").register(meterRegistry);
+        this.batchDocs = DistributionSummary.builder("search.bulk.docs")
+                .description("单个bulk请求的文档数").register(meterRegistry);
+        this.retriedCounter = Counter.builder("search.bulk.retried")
+                .description("重试的文档数").register(meterRegistry);
+        this.rejectedCounter = Counter.builder("search.bulk.rejected")
+                .description("被集群拒绝（429）的文档数").register(meterRegistry);
+        this.failedCounter = Counter.builder("search.bulk.failed")
+                .description("重试后仍失败的文档数").register(meterRegistry);
+        Gauge.builder("search.bulk.batch-size", batchSize, AtomicInteger::get)
+                .description("当前自适应批次大小").register(meterRegistry);
+    }
+
+    /**
+     * 写入完整文档
+     */
+    public Result index(String index, List<ProductEsModel> documents) {
+        List<Op> ops = new ArrayList<>(documents.size());
+        for (ProductEsModel document : documents) {
+            String id = document.getSkuId().toString();
+            ops.add(new Op(id, BulkOperation.of(op -> op
+                    .index(idx -> idx
+                            .id(id)
+                            .document(document)
+                    )
+            ), estimate(document)));
+        }
+        return execute(index, ops);
+    }
+
+    /**
+     * 部分更新文档，只写入非空字段
+     */
+    public Result update(String index, List<ProductEsModel> partials) {
+        List<Op> ops = new ArrayList<>(partials.size());
+        for (ProductEsModel partial : partials) {
+            String id = partial.getSkuId().toString();
+            ops.add(new Op(id, BulkOperation.of(op -> op
+                    .update(u -> u
+                            .id(id)
+                            .retryOnConflict(3)
+                            .action(a -> a.doc(partial))
+                    )
+            ), estimate(partial)));
+        }
+        return execute(index, ops);
+    }
+
+    /**
+     * 删除文档
+     */
+    public Result delete(String index, List<Long> skuIds) {
+        List<Op> ops = new ArrayList<>(skuIds.size());
+        for (Long skuId : skuIds) {
+            String id = skuId.toString();
+            ops.add(new Op(id, BulkOperation.of(op -> op
+                    .delete(d -> d.id(id))
+            ), 0));
+        }
+        return execute(index, ops);
+    }
+
+    private Result execute(String index, List<Op> ops) {
+        Result result = new Result();
+        int from = 0;
+        while (from < ops.size()) {
+            int size = batchSize.get();
+            int to = from;
+            long bytes = 0;
+            while (to < ops.size() && to - from < size
+                    && (to == from || bytes + ops.get(to).bytes() <= maxBytes)) {
+                bytes += ops.get(to).bytes();
+                to++;
+            }
+            sendWithRetry(index, ops.subList(from, to), result);
+            from = to;
+        }
+        return result;
+    }
+
+    /**
+     * 发出一批，失败的文档按退避时间重试
+     */
+    private void sendWithRetry(String index, List<Op> batch, Result result) {
+        int failedBefore = result.failures.size();
+        List<Op> pending = batch;
+        for (int attempt = 0; ; attempt++) {
+            List<Op> retry = new ArrayList<>();
+            List<Failure> retryFailures = new ArrayList<>();
+            try {
+                List<BulkResponseItem> items = send(index, pending);
+                for (int i = 0; i < items.size(); i++) {
+                    BulkResponseItem item = items.get(i);
+                    if (item.error() == null) {
+                        result.succeeded++;
+                        continue;
+                    }
+                    Failure failure = new Failure(pending.get(i).id(), item.status(), item.error().reason(),
+                            isRetryable(item.status()));
+                    if (failure.retryable()) {
+                        retry.add(pending.get(i));
+                        retryFailures.add(failure);
+                    } else {
+                        result.failures.add(failure);
+                    }
+                }
+            } catch (Exception e) {
+                int status = e instanceof ElasticsearchException ee ? ee.status() : 0;
+                boolean retryable = status == 0 || isRetryable(status);
+                for (Op op : pending) {
+                    Failure failure = new Failure(op.id(), status, e.getMessage(), retryable);
+                    if (retryable) {
+                        retry.add(op);
+                        retryFailures.add(failure);
+                    } else {
+                        result.failures.add(failure);
+                    }
+                }
+                log.warn("bulk请求失败，文档数：{}，第{}次", pending.size(), attempt + 1, e);
+            }
+
+            if (retry.isEmpty()) {
+                break;
+            }
+            if (attempt >= maxRetries || !sleep(backoff(attempt))) {
+                result.failures.addAll(retryFailures);
+                break;
+            }
+            retriedCounter.increment(retry.size());
+            pending = retry;
+        }
+        failedCounter.increment(result.failures.size() - failedBefore);
+    }
+
+    /**
+     * 发出一个bulk请求，记录指标并调整批次大小
+     */
+    private List<BulkResponseItem> send(String index, List<Op> ops) throws Exception {
+        long bytes = ops.stream().mapToLong(Op::bytes).sum();
+        long start = System.nanoTime();
+        boolean rejected = false;
+        try {
+            BulkResponse response = esClient.bulk(b -> b
+                    .index(index)
+                    .operations(ops.stream().map(Op::operation).toList())
+            );
+            long rejectedCount = response.errors() ? response.items().stream()
+                    .filter(item -> item.error() != null && item.status() == 429)
+                    .count() : 0;
+            rejectedCounter.increment(rejectedCount);
+            rejected = rejectedCount > 0;
+            return response.items();
+        } catch (ElasticsearchException e) {
+            if (e.status() == 429) {
+                rejectedCounter.increment(ops.size());
+                rejected = true;
+            }
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            batchTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            batchBytes.record(bytes);
+            batchDocs.record(ops.size());
+            adapt(TimeUnit.NANOSECONDS.toMillis(elapsed), rejected);
+            log.debug("bulk请求完成，文档数：{}，字节数：{}，耗时：{}ms，拒绝：{}",
+                    ops.size(), bytes, TimeUnit.NANOSECONDS.toMillis(elapsed), rejected);
+        }
+    }
+
+    private void adapt(long latency, boolean rejected) {
+        batchSize.updateAndGet(size -> {
+            if (rejected) {
+                return Math.max(minBatchSize, size / 2);
+            }
+            if (latency > targetLatency) {
+                return Math.max(minBatchSize, size * 3 / 4);
+            }
+            return Math.min(maxBatchSize, size + Math.max(1, size / 10));
+        });
+    }
+
+    private long backoff(int attempt) {
+        long delay = Math.min(maxBackoff, initialBackoff << Math.min(attempt, 20));
+        return ThreadLocalRandom.current().nextLong(delay / 2, delay + 1);
+    }
+
+    private boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private long estimate(ProductEsModel document) {
+        try {
+            return ACTION_BYTES + objectMapper.writeValueAsBytes(document).length;
+        } catch (JsonProcessingException e) {
+            return ACTION_BYTES;
+        }
+    }
+
+    private static boolean isRetryable(int status) {
+        return status == 429 || status >= 500;
+    }
+
+    private record Op(String id, BulkOperation operation, long bytes) {
+    }
+
+    /**
+     * 写入失败的文档
+     *
+     * @param id        文档ID
+     * @param status    HTTP状态码，请求未得到响应时为0
+     * @param reason    失败原因
+     * @param retryable 是否为可恢复的失败（重试次数用尽）
+     */
+    public record Failure(String id, int status, String reason, boolean retryable) {
+    }
+
+    /**
+     * 写入结果
+     */
+    public static class Result {
+
+        private int succeeded;
+
+        private final List<Failure> failures = new ArrayList<>();
+
+        public int getSucceeded() {
+            return succeeded;
+        }
+
+        public boolean isSuccess() {
+            return failures.isEmpty();
+        }
+
+        public List<Failure> getFailures() {
+            return Collections.unmodifiableList(failures);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.leo.productservice.search;
+
+import cn.hutool.core.util.StrUtil;
+import com.leo.commoncore.constant.ProductConstants;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 热门搜索排行
+ *
+ * 1. 计数：搜索关键字规范化后累加到进程内LongAdder，搜索线程上只有一次哈希查找与无锁自增
+ * 2. 刷新：定时任务每隔flush-interval取出增量，一次Redis管道写入当前分钟与当前小时的ZSET桶，桶按窗口长度过期
+ * 3. 排行：每隔refresh-interval合并最近60个分钟桶（近一小时）、最近24个小时桶（近一天）取Top-N，
+ *    结果保存在本节点内存，查询直接返回
+ *
+ * 本地计数器最多保存max-keywords个关键字，超出后新关键字不计数，避免随机输入撑大内存；
+ * 节点宕机时丢失最近一个刷新间隔内的计数。
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Slf4j
+@Component
+public class HotKeywordTracker {
+
+    /**
+     * 统计窗口
+     */
+    public enum Range {
+        HOUR, DAY
+    }
+
+    private static final long MINUTE = 60_000L;
+    private static final long HOUR = 3_600_000L;
+    private static final int MAX_KEYWORD_LENGTH = 30;
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final int topN;
+    private final int maxKeywords;
+    private final List<String> defaults;
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    private volatile Map<Range, List<String>> rankings = Collections.emptyMap();
+
+    public HotKeywordTracker(StringRedisTemplate stringRedisTemplate,
+                             @Value("${search.hot-keyword.top-n:10}") int topN,
+                             @Value("${search.hot-keyword.max-keywords:10000}") int maxKeywords,
+                             @Value("${search.hot-keyword.defaults:}") List<String> defaults) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.topN = topN;
+        this.maxKeywords = maxKeywords;
+        this.defaults = List.copyOf(defaults);
+    }
+
+    /**
+     * 记录一次搜索
+     */
+    public void record(String keyword) {
+        String key = normalize(keyword);
+        if (key == null) {
+            return;
+        }
+        LongAdder counter = counters.get(key);
+        if (counter == null) {
+            if (counters.size() >= maxKeywords) {
+                return;
+            }
+            counter = counters.computeIfAbsent(key, k -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    /**
+     * 热门搜索词，尚无统计数据时返回默认词
+     */
+    public List<String> getHotKeywords(Range range) {
+        List<String> ranking = rankings.get(range);
+        return ranking == null || ranking.isEmpty() ? defaults : ranking;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * 取出本地增量，一次管道写入分钟桶与小时桶
+     */
+    public synchronized void flush() {
+        Map<String, Long> deltas = new HashMap<>();
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            long delta = entry.getValue().sumThenReset();
+            if (delta > 0) {
+                deltas.put(entry.getKey(), delta);
+            } else {
+                counters.remove(entry.getKey(), entry.getValue());
+            }
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        String minuteKey = ProductConstants.HOT_KEYWORD_MINUTE_KEY + now / MINUTE;
+        String hourKey = ProductConstants.HOT_KEYWORD_HOUR_KEY + now / HOUR;
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection redis = (StringRedisConnection) connection;
+                deltas.forEach((keyword, delta) -> {
+                    redis.zIncrBy(minuteKey, delta, keyword);
+                    redis.zIncrBy(hourKey, delta, keyword);
+                });
+                // 多保留一个桶的时长，保证合并窗口时桶仍然存在
+                redis.pExpire(minuteKey, HOUR + MINUTE);
+                redis.pExpire(hourKey, 25 * HOUR);
+                return null;
+            });
+        } catch (Exception e) {
+            // 放回计数器，下次刷新重试
+            deltas.forEach((keyword, delta) -> counters.computeIfAbsent(keyword, k -> new LongAdder()).add(delta));
+            log.warn("热门搜索计数写入失败，下次刷新重试，关键字数：{}", deltas.size(), e);
+        }
+    }
+
+    /**
+     * 合并窗口内的桶，更新本节点的排行
+     */
+    public void refresh() {
+        try {
+            long now = System.currentTimeMillis();
+            Map<Range, List<String>> refreshed = new EnumMap<>(Range.class);
+            refreshed.put(Range.HOUR, top(Range.HOUR, ProductConstants.HOT_KEYWORD_MINUTE_KEY, now / MINUTE, 60));
+            refreshed.put(Range.DAY, top(Range.DAY, ProductConstants.HOT_KEYWORD_HOUR_KEY, now / HOUR, 24));
+            rankings = refreshed;
+        } catch (Exception e) {
+            log.warn("热门搜索排行刷新失败，继续使用上一次的排行", e);
+        }
+    }
+
+    /**
+     * 以ZUNIONSTORE合并最近count个桶，取Top-N
+     * 各节点写入同一个结果键，内容相同，互相覆盖不影响结果
+     */
+    private List<String> top(Range range, String bucketPrefix, long current, int count) {
+        List<String> buckets = new ArrayList<>(count - 1);
+        for (long bucket = current - 1; bucket > current - count; bucket--) {
+            buckets.add(bucketPrefix + bucket);
+        }
+        String dest = ProductConstants.HOT_KEYWORD_TOP_KEY + range.name().toLowerCase(Locale.ROOT);
+        stringRedisTemplate.opsForZSet().unionAndStore(bucketPrefix + current, buckets, dest);
+        stringRedisTemplate.expire(dest, 1, TimeUnit.HOURS);
+        Set<String> keywords = stringRedisTemplate.opsForZSet().reverseRange(dest, 0, topN - 1);
+        return keywords == null ? List.of() : List.copyOf(keywords);
+    }
+
+    /**
+     * 去掉首尾空白并转小写，过长的关键字不计入排行
+     */
+    private static String normalize(String keyword) {
+        if (StrUtil.isBlank(keyword)) {
+            return null;
+        }
+        String key = keyword.trim();
+        return key.length() > MAX_KEYWORD_LENGTH ? null : key.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,213 @@
+package com.leo.productservice.search;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
+import com.leo.commoncore.constant.ProductConstants;
+import com.leo.productservice.dto.HotEventDTO;
+import com.leo.productservice.model.ProductEsModel;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 商品热度计算
+ *
+ * 热度按半衰期指数衰减：一次事件的贡献为 权重 * 2^(-(当前时刻 - 事件时刻) / 半衰期)。
+ * 1. 累加：浏览、加购、下单事件按权重累加到进程内计数器，计数器按skuId分片，DoubleAdder无锁累加
+ * 2. 合并：定时任务每隔flush-interval取出各SKU的增量，一次Lua调用批量合并到Redis，多个节点的增量合并为全局热度
+ * 3. 写索引：合并后的热度交给{@link IndexUpdateBuffer}，与其他部分更新一起以bulk写入
+ *
+ * Redis与索引中保存的是对数前向衰减值 log2(Σ 权重 * 2^((事件时刻 - 基准时刻) / 半衰期))，
+ * 随时间自然增长且不会溢出，两个SKU的大小关系与衰减到任意同一时刻的热度一致，
+ * 因此没有新事件的SKU不需要随时间重算、重写索引。
+ *
+ * 节点宕机时丢失最近一个刷新间隔内的增量；回收空闲计数器时可能丢失极少量并发事件，热度为统计值可以接受。
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Slf4j
+@Component
+public class HotScoreEngine {
+
+    /**
+     * 前向衰减的基准时刻 2025-01-01T00:00:00Z
+     */
+    private static final long LANDMARK = 1735689600000L;
+
+    /**
+     * 写入索引时的放大倍数，索引中的热度为整数
+     */
+    private static final double SCALE = 1000;
+
+    private static final int SHARDS = 16;
+    private static final int MERGE_BATCH_SIZE = 500;
+    private static final Duration DEDUP_TTL = Duration.ofDays(1);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final IndexUpdateBuffer indexUpdateBuffer;
+    private final DefaultRedisScript<List> mergeScript;
+    private final long halfLife;
+    private final Map<HotEventDTO.Type, Double> weights;
+
+    private final List<Map<Long, DoubleAdder>> shards = new ArrayList<>(SHARDS);
+
+    public HotScoreEngine(StringRedisTemplate stringRedisTemplate,
+                          IndexUpdateBuffer indexUpdateBuffer,
+                          @Value("${search.hot-score.half-life:3600000}") long halfLife,
+                          @Value("${search.hot-score.view-weight:1}") double viewWeight,
+                          @Value("${search.hot-score.cart-weight:5}") double cartWeight,
+                          @Value("${search.hot-score.order-weight:10}") double orderWeight) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.indexUpdateBuffer = indexUpdateBuffer;
+        this.halfLife = halfLife;
+        this.weights = new EnumMap<>(Map.of(
+                HotEventDTO.Type.VIEW, viewWeight,
+                HotEventDTO.Type.CART, cartWeight,
+                HotEventDTO.Type.ORDER, orderWeight));
+        this.mergeScript = new DefaultRedisScript<>();
+        this.mergeScript.setLocation(new ClassPathResource("lua/hot_score_merge.lua"));
+        this.mergeScript.setResultType(List.class);
+        for (int i = 0; i < SHARDS; i++) {
+            shards.add(new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * 记录热度事件
+     */
+    public void record(List<HotEventDTO> events) {
+        if (CollUtil.isEmpty(events)) {
+            return;
+        }
+        for (HotEventDTO event : events) {
+            if (event.getSkuId() == null || event.getType() == null) {
+                continue;
+            }
+            int count = event.getCount() == null ? 1 : event.getCount();
+            if (count > 0) {
+                add(event.getSkuId(), weights.get(event.getType()) * count);
+            }
+        }
+    }
+
+    /**
+     * 按幂等键记录热度事件，同一幂等键在保留期内只记录一次，调用方重试时不重复计数
+     */
+    public void record(List<HotEventDTO> events, String idempotencyKey) {
+        if (StrUtil.isNotBlank(idempotencyKey) && !Boolean.TRUE.equals(stringRedisTemplate.opsForValue()
+                .setIfAbsent(ProductConstants.HOT_EVENT_DEDUP_KEY + idempotencyKey, "1", DEDUP_TTL))) {
+            log.debug("热度事件重复上报，已忽略：{}", idempotencyKey);
+            return;
+        }
+        record(events);
+    }
+
+    /**
+     * 查询SKU当前的索引热度，没有热度的SKU不在结果中
+     */
+    public Map<Long, Long> getScores(Collection<Long> skuIds) {
+        if (CollUtil.isEmpty(skuIds)) {
+            return Collections.emptyMap();
+        }
+        List<Long> ids = new ArrayList<>(skuIds);
+        List<Object> fields = ids.stream().map(String::valueOf).collect(Collectors.toList());
+        List<Object> values = stringRedisTemplate.opsForHash().multiGet(ProductConstants.HOT_SCORE_KEY, fields);
+        Map<Long, Long> scores = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            Object value = values.get(i);
+            if (value != null) {
+                scores.put(ids.get(i), toHotScore(value));
+            }
+        }
+        return scores;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void add(Long skuId, double weight) {
+        shards.get(shardOf(skuId)).computeIfAbsent(skuId, id -> new DoubleAdder()).add(weight);
+    }
+
+    /**
+     * 取出各分片的增量合并到Redis，再写入索引
+     */
+    public synchronized void flush() {
+        // 一个刷新间隔远小于半衰期，间隔内的事件都按刷新时刻计
+        double elapsed = (double) (System.currentTimeMillis() - LANDMARK) / halfLife;
+        Map<Long, Double> deltas = new LinkedHashMap<>();
+        for (Map<Long, DoubleAdder> shard : shards) {
+            for (Map.Entry<Long, DoubleAdder> entry : shard.entrySet()) {
+                double delta = entry.getValue().sumThenReset();
+                if (delta > 0) {
+                    deltas.put(entry.getKey(), delta);
+                } else {
+                    shard.remove(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        List<Long> batch = new ArrayList<>(MERGE_BATCH_SIZE);
+        for (Long skuId : deltas.keySet()) {
+            batch.add(skuId);
+            if (batch.size() >= MERGE_BATCH_SIZE) {
+                merge(batch, deltas, elapsed);
+                batch = new ArrayList<>(MERGE_BATCH_SIZE);
+            }
+        }
+        if (!batch.isEmpty()) {
+            merge(batch, deltas, elapsed);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void merge(List<Long> skuIds, Map<Long, Double> deltas, double elapsed) {
+        List<String> args = new ArrayList<>(skuIds.size() * 2);
+        for (Long skuId : skuIds) {
+            args.add(String.valueOf(skuId));
+            args.add(String.valueOf(elapsed + Math.log(deltas.get(skuId)) / Math.log(2)));
+        }
+
+        List<String> scores;
+        try {
+            scores = stringRedisTemplate.execute(mergeScript,
+                    List.of(ProductConstants.HOT_SCORE_KEY), args.toArray());
+        } catch (Exception e) {
+            // 增量放回计数器，下次刷新重试
+            skuIds.forEach(skuId -> add(skuId, deltas.get(skuId)));
+            log.warn("商品热度合并失败，下次刷新重试，SKU数：{}", skuIds.size(), e);
+            return;
+        }
+        if (scores == null) {
+            return;
+        }
+        for (int i = 0; i < skuIds.size() && i < scores.size(); i++) {
+            indexUpdateBuffer.offer(ProductEsModel.builder()
+                    .skuId(skuIds.get(i))
+                    .hotScore(toHotScore(scores.get(i)))
+                    .build());
+        }
+    }
+
+    private static long toHotScore(Object value) {
+        return Math.round(Double.parseDouble(value.toString()) * SCALE);
+    }
+
+    private static int shardOf(Long skuId) {
+        int h = Long.hashCode(skuId);
+        return (h ^ (h >>> 16)) & (SHARDS - 1);
+    }
+}
@@ -0,0 +1,160 @@
+package com.leo.productservice.search;
+
+import com.leo.commoncore.constant.ProductConstants;
+import com.leo.productservice.cache.SearchResultCache;
+import com.leo.productservice.model.ProductEsModel;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 商品索引增量更新缓冲
+ *
+ * 库存状态、热度分、价格、销量的变化以部分文档写入缓冲，按skuId合并：
+ * 1. 合并：同一SKU的多次变化逐字段后写覆盖，一次刷新只发一个部分更新
+ * 2. 刷新：由定时任务每隔flush-interval毫秒刷新，缓冲达到max-docs个SKU时提交到定时任务线程池立即刷新，
+ *    以bulk部分更新写入索引
+ * 3. 失败：由{@link BulkIndexer}退避重试，重试用尽仍可恢复的变化放回缓冲（已有更新的字段不被覆盖），
+ *    下次刷新重试；文档不存在（未上架）的SKU直接丢弃
+ *
+ * 事务内提交的变化在提交后才进入缓冲。只有库存状态与价格会改变筛选结果，
+ * 刷新中包含这两类变化时才清空搜索结果缓存，热度分与销量只影响排序，等待缓存过期。
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Slf4j
+@Component
+public class IndexUpdateBuffer {
+
+    private final BulkIndexer bulkIndexer;
+    private final SearchResultCache searchResultCache;
+    private final TaskScheduler taskScheduler;
+    private final int maxDocs;
+
+    private final Map<Long, ProductEsModel> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    public IndexUpdateBuffer(BulkIndexer bulkIndexer,
+                             SearchResultCache searchResultCache,
+                             TaskScheduler taskScheduler,
+                             @Value("${search.index-buffer.max-docs:500}") int maxDocs) {
+        this.bulkIndexer = bulkIndexer;
+        this.searchResultCache = searchResultCache;
+        this.taskScheduler = taskScheduler;
+        this.maxDocs = maxDocs;
+    }
+
+    /**
+     * 写入一个部分文档，事务内调用时在提交后写入
+     *
+     * @param partial 部分文档，skuId必填，其余只填变化的字段
+     */
+    public void offer(ProductEsModel partial) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(partial);
+                }
+            });
+        } else {
+            enqueue(partial);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void enqueue(ProductEsModel partial) {
+        pending.merge(partial.getSkuId(), partial, IndexUpdateBuffer::merge);
+        if (pending.size() >= maxDocs && flushRequested.compareAndSet(false, true)) {
+            taskScheduler.schedule(this::flush, Instant.now());
+        }
+    }
+
+    /**
+     * 按max-docs分批发出缓冲中的全部变化
+     */
+    public synchronized void flush() {
+        flushRequested.set(false);
+        boolean filterChanged = false;
+        while (!pending.isEmpty()) {
+            List<ProductEsModel> batch = new ArrayList<>(Math.min(pending.size(), maxDocs));
+            Iterator<Long> it = pending.keySet().iterator();
+            while (it.hasNext() && batch.size() < maxDocs) {
+                ProductEsModel partial = pending.remove(it.next());
+                if (partial != null) {
+                    batch.add(partial);
+                }
+            }
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            List<ProductEsModel> retry = send(batch);
+            filterChanged |= batch.stream().anyMatch(partial -> partial.getHasStock() != null || partial.getPrice() != null);
+            if (!retry.isEmpty()) {
+                // 放回缓冲，期间产生的新值优先
+                retry.forEach(partial -> pending.merge(partial.getSkuId(), partial, (current, failed) -> merge(failed, current)));
+                log.warn("商品索引增量更新失败，下次刷新重试，SKU数：{}", retry.size());
+                break;
+            }
+        }
+        if (filterChanged) {
+            searchResultCache.invalidateAll();
+        }
+    }
+
+    /**
+     * 写入一批部分更新
+     *
+     * @return 需要放回缓冲重试的部分文档
+     */
+    private List<ProductEsModel> send(List<ProductEsModel> batch) {
+        BulkIndexer.Result result = bulkIndexer.update(ProductConstants.PRODUCT_INDEX, batch);
+        if (result.isSuccess()) {
+            return List.of();
+        }
+        Map<String, ProductEsModel> byId = new HashMap<>(batch.size() * 2);
+        batch.forEach(partial -> byId.put(partial.getSkuId().toString(), partial));
+        List<ProductEsModel> retry = new ArrayList<>();
+        for (BulkIndexer.Failure failure : result.getFailures()) {
+            if (failure.retryable()) {
+                retry.add(byId.get(failure.id()));
+            } else if (failure.status() != 404) {
+                // 404：SKU未上架，索引中没有文档
+                log.error("商品索引增量更新失败: skuId={}, reason={}", failure.id(), failure.reason());
+            }
+        }
+        return retry;
+    }
+
+    /**
+     * 逐字段合并，newer中非空的字段覆盖older
+     */
+    private static ProductEsModel merge(ProductEsModel older, ProductEsModel newer) {
+        return ProductEsModel.builder()
+                .skuId(newer.getSkuId())
+                .hasStock(newer.getHasStock() != null ? newer.getHasStock() : older.getHasStock())
+                .hotScore(newer.getHotScore() != null ? newer.getHotScore() : older.getHotScore())
+                .price(newer.getPrice() != null ? newer.getPrice() : older.getPrice())
+                .saleCount(newer.getSaleCount() != null ? newer.getSaleCount() : older.getSaleCount())
+                .build();
+    }
+}
@@ -0,0 +1,121 @@
+package com.leo.productservice.search;
+
+import cn.hutool.core.collection.CollUtil;
+import com.leo.commoncore.response.R;
+import com.leo.productservice.client.InventoryFeignClient;
+import com.leo.productservice.dto.SkuIndexDTO;
+import com.leo.productservice.entity.ProductAttrValue;
+import com.leo.productservice.mapper.ProductAttrValueMapper;
+import com.leo.productservice.mapper.SkuInfoMapper;
+import com.leo.productservice.model.ProductEsModel;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.ZoneId;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 商品索引文档构建
+ *
+ * SKU、品牌、分类由一条关联查询取出，可检索属性按批次内的SPU一次IN查询补齐，
+ * 热度从Redis批量读取，库存状态按批次一次调用库存服务查询，全量重建与单个商品上架共用同一套构建逻辑。
+ * 库存服务不可用时构建失败，不写入未知的库存状态。
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductDocumentBuilder {
+
+    private final SkuInfoMapper skuInfoMapper;
+    private final ProductAttrValueMapper productAttrValueMapper;
+    private final HotScoreEngine hotScoreEngine;
+    private final InventoryFeignClient inventoryFeignClient;
+
+    /**
+     * 构建指定SPU下全部SKU的索引文档
+     *
+     * @param spuIds SPU ID列表
+     * @return 索引文档，SPU未上架时不包含其SKU
+     */
+    public List<ProductEsModel> buildBySpuIds(Collection<Long> spuIds) {
+        if (CollUtil.isEmpty(spuIds)) {
+            return Collections.emptyList();
+        }
+        return build(skuInfoMapper.selectIndexDocumentsBySpuIds(spuIds));
+    }
+
+    /**
+     * 构建索引文档
+     *
+     * @param skus 已关联品牌与分类的SKU
+     * @return 索引文档，与传入顺序一致
+     */
+    public List<ProductEsModel> build(List<SkuIndexDTO> skus) {
+        if (CollUtil.isEmpty(skus)) {
+            return Collections.emptyList();
+        }
+        Set<Long> spuIds = skus.stream()
+                .map(SkuIndexDTO::getSpuId)
+                .collect(Collectors.toSet());
+        Map<Long, List<ProductEsModel.Attrs>> attrMap = productAttrValueMapper.selectSearchAttrsBySpuIds(spuIds)
+                .stream()
+                .collect(Collectors.groupingBy(ProductAttrValue::getSpuId,
+                        Collectors.mapping(ProductDocumentBuilder::toAttrs, Collectors.toList())));
+        List<Long> skuIds = skus.stream()
+                .map(SkuIndexDTO::getSkuId)
+                .collect(Collectors.toList());
+        Map<Long, Long> hotScores = hotScoreEngine.getScores(skuIds);
+        Map<Long, Boolean> stocks = getStocks(skuIds);
+
+        List<ProductEsModel> documents = new ArrayList<>(skus.size());
+        for (SkuIndexDTO sku : skus) {
+            documents.add(ProductEsModel.builder()
+                    .skuId(sku.getSkuId())
+                    .spuId(sku.getSpuId())
+                    .skuTitle(sku.getSkuTitle())
+                    .skuImg(sku.getSkuImg())
+                    .price(sku.getPrice())
+                    .saleCount(sku.getSaleCount() == null ? 0L : sku.getSaleCount())
+                    .hasStock(stocks.getOrDefault(sku.getSkuId(), false))
+                    .hotScore(hotScores.getOrDefault(sku.getSkuId(), 0L))
+                    .brandId(sku.getBrandId())
+                    .brandName(sku.getBrandName())
+                    .brandImg(sku.getBrandImg())
+                    .categoryId(sku.getCategoryId())
+                    .categoryName(sku.getCategoryName())
+                    .attrs(attrMap.getOrDefault(sku.getSpuId(), Collections.emptyList()))
+                    .createTime(sku.getCreateTime() == null ? null
+                            : Date.from(sku.getCreateTime().atZone(ZoneId.systemDefault()).toInstant()))
+                    .build());
+        }
+        return documents;
+    }
+
+    /**
+     * 批量查询SKU是否有库存
+     *
+     * @return SKU ID -> 是否有库存，没有库存记录的SKU不在结果中
+     * @throws IllegalStateException 库存服务调用失败
+     */
+    public Map<Long, Boolean> getStocks(Collection<Long> skuIds) {
+        if (CollUtil.isEmpty(skuIds)) {
+            return Collections.emptyMap();
+        }
+        R<Map<Long, Boolean>> response = inventoryFeignClient.hasStock(new ArrayList<>(skuIds));
+        if (response == null || !response.isSuccess()) {
+            throw new IllegalStateException("查询库存状态失败：" + (response == null ? null : response.getMessage()));
+        }
+        return response.getData() == null ? Collections.emptyMap() : response.getData();
+    }
+
+    private static ProductEsModel.Attrs toAttrs(ProductAttrValue value) {
+        ProductEsModel.Attrs attrs = new ProductEsModel.Attrs();
+        attrs.setAttrId(value.getAttrId());
+        attrs.setAttrName(value.getAttrName());
+        attrs.setAttrValue(value.getAttrValue());
+        return attrs;
+    }
+}
@@ -0,0 +1,386 @@
+package com.leo.productservice.search;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.indices.update_aliases.Action;
+import com.leo.commoncore.constant.ProductConstants;
+import com.leo.productservice.cache.SearchResultCache;
+import com.leo.productservice.dto.SkuIndexDTO;
+import com.leo.productservice.mapper.SkuInfoMapper;
+import com.leo.productservice.model.ProductEsModel;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * 商品索引全量重建
+ *
+ * 1. 建索引：按版本号新建索引，写入期间关闭刷新、不建副本
+ * 2. 读取：MyBatis游标流式读取SKU（已关联品牌与分类），按固定条数切分批次，内存中只保留在途的批次
+ * 3. 写入：每个批次补齐属性后交给{@link BulkIndexer}切分、重试；在途批次数达到上限时读取线程阻塞等待，形成背压
+ * 4. 切换：全部写入成功后恢复刷新与副本，一次updateAliases把别名指向新索引，再删除旧索引
+ *
+ * 任一批次写入失败时放弃新索引，别名仍指向旧索引，搜索不受影响。
+ * 重建期间的上下架仍写入旧索引，上下架的SKU会被记录，切换后按数据库的最新上架状态补写或删除新索引中的文档。
+ * 重建期间库存状态变化的SKU会被记录，切换后按库存服务的最新状态补写到新索引。
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Slf4j
+@Component
+public class ProductReindexer {
+
+    private static final String MAPPING_LOCATION = "es/product-mapping.json";
+    private static final DateTimeFormatter VERSION_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private final ElasticsearchClient esClient;
+    private final SkuInfoMapper skuInfoMapper;
+    private final ProductDocumentBuilder productDocumentBuilder;
+    private final SearchResultCache searchResultCache;
+    private final BulkIndexer bulkIndexer;
+    private final IndexUpdateBuffer indexUpdateBuffer;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int chunkSize;
+    private final int maxInFlight;
+    private final int replicas;
+
+    private final ExecutorService runner;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Set<Long> stockChanged = ConcurrentHashMap.newKeySet();
+    private final Set<Long> publishChanged = ConcurrentHashMap.newKeySet();
+
+    public ProductReindexer(ElasticsearchClient esClient,
+                            SkuInfoMapper skuInfoMapper,
+                            ProductDocumentBuilder productDocumentBuilder,
+                            SearchResultCache searchResultCache,
+                            BulkIndexer bulkIndexer,
+                            IndexUpdateBuffer indexUpdateBuffer,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${search.reindex.chunk-size:1000}") int chunkSize,
+                            @Value("${search.reindex.max-in-flight:2}") int maxInFlight,
+                            @Value("${search.reindex.replicas:1}") int replicas) {
+        this.esClient = esClient;
+        this.skuInfoMapper = skuInfoMapper;
+        this.productDocumentBuilder = productDocumentBuilder;
+        this.searchResultCache = searchResultCache;
+        this.bulkIndexer = bulkIndexer;
+        this.indexUpdateBuffer = indexUpdateBuffer;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.chunkSize = chunkSize;
+        this.maxInFlight = maxInFlight;
+        this.replicas = replicas;
+        this.runner = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "product-reindex");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 在后台开始全量重建
+     *
+     * @return 是否已开始，本节点已有重建在执行时返回false
+     */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        runner.execute(() -> {
+            try {
+                reindex();
+            } catch (Exception e) {
+                log.error("商品索引全量重建失败", e);
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * 记录库存状态变化的SKU，只在重建期间记录
+     */
+    public void onStockChanged(Long skuId) {
+        if (running.get()) {
+            stockChanged.add(skuId);
+        }
+    }
+
+    /**
+     * 记录上架或下架的SKU，只在重建期间记录
+     */
+    public void onPublishChanged(Collection<Long> skuIds) {
+        if (running.get()) {
+            publishChanged.addAll(skuIds);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+    }
+
+    private void reindex() throws IOException, InterruptedException {
+        long start = System.currentTimeMillis();
+        String index = ProductConstants.PRODUCT_INDEX + "_" + LocalDateTime.now().format(VERSION_FORMAT);
+        createIndex(index);
+        log.info("商品索引开始重建: index={}", index);
+        // 之后读取的批次都会查询最新的上架与库存状态，此前记录的变化无需补写
+        stockChanged.clear();
+        publishChanged.clear();
+
+        long count;
+        try {
+            count = load(index);
+            esClient.indices().putSettings(p -> p
+                    .index(index)
+                    .settings(s -> s
+                            .numberOfReplicas(String.valueOf(replicas))
+                            .refreshInterval(t -> t.time("1s"))
+                    )
+            );
+            esClient.indices().refresh(r -> r.index(index));
+            swapAlias(index);
+        } catch (Exception e) {
+            deleteIndexQuietly(index);
+            throw e;
+        }
+        replayPublishChanges(index);
+        resyncStocks();
+
+        searchResultCache.invalidateAll();
+        log.info("商品索引重建完成: index={}, count={}, cost={}ms", index, count, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 新建索引，写入期间关闭刷新、不建副本
+     */
+    private void createIndex(String index) throws IOException {
+        try (InputStream mapping = new ClassPathResource(MAPPING_LOCATION).getInputStream()) {
+            esClient.indices().create(c -> c
+                    .index(index)
+                    .withJson(mapping)
+                    .settings(s -> s
+                            .numberOfReplicas("0")
+                            .refreshInterval(t -> t.time("-1"))
+                    )
+            );
+        }
+    }
+
+    /**
+     * 流式读取SKU写入新索引
+     *
+     * 游标在只读事务内独占连接，批次的属性查询在写入线程上执行，使用连接池中的其他连接。
+     *
+     * @return 写入的文档数
+     */
+    private long load(String index) throws IOException, InterruptedException {
+        BulkPipeline pipeline = new BulkPipeline(index);
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Cursor<SkuIndexDTO> cursor = skuInfoMapper.scanIndexDocuments()) {
+                    List<SkuIndexDTO> chunk = new ArrayList<>(chunkSize);
+                    for (SkuIndexDTO sku : cursor) {
+                        chunk.add(sku);
+                        if (chunk.size() >= chunkSize) {
+                            pipeline.submit(chunk);
+                            chunk = new ArrayList<>(chunkSize);
+                        }
+                    }
+                    if (!chunk.isEmpty()) {
+                        pipeline.submit(chunk);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("商品索引重建被中断", e);
+                }
+            });
+            return pipeline.await();
+        } finally {
+            pipeline.close();
+        }
+    }
+
+    /**
+     * 别名指向新索引，同一请求内移除旧索引上的别名；
+     * 旧版本直接使用了名为product的索引时，同一请求内删除该索引
+     */
+    private void swapAlias(String index) throws IOException {
+        String alias = ProductConstants.PRODUCT_INDEX;
+        List<String> previous = new ArrayList<>();
+        boolean concrete = false;
+        if (esClient.indices().existsAlias(e -> e.name(alias)).value()) {
+            previous.addAll(esClient.indices().getAlias(g -> g.name(alias)).result().keySet());
+        } else if (esClient.indices().exists(e -> e.index(alias)).value()) {
+            concrete = true;
+        }
+
+        List<Action> actions = new ArrayList<>();
+        actions.add(Action.of(a -> a.add(add -> add.index(index).alias(alias))));
+        for (String old : previous) {
+            actions.add(Action.of(a -> a.remove(remove -> remove.index(old).alias(alias))));
+        }
+        if (concrete) {
+            actions.add(Action.of(a -> a.removeIndex(remove -> remove.index(alias))));
+        }
+        esClient.indices().updateAliases(u -> u.actions(actions));
+        log.info("商品索引别名已切换: {} -> {}, 旧索引: {}", alias, index, concrete ? alias : previous);
+
+        for (String old : previous) {
+            deleteIndexQuietly(old);
+        }
+    }
+
+    /**
+     * 重建期间的上下架写入的是旧索引，切换后按这些SKU当前的上架状态写入或删除新索引中的文档
+     */
+    private void replayPublishChanges(String index) {
+        List<Long> skuIds = new ArrayList<>(publishChanged);
+        publishChanged.removeAll(skuIds);
+        for (int from = 0; from < skuIds.size(); from += chunkSize) {
+            List<Long> batch = skuIds.subList(from, Math.min(from + chunkSize, skuIds.size()));
+            try {
+                List<ProductEsModel> documents = productDocumentBuilder.build(skuInfoMapper.selectIndexDocumentsBySkuIds(batch));
+                Set<Long> published = documents.stream().map(ProductEsModel::getSkuId).collect(Collectors.toSet());
+                List<Long> removed = batch.stream().filter(skuId -> !published.contains(skuId)).collect(Collectors.toList());
+                if (!documents.isEmpty() && !bulkIndexer.index(index, documents).isSuccess()) {
+                    log.warn("重建后补写上架文档部分失败，SKU数：{}", documents.size());
+                }
+                // 404：文档不在新索引中，无需删除
+                if (!removed.isEmpty() && bulkIndexer.delete(index, removed).getFailures().stream()
+                        .anyMatch(failure -> failure.status() != 404)) {
+                    log.warn("重建后删除下架文档部分失败，SKU数：{}", removed.size());
+                }
+            } catch (Exception e) {
+                log.warn("重建后补写上下架失败，SKU数：{}", batch.size(), e);
+            }
+        }
+        if (!skuIds.isEmpty()) {
+            log.info("重建期间上下架的SKU已补写: count={}", skuIds.size());
+        }
+    }
+
+    /**
+     * 重建期间库存状态变化写入的是旧索引，切换后查询这些SKU的最新状态写入新索引
+     */
+    private void resyncStocks() {
+        List<Long> skuIds = new ArrayList<>(stockChanged);
+        stockChanged.removeAll(skuIds);
+        for (int from = 0; from < skuIds.size(); from += chunkSize) {
+            List<Long> batch = skuIds.subList(from, Math.min(from + chunkSize, skuIds.size()));
+            try {
+                productDocumentBuilder.getStocks(batch).forEach((skuId, hasStock) ->
+                        indexUpdateBuffer.offer(ProductEsModel.builder().skuId(skuId).hasStock(hasStock).build()));
+            } catch (Exception e) {
+                log.warn("重建后补写库存状态失败，SKU数：{}", batch.size(), e);
+            }
+        }
+        if (!skuIds.isEmpty()) {
+            log.info("重建期间库存状态变化的SKU已补写: count={}", skuIds.size());
+        }
+    }
+
+    private void deleteIndexQuietly(String index) {
+        try {
+            esClient.indices().delete(d -> d.index(index));
+        } catch (Exception e) {
+            log.warn("删除商品索引失败: index={}", index, e);
+        }
+    }
+
+    /**
+     * 批次写入管道，最多maxInFlight个批次同时写入
+     */
+    private class BulkPipeline {
+
+        private final String index;
+        private final ExecutorService senders;
+        private final Semaphore slots = new Semaphore(maxInFlight);
+        private final AtomicReference<Exception> failure = new AtomicReference<>();
+        private final AtomicLong indexed = new AtomicLong();
+
+        BulkPipeline(String index) {
+            this.index = index;
+            this.senders = Executors.newFixedThreadPool(maxInFlight, r -> {
+                Thread thread = new Thread(r, "product-reindex-bulk");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        /**
+         * 提交一个批次，在途批次已满时阻塞
+         */
+        void submit(List<SkuIndexDTO> chunk) throws InterruptedException {
+            slots.acquire();
+            if (failure.get() != null) {
+                slots.release();
+                throw new IllegalStateException("商品索引写入失败，停止读取", failure.get());
+            }
+            senders.execute(() -> {
+                try {
+                    write(productDocumentBuilder.build(chunk));
+                } catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    slots.release();
+                }
+            });
+        }
+
+        /**
+         * 等待在途批次写完
+         *
+         * @return 写入的文档数
+         */
+        long await() throws IOException, InterruptedException {
+            slots.acquire(maxInFlight);
+            slots.release(maxInFlight);
+            if (failure.get() != null) {
+                throw new IOException("商品索引写入失败", failure.get());
+            }
+            return indexed.get();
+        }
+
+        void close() {
+            senders.shutdownNow();
+        }
+
+        private void write(List<ProductEsModel> documents) throws IOException {
+            BulkIndexer.Result result = bulkIndexer.index(index, documents);
+            indexed.addAndGet(result.getSucceeded());
+            if (!result.isSuccess()) {
+                BulkIndexer.Failure first = result.getFailures().get(0);
+                throw new IOException("bulk写入失败，失败文档数：" + result.getFailures().size()
+                        + "，首个失败: skuId=" + first.id() + ", reason=" + first.reason());
+            }
+        }
+    }
+}
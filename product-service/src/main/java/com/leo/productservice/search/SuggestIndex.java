@@ -0,0 +1,292 @@
+package com.leo.productservice.search;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.leo.commoncore.constant.ProductConstants;
+import com.leo.productservice.dto.SkuIndexDTO;
+import com.leo.productservice.entity.Brand;
+import com.leo.productservice.mapper.BrandMapper;
+import com.leo.productservice.mapper.SkuInfoMapper;
+import com.leo.productservice.model.ProductEsModel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 搜索建议索引
+ *
+ * 输入框每次按键都会请求建议，全部在进程内完成，不访问ES：
+ * 1. 词：上架SKU标题中的词、品牌名、分类名，权重为包含该词的上架SKU数；品牌另以首字母为键，输入拼音首字母即可命中
+ * 2. 索引：{@link SuggestTrie}，每个前缀预先算好Top-K，查询只沿前缀走一遍
+ * 3. 增量：上下架时按SKU增减词权重，并经Redis发布订阅把变化推送给其他节点
+ * 4. 全量：定时任务在启动后及每隔rebuild-interval流式读取全部上架SKU重建，重建期间的增量在切换后重放
+ *
+ * 发布订阅不保证送达，未收到的变化由下一次全量重建修正。
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Slf4j
+@Component
+public class SuggestIndex implements MessageListener {
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int MIN_TOKEN_LENGTH = 2;
+    private static final int MAX_TOKEN_LENGTH = 20;
+
+    private final SkuInfoMapper skuInfoMapper;
+    private final BrandMapper brandMapper;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int topK;
+
+    /**
+     * 本节点标识，忽略自己发布的变化
+     */
+    private final String origin = UUID.randomUUID().toString();
+
+    /**
+     * 以下状态只在持有this锁时修改，查询无锁读取trie
+     */
+    private volatile SuggestTrie trie;
+    private Map<Long, Source> sources = new HashMap<>();
+
+    /**
+     * 全量重建期间的增量变化，切换后重放；未在重建时为null
+     */
+    private List<ChangeMessage> replay;
+
+    public SuggestIndex(SkuInfoMapper skuInfoMapper,
+                        BrandMapper brandMapper,
+                        StringRedisTemplate stringRedisTemplate,
+                        ObjectMapper objectMapper,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${search.suggest.top-k:10}") int topK) {
+        this.skuInfoMapper = skuInfoMapper;
+        this.brandMapper = brandMapper;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.topK = topK;
+        this.trie = new SuggestTrie(topK);
+    }
+
+    /**
+     * 查询搜索建议
+     *
+     * @param keyword 已输入的内容
+     * @return 建议词，按权重降序，最多topK个
+     */
+    public List<String> suggest(String keyword) {
+        String prefix = normalize(keyword);
+        if (prefix.length() > MAX_TOKEN_LENGTH) {
+            return List.of();
+        }
+        return trie.suggest(prefix, topK);
+    }
+
+    /**
+     * 商品上架或信息变化
+     */
+    public void update(List<ProductEsModel> products) {
+        if (CollUtil.isEmpty(products)) {
+            return;
+        }
+        Set<Long> brandIds = products.stream()
+                .map(ProductEsModel::getBrandId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, String> firstLetters = brandIds.isEmpty() ? Collections.emptyMap()
+                : firstLetters(brandMapper.selectBatchIds(brandIds));
+
+        ChangeMessage message = new ChangeMessage();
+        message.setOrigin(origin);
+        message.setUp(new HashMap<>(products.size() * 2));
+        for (ProductEsModel product : products) {
+            message.getUp().put(product.getSkuId(), new Source(product.getSkuTitle(), product.getBrandName(),
+                    firstLetters.get(product.getBrandId()), product.getCategoryName()));
+        }
+        apply(message);
+        publish(message);
+    }
+
+    /**
+     * 商品下架
+     */
+    public void remove(List<Long> skuIds) {
+        if (CollUtil.isEmpty(skuIds)) {
+            return;
+        }
+        ChangeMessage message = new ChangeMessage();
+        message.setOrigin(origin);
+        message.setDown(new ArrayList<>(skuIds));
+        apply(message);
+        publish(message);
+    }
+
+    /**
+     * 其他节点推送的变化
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            ChangeMessage change = objectMapper.readValue(message.getBody(), ChangeMessage.class);
+            if (!origin.equals(change.getOrigin())) {
+                apply(change);
+            }
+        } catch (IOException e) {
+            log.warn("忽略无法解析的搜索建议变更通知", e);
+        }
+    }
+
+    private synchronized void apply(ChangeMessage message) {
+        List<SuggestTrie.Change> changes = new ArrayList<>();
+        if (message.getDown() != null) {
+            for (Long skuId : message.getDown()) {
+                collect(sources.remove(skuId), -1, changes);
+            }
+        }
+        if (message.getUp() != null) {
+            for (Map.Entry<Long, Source> entry : message.getUp().entrySet()) {
+                collect(sources.put(entry.getKey(), entry.getValue()), -1, changes);
+                collect(entry.getValue(), 1, changes);
+            }
+        }
+        trie.apply(changes);
+        if (replay != null) {
+            replay.add(message);
+        }
+    }
+
+    /**
+     * 流式读取全部上架SKU重建索引，完成后切换并重放重建期间的变化
+     */
+    public void rebuild() {
+        synchronized (this) {
+            replay = new ArrayList<>();
+        }
+        try {
+            long start = System.currentTimeMillis();
+            Map<Long, String> firstLetters = firstLetters(brandMapper.selectList(null));
+            Map<Long, Source> rebuilt = new HashMap<>();
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Cursor<SkuIndexDTO> cursor = skuInfoMapper.scanIndexDocuments()) {
+                    for (SkuIndexDTO sku : cursor) {
+                        rebuilt.put(sku.getSkuId(), new Source(sku.getSkuTitle(), sku.getBrandName(),
+                                firstLetters.get(sku.getBrandId()), sku.getCategoryName()));
+                    }
+                } catch (IOException e) {
+                    throw new IllegalStateException("读取上架SKU失败", e);
+                }
+            });
+
+            SuggestTrie rebuiltTrie = new SuggestTrie(topK);
+            List<SuggestTrie.Change> changes = new ArrayList<>();
+            rebuilt.values().forEach(source -> collect(source, 1, changes));
+            rebuiltTrie.apply(changes);
+
+            synchronized (this) {
+                List<ChangeMessage> pending = replay;
+                replay = null;
+                trie = rebuiltTrie;
+                sources = rebuilt;
+                pending.forEach(this::apply);
+            }
+            log.info("搜索建议索引重建完成，SKU数：{}，耗时：{}ms", rebuilt.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            synchronized (this) {
+                replay = null;
+            }
+            log.error("搜索建议索引重建失败", e);
+        }
+    }
+
+    private void publish(ChangeMessage message) {
+        try {
+            stringRedisTemplate.convertAndSend(ProductConstants.SUGGEST_CHANGED_CHANNEL,
+                    objectMapper.writeValueAsString(message));
+        } catch (Exception e) {
+            log.warn("搜索建议变更通知发布失败，其他节点将在下次重建后更新", e);
+        }
+    }
+
+    /**
+     * 一个SKU贡献的词：标题中的词、品牌名、品牌首字母、分类名，同一个词只计一次
+     */
+    private static void collect(Source source, long delta, List<SuggestTrie.Change> changes) {
+        if (source == null) {
+            return;
+        }
+        Set<SuggestTrie.Change> entries = new LinkedHashSet<>();
+        if (StrUtil.isNotBlank(source.getSkuTitle())) {
+            for (String token : TOKEN_SEPARATOR.split(source.getSkuTitle())) {
+                if (token.length() >= MIN_TOKEN_LENGTH && token.length() <= MAX_TOKEN_LENGTH) {
+                    entries.add(new SuggestTrie.Change(normalize(token), token, delta));
+                }
+            }
+        }
+        for (String name : new String[]{source.getBrandName(), source.getCategoryName()}) {
+            if (StrUtil.isNotBlank(name)) {
+                entries.add(new SuggestTrie.Change(normalize(name), name.trim(), delta));
+            }
+        }
+        if (StrUtil.isNotBlank(source.getBrandName()) && StrUtil.isNotBlank(source.getBrandFirstLetter())) {
+            entries.add(new SuggestTrie.Change(normalize(source.getBrandFirstLetter()), source.getBrandName().trim(), delta));
+        }
+        changes.addAll(entries);
+    }
+
+    private static Map<Long, String> firstLetters(List<Brand> brands) {
+        Map<Long, String> firstLetters = new HashMap<>(brands.size() * 2);
+        for (Brand brand : brands) {
+            if (StrUtil.isNotBlank(brand.getFirstLetter())) {
+                firstLetters.put(brand.getId(), brand.getFirstLetter());
+            }
+        }
+        return firstLetters;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * SKU中用于生成建议词的字段
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Source {
+        private String skuTitle;
+        private String brandName;
+        private String brandFirstLetter;
+        private String categoryName;
+    }
+
+    /**
+     * 建议词变更通知
+     */
+    @Data
+    public static class ChangeMessage {
+        private String origin;
+        private Map<Long, Source> up;
+        private List<Long> down;
+    }
+}
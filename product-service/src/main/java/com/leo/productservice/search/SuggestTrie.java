@@ -0,0 +1,187 @@
+package com.leo.productservice.search;
+
+import java.util.*;
+
+/**
+ * 搜索建议前缀树
+ *
+ * 每个节点保存以该前缀开头的权重最高的K个建议词，查询时沿前缀走到节点直接返回，不再遍历子树：
+ * 1. 子节点：按字符排序的数组，二分查找，整体替换发布
+ * 2. 读：无锁，只读取已发布的子节点数组与Top-K数组
+ * 3. 写：由调用方串行执行，一批变化先更新词权重，再自深向浅重算受影响节点的Top-K，每个节点只算一次
+ *
+ * 同一个词可能经多个键到达同一子树（如品牌名与品牌首字母），合并Top-K时按词去重取最大权重。
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+class SuggestTrie {
+
+    private static final Comparator<Suggestion> ORDER = Comparator
+            .comparingLong(Suggestion::weight).reversed()
+            .thenComparing(Suggestion::term);
+
+    private final int topK;
+    private final Node root = new Node(null, (char) 0, 0);
+
+    SuggestTrie(int topK) {
+        this.topK = topK;
+    }
+
+    /**
+     * 查询前缀的建议词
+     *
+     * @param prefix 已规范化的前缀
+     * @param size   返回条数，不超过topK
+     */
+    List<String> suggest(String prefix, int size) {
+        if (prefix.isEmpty()) {
+            return List.of();
+        }
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.child(prefix.charAt(i));
+        }
+        if (node == null) {
+            return List.of();
+        }
+        Suggestion[] top = node.top;
+        List<String> terms = new ArrayList<>(Math.min(size, top.length));
+        for (int i = 0; i < top.length && i < size; i++) {
+            terms.add(top[i].term());
+        }
+        return terms;
+    }
+
+    /**
+     * 批量调整词权重并重算受影响节点的Top-K，调用方保证串行
+     */
+    void apply(List<Change> changes) {
+        Set<Node> dirty = new HashSet<>();
+        for (Change change : changes) {
+            if (change.key().isEmpty()) {
+                continue;
+            }
+            Node node = root;
+            for (int i = 0; i < change.key().length(); i++) {
+                node = node.childOrCreate(change.key().charAt(i));
+            }
+            long weight = node.own.getOrDefault(change.term(), 0L) + change.delta();
+            if (weight > 0) {
+                node.own.put(change.term(), weight);
+            } else {
+                node.own.remove(change.term());
+            }
+            for (Node n = node; n != root; n = n.parent) {
+                if (!dirty.add(n)) {
+                    break;
+                }
+            }
+        }
+
+        List<Node> ordered = new ArrayList<>(dirty);
+        ordered.sort(Comparator.comparingInt((Node n) -> n.depth).reversed());
+        for (Node node : ordered) {
+            node.recompute(topK);
+            if (node.top.length == 0 && node.children.labels.length == 0) {
+                node.parent.removeChild(node.label);
+            }
+        }
+    }
+
+    /**
+     * 一个词在某个键下的权重变化
+     */
+    record Change(String key, String term, long delta) {
+    }
+
+    private record Suggestion(String term, long weight) {
+    }
+
+    private record Children(char[] labels, Node[] nodes) {
+        static final Children EMPTY = new Children(new char[0], new Node[0]);
+    }
+
+    private static class Node {
+
+        private static final Suggestion[] NONE = new Suggestion[0];
+
+        final Node parent;
+        final char label;
+        final int depth;
+
+        /**
+         * 以本节点为完整键的词与权重，只在写线程访问
+         */
+        final Map<String, Long> own = new HashMap<>(2);
+
+        volatile Children children = Children.EMPTY;
+        volatile Suggestion[] top = NONE;
+
+        Node(Node parent, char label, int depth) {
+            this.parent = parent;
+            this.label = label;
+            this.depth = depth;
+        }
+
+        Node child(char c) {
+            Children current = children;
+            int i = Arrays.binarySearch(current.labels(), c);
+            return i >= 0 ? current.nodes()[i] : null;
+        }
+
+        Node childOrCreate(char c) {
+            Children current = children;
+            int i = Arrays.binarySearch(current.labels(), c);
+            if (i >= 0) {
+                return current.nodes()[i];
+            }
+            int at = -i - 1;
+            int n = current.labels().length;
+            char[] labels = new char[n + 1];
+            Node[] nodes = new Node[n + 1];
+            System.arraycopy(current.labels(), 0, labels, 0, at);
+            System.arraycopy(current.nodes(), 0, nodes, 0, at);
+            System.arraycopy(current.labels(), at, labels, at + 1, n - at);
+            System.arraycopy(current.nodes(), at, nodes, at + 1, n - at);
+            Node child = new Node(this, c, depth + 1);
+            labels[at] = c;
+            nodes[at] = child;
+            children = new Children(labels, nodes);
+            return child;
+        }
+
+        void removeChild(char c) {
+            Children current = children;
+            int at = Arrays.binarySearch(current.labels(), c);
+            if (at < 0) {
+                return;
+            }
+            int n = current.labels().length;
+            char[] labels = new char[n - 1];
+            Node[] nodes = new Node[n - 1];
+            System.arraycopy(current.labels(), 0, labels, 0, at);
+            System.arraycopy(current.nodes(), 0, nodes, 0, at);
+            System.arraycopy(current.labels(), at + 1, labels, at, n - at - 1);
+            System.arraycopy(current.nodes(), at + 1, nodes, at, n - at - 1);
+            children = new Children(labels, nodes);
+        }
+
+        /**
+         * 由本节点的词与各子节点的Top-K合并出本节点的Top-K
+         */
+        void recompute(int topK) {
+            Map<String, Long> candidates = new HashMap<>(own);
+            for (Node child : children.nodes()) {
+                for (Suggestion suggestion : child.top) {
+                    candidates.merge(suggestion.term(), suggestion.weight(), Math::max);
+                }
+            }
+            top = candidates.entrySet().stream()
+                    .map(entry -> new Suggestion(entry.getKey(), entry.getValue()))
+                    .sorted(ORDER)
+                    .limit(topK)
+                    .toArray(Suggestion[]::new);
+        }
+    }
+}
@@ -7,6 +7,7 @@ import com.leo.productservice.entity.Category;
 import com.leo.productservice.vo.CategoryTreeVO;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 商品分类服务接口
@@ -55,6 +56,15 @@ public interface CategoryService extends IService<Category> {
      */
     List<Long> getCategoryPath(Long categoryId);
 
+    /**
+     * 批量获取分类路径
+     * 优先从本地路径索引读取，未命中的分类一次查询路径列
+     *
+     * @param categoryIds 分类ID列表
+     * @return 分类ID -> 分类路径，不存在的分类不包含在结果中
+     */
+    Map<Long, List<Long>> getCategoryPaths(List<Long> categoryIds);
+
     /**
      * 创建分类
      *
@@ -1,12 +1,15 @@
 package com.leo.productservice.service;
 
 
+import com.leo.productservice.dto.HotEventDTO;
 import com.leo.productservice.dto.SearchParam;
 import com.leo.productservice.dto.SearchResult;
 import com.leo.productservice.model.ProductEsModel;
+import com.leo.productservice.search.HotKeywordTracker;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 商品搜索服务接口
@@ -41,18 +44,56 @@ public interface SearchService {
     SearchResult search(SearchParam param) throws IOException;
     
     /**
-     * 更新商品热度分
+     * 搜索建议
+     *
+     * @param keyword 已输入的内容
+     * @return 建议词
+     */
+    List<String> suggest(String keyword);
+
+    /**
+     * 热门搜索词
+     *
+     * @param range 统计窗口
+     * @return 按搜索次数降序的关键字
+     */
+    List<String> getHotKeywords(HotKeywordTracker.Range range);
+
+    /**
+     * 记录商品热度事件（浏览、加购、下单），热度定时计算后写入索引
+     *
+     * @param events 热度事件
+     */
+    void recordHotEvents(List<HotEventDTO> events);
+
+    /**
+     * 按幂等键记录商品热度事件，同一幂等键只记录一次
+     *
+     * @param events 热度事件
+     * @param idempotencyKey 调用方的幂等键，为空时不去重
+     */
+    void recordHotEvents(List<HotEventDTO> events, String idempotencyKey);
+    
+    /**
+     * 更新商品热度分（合并后异步写入）
      *
      * @param skuId SKU ID
      * @param hotScore 热度分
      */
-    void updateHotScore(Long skuId, Long hotScore) throws IOException;
+    void updateHotScore(Long skuId, Long hotScore);
     
     /**
-     * 更新商品库存状态
+     * 更新商品库存状态（合并后异步写入）
      *
      * @param skuId SKU ID
      * @param hasStock 是否有库存
      */
-    void updateStock(Long skuId, Boolean hasStock) throws IOException;
+    void updateStock(Long skuId, Boolean hasStock);
+
+    /**
+     * 批量更新商品库存状态（合并后异步写入）
+     *
+     * @param stocks SKU ID -> 是否有库存
+     */
+    void updateStocks(Map<Long, Boolean> stocks);
 }
\ No newline at end of file
@@ -8,6 +8,7 @@ import com.leo.productservice.entity.SpuInfo;
 import com.leo.productservice.vo.SpuVO;
 
 
+import java.math.BigDecimal;
 import java.util.List;
 
 /**
@@ -70,6 +71,15 @@ public interface SpuService extends IService<SpuInfo> {
      */
     void updateSpuInfo(Long id, SpuSaveDTO dto);
 
+    /**
+     * 修改SKU价格
+     * 提交后推送快照变更，订单服务失效本地缓存
+     *
+     * @param skuId SKU ID
+     * @param price 新价格
+     */
+    void updateSkuPrice(Long skuId, BigDecimal price);
+
     /**
      * 商品上架
      * 1. 更新状态为上架
@@ -1,13 +1,14 @@
 package com.leo.productservice.service.impl;
 
 import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.leo.commoncore.constant.ProductConstants;
 import com.leo.commoncore.exception.BizException;
-import com.leo.commonredis.util.RedisUtil;
-
+import com.leo.productservice.cache.CategoryCache;
 import com.leo.productservice.converter.CategoryConverter;
 import com.leo.productservice.dto.CategoryDTO;
 import com.leo.productservice.entity.Category;
@@ -15,7 +16,6 @@ import com.leo.productservice.mapper.CategoryMapper;
 import com.leo.productservice.service.CategoryService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import com.leo.productservice.vo.CategoryTreeVO;
@@ -36,68 +36,11 @@ public class CategoryServiceImpl extends ServiceImpl<CategoryMapper, Category> i
 
     private final CategoryMapper categoryMapper;
     private final CategoryConverter categoryConverter;
-    private final RedisUtil redisUtil;
-
-    @Value("${cache.category.expire-time:86400}")
-    private Long cacheExpireTime;
+    private final CategoryCache categoryCache;
 
     @Override
     public List<CategoryTreeVO> getCategoryTree() {
-        // 尝试从缓存获取
-        String cacheKey = ProductConstants.CATEGORY_TREE_CACHE_KEY;
-        Object cached = redisUtil.get(cacheKey);
-        if (cached != null) {
-            return (List<CategoryTreeVO>) cached;
-        }
-
-        // 查询所有分类
-        List<Category> allCategories = categoryMapper.selectList(
-                new LambdaQueryWrapper<Category>()
-                        .eq(Category::getShowStatus, 1)
-                        .orderByAsc(Category::getSort)
-        );
-
-        // 构建树形结构
-        List<CategoryTreeVO> tree = buildCategoryTree(allCategories);
-
-        // 存入缓存
-        redisUtil.set(cacheKey, tree, cacheExpireTime);
-
-        return tree;
-    }
-
-    /**
-     * 构建分类树
-     */
-    private List<CategoryTreeVO> buildCategoryTree(List<Category> categories) {
-        // 转换为VO
-        List<CategoryTreeVO> voList = categories.stream()
-                .map(categoryConverter::toTreeVO)
-                .collect(Collectors.toList());
-
-        // 构建ID映射
-        Map<Long, CategoryTreeVO> categoryMap = voList.stream()
-                .collect(Collectors.toMap(CategoryTreeVO::getId, vo -> vo));
-
-        // 构建树形结构
-        List<CategoryTreeVO> tree = new ArrayList<>();
-        for (CategoryTreeVO vo : voList) {
-            if (vo.getParentId() == 0) {
-                // 一级分类
-                tree.add(vo);
-            } else {
-                // 子分类
-                CategoryTreeVO parent = categoryMap.get(vo.getParentId());
-                if (parent != null) {
-                    if (parent.getChildren() == null) {
-                        parent.setChildren(new ArrayList<>());
-                    }
-                    parent.getChildren().add(vo);
-                }
-            }
-        }
-
-        return tree;
+        return categoryCache.getTree();
     }
 
     @Override
@@ -131,31 +74,55 @@ public class CategoryServiceImpl extends ServiceImpl<CategoryMapper, Category> i
 
     @Override
     public List<Long> getCategoryPath(Long categoryId) {
-        List<Long> path = new ArrayList<>();
-        Category current = getById(categoryId);
-        
-        // 递归查找父分类
-        while (current != null && current.getParentId() != 0) {
-            path.add(0, current.getId());
-            current = categoryMapper.selectById(current.getParentId());
-        }
-        
-        // 添加一级分类
-        if (current != null) {
-            path.add(0, current.getId());
+        List<Long> path = getCategoryPaths(List.of(categoryId)).get(categoryId);
+        if (path == null) {
+            throw new BizException("分类不存在");
         }
-        
         return path;
     }
 
+    @Override
+    public Map<Long, List<Long>> getCategoryPaths(List<Long> categoryIds) {
+        Map<Long, List<Long>> paths = new LinkedHashMap<>();
+        if (CollUtil.isEmpty(categoryIds)) {
+            return paths;
+        }
+
+        List<Long> missing = new ArrayList<>();
+        for (Long categoryId : new LinkedHashSet<>(categoryIds)) {
+            List<Long> cached = categoryCache.getPath(categoryId);
+            if (cached != null) {
+                paths.put(categoryId, cached);
+            } else {
+                missing.add(categoryId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return paths;
+        }
+
+        // 本节点尚未收到新增分类的失效通知时查询路径列
+        List<Category> categories = categoryMapper.selectList(
+                new LambdaQueryWrapper<Category>()
+                        .select(Category::getId, Category::getParentId, Category::getPath)
+                        .in(Category::getId, missing)
+        );
+        for (Category category : categories) {
+            paths.put(category.getId(), pathOf(category));
+        }
+        return paths;
+    }
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public Long create(CategoryDTO dto) {
         // 验证分类层级
         validateCategoryLevel(dto);
 
-        // 创建分类
+        // 创建分类，先分配ID以便同时写入路径
         Category category = categoryConverter.toEntity(dto);
+        category.setId(IdWorker.getId());
+        category.setPath(buildPath(dto.getParentId(), category.getId()));
         categoryMapper.insert(category);
 
         // 清除缓存
@@ -171,15 +138,27 @@ public class CategoryServiceImpl extends ServiceImpl<CategoryMapper, Category> i
         Category existCategory = getById(id);
 
         // 如果修改了父分类，验证层级
-        if (!existCategory.getParentId().equals(dto.getParentId())) {
+        boolean moved = !existCategory.getParentId().equals(dto.getParentId());
+        if (moved) {
             validateCategoryLevel(dto);
         }
 
         // 更新分类
         Category category = categoryConverter.toEntity(dto);
         category.setId(id);
+        if (moved) {
+            category.setPath(buildPath(dto.getParentId(), id));
+        }
         categoryMapper.updateById(category);
 
+        // 移动分类时子孙分类的路径前缀与层级一并更新
+        if (moved) {
+            String oldPath = StrUtil.isNotBlank(existCategory.getPath())
+                    ? existCategory.getPath() : joinPath(pathOf(existCategory));
+            categoryMapper.moveDescendants(oldPath, category.getPath(),
+                    dto.getLevel() - existCategory.getLevel());
+        }
+
         // 清除缓存
         clearCategoryCache();
     }
@@ -258,13 +237,52 @@ public class CategoryServiceImpl extends ServiceImpl<CategoryMapper, Category> i
         }
     }
 
+    /**
+     * 构建分类路径
+     *
+     * @param parentId 父分类ID
+     * @param id       分类ID
+     * @return 以/分隔的ID路径
+     */
+    private String buildPath(Long parentId, Long id) {
+        if (parentId == 0) {
+            return String.valueOf(id);
+        }
+        List<Long> parentPath = pathOf(getById(parentId));
+        if (parentPath.contains(id)) {
+            throw new BizException("不能移动到自身或子分类下");
+        }
+        return joinPath(parentPath) + ProductConstants.CATEGORY_PATH_SEPARATOR + id;
+    }
+
+    /**
+     * 解析分类路径，历史数据未回填路径列时逐级查询父分类
+     */
+    private List<Long> pathOf(Category category) {
+        if (StrUtil.isNotBlank(category.getPath())) {
+            return Arrays.stream(category.getPath().split(ProductConstants.CATEGORY_PATH_SEPARATOR))
+                    .map(Long::valueOf)
+                    .collect(Collectors.toList());
+        }
+        LinkedList<Long> path = new LinkedList<>();
+        Category current = category;
+        while (current != null) {
+            path.addFirst(current.getId());
+            current = current.getParentId() == 0 ? null : categoryMapper.selectById(current.getParentId());
+        }
+        return path;
+    }
+
+    private String joinPath(List<Long> path) {
+        return path.stream()
+                .map(String::valueOf)
+                .collect(Collectors.joining(ProductConstants.CATEGORY_PATH_SEPARATOR));
+    }
+
     /**
      * 清除分类缓存
      */
     private void clearCategoryCache() {
-        redisUtil.del(ProductConstants.CATEGORY_TREE_CACHE_KEY);
-        // 清除所有分类路径缓存（使用通配符）
-        redisUtil.deleteByPattern(ProductConstants.CATEGORY_PATH_CACHE_KEY + "*");
-        log.info("分类缓存已清除");
+        categoryCache.invalidate();
     }
 }
\ No newline at end of file
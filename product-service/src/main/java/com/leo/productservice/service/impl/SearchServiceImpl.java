@@ -5,14 +5,27 @@ import cn.hutool.core.util.StrUtil;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
 import co.elastic.clients.elasticsearch._types.FieldValue;
 import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.LongTermsBucket;
+import co.elastic.clients.elasticsearch._types.aggregations.StringTermsBucket;
 import co.elastic.clients.elasticsearch._types.query_dsl.*;
 import co.elastic.clients.elasticsearch.core.*;
-import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
 import co.elastic.clients.elasticsearch.core.search.Hit;
 import co.elastic.clients.json.JsonData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.leo.commoncore.constant.ProductConstants;
+import com.leo.commoncore.exception.BizException;
+import com.leo.productservice.cache.SearchResultCache;
+import com.leo.productservice.dto.HotEventDTO;
 import com.leo.productservice.dto.SearchParam;
 import com.leo.productservice.dto.SearchResult;
 import com.leo.productservice.model.ProductEsModel;
+import com.leo.productservice.search.BulkIndexer;
+import com.leo.productservice.search.HotKeywordTracker;
+import com.leo.productservice.search.HotScoreEngine;
+import com.leo.productservice.search.IndexUpdateBuffer;
+import com.leo.productservice.search.ProductReindexer;
+import com.leo.productservice.search.SuggestIndex;
 import com.leo.productservice.service.SearchService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -22,7 +35,9 @@ import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -37,7 +52,38 @@ import java.util.stream.Collectors;
 public class SearchServiceImpl implements SearchService {
     
     private final ElasticsearchClient esClient;
-    private static final String PRODUCT_INDEX = "product";
+    private final ObjectMapper objectMapper;
+    private final SearchResultCache searchResultCache;
+    private final IndexUpdateBuffer indexUpdateBuffer;
+    private final HotScoreEngine hotScoreEngine;
+    private final BulkIndexer bulkIndexer;
+    private final SuggestIndex suggestIndex;
+    private final HotKeywordTracker hotKeywordTracker;
+    private final ProductReindexer productReindexer;
+    private static final String PRODUCT_INDEX = ProductConstants.PRODUCT_INDEX;
+
+    /**
+     * 游标模式point-in-time保活时间，每次翻页续期
+     */
+    private static final String PIT_KEEP_ALIVE = "1m";
+
+    /**
+     * 聚合名称
+     */
+    private static final String BRAND_AGG = "brand_agg";
+    private static final String BRAND_NAME_AGG = "brand_name_agg";
+    private static final String BRAND_IMG_AGG = "brand_img_agg";
+    private static final String CATEGORY_AGG = "category_agg";
+    private static final String CATEGORY_NAME_AGG = "category_name_agg";
+    private static final String ATTR_AGG = "attr_agg";
+    private static final String ATTR_ID_AGG = "attr_id_agg";
+    private static final String ATTR_NAME_AGG = "attr_name_agg";
+    private static final String ATTR_VALUE_AGG = "attr_value_agg";
+
+    /**
+     * 每个筛选项最多返回的分组数
+     */
+    private static final int FACET_SIZE = 50;
 
     @Override
     public boolean productUp(List<ProductEsModel> productEsModels) throws IOException {
@@ -45,36 +91,20 @@ public class SearchServiceImpl implements SearchService {
             return true;
         }
         
-        // 构建批量操作
-        List<BulkOperation> operations = productEsModels.stream()
-                .map(product -> BulkOperation.of(op -> op
-                        .index(idx -> idx
-                                .index(PRODUCT_INDEX)
-                                .id(product.getSkuId().toString())
-                                .document(product)
-                        )
-                ))
-                .collect(Collectors.toList());
-        
-        // 执行批量索引
-        BulkResponse response = esClient.bulk(b -> b
-                .index(PRODUCT_INDEX)
-                .operations(operations)
-        );
-        
-        boolean hasErrors = response.errors();
-        if (hasErrors) {
-            log.error("商品上架失败，部分文档索引失败");
-            response.items().forEach(item -> {
-                if (item.error() != null) {
-                    log.error("索引失败: {}", item.error().reason());
-                }
-            });
-        } else {
+        productReindexer.onPublishChanged(productEsModels.stream().map(ProductEsModel::getSkuId).collect(Collectors.toList()));
+        BulkIndexer.Result result = bulkIndexer.index(PRODUCT_INDEX, productEsModels);
+        if (result.isSuccess()) {
             log.info("商品上架成功，共上架 {} 个商品", productEsModels.size());
+        } else {
+            log.error("商品上架失败，部分文档索引失败，成功 {} 个，失败 {} 个",
+                    result.getSucceeded(), result.getFailures().size());
+            result.getFailures().forEach(failure ->
+                    log.error("索引失败: skuId={}, status={}, reason={}", failure.id(), failure.status(), failure.reason()));
         }
+        searchResultCache.invalidateAll();
+        suggestIndex.update(productEsModels);
         
-        return !hasErrors;
+        return result.isSuccess();
     }
     
     @Override
@@ -83,38 +113,50 @@ public class SearchServiceImpl implements SearchService {
             return true;
         }
         
-        // 构建批量删除操作
-        List<BulkOperation> operations = skuIds.stream()
-                .map(skuId -> BulkOperation.of(op -> op
-                        .delete(d -> d
-                                .index(PRODUCT_INDEX)
-                                .id(skuId.toString())
-                        )
-                ))
+        productReindexer.onPublishChanged(skuIds);
+        BulkIndexer.Result result = bulkIndexer.delete(PRODUCT_INDEX, skuIds);
+        // 404：文档已不在索引中，视为下架成功
+        List<BulkIndexer.Failure> failures = result.getFailures().stream()
+                .filter(failure -> failure.status() != 404)
                 .collect(Collectors.toList());
-        
-        // 执行批量删除
-        BulkResponse response = esClient.bulk(b -> b
-                .index(PRODUCT_INDEX)
-                .operations(operations)
-        );
-        
-        boolean hasErrors = response.errors();
+        boolean hasErrors = !failures.isEmpty();
         if (hasErrors) {
-            log.error("商品下架失败");
+            log.error("商品下架失败，失败 {} 个", failures.size());
+            failures.forEach(failure ->
+                    log.error("删除失败: skuId={}, status={}, reason={}", failure.id(), failure.status(), failure.reason()));
         } else {
             log.info("商品下架成功，共下架 {} 个商品", skuIds.size());
         }
+        searchResultCache.invalidateAll();
+        suggestIndex.remove(skuIds);
         
         return !hasErrors;
     }
     
     @Override
     public SearchResult search(SearchParam param) throws IOException {
+        // 只统计第一页，翻页不重复计数
+        boolean firstPage = Boolean.TRUE.equals(param.getUseCursor())
+                ? StrUtil.isBlank(param.getCursor())
+                : param.getPageNum() == null || param.getPageNum() <= 1;
+        if (firstPage) {
+            hotKeywordTracker.record(param.getKeyword());
+        }
+        // 游标翻页每次请求都不同，不走结果缓存
+        if (Boolean.TRUE.equals(param.getUseCursor())) {
+            return doSearch(param);
+        }
+        return searchResultCache.get(param, () -> doSearch(param));
+    }
+
+    private SearchResult doSearch(SearchParam param) throws IOException {
         SearchResult result = new SearchResult();
         
+        // 游标模式首页打开point-in-time，后续页从游标恢复
+        SearchCursor cursor = Boolean.TRUE.equals(param.getUseCursor()) ? openCursor(param.getCursor()) : null;
+        
         // 构建查询条件
-        SearchRequest searchRequest = buildSearchRequest(param);
+        SearchRequest searchRequest = buildSearchRequest(param, cursor);
         
         // 执行搜索
         SearchResponse<ProductEsModel> response = esClient.search(searchRequest, ProductEsModel.class);
@@ -141,20 +183,28 @@ public class SearchServiceImpl implements SearchService {
         result.setPageSize(param.getPageSize());
         result.setTotal(response.hits().total() != null ? response.hits().total().value() : 0L);
         result.setTotalPages((int) Math.ceil((double) result.getTotal() / param.getPageSize()));
+        if (cursor != null) {
+            result.setNextCursor(nextCursor(response, cursor, param.getPageSize()));
+        }
         
-        // TODO: 解析聚合结果（品牌、分类、属性）
-
-
+        // 解析聚合结果（品牌、分类、属性）
+        parseAggregations(response, result);
         
         return result;
     }
     
     /**
      * 构建搜索请求
+     *
+     * @param param  搜索参数
+     * @param cursor 游标，为空时使用from/size分页
      */
-    private SearchRequest buildSearchRequest(SearchParam param) {
+    private SearchRequest buildSearchRequest(SearchParam param, SearchCursor cursor) {
         SearchRequest.Builder searchBuilder = new SearchRequest.Builder();
-        searchBuilder.index(PRODUCT_INDEX);
+        // 使用point-in-time时索引由PIT决定，请求中不能再指定
+        if (cursor == null) {
+            searchBuilder.index(PRODUCT_INDEX);
+        }
         
         // 构建查询条件
         BoolQuery.Builder boolQuery = new BoolQuery.Builder();
@@ -272,6 +322,7 @@ public class SearchServiceImpl implements SearchService {
         searchBuilder.query(q -> q.bool(boolQuery.build()));
         
         // 排序
+        boolean byScore = false;
         switch (param.getSort()) {
             case 1:  // 销量降序
                 searchBuilder.sort(s -> s.field(f -> f.field("saleCount").order(SortOrder.Desc)));
@@ -289,12 +340,27 @@ public class SearchServiceImpl implements SearchService {
                 searchBuilder.sort(s -> s.field(f -> f.field("hotScore").order(SortOrder.Desc)));
                 break;
             default:  // 综合排序（相关性）
+                byScore = true;
                 break;
         }
         
         // 分页
-        int from = (param.getPageNum() - 1) * param.getPageSize();
-        searchBuilder.from(from);
+        if (cursor == null) {
+            int from = (param.getPageNum() - 1) * param.getPageSize();
+            searchBuilder.from(from);
+        } else {
+            // 游标模式需要全序排序，排序值相同时以skuId区分
+            if (byScore) {
+                searchBuilder.sort(s -> s.score(sc -> sc.order(SortOrder.Desc)));
+            }
+            searchBuilder.sort(s -> s.field(f -> f.field("skuId").order(SortOrder.Asc)));
+            searchBuilder.pit(p -> p.id(cursor.pitId()).keepAlive(k -> k.time(PIT_KEEP_ALIVE)));
+            if (cursor.searchAfter() != null) {
+                searchBuilder.searchAfter(cursor.searchAfter().stream()
+                        .map(this::toFieldValue)
+                        .collect(Collectors.toList()));
+            }
+        }
         searchBuilder.size(param.getPageSize());
         
         // 高亮
@@ -307,30 +373,192 @@ public class SearchServiceImpl implements SearchService {
             );
         }
         
+        // 聚合：筛选面板所需的品牌、分类、属性与商品列表同一次请求返回，游标模式只在第一页返回
+        if (cursor == null || cursor.searchAfter() == null) {
+            buildAggregations(searchBuilder);
+        }
+        
         return searchBuilder.build();
     }
-    
-    @Override
-    public void updateHotScore(Long skuId, Long hotScore) throws IOException {
-        UpdateRequest<ProductEsModel, ProductEsModel> updateRequest = UpdateRequest.of(u -> u
-                .index(PRODUCT_INDEX)
-                .id(skuId.toString())
-                .doc(ProductEsModel.builder().hotScore(hotScore).build())
+
+    /**
+     * 打开或恢复游标
+     */
+    private SearchCursor openCursor(String token) throws IOException {
+        if (StrUtil.isBlank(token)) {
+            String pitId = esClient.openPointInTime(o -> o
+                    .index(PRODUCT_INDEX)
+                    .keepAlive(k -> k.time(PIT_KEEP_ALIVE))
+            ).id();
+            return new SearchCursor(pitId, null);
+        }
+        try {
+            return objectMapper.readValue(Base64.getUrlDecoder().decode(token), SearchCursor.class);
+        } catch (IllegalArgumentException | IOException e) {
+            throw new BizException("游标无效");
+        }
+    }
+
+    /**
+     * 生成下一页游标，已是最后一页时关闭point-in-time并返回null
+     */
+    private String nextCursor(SearchResponse<ProductEsModel> response, SearchCursor cursor,
+                              int pageSize) throws IOException {
+        List<Hit<ProductEsModel>> hits = response.hits().hits();
+        String pitId = response.pitId() != null ? response.pitId() : cursor.pitId();
+        if (hits.size() < pageSize) {
+            esClient.closePointInTime(c -> c.id(pitId));
+            return null;
+        }
+        List<Object> searchAfter = hits.get(hits.size() - 1).sort().stream()
+                .map(FieldValue::_get)
+                .collect(Collectors.toList());
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(objectMapper.writeValueAsBytes(new SearchCursor(pitId, searchAfter)));
+    }
+
+    /**
+     * 游标中的排序值还原为FieldValue，JSON数字按是否为整数区分long与double
+     */
+    private FieldValue toFieldValue(Object value) {
+        if (value == null) {
+            return FieldValue.NULL;
+        }
+        if (value instanceof Integer || value instanceof Long) {
+            return FieldValue.of(((Number) value).longValue());
+        }
+        if (value instanceof Number number) {
+            return FieldValue.of(number.doubleValue());
+        }
+        if (value instanceof Boolean bool) {
+            return FieldValue.of(bool);
+        }
+        return FieldValue.of(value.toString());
+    }
+
+    /**
+     * 游标：point-in-time ID与上一页最后一条的排序值
+     */
+    private record SearchCursor(String pitId, List<Object> searchAfter) {
+    }
+
+    /**
+     * 构建聚合
+     * 品牌、分类按ID分组并带出名称；属性为nested字段，按属性ID分组后带出名称和全部可选值
+     */
+    private void buildAggregations(SearchRequest.Builder searchBuilder) {
+        searchBuilder.aggregations(BRAND_AGG, a -> a
+                .terms(t -> t.field("brandId").size(FACET_SIZE))
+                .aggregations(BRAND_NAME_AGG, sub -> sub.terms(t -> t.field("brandName").size(1)))
+                .aggregations(BRAND_IMG_AGG, sub -> sub.terms(t -> t.field("brandImg").size(1)))
         );
         
-        esClient.update(updateRequest, ProductEsModel.class);
-        log.info("更新商品热度分成功: skuId={}, hotScore={}", skuId, hotScore);
+        searchBuilder.aggregations(CATEGORY_AGG, a -> a
+                .terms(t -> t.field("categoryId").size(FACET_SIZE))
+                .aggregations(CATEGORY_NAME_AGG, sub -> sub.terms(t -> t.field("categoryName").size(1)))
+        );
+        
+        searchBuilder.aggregations(ATTR_AGG, a -> a
+                .nested(n -> n.path("attrs"))
+                .aggregations(ATTR_ID_AGG, sub -> sub
+                        .terms(t -> t.field("attrs.attrId").size(FACET_SIZE))
+                        .aggregations(ATTR_NAME_AGG, name -> name.terms(t -> t.field("attrs.attrName").size(1)))
+                        .aggregations(ATTR_VALUE_AGG, value -> value.terms(t -> t.field("attrs.attrValue").size(FACET_SIZE)))
+                )
+        );
+    }
+
+    /**
+     * 解析聚合结果
+     */
+    private void parseAggregations(SearchResponse<ProductEsModel> response, SearchResult result) {
+        Map<String, Aggregate> aggregations = response.aggregations();
+        if (CollUtil.isEmpty(aggregations)) {
+            return;
+        }
+        
+        // 品牌
+        List<SearchResult.BrandVo> brands = new ArrayList<>();
+        for (LongTermsBucket bucket : aggregations.get(BRAND_AGG).lterms().buckets().array()) {
+            SearchResult.BrandVo brand = new SearchResult.BrandVo();
+            brand.setBrandId(bucket.key());
+            brand.setBrandName(firstKey(bucket.aggregations().get(BRAND_NAME_AGG)));
+            brand.setBrandImg(firstKey(bucket.aggregations().get(BRAND_IMG_AGG)));
+            brand.setCount(bucket.docCount());
+            brands.add(brand);
+        }
+        result.setBrands(brands);
+        
+        // 分类
+        List<SearchResult.CategoryVo> categories = new ArrayList<>();
+        for (LongTermsBucket bucket : aggregations.get(CATEGORY_AGG).lterms().buckets().array()) {
+            SearchResult.CategoryVo category = new SearchResult.CategoryVo();
+            category.setCategoryId(bucket.key());
+            category.setCategoryName(firstKey(bucket.aggregations().get(CATEGORY_NAME_AGG)));
+            category.setCount(bucket.docCount());
+            categories.add(category);
+        }
+        result.setCategories(categories);
+        
+        // 属性
+        List<SearchResult.AttrVo> attrs = new ArrayList<>();
+        Aggregate attrIdAgg = aggregations.get(ATTR_AGG).nested().aggregations().get(ATTR_ID_AGG);
+        for (LongTermsBucket bucket : attrIdAgg.lterms().buckets().array()) {
+            SearchResult.AttrVo attr = new SearchResult.AttrVo();
+            attr.setAttrId(bucket.key());
+            attr.setAttrName(firstKey(bucket.aggregations().get(ATTR_NAME_AGG)));
+            attr.setAttrValues(bucket.aggregations().get(ATTR_VALUE_AGG).sterms().buckets().array().stream()
+                    .map(value -> value.key().stringValue())
+                    .collect(Collectors.toList()));
+            attrs.add(attr);
+        }
+        result.setAttrs(attrs);
+    }
+
+    /**
+     * 取字符串terms聚合的第一个分组值
+     */
+    private String firstKey(Aggregate aggregate) {
+        if (aggregate == null || !aggregate.isSterms()) {
+            return null;
+        }
+        List<StringTermsBucket> buckets = aggregate.sterms().buckets().array();
+        return buckets.isEmpty() ? null : buckets.get(0).key().stringValue();
     }
     
     @Override
-    public void updateStock(Long skuId, Boolean hasStock) throws IOException {
-        UpdateRequest<ProductEsModel, ProductEsModel> updateRequest = UpdateRequest.of(u -> u
-                .index(PRODUCT_INDEX)
-                .id(skuId.toString())
-                .doc(ProductEsModel.builder().hasStock(hasStock).build())
-        );
-        
-        esClient.update(updateRequest, ProductEsModel.class);
-        log.info("更新商品库存状态成功: skuId={}, hasStock={}", skuId, hasStock);
+    public List<String> suggest(String keyword) {
+        return suggestIndex.suggest(keyword);
+    }
+
+    @Override
+    public List<String> getHotKeywords(HotKeywordTracker.Range range) {
+        return hotKeywordTracker.getHotKeywords(range);
+    }
+
+    @Override
+    public void recordHotEvents(List<HotEventDTO> events) {
+        hotScoreEngine.record(events);
+    }
+
+    @Override
+    public void recordHotEvents(List<HotEventDTO> events, String idempotencyKey) {
+        hotScoreEngine.record(events, idempotencyKey);
+    }
+    
+    @Override
+    public void updateHotScore(Long skuId, Long hotScore) {
+        indexUpdateBuffer.offer(ProductEsModel.builder().skuId(skuId).hotScore(hotScore).build());
+    }
+    
+    @Override
+    public void updateStock(Long skuId, Boolean hasStock) {
+        productReindexer.onStockChanged(skuId);
+        indexUpdateBuffer.offer(ProductEsModel.builder().skuId(skuId).hasStock(hasStock).build());
+    }
+
+    @Override
+    public void updateStocks(Map<Long, Boolean> stocks) {
+        stocks.forEach(this::updateStock);
     }
-}
\ No newline at end of file
+}
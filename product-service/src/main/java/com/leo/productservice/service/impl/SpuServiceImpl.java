@@ -11,8 +11,14 @@ import com.leo.commoncore.page.PageQuery;
 import com.leo.commoncore.page.PageResult;
 import com.leo.commonmybatis.util.PageHelper;
 import com.leo.productservice.dto.SpuSaveDTO;
+import com.leo.productservice.dto.SpuSkuStatDTO;
 import com.leo.productservice.entity.*;
+import com.leo.productservice.event.SkuChangePublisher;
 import com.leo.productservice.mapper.*;
+import com.leo.productservice.model.ProductEsModel;
+import com.leo.productservice.search.IndexUpdateBuffer;
+import com.leo.productservice.search.ProductDocumentBuilder;
+import com.leo.productservice.service.SearchService;
 import com.leo.productservice.service.SpuService;
 import com.leo.productservice.vo.SkuVO;
 import com.leo.productservice.vo.SpuVO;
@@ -20,10 +26,12 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -52,6 +60,10 @@ public class SpuServiceImpl extends ServiceImpl<SpuInfoMapper, SpuInfo> implemen
     private final SkuSaleAttrValueMapper skuSaleAttrValueMapper;
     private final CategoryMapper categoryMapper;
     private final BrandMapper brandMapper;
+    private final SkuChangePublisher skuChangePublisher;
+    private final ProductDocumentBuilder productDocumentBuilder;
+    private final IndexUpdateBuffer indexUpdateBuffer;
+    private final SearchService searchService;
 
     @Override
     public PageResult<SpuVO> page(PageQuery pageQuery, String key,
@@ -87,7 +99,7 @@ public class SpuServiceImpl extends ServiceImpl<SpuInfoMapper, SpuInfo> implemen
         spuInfoMapper.selectPage(page, wrapper);
         
         // 转换为VO
-        return PageHelper.buildPageResult(page, this::convertToVO);
+        return PageHelper.buildBatchPageResult(page, this::convertToVOs);
     }
 
     @Override
@@ -98,7 +110,7 @@ public class SpuServiceImpl extends ServiceImpl<SpuInfoMapper, SpuInfo> implemen
             throw new BizException("商品不存在");
         }
         
-        SpuVO vo = convertToVO(spuInfo);
+        SpuVO vo = convertToVOs(List.of(spuInfo)).get(0);
         
         // 查询图片列表
         List<SpuImages> images = spuImagesMapper.selectList(
@@ -115,9 +127,7 @@ public class SpuServiceImpl extends ServiceImpl<SpuInfoMapper, SpuInfo> implemen
             new LambdaQueryWrapper<SkuInfo>()
                 .eq(SkuInfo::getSpuId, id)
         );
-        vo.setSkuList(skuList.stream()
-            .map(this::convertSkuToVO)
-            .collect(Collectors.toList()));
+        vo.setSkuList(convertSkusToVO(skuList));
         
         return vo;
     }
@@ -174,6 +184,11 @@ public class SpuServiceImpl extends ServiceImpl<SpuInfoMapper, SpuInfo> implemen
         spuInfo.setBrandId(dto.getBrandId());
         spuInfo.setWeight(dto.getWeight());
         spuInfoMapper.updateById(spuInfo);
+
+        // SPU名称、分类、品牌属于SKU快照，递增版本并通知订单服务
+        if (skuInfoMapper.increaseVersionBySpuId(id) > 0) {
+            skuChangePublisher.publish(skuInfoMapper.selectVersionsBySpuId(id));
+        }
         
         // 更新详情、图片、属性等（先删除再插入）
         // 实际项目中可以做差异化更新以提高性能
@@ -181,6 +196,22 @@ public class SpuServiceImpl extends ServiceImpl<SpuInfoMapper, SpuInfo> implemen
         log.info("SPU更新成功: id={}", id);
     }
 
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void updateSkuPrice(Long skuId, BigDecimal price) {
+        if (price == null || price.signum() < 0) {
+            throw new BizException("价格不合法");
+        }
+        if (skuInfoMapper.updatePrice(skuId, price) == 0) {
+            throw new BizException("SKU不存在");
+        }
+        skuChangePublisher.publish(List.of(skuInfoMapper.selectById(skuId)));
+        // 提交后合并写入商品索引
+        indexUpdateBuffer.offer(ProductEsModel.builder().skuId(skuId).price(price).build());
+
+        log.info("SKU价格修改成功: skuId={}, price={}", skuId, price);
+    }
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void up(List<Long> ids) {
@@ -196,7 +227,8 @@ public class SpuServiceImpl extends ServiceImpl<SpuInfoMapper, SpuInfo> implemen
             spuInfoMapper.updateById(spuInfo);
         }
         
-        // TODO: 同步到ES索引
+        // 提交后同步到ES索引
+        syncIndexAfterCommit(ids, true);
         // TODO: 发送上架消息到MQ
         
         log.info("商品上架成功: ids={}", ids);
@@ -217,12 +249,47 @@ public class SpuServiceImpl extends ServiceImpl<SpuInfoMapper, SpuInfo> implemen
             spuInfoMapper.updateById(spuInfo);
         }
         
-        // TODO: 从ES索引删除
+        // 提交后从ES索引删除
+        syncIndexAfterCommit(ids, false);
         // TODO: 发送下架消息到MQ
         
         log.info("商品下架成功: ids={}", ids);
     }
 
+    /**
+     * 事务提交后同步SPU下SKU的索引文档，失败时记录日志，由下次全量重建修正
+     */
+    private void syncIndexAfterCommit(List<Long> spuIds, boolean up) {
+        Runnable sync = () -> {
+            try {
+                if (up) {
+                    searchService.productUp(productDocumentBuilder.buildBySpuIds(spuIds));
+                } else {
+                    List<Long> skuIds = skuInfoMapper.selectList(new LambdaQueryWrapper<SkuInfo>()
+                                    .select(SkuInfo::getId)
+                                    .in(SkuInfo::getSpuId, spuIds))
+                            .stream()
+                            .map(SkuInfo::getId)
+                            .collect(Collectors.toList());
+                    searchService.productDown(skuIds);
+                }
+            } catch (Exception e) {
+                log.error("商品索引同步失败: spuIds={}, up={}", spuIds, up, e);
+            }
+        };
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    sync.run();
+                }
+            });
+        } else {
+            sync.run();
+        }
+    }
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void delete(Long id) {
@@ -253,9 +320,7 @@ public class SpuServiceImpl extends ServiceImpl<SpuInfoMapper, SpuInfo> implemen
                 .eq(SpuInfo::getPublishStatus, ProductConstants.PUBLISH_STATUS_UP)
         );
         
-        return list.stream()
-            .map(this::convertToVO)
-            .collect(Collectors.toList());
+        return convertToVOs(list);
     }
 
     @Override
@@ -266,9 +331,7 @@ public class SpuServiceImpl extends ServiceImpl<SpuInfoMapper, SpuInfo> implemen
                 .eq(SpuInfo::getPublishStatus, ProductConstants.PUBLISH_STATUS_UP)
         );
         
-        return list.stream()
-            .map(this::convertToVO)
-            .collect(Collectors.toList());
+        return convertToVOs(list);
     }
 
     /**
@@ -384,10 +447,61 @@ public class SpuServiceImpl extends ServiceImpl<SpuInfoMapper, SpuInfo> implemen
         attrValues.forEach(skuSaleAttrValueMapper::insert);
     }
 
+    /**
+     * 批量转换SPU为VO
+     * 分类、品牌、SKU价格销量汇总、主图各一次IN查询，查询次数与记录数无关
+     */
+    private List<SpuVO> convertToVOs(List<SpuInfo> spuList) {
+        if (CollUtil.isEmpty(spuList)) {
+            return new ArrayList<>();
+        }
+        Set<Long> spuIds = spuList.stream().map(SpuInfo::getId).collect(Collectors.toSet());
+        Set<Long> categoryIds = spuList.stream()
+            .map(SpuInfo::getCategoryId)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toSet());
+        Set<Long> brandIds = spuList.stream()
+            .map(SpuInfo::getBrandId)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toSet());
+
+        // 分类名称
+        Map<Long, String> categoryNames = categoryIds.isEmpty() ? Collections.emptyMap() :
+            categoryMapper.selectBatchIds(categoryIds).stream()
+                .collect(Collectors.toMap(Category::getId, Category::getName, (a, b) -> a));
+
+        // 品牌名称
+        Map<Long, String> brandNames = brandIds.isEmpty() ? Collections.emptyMap() :
+            brandMapper.selectBatchIds(brandIds).stream()
+                .collect(Collectors.toMap(Brand::getId, Brand::getName, (a, b) -> a));
+
+        // 价格区间和销量
+        Map<Long, SpuSkuStatDTO> skuStats = skuInfoMapper.selectStatsBySpuIds(spuIds).stream()
+            .collect(Collectors.toMap(SpuSkuStatDTO::getSpuId, Function.identity()));
+
+        // 主图，同一SPU有多张默认图时取排序最前的一张
+        Map<Long, String> mainImages = new HashMap<>();
+        spuImagesMapper.selectList(
+            new LambdaQueryWrapper<SpuImages>()
+                .in(SpuImages::getSpuId, spuIds)
+                .eq(SpuImages::getDefaultImg, 1)
+                .orderByAsc(SpuImages::getImgSort)
+        ).forEach(image -> mainImages.putIfAbsent(image.getSpuId(), image.getImgUrl()));
+
+        return spuList.stream()
+            .map(spuInfo -> convertToVO(spuInfo,
+                categoryNames.get(spuInfo.getCategoryId()),
+                brandNames.get(spuInfo.getBrandId()),
+                skuStats.get(spuInfo.getId()),
+                mainImages.get(spuInfo.getId())))
+            .collect(Collectors.toList());
+    }
+
     /**
      * 转换SPU为VO
      */
-    private SpuVO convertToVO(SpuInfo spuInfo) {
+    private SpuVO convertToVO(SpuInfo spuInfo, String categoryName, String brandName,
+                              SpuSkuStatDTO skuStat, String mainImage) {
         SpuVO vo = new SpuVO();
         vo.setId(spuInfo.getId());
         vo.setSpuName(spuInfo.getSpuName());
@@ -402,66 +516,50 @@ public class SpuServiceImpl extends ServiceImpl<SpuInfoMapper, SpuInfo> implemen
         // 设置状态文本
         vo.setStatusText(getStatusText(spuInfo.getPublishStatus()));
         
-        // 查询分类名称
-        Category category = categoryMapper.selectById(spuInfo.getCategoryId());
-        if (category != null) {
-            vo.setCategoryName(category.getName());
-        }
-        
-        // 查询品牌名称
-        Brand brand = brandMapper.selectById(spuInfo.getBrandId());
-        if (brand != null) {
-            vo.setBrandName(brand.getName());
-        }
+        vo.setCategoryName(categoryName);
+        vo.setBrandName(brandName);
         
-        // 查询价格区间和库存
-        List<SkuInfo> skuList = skuInfoMapper.selectList(
-            new LambdaQueryWrapper<SkuInfo>()
-                .eq(SkuInfo::getSpuId, spuInfo.getId())
-        );
-        
-        if (CollUtil.isNotEmpty(skuList)) {
-            // 计算价格区间
-            BigDecimal minPrice = skuList.stream()
-                .map(SkuInfo::getPrice)
-                .min(BigDecimal::compareTo)
-                .orElse(BigDecimal.ZERO);
-            BigDecimal maxPrice = skuList.stream()
-                .map(SkuInfo::getPrice)
-                .max(BigDecimal::compareTo)
-                .orElse(BigDecimal.ZERO);
-            
+        if (skuStat != null) {
+            // 价格区间
+            BigDecimal minPrice = skuStat.getMinPrice();
+            BigDecimal maxPrice = skuStat.getMaxPrice();
             if (minPrice.equals(maxPrice)) {
                 vo.setPriceRange("¥" + minPrice);
             } else {
                 vo.setPriceRange("¥" + minPrice + " - ¥" + maxPrice);
             }
             
-            // 计算总销量
-            Long totalSales = skuList.stream()
-                .mapToLong(SkuInfo::getSaleCount)
-                .sum();
-            vo.setSaleCount(totalSales);
+            // 总销量
+            vo.setSaleCount(skuStat.getSaleCount());
         }
         
-        // 获取主图
-        SpuImages mainImage = spuImagesMapper.selectOne(
-            new LambdaQueryWrapper<SpuImages>()
-                .eq(SpuImages::getSpuId, spuInfo.getId())
-                .eq(SpuImages::getDefaultImg, 1)
-                .last("LIMIT 1")
-        );
-        if (mainImage != null) {
-            vo.setMainImage(mainImage.getImgUrl());
-        }
+        vo.setMainImage(mainImage);
         
         return vo;
     }
 
+    /**
+     * 批量转换SKU为VO
+     * 销售属性一次IN查询
+     */
+    private List<SkuVO> convertSkusToVO(List<SkuInfo> skuList) {
+        if (CollUtil.isEmpty(skuList)) {
+            return new ArrayList<>();
+        }
+        Map<Long, List<SkuSaleAttrValue>> saleAttrsBySku = skuSaleAttrValueMapper.selectList(
+            new LambdaQueryWrapper<SkuSaleAttrValue>()
+                .in(SkuSaleAttrValue::getSkuId, skuList.stream().map(SkuInfo::getId).collect(Collectors.toSet()))
+        ).stream().collect(Collectors.groupingBy(SkuSaleAttrValue::getSkuId));
+
+        return skuList.stream()
+            .map(sku -> convertSkuToVO(sku, saleAttrsBySku.get(sku.getId())))
+            .collect(Collectors.toList());
+    }
+
     /**
      * 转换SKU为VO
      */
-    private SkuVO convertSkuToVO(SkuInfo skuInfo) {
+    private SkuVO convertSkuToVO(SkuInfo skuInfo, List<SkuSaleAttrValue> saleAttrs) {
         SkuVO vo = new SkuVO();
         vo.setId(skuInfo.getId());
         vo.setSpuId(skuInfo.getSpuId());
@@ -476,12 +574,6 @@ public class SpuServiceImpl extends ServiceImpl<SpuInfoMapper, SpuInfo> implemen
         vo.setSaleCount(skuInfo.getSaleCount());
         vo.setCreateTime(skuInfo.getCreateTime());
         
-        // 查询销售属性
-        List<SkuSaleAttrValue> saleAttrs = skuSaleAttrValueMapper.selectList(
-            new LambdaQueryWrapper<SkuSaleAttrValue>()
-                .eq(SkuSaleAttrValue::getSkuId, skuInfo.getId())
-        );
-        
         if (CollUtil.isNotEmpty(saleAttrs)) {
             List<SkuVO.SaleAttrVO> attrVOs = saleAttrs.stream()
                 .map(attr -> {
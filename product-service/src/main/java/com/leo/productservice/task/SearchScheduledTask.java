@@ -0,0 +1,95 @@
+package com.leo.productservice.task;
+
+import com.leo.productservice.search.HotKeywordTracker;
+import com.leo.productservice.search.HotScoreEngine;
+import com.leo.productservice.search.IndexUpdateBuffer;
+import com.leo.productservice.search.SuggestIndex;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 搜索定时任务
+ *
+ * @author Miao Zheng
+ * @date 2025-02-03
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SearchScheduledTask {
+
+    private final IndexUpdateBuffer indexUpdateBuffer;
+    private final HotScoreEngine hotScoreEngine;
+    private final SuggestIndex suggestIndex;
+    private final HotKeywordTracker hotKeywordTracker;
+
+    /**
+     * 刷新商品索引增量更新缓冲
+     * 默认每秒执行一次
+     */
+    @Scheduled(fixedDelayString = "${search.index-buffer.flush-interval:1000}",
+            initialDelayString = "${search.index-buffer.flush-interval:1000}")
+    public void flushIndexUpdates() {
+        try {
+            indexUpdateBuffer.flush();
+        } catch (Exception e) {
+            log.error("商品索引增量更新刷新失败", e);
+        }
+    }
+
+    /**
+     * 合并商品热度增量到Redis并写入索引
+     * 默认每10秒执行一次
+     */
+    @Scheduled(fixedDelayString = "${search.hot-score.flush-interval:10000}",
+            initialDelayString = "${search.hot-score.flush-interval:10000}")
+    public void flushHotScores() {
+        try {
+            hotScoreEngine.flush();
+        } catch (Exception e) {
+            log.error("商品热度合并失败", e);
+        }
+    }
+
+    /**
+     * 全量重建搜索建议索引
+     * 启动后立即执行，之后默认每小时执行一次
+     */
+    @Scheduled(fixedDelayString = "${search.suggest.rebuild-interval:3600000}")
+    public void rebuildSuggestIndex() {
+        try {
+            suggestIndex.rebuild();
+        } catch (Exception e) {
+            log.error("搜索建议索引重建失败", e);
+        }
+    }
+
+    /**
+     * 热门搜索本地计数写入Redis
+     * 默认每5秒执行一次
+     */
+    @Scheduled(fixedDelayString = "${search.hot-keyword.flush-interval:5000}",
+            initialDelayString = "${search.hot-keyword.flush-interval:5000}")
+    public void flushHotKeywords() {
+        try {
+            hotKeywordTracker.flush();
+        } catch (Exception e) {
+            log.error("热门搜索计数写入失败", e);
+        }
+    }
+
+    /**
+     * 刷新热门搜索排行
+     * 启动后立即执行，之后默认每分钟执行一次
+     */
+    @Scheduled(fixedDelayString = "${search.hot-keyword.refresh-interval:60000}")
+    public void refreshHotKeywords() {
+        try {
+            hotKeywordTracker.refresh();
+        } catch (Exception e) {
+            log.error("热门搜索排行刷新失败", e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+-- 合并各节点的热度增量
+-- 热度以对数前向衰减值保存：log2(sum(w * 2^((t - 基准时刻) / 半衰期)))，
+-- 任意时刻比较大小等价于比较衰减到该时刻的热度，未变化的SKU无需随时间重算
+-- KEYS[1] : 热度HASH（field为skuId）
+-- ARGV    : skuId与增量的对数前向衰减值交替排列
+local result = {}
+local ln2 = math.log(2)
+for i = 1, #ARGV, 2 do
+    local x = tonumber(ARGV[i + 1])
+    local old = tonumber(redis.call('HGET', KEYS[1], ARGV[i]))
+    local score = x
+    if old then
+        -- log2(2^old + 2^x)，以较大值为基准避免溢出
+        local high = math.max(old, x)
+        score = high + math.log(2 ^ (old - high) + 2 ^ (x - high)) / ln2
+    end
+    local value = string.format('%.6f', score)
+    redis.call('HSET', KEYS[1], ARGV[i], value)
+    -- 浮点数返回时会被截断为整数，以字符串返回
+    result[#result + 1] = value
+end
+return result
@@ -1,15 +1,19 @@
 package com.leo.productservice;
 
+import com.leo.productservice.cache.SearchResultCache;
 import com.leo.productservice.dto.SearchParam;
 import com.leo.productservice.dto.SearchResult;
 import com.leo.productservice.model.ProductEsModel;
+import com.leo.productservice.search.BulkIndexer;
+import com.leo.productservice.search.HotKeywordTracker;
+import com.leo.productservice.search.HotScoreEngine;
+import com.leo.productservice.search.IndexUpdateBuffer;
+import com.leo.productservice.search.ProductReindexer;
+import com.leo.productservice.search.SuggestIndex;
 import com.leo.productservice.service.impl.SearchServiceImpl;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
-import co.elastic.clients.elasticsearch.core.BulkRequest;
-import co.elastic.clients.elasticsearch.core.BulkResponse;
 import co.elastic.clients.elasticsearch.core.SearchRequest;
 import co.elastic.clients.elasticsearch.core.SearchResponse;
-import co.elastic.clients.elasticsearch.core.UpdateRequest;
 import co.elastic.clients.elasticsearch.core.search.Hit;
 import co.elastic.clients.elasticsearch.core.search.HitsMetadata;
 import org.junit.jupiter.api.BeforeEach;
@@ -33,6 +37,27 @@ public class SearchServiceImplTest {
     @Mock
     private ElasticsearchClient esClient;
 
+    @Mock
+    private SearchResultCache searchResultCache;
+
+    @Mock
+    private IndexUpdateBuffer indexUpdateBuffer;
+
+    @Mock
+    private HotScoreEngine hotScoreEngine;
+
+    @Mock
+    private BulkIndexer bulkIndexer;
+
+    @Mock
+    private SuggestIndex suggestIndex;
+
+    @Mock
+    private HotKeywordTracker hotKeywordTracker;
+
+    @Mock
+    private ProductReindexer productReindexer;
+
     @InjectMocks
     private SearchServiceImpl searchService;
 
@@ -49,48 +74,41 @@ public class SearchServiceImplTest {
         m.setSkuTitle("测试商品100");
         list.add(m);
 
-        BulkResponse mockResp = mock(BulkResponse.class);
-        when(mockResp.errors()).thenReturn(false);
-        when(esClient.bulk(any(BulkRequest.class))).thenReturn(mockResp);
+        when(bulkIndexer.index("product", list)).thenReturn(new BulkIndexer.Result());
 
         boolean ok = searchService.productUp(list);
         assertTrue(ok);
 
-        ArgumentCaptor<BulkRequest> captor = ArgumentCaptor.forClass(BulkRequest.class);
-        verify(esClient, times(1)).bulk(captor.capture());
-        BulkRequest req = captor.getValue();
-        assertNotNull(req);
-        assertEquals(1, req.operations().size());
+        verify(productReindexer).onPublishChanged(List.of(100L));
+        verify(bulkIndexer, times(1)).index("product", list);
+        verify(searchResultCache).invalidateAll();
+        verify(suggestIndex).update(list);
     }
 
     @Test
     void productDown_success() throws Exception {
         List<Long> ids = List.of(100L, 101L);
-        BulkResponse mockResp = mock(BulkResponse.class);
-        when(mockResp.errors()).thenReturn(false);
-        when(esClient.bulk(any(BulkRequest.class))).thenReturn(mockResp);
+        when(bulkIndexer.delete("product", ids)).thenReturn(new BulkIndexer.Result());
 
         boolean ok = searchService.productDown(ids);
         assertTrue(ok);
 
-        ArgumentCaptor<BulkRequest> captor = ArgumentCaptor.forClass(BulkRequest.class);
-        verify(esClient, times(1)).bulk(captor.capture());
-        assertEquals(2, captor.getValue().operations().size());
+        verify(productReindexer).onPublishChanged(ids);
+        verify(bulkIndexer, times(1)).delete("product", ids);
+        verify(suggestIndex).remove(ids);
     }
 
     @Test
-    void updateHotScore_callsClient() throws Exception {
-        // mock UpdateResponse generic class - we only care that esClient.update 被调用
-        when(esClient.update(any(UpdateRequest.class), eq(ProductEsModel.class)))
-                .thenReturn(null);
-
+    void updateHotScore_offersPartialUpdate() {
         searchService.updateHotScore(123L, 999L);
 
-        ArgumentCaptor<UpdateRequest> captor = ArgumentCaptor.forClass(UpdateRequest.class);
-        verify(esClient, times(1)).update(captor.capture(), eq(ProductEsModel.class));
+        ArgumentCaptor<ProductEsModel> captor = ArgumentCaptor.forClass(ProductEsModel.class);
+        verify(indexUpdateBuffer, times(1)).offer(captor.capture());
 
-        UpdateRequest captured = captor.getValue();
-        assertEquals("123", captured.id());
+        ProductEsModel captured = captor.getValue();
+        assertEquals(123L, captured.getSkuId());
+        assertEquals(999L, captured.getHotScore());
+        verifyNoInteractions(esClient);
     }
 
     @Test
@@ -108,6 +126,8 @@ public class SearchServiceImplTest {
         // total might be null or 0; we can let service handle it
 
         when(esClient.search(any(SearchRequest.class), eq(ProductEsModel.class))).thenReturn(mockResp);
+        when(searchResultCache.get(any(SearchParam.class), any()))
+                .thenAnswer(invocation -> invocation.<SearchResultCache.SearchLoader>getArgument(1).load());
 
         SearchResult result = searchService.search(param);
         assertNotNull(result);
@@ -116,5 +136,7 @@ public class SearchServiceImplTest {
 
         // verify search called once
         verify(esClient, times(1)).search(any(SearchRequest.class), eq(ProductEsModel.class));
+        // 非第一页不计入热门搜索
+        verifyNoInteractions(hotKeywordTracker);
     }
 }
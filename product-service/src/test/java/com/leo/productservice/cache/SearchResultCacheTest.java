@@ -0,0 +1,101 @@
+package com.leo.productservice.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.leo.productservice.dto.SearchParam;
+import com.leo.productservice.dto.SearchResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 单元测试：SearchResultCache（只用本地缓存）
+ * 参数规范化后等价的查询共用一个缓存项
+ */
+public class SearchResultCacheTest {
+
+    private SearchResultCache cache;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() {
+        cache = new SearchResultCache(null, new ObjectMapper(), true, false, 60_000, 100);
+    }
+
+    @Test
+    void get_brandOrderAndDuplicatesShareKey() throws IOException {
+        SearchParam first = param("手机");
+        first.setBrandIds(List.of(3L, 1L, 2L));
+        SearchParam second = param("手机");
+        second.setBrandIds(List.of(1L, 2L, 3L, 1L));
+
+        assertSame(search(first), search(second));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void get_attrOrderAndAttrValueOrderShareKey() throws IOException {
+        SearchParam first = param("手机");
+        first.setAttrs(List.of("1_8G:12G", "2_黑色"));
+        SearchParam second = param("手机");
+        second.setAttrs(List.of("2_黑色", "1_12G:8G"));
+
+        assertSame(search(first), search(second));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void get_keywordIsTrimmed() throws IOException {
+        assertSame(search(param(" 手机 ")), search(param("手机")));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void get_differentFiltersOrPagesUseDifferentKeys() throws IOException {
+        SearchParam base = param("手机");
+        SearchParam page2 = param("手机");
+        page2.setPageNum(2);
+        SearchParam attr = param("手机");
+        attr.setAttrs(List.of("1_8G"));
+        SearchParam otherAttr = param("手机");
+        otherAttr.setAttrs(List.of("1_12G"));
+        SearchParam inStock = param("手机");
+        inStock.setHasStock(1);
+
+        search(base);
+        search(page2);
+        search(attr);
+        search(otherAttr);
+        search(inStock);
+        assertEquals(5, loads.get());
+    }
+
+    @Test
+    void invalidateAll_reloads() throws IOException {
+        SearchResult before = search(param("手机"));
+        cache.invalidateAll();
+        SearchResult after = search(param("手机"));
+
+        assertNotSame(before, after);
+        assertEquals(2, loads.get());
+    }
+
+    private SearchResult search(SearchParam param) throws IOException {
+        return cache.get(param, () -> {
+            loads.incrementAndGet();
+            return new SearchResult();
+        });
+    }
+
+    private static SearchParam param(String keyword) {
+        SearchParam param = new SearchParam();
+        param.setKeyword(keyword);
+        param.setCategoryId(225L);
+        return param;
+    }
+}
@@ -0,0 +1,105 @@
+package com.leo.productservice.mapper;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.MybatisSqlSessionFactoryBuilder;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 单元测试：CategoryMapper.moveDescendants（H2 MySQL兼容模式）
+ * 子孙分类的路径前缀替换为新路径、层级按差值调整，其他分类不受影响
+ */
+public class CategoryMapperTest {
+
+    private SqlSession session;
+    private CategoryMapper categoryMapper;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        UnpooledDataSource dataSource = new UnpooledDataSource("org.h2.Driver",
+                "jdbc:h2:mem:category;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        MybatisConfiguration configuration = new MybatisConfiguration(
+                new Environment("test", new JdbcTransactionFactory(), dataSource));
+        configuration.addMapper(CategoryMapper.class);
+        SqlSessionFactory factory = new MybatisSqlSessionFactoryBuilder().build(configuration);
+        session = factory.openSession(true);
+        categoryMapper = session.getMapper(CategoryMapper.class);
+
+        try (Statement statement = session.getConnection().createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS pms_category");
+            statement.execute("CREATE TABLE pms_category (id BIGINT PRIMARY KEY, path VARCHAR(255), level INT)");
+            // 1 ─ 10 ─ 100      2 ─ 20
+            //        └ 101
+            //   └ 11
+            // 1000为路径前缀相同但不是子孙的分类
+            statement.execute("INSERT INTO pms_category VALUES " +
+                    "(1, '1', 1), (10, '1/10', 2), (100, '1/10/100', 3), (101, '1/10/101', 3), " +
+                    "(11, '1/11', 2), (1000, '1/1000', 2), (2, '2', 1), (20, '2/20', 2)");
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        session.close();
+    }
+
+    @Test
+    void moveDescendants_rewritesPrefixAndLevel() throws SQLException {
+        // 10从1移动到1下的11之下：1/10 -> 1/11/10
+        int updated = categoryMapper.moveDescendants("1/10", "1/11/10", 1);
+
+        assertEquals(2, updated);
+        Map<Long, String> rows = rows();
+        assertEquals("1/11/10/100|4", rows.get(100L));
+        assertEquals("1/11/10/101|4", rows.get(101L));
+        // 本分类由updateById写入，不在此更新
+        assertEquals("1/10|2", rows.get(10L));
+        assertEquals("1/1000|2", rows.get(1000L));
+        assertEquals("2/20|2", rows.get(20L));
+    }
+
+    @Test
+    void moveDescendants_toShorterPath() throws SQLException {
+        // 10移动为一级分类：1/10 -> 10
+        int updated = categoryMapper.moveDescendants("1/10", "10", -1);
+
+        assertEquals(2, updated);
+        Map<Long, String> rows = rows();
+        assertEquals("10/100|2", rows.get(100L));
+        assertEquals("10/101|2", rows.get(101L));
+    }
+
+    @Test
+    void moveDescendants_doesNotMatchPrefixOfSiblingId() throws SQLException {
+        // 1/1不是1/1000的路径前缀
+        assertEquals(0, categoryMapper.moveDescendants("1/1", "2/1", 0));
+        assertEquals("1/1000|2", rows().get(1000L));
+    }
+
+    private Map<Long, String> rows() throws SQLException {
+        Map<Long, String> rows = new HashMap<>();
+        Connection connection = session.getConnection();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT id, path, level FROM pms_category")) {
+            while (rs.next()) {
+                rows.put(rs.getLong("id"), rs.getString("path") + "|" + rs.getInt("level"));
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,151 @@
+package com.leo.productservice.search;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.leo.productservice.model.ProductEsModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * 单元测试：BulkIndexer（mock ElasticsearchClient）
+ * 只重试可恢复失败的文档，集群拒绝时缩小批次
+ */
+@ExtendWith(MockitoExtension.class)
+public class BulkIndexerTest {
+
+    private static final String INDEX = "product";
+
+    @Mock
+    private ElasticsearchClient esClient;
+
+    private BulkIndexer bulkIndexer;
+
+    /**
+     * 每次bulk请求中的文档ID
+     */
+    private final List<List<String>> requests = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        bulkIndexer = new BulkIndexer(esClient, new ObjectMapper(), new SimpleMeterRegistry(),
+                4, 1, 100, 5 * 1024 * 1024, 10_000, 2, 1, 2);
+    }
+
+    @Test
+    void index_retriesOnlyRejectedDocuments() throws Exception {
+        // 第一次请求中的文档2被拒绝，其余成功
+        respond(ids -> requests.size() == 1
+                ? ids.stream().collect(Collectors.toMap(id -> id, id -> id.equals("2") ? 429 : 201))
+                : ids.stream().collect(Collectors.toMap(id -> id, id -> 201)));
+
+        BulkIndexer.Result result = bulkIndexer.index(INDEX, documents(3));
+
+        assertTrue(result.isSuccess());
+        assertEquals(3, result.getSucceeded());
+        assertEquals(List.of(List.of("1", "2", "3"), List.of("2")), requests);
+    }
+
+    @Test
+    void index_returnsNonRetryableFailureWithoutRetry() throws Exception {
+        respond(ids -> ids.stream().collect(Collectors.toMap(id -> id, id -> id.equals("1") ? 400 : 201)));
+
+        BulkIndexer.Result result = bulkIndexer.index(INDEX, documents(2));
+
+        assertFalse(result.isSuccess());
+        assertEquals(1, result.getSucceeded());
+        assertEquals(1, requests.size());
+        BulkIndexer.Failure failure = result.getFailures().get(0);
+        assertEquals("1", failure.id());
+        assertEquals(400, failure.status());
+        assertFalse(failure.retryable());
+    }
+
+    @Test
+    void index_reportsRetryableFailureAfterRetriesExhausted() throws Exception {
+        respond(ids -> ids.stream().collect(Collectors.toMap(id -> id, id -> 503)));
+
+        BulkIndexer.Result result = bulkIndexer.index(INDEX, documents(1));
+
+        assertFalse(result.isSuccess());
+        // 首次请求加2次重试
+        assertEquals(3, requests.size());
+        assertTrue(result.getFailures().get(0).retryable());
+    }
+
+    @Test
+    void index_shrinksBatchAfterRejection() throws Exception {
+        // 第一批整批被拒绝，批次从4减半为2，重试成功后每批增大1
+        respond(ids -> requests.size() == 1
+                ? ids.stream().collect(Collectors.toMap(id -> id, id -> 429))
+                : ids.stream().collect(Collectors.toMap(id -> id, id -> 201)));
+
+        BulkIndexer.Result result = bulkIndexer.index(INDEX, documents(8));
+
+        assertTrue(result.isSuccess());
+        assertEquals(8, result.getSucceeded());
+        assertEquals(List.of(4, 4, 3, 1), requests.stream().map(List::size).collect(Collectors.toList()));
+    }
+
+    /**
+     * 按请求中的文档ID返回各文档的状态码
+     */
+    @SuppressWarnings("unchecked")
+    private void respond(Function<List<String>, Map<String, Integer>> statuses) throws Exception {
+        when(esClient.bulk(any(Function.class))).thenCallRealMethod();
+        when(esClient.bulk(any(BulkRequest.class))).thenAnswer(invocation -> {
+            BulkRequest request = invocation.getArgument(0);
+            List<String> ids = request.operations().stream()
+                    .map(BulkIndexerTest::idOf)
+                    .collect(Collectors.toList());
+            requests.add(ids);
+            Map<String, Integer> result = statuses.apply(ids);
+            List<BulkResponseItem> items = ids.stream()
+                    .map(id -> item(id, result.get(id)))
+                    .collect(Collectors.toList());
+            return BulkResponse.of(r -> r
+                    .errors(items.stream().anyMatch(item -> item.error() != null))
+                    .took(1)
+                    .items(items));
+        });
+    }
+
+    private static BulkResponseItem item(String id, int status) {
+        return BulkResponseItem.of(i -> {
+            i.operationType(OperationType.Index).index(INDEX).id(id).status(status);
+            if (status >= 300) {
+                i.error(e -> e.type("error").reason("status " + status));
+            }
+            return i;
+        });
+    }
+
+    private static String idOf(BulkOperation operation) {
+        return operation.index().id();
+    }
+
+    private static List<ProductEsModel> documents(int count) {
+        return LongStream.rangeClosed(1, count)
+                .mapToObj(id -> ProductEsModel.builder().skuId(id).skuTitle("商品" + id).build())
+                .collect(Collectors.toList());
+    }
+}
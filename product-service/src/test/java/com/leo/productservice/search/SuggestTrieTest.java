@@ -0,0 +1,104 @@
+package com.leo.productservice.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 单元测试：SuggestTrie
+ * 前缀查询按权重返回Top-K，权重减到0的词被移除，经多个键到达同一前缀的词只出现一次
+ */
+public class SuggestTrieTest {
+
+    private SuggestTrie trie;
+
+    @BeforeEach
+    public void setUp() {
+        trie = new SuggestTrie(3);
+    }
+
+    @Test
+    void suggest_ordersByWeightThenTerm() {
+        trie.apply(List.of(
+                change("手机", "手机", 5),
+                change("手机壳", "手机壳", 8),
+                change("手机膜", "手机膜", 5),
+                change("手表", "手表", 20)));
+
+        assertEquals(List.of("手机壳", "手机", "手机膜"), trie.suggest("手机", 10));
+        assertEquals(List.of("手表", "手机壳", "手机"), trie.suggest("手", 10));
+        assertEquals(List.of("手表"), trie.suggest("手", 1));
+    }
+
+    @Test
+    void suggest_unknownOrEmptyPrefix() {
+        trie.apply(List.of(change("手机", "手机", 1)));
+
+        assertTrue(trie.suggest("电脑", 10).isEmpty());
+        assertTrue(trie.suggest("手机壳", 10).isEmpty());
+        assertTrue(trie.suggest("", 10).isEmpty());
+    }
+
+    @Test
+    void apply_accumulatesWeight() {
+        trie.apply(List.of(change("手机", "手机", 1), change("手表", "手表", 3)));
+        assertEquals(List.of("手表", "手机"), trie.suggest("手", 10));
+
+        // 手机累计为4，超过手表
+        trie.apply(List.of(change("手机", "手机", 1), change("手机", "手机", 2)));
+        assertEquals(List.of("手机", "手表"), trie.suggest("手", 10));
+    }
+
+    @Test
+    void apply_removesTermAndPrunesEmptyNodes() {
+        trie.apply(List.of(
+                change("手机", "手机", 5),
+                change("手机壳", "手机壳", 8),
+                change("手表", "手表", 3),
+                change("手环", "手环", 1)));
+        assertEquals(List.of("手机壳", "手机", "手表"), trie.suggest("手", 10));
+
+        trie.apply(List.of(change("手机壳", "手机壳", -8)));
+
+        // 被挤出Top-K的词在移除后重新出现
+        assertEquals(List.of("手机", "手表", "手环"), trie.suggest("手", 10));
+        assertTrue(trie.suggest("手机壳", 10).isEmpty());
+        assertEquals(List.of("手机"), trie.suggest("手机", 10));
+
+        trie.apply(List.of(change("手机", "手机", -5), change("手表", "手表", -3), change("手环", "手环", -1)));
+        assertTrue(trie.suggest("手", 10).isEmpty());
+    }
+
+    @Test
+    void apply_partialDecrementKeepsTerm() {
+        trie.apply(List.of(change("手机", "手机", 5)));
+        trie.apply(List.of(change("手机", "手机", -2)));
+
+        assertEquals(List.of("手机"), trie.suggest("手", 10));
+    }
+
+    @Test
+    void suggest_mergesSameTermReachedThroughDifferentKeys() {
+        // 同一个词经全拼与首字母两个键进入同一子树
+        trie = new SuggestTrie(2);
+        trie.apply(List.of(
+                change("xiaomi", "小米", 10),
+                change("xm", "小米", 8),
+                change("xbox", "Xbox", 5)));
+
+        assertEquals(List.of("小米", "Xbox"), trie.suggest("x", 10));
+        assertEquals(List.of("小米"), trie.suggest("xm", 10));
+
+        // 去掉一个键后，另一个键上的词仍然可见
+        trie.apply(List.of(change("xiaomi", "小米", -10)));
+        assertEquals(List.of("小米", "Xbox"), trie.suggest("x", 10));
+        assertTrue(trie.suggest("xi", 10).isEmpty());
+    }
+
+    private static SuggestTrie.Change change(String key, String term, long delta) {
+        return new SuggestTrie.Change(key, term, delta);
+    }
+}
@@ -0,0 +1,131 @@
+package com.leo.productservice.service.impl;
+
+import com.leo.commoncore.exception.BizException;
+import com.leo.productservice.cache.CategoryCache;
+import com.leo.productservice.converter.CategoryConverter;
+import com.leo.productservice.dto.CategoryDTO;
+import com.leo.productservice.entity.Category;
+import com.leo.productservice.mapper.CategoryMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 单元测试：CategoryServiceImpl移动分类（mock CategoryMapper）
+ * 移动后本分类写入新路径，子孙分类按新旧路径前缀与层级差批量更新
+ */
+@ExtendWith(MockitoExtension.class)
+public class CategoryServiceImplTest {
+
+    @Mock
+    private CategoryMapper categoryMapper;
+
+    @Mock
+    private CategoryConverter categoryConverter;
+
+    @Mock
+    private CategoryCache categoryCache;
+
+    private CategoryServiceImpl categoryService;
+
+    @BeforeEach
+    public void setUp() {
+        categoryService = new CategoryServiceImpl(categoryMapper, categoryConverter, categoryCache);
+        lenient().when(categoryConverter.toEntity(any(CategoryDTO.class))).thenAnswer(invocation -> {
+            CategoryDTO dto = invocation.getArgument(0);
+            Category category = new Category();
+            category.setParentId(dto.getParentId());
+            category.setLevel(dto.getLevel());
+            category.setName(dto.getName());
+            return category;
+        });
+    }
+
+    @Test
+    void update_moveRewritesOwnPathAndDescendants() {
+        stub(category(10L, 1L, 2, "1/10"));
+        stub(category(20L, 2L, 2, "2/20"));
+
+        categoryService.update(10L, dto(20L));
+
+        ArgumentCaptor<Category> captor = ArgumentCaptor.forClass(Category.class);
+        verify(categoryMapper).updateById(captor.capture());
+        assertEquals("2/20/10", captor.getValue().getPath());
+        assertEquals(3, captor.getValue().getLevel());
+        verify(categoryMapper).moveDescendants("1/10", "2/20/10", 1);
+        verify(categoryCache).invalidate();
+    }
+
+    @Test
+    void update_moveToTopLevelRaisesDescendants() {
+        stub(category(10L, 1L, 2, "1/10"));
+
+        categoryService.update(10L, dto(0L));
+
+        verify(categoryMapper).moveDescendants("1/10", "10", -1);
+    }
+
+    @Test
+    void update_moveResolvesLegacyPathFromParents() {
+        // 历史数据未回填路径列，移动前的路径逐级查询父分类得到
+        stub(category(10L, 1L, 2, null));
+        stub(category(1L, 0L, 1, null));
+        stub(category(20L, 0L, 1, "20"));
+
+        categoryService.update(10L, dto(20L));
+
+        verify(categoryMapper).moveDescendants("1/10", "20/10", 0);
+    }
+
+    @Test
+    void update_withoutMoveKeepsPaths() {
+        stub(category(10L, 1L, 2, "1/10"));
+
+        categoryService.update(10L, dto(1L));
+
+        ArgumentCaptor<Category> captor = ArgumentCaptor.forClass(Category.class);
+        verify(categoryMapper).updateById(captor.capture());
+        assertNull(captor.getValue().getPath());
+        verify(categoryMapper, never()).moveDescendants(anyString(), anyString(), anyInt());
+    }
+
+    @Test
+    void update_rejectsMoveUnderOwnDescendant() {
+        stub(category(10L, 0L, 1, "10"));
+        stub(category(11L, 10L, 2, "10/11"));
+
+        BizException e = assertThrows(BizException.class, () -> categoryService.update(10L, dto(11L)));
+
+        assertEquals("不能移动到自身或子分类下", e.getMessage());
+        verify(categoryMapper, never()).updateById(any(Category.class));
+        verify(categoryMapper, never()).moveDescendants(anyString(), anyString(), anyInt());
+    }
+
+    private void stub(Category category) {
+        when(categoryMapper.selectById(category.getId())).thenReturn(category);
+    }
+
+    private static Category category(Long id, Long parentId, int level, String path) {
+        Category category = new Category();
+        category.setId(id);
+        category.setParentId(parentId);
+        category.setLevel(level);
+        category.setPath(path);
+        return category;
+    }
+
+    private static CategoryDTO dto(Long parentId) {
+        CategoryDTO dto = new CategoryDTO();
+        dto.setParentId(parentId);
+        dto.setName("分类");
+        dto.setLevel(2);
+        return dto;
+    }
+}
@@ -49,6 +49,7 @@ CREATE TABLE `wms_ware_sku` (
                                 `tenant_id` BIGINT DEFAULT 0 COMMENT '租户ID',
                                 `sku_id` BIGINT NOT NULL COMMENT 'SKU ID',
                                 `ware_id` BIGINT NOT NULL COMMENT '仓库ID',
+                                `bucket` TINYINT DEFAULT 0 COMMENT '库存分桶号：0-主桶，热点SKU拆分出的子桶从1开始',
                                 `stock` INT DEFAULT 0 COMMENT '实际库存数量',
                                 `stock_locked` INT DEFAULT 0 COMMENT '锁定库存数量',
                                 `sku_name` VARCHAR(200) COMMENT 'SKU名称（冗余）',
@@ -63,7 +64,7 @@ CREATE TABLE `wms_ware_sku` (
                                 `deleted` TINYINT DEFAULT 0 COMMENT '删除标志',
                                 `version` INT DEFAULT 0 COMMENT '版本号（乐观锁）',
                                 PRIMARY KEY (`id`),
-                                UNIQUE KEY `uk_sku_ware` (`sku_id`, `ware_id`, `deleted`),
+                                UNIQUE KEY `uk_sku_ware` (`sku_id`, `ware_id`, `bucket`, `deleted`),
                                 KEY `idx_tenant_id` (`tenant_id`),
                                 KEY `idx_sku_id` (`sku_id`),
                                 KEY `idx_ware_id` (`ware_id`),
@@ -107,6 +108,7 @@ CREATE TABLE `wms_ware_order_task` (
                                        KEY `idx_order_id` (`order_id`),
                                        KEY `idx_task_status` (`task_status`),
                                        KEY `idx_lock_time` (`lock_time`),
+                                       KEY `idx_task_timeout` (`task_status`, `lock_time`),
                                        KEY `idx_deleted` (`deleted`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='库存工作单表';
 
@@ -122,6 +124,7 @@ CREATE TABLE `wms_ware_order_task_detail` (
                                               `sku_num` INT NOT NULL COMMENT '购买数量',
                                               `task_id` BIGINT NOT NULL COMMENT '工作单ID',
                                               `ware_id` BIGINT COMMENT '仓库ID',
+                                              `bucket` TINYINT DEFAULT 0 COMMENT '锁定的库存分桶号',
                                               `lock_status` TINYINT DEFAULT 0 COMMENT '锁定状态：1-已锁定，2-已解锁，3-已扣减',
                                               `locked_num` INT DEFAULT 0 COMMENT '实际锁定数量',
                                               `reason` VARCHAR(500) COMMENT '失败原因',
@@ -236,6 +239,24 @@ CREATE TABLE `wms_purchase_detail` (
                                        KEY `idx_deleted` (`deleted`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='采购需求表';
 
+-- ========================================
+-- 8. 发件箱消息表
+-- ========================================
+DROP TABLE IF EXISTS `outbox_message`;
+CREATE TABLE `outbox_message` (
+                                  `id` BIGINT NOT NULL COMMENT '主键ID（雪花ID，随写入时间递增）',
+                                  `topic` VARCHAR(100) NOT NULL COMMENT '主题',
+                                  `event_type` VARCHAR(100) NOT NULL COMMENT '事件类型',
+                                  `biz_key` VARCHAR(64) COMMENT '业务键',
+                                  `payload` TEXT COMMENT '消息内容（JSON）',
+                                  `status` TINYINT NOT NULL DEFAULT 0 COMMENT '状态（0-待投递 1-死信）',
+                                  `attempts` INT NOT NULL DEFAULT 0 COMMENT '已投递失败次数',
+                                  `next_retry_time` DATETIME NOT NULL COMMENT '下次投递时间',
+                                  `create_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+                                  PRIMARY KEY (`id`),
+                                  KEY `idx_status_retry` (`status`, `next_retry_time`, `id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='发件箱消息表';
+
 -- ========================================
 -- 插入测试数据
 -- ========================================
@@ -280,6 +280,24 @@ CREATE TABLE `oms_order_setting` (
                                      KEY `idx_deleted` (`deleted`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='订单设置表';
 
+-- ========================================
+-- 7. 发件箱消息表
+-- ========================================
+DROP TABLE IF EXISTS `outbox_message`;
+CREATE TABLE `outbox_message` (
+                                  `id` BIGINT NOT NULL COMMENT '主键ID（雪花ID，随写入时间递增）',
+                                  `topic` VARCHAR(100) NOT NULL COMMENT '主题',
+                                  `event_type` VARCHAR(100) NOT NULL COMMENT '事件类型',
+                                  `biz_key` VARCHAR(64) COMMENT '业务键',
+                                  `payload` TEXT COMMENT '消息内容（JSON）',
+                                  `status` TINYINT NOT NULL DEFAULT 0 COMMENT '状态（0-待投递 1-死信）',
+                                  `attempts` INT NOT NULL DEFAULT 0 COMMENT '已投递失败次数',
+                                  `next_retry_time` DATETIME NOT NULL COMMENT '下次投递时间',
+                                  `create_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+                                  PRIMARY KEY (`id`),
+                                  KEY `idx_status_retry` (`status`, `next_retry_time`, `id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='发件箱消息表';
+
 -- ========================================
 -- 插入测试数据
 -- ========================================
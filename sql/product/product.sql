@@ -35,6 +35,7 @@ CREATE TABLE `pms_category` (
                                 `icon` VARCHAR(255) COMMENT '图标',
                                 `keywords` VARCHAR(255) COMMENT '关键词',
                                 `description` TEXT COMMENT '描述',
+                                `path` VARCHAR(255) COMMENT '分类路径：从一级分类到自身的ID，以/分隔',
                                 `create_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
                                 `update_time` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
                                 `create_by` VARCHAR(50) COMMENT '创建人',
@@ -47,6 +48,7 @@ CREATE TABLE `pms_category` (
                                 KEY `idx_parent_id` (`parent_id`),
                                 KEY `idx_level` (`level`),
                                 KEY `idx_sort` (`sort`),
+                                KEY `idx_path` (`path`),
                                 KEY `idx_deleted` (`deleted`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='商品分类表';
 
@@ -15,6 +15,11 @@ INSERT INTO `pms_category` (`id`, `tenant_id`, `parent_id`, `name`, `level`, `pr
                                                                                                                                                                                                                     (1750000000000000009, 0, 1750000000000000002, '厨房电器', 2, 0, '台', 1, 1, 2, NULL, '厨电', '厨房电器', 'admin', 'admin'),
                                                                                                                                                                                                                     (1750000000000000010, 0, 1750000000000000008, '冰箱', 3, 0, '台', 1, 1, 1, NULL, '冰箱', '各类冰箱', 'admin', 'admin');
 
+-- 回填分类路径（已有数据升级时同样执行）
+UPDATE `pms_category` SET `path` = CAST(`id` AS CHAR) WHERE `parent_id` = 0;
+UPDATE `pms_category` c JOIN `pms_category` p ON c.`parent_id` = p.`id` SET c.`path` = CONCAT(p.`path`, '/', c.`id`) WHERE c.`level` = 2;
+UPDATE `pms_category` c JOIN `pms_category` p ON c.`parent_id` = p.`id` SET c.`path` = CONCAT(p.`path`, '/', c.`id`) WHERE c.`level` = 3;
+
 -- 插入品牌测试数据
 INSERT INTO `pms_brand` (`id`, `tenant_id`, `name`, `first_letter`, `sort`, `factory_status`, `show_status`, `product_count`, `product_comment_count`, `logo`, `big_pic`, `brand_story`, `create_by`, `update_by`) VALUES
                                                                                                                                                                                                                        (1750000000000000101, 0, '华为', 'H', 1, 1, 1, 0, 0, 'https://example.com/huawei-logo.png', NULL, '华为技术有限公司，成立于1987年，是全球领先的ICT基础设施和智能终端提供商', 'admin', 'admin'),